@@ -0,0 +1,50 @@
+package com.example.weather.loadtest;
+
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Telemetry configurations the harness compares, each as the application properties that select it. {@link #OFF}
+ * is the baseline the others are measured against.
+ */
+enum ExporterSetup {
+
+    /** No tracing and nothing exported: the cost of the service alone. */
+    OFF(Map.of(
+        "management.tracing.enabled", "false",
+        LoadTestConfiguration.EXPORTERS_PROPERTY, "none")),
+
+    /** Spans, metrics and logs are produced and batched, then discarded: the cost of instrumentation and the SDK. */
+    NOOP(Map.of(LoadTestConfiguration.EXPORTERS_PROPERTY, "none")),
+
+    /** The default MongoDB exporters. */
+    MONGO(Map.of()),
+
+    /** MongoDB exporters with metric points packed per series. */
+    MONGO_PACKED_METRICS(Map.of("telemetry.mongo.metrics-layout", "packed")),
+
+    /** MongoDB exporters behind the tail-sampling span processor. */
+    MONGO_TAIL_SAMPLING(Map.of("telemetry.mongo.tail-sampling.enabled", "true")),
+
+    /** MongoDB exporters behind the rate-limiting head sampler. */
+    MONGO_RATE_LIMITED_SAMPLING(Map.of("telemetry.mongo.rate-limited-sampling.enabled", "true"));
+
+    private final Map<String, String> properties;
+
+    ExporterSetup(Map<String, String> properties) {
+        this.properties = properties;
+    }
+
+    Map<String, String> properties() {
+        return properties;
+    }
+
+    /** Name as given on the command line, e.g. {@code mongo-tail-sampling}. */
+    String displayName() {
+        return name().toLowerCase(Locale.ROOT).replace('_', '-');
+    }
+
+    static ExporterSetup fromDisplayName(String name) {
+        return valueOf(name.trim().toUpperCase(Locale.ROOT).replace('-', '_'));
+    }
+}
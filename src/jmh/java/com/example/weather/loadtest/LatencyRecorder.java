@@ -0,0 +1,52 @@
+package com.example.weather.loadtest;
+
+import java.util.Arrays;
+
+/**
+ * Collects every request latency of a run, in nanoseconds, and reports exact percentiles. Runs are bounded in
+ * time, so keeping the raw samples is cheap and avoids bucketing error in the tail. Thread-safe.
+ */
+final class LatencyRecorder {
+
+    private long[] samples = new long[1 << 16];
+    private int count;
+    private long errors;
+
+    synchronized void record(long latencyNanos) {
+        if (count == samples.length) {
+            samples = Arrays.copyOf(samples, count * 2);
+        }
+        samples[count++] = latencyNanos;
+    }
+
+    synchronized void recordError() {
+        errors++;
+    }
+
+    /** Sorts the samples recorded so far into a snapshot; the recorder keeps accepting samples. */
+    synchronized Snapshot snapshot() {
+        long[] sorted = Arrays.copyOf(samples, count);
+        Arrays.sort(sorted);
+        return new Snapshot(sorted, errors);
+    }
+
+    record Snapshot(long[] sorted, long errors) {
+
+        long count() {
+            return sorted.length;
+        }
+
+        /** Latency at {@code quantile} (0..1) by the nearest-rank rule, or 0 with no samples. */
+        long percentile(double quantile) {
+            if (sorted.length == 0) {
+                return 0;
+            }
+            int rank = (int) Math.ceil(quantile * sorted.length);
+            return sorted[Math.max(0, Math.min(sorted.length - 1, rank - 1))];
+        }
+
+        long max() {
+            return sorted.length == 0 ? 0 : sorted[sorted.length - 1];
+        }
+    }
+}
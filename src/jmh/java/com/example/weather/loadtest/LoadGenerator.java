@@ -0,0 +1,160 @@
+package com.example.weather.loadtest;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Drives {@code GET /api/weather} against a running service and records the latency of every request.
+ * <p>
+ * {@link Mode#CLOSED} runs a fixed number of workers that each send the next request as soon as the previous one
+ * answers, which measures the throughput the service sustains. {@link Mode#OPEN} sends requests at a fixed rate
+ * whether or not earlier ones have answered, and measures each latency from the moment the request was due, so a
+ * stalled service shows up in the percentiles instead of silently lowering the offered load.
+ */
+final class LoadGenerator {
+
+    enum Mode {
+        CLOSED,
+        OPEN
+    }
+
+    /** Coordinates the requests cycle through: a handful of cities, as the service sees in practice. */
+    private static final double[][] LOCATIONS = {
+        {40.4168, -3.7038}, {38.7223, -9.1393}, {48.8566, 2.3522}, {52.5200, 13.4050},
+        {41.9028, 12.4964}, {48.2082, 16.3738}, {50.0755, 14.4378}, {59.9139, 10.7522}
+    };
+
+    private static final int MAX_IN_FLIGHT = 10_000;
+
+    private static final Duration DRAIN_TIMEOUT = Duration.ofSeconds(30);
+
+    private final HttpClient client;
+    private final List<HttpRequest> requests;
+    private final Mode mode;
+    private final int concurrency;
+    private final double rate;
+    private final AtomicLong sequence = new AtomicLong();
+
+    /**
+     * @param serviceUri  base URI of the running service, e.g. {@code http://127.0.0.1:8080}
+     * @param concurrency workers for {@link Mode#CLOSED}
+     * @param rate        requests per second for {@link Mode#OPEN}
+     */
+    LoadGenerator(URI serviceUri, Mode mode, int concurrency, double rate) {
+        this.client = HttpClient.newBuilder()
+            .version(HttpClient.Version.HTTP_1_1)
+            .connectTimeout(Duration.ofSeconds(5))
+            .build();
+        this.requests = new ArrayList<>(LOCATIONS.length);
+        for (double[] location : LOCATIONS) {
+            URI uri = serviceUri.resolve(String.format(Locale.ROOT, "/api/weather?lat=%s&lon=%s", location[0],
+                location[1]));
+            requests.add(HttpRequest.newBuilder(uri).timeout(Duration.ofSeconds(30)).GET().build());
+        }
+        this.mode = mode;
+        this.concurrency = concurrency;
+        this.rate = rate;
+    }
+
+    /** Runs the load for {@code duration} and returns what it recorded. */
+    Result run(Duration duration) throws InterruptedException {
+        LatencyRecorder recorder = new LatencyRecorder();
+        long start = System.nanoTime();
+        long deadline = start + duration.toNanos();
+        if (mode == Mode.CLOSED) {
+            runClosed(recorder, deadline);
+        } else {
+            runOpen(recorder, start, deadline);
+        }
+        return new Result(recorder.snapshot(), Duration.ofNanos(System.nanoTime() - start));
+    }
+
+    private void runClosed(LatencyRecorder recorder, long deadline) throws InterruptedException {
+        List<Thread> workers = new ArrayList<>(concurrency);
+        for (int i = 0; i < concurrency; i++) {
+            Thread worker = new Thread(() -> {
+                while (System.nanoTime() < deadline) {
+                    long started = System.nanoTime();
+                    try {
+                        HttpResponse<Void> response = client.send(nextRequest(),
+                            HttpResponse.BodyHandlers.discarding());
+                        record(recorder, response.statusCode(), System.nanoTime() - started);
+                    } catch (IOException exception) {
+                        recorder.recordError();
+                    } catch (InterruptedException exception) {
+                        Thread.currentThread().interrupt();
+                        return;
+                    }
+                }
+            }, "load-generator-" + i);
+            worker.setDaemon(true);
+            worker.start();
+            workers.add(worker);
+        }
+        for (Thread worker : workers) {
+            worker.join();
+        }
+    }
+
+    private void runOpen(LatencyRecorder recorder, long start, long deadline) throws InterruptedException {
+        long intervalNanos = (long) (TimeUnit.SECONDS.toNanos(1) / rate);
+        Semaphore inFlight = new Semaphore(MAX_IN_FLIGHT);
+        for (long i = 0; ; i++) {
+            long due = start + i * intervalNanos;
+            if (due >= deadline) {
+                break;
+            }
+            long wait = due - System.nanoTime();
+            if (wait > 0) {
+                LockSupport.parkNanos(wait);
+            }
+            if (!inFlight.tryAcquire()) {
+                recorder.recordError();
+                continue;
+            }
+            client.sendAsync(nextRequest(), HttpResponse.BodyHandlers.discarding())
+                .whenComplete((response, failure) -> {
+                    if (failure != null) {
+                        recorder.recordError();
+                    } else {
+                        record(recorder, response.statusCode(), System.nanoTime() - due);
+                    }
+                    inFlight.release();
+                });
+        }
+        if (!inFlight.tryAcquire(MAX_IN_FLIGHT, DRAIN_TIMEOUT.toNanos(), TimeUnit.NANOSECONDS)) {
+            throw new IllegalStateException("Requests still in flight " + DRAIN_TIMEOUT + " after the run ended");
+        }
+    }
+
+    private HttpRequest nextRequest() {
+        return requests.get((int) (sequence.getAndIncrement() % requests.size()));
+    }
+
+    private static void record(LatencyRecorder recorder, int status, long latencyNanos) {
+        if (status == 200) {
+            recorder.record(latencyNanos);
+        } else {
+            recorder.recordError();
+        }
+    }
+
+    record Result(LatencyRecorder.Snapshot latencies, Duration elapsed) {
+
+        /** Successful requests per second. */
+        double throughput() {
+            return latencies.count() / (elapsed.toNanos() / 1e9);
+        }
+    }
+}
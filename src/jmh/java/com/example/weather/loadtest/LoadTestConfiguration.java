@@ -0,0 +1,88 @@
+package com.example.weather.loadtest;
+
+import java.util.Collection;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+
+import com.example.weather.telemetry.InMemoryMongoDatabase;
+import com.mongodb.client.MongoDatabase;
+
+import io.opentelemetry.sdk.common.CompletableResultCode;
+import io.opentelemetry.sdk.logs.export.LogRecordExporter;
+import io.opentelemetry.sdk.metrics.InstrumentType;
+import io.opentelemetry.sdk.metrics.data.AggregationTemporality;
+import io.opentelemetry.sdk.metrics.data.MetricData;
+import io.opentelemetry.sdk.metrics.export.MetricExporter;
+import io.opentelemetry.sdk.trace.export.SpanExporter;
+
+/**
+ * Beans the harness adds to the application under test. Both sets are opt-in through properties, so the class is
+ * inert when it is merely on the classpath.
+ */
+@Configuration
+public class LoadTestConfiguration {
+
+    /** {@code in-memory} replaces the telemetry database with {@link InMemoryMongoDatabase}. */
+    static final String MONGO_PROPERTY = "loadtest.mongo";
+
+    /** {@code none} replaces the span, metric and log exporters with ones that discard everything. */
+    static final String EXPORTERS_PROPERTY = "loadtest.exporters";
+
+    @Bean
+    @ConditionalOnProperty(name = MONGO_PROPERTY, havingValue = "in-memory")
+    public InMemoryMongoDatabase inMemoryMongoDatabase() {
+        return InMemoryMongoDatabase.named("telemetry");
+    }
+
+    @Bean
+    @Primary
+    @ConditionalOnProperty(name = MONGO_PROPERTY, havingValue = "in-memory")
+    public MongoDatabase inMemoryTelemetryMongoDatabase(InMemoryMongoDatabase inMemoryMongoDatabase) {
+        return inMemoryMongoDatabase.database();
+    }
+
+    @Bean
+    @Primary
+    @ConditionalOnProperty(name = EXPORTERS_PROPERTY, havingValue = "none")
+    public SpanExporter discardingSpanExporter() {
+        return SpanExporter.composite();
+    }
+
+    @Bean
+    @Primary
+    @ConditionalOnProperty(name = EXPORTERS_PROPERTY, havingValue = "none")
+    public LogRecordExporter discardingLogRecordExporter() {
+        return LogRecordExporter.composite();
+    }
+
+    @Bean
+    @Primary
+    @ConditionalOnProperty(name = EXPORTERS_PROPERTY, havingValue = "none")
+    public MetricExporter discardingMetricExporter() {
+        return new MetricExporter() {
+
+            @Override
+            public AggregationTemporality getAggregationTemporality(InstrumentType instrumentType) {
+                return AggregationTemporality.CUMULATIVE;
+            }
+
+            @Override
+            public CompletableResultCode export(Collection<MetricData> metrics) {
+                return CompletableResultCode.ofSuccess();
+            }
+
+            @Override
+            public CompletableResultCode flush() {
+                return CompletableResultCode.ofSuccess();
+            }
+
+            @Override
+            public CompletableResultCode shutdown() {
+                return CompletableResultCode.ofSuccess();
+            }
+        };
+    }
+}
@@ -0,0 +1,188 @@
+package com.example.weather.loadtest;
+
+import java.net.URI;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import com.example.weather.WeatherServiceApplication;
+import com.example.weather.telemetry.InMemoryMongoDatabase;
+
+import io.opentelemetry.api.GlobalOpenTelemetry;
+import io.opentelemetry.sdk.OpenTelemetrySdk;
+
+/**
+ * End-to-end load test: starts a local OneCall stub, then for each {@link ExporterSetup} boots the whole service
+ * against it, drives {@code /api/weather} with a {@link LoadGenerator} and prints latency percentiles and throughput
+ * per setup, so the overhead of each telemetry feature can be read off against the {@code off} baseline.
+ * <p>
+ * Unless {@code --mongo-uri} points at a real server, telemetry is written to an {@link InMemoryMongoDatabase}: the
+ * exporters encode every document exactly as for the driver, but nothing leaves the process. Options, all
+ * {@code --name=value}:
+ * <ul>
+ * <li>{@code mode}: {@code closed} (default) or {@code open}</li>
+ * <li>{@code concurrency}: closed-loop workers, default 32</li>
+ * <li>{@code rate}: open-loop requests per second, default 200</li>
+ * <li>{@code warmup} and {@code duration}: ISO-8601 durations, default {@code PT10S} and {@code PT30S}</li>
+ * <li>{@code upstream-latency} and {@code upstream-jitter}: stub delay, default {@code PT0.05S} and
+ * {@code PT0.01S}</li>
+ * <li>{@code payload}: recorded OneCall response to serve instead of the synthetic one</li>
+ * <li>{@code setups}: comma-separated {@link ExporterSetup} names, default all</li>
+ * <li>{@code mongo-uri}: MongoDB to export to instead of the in-memory stand-in</li>
+ * </ul>
+ * Any other option is passed to every application context, e.g.
+ * {@code --telemetry.mongo.span-batch.schedule-delay=PT1S}.
+ */
+public final class LoadTestHarness {
+
+    private static final List<String> OPTIONS = List.of("mode", "concurrency", "rate", "warmup", "duration",
+        "upstream-latency", "upstream-jitter", "payload", "setups", "mongo-uri");
+
+    private static final Duration FLUSH_TIMEOUT = Duration.ofSeconds(30);
+
+    private LoadTestHarness() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = new HashMap<>();
+        Map<String, String> passThrough = new LinkedHashMap<>();
+        for (String arg : args) {
+            int separator = arg.indexOf('=');
+            if (!arg.startsWith("--") || separator < 0) {
+                throw new IllegalArgumentException("Expected --name=value but got " + arg);
+            }
+            String name = arg.substring(2, separator);
+            String value = arg.substring(separator + 1);
+            if (OPTIONS.contains(name)) {
+                options.put(name, value);
+            } else {
+                passThrough.put(name, value);
+            }
+        }
+
+        LoadGenerator.Mode mode = LoadGenerator.Mode.valueOf(
+            options.getOrDefault("mode", "closed").toUpperCase(Locale.ROOT));
+        int concurrency = Integer.parseInt(options.getOrDefault("concurrency", "32"));
+        double rate = Double.parseDouble(options.getOrDefault("rate", "200"));
+        Duration warmup = Duration.parse(options.getOrDefault("warmup", "PT10S"));
+        Duration duration = Duration.parse(options.getOrDefault("duration", "PT30S"));
+        String mongoUri = options.get("mongo-uri");
+        List<ExporterSetup> setups = options.containsKey("setups")
+            ? Arrays.stream(options.get("setups").split(",")).map(ExporterSetup::fromDisplayName).toList()
+            : List.of(ExporterSetup.values());
+
+        List<Row> rows = new ArrayList<>();
+        Path payload = options.containsKey("payload") ? Path.of(options.get("payload")) : null;
+        try (OneCallStub stub = OneCallStub.start(payload,
+                Duration.parse(options.getOrDefault("upstream-latency", "PT0.05S")),
+                Duration.parse(options.getOrDefault("upstream-jitter", "PT0.01S")))) {
+            System.out.printf(Locale.ROOT, "OneCall stub at %s serving %d bytes; %s load, %s warmup, %s measured%n",
+                stub.baseUrl(), stub.payloadSize(), describe(mode, concurrency, rate), warmup, duration);
+            for (ExporterSetup setup : setups) {
+                Map<String, String> properties = new LinkedHashMap<>();
+                properties.put("server.port", "0");
+                properties.put("spring.main.banner-mode", "off");
+                properties.put("weather.api-key", "loadtest");
+                properties.put("weather.base-url", stub.baseUrl());
+                properties.put("logging.level.root", "WARN");
+                properties.put("logging.level.com.example.weather", "WARN");
+                properties.put("management.otlp.tracing.endpoint", "false");
+                properties.put("management.otlp.metrics.export.enabled", "false");
+                if (mongoUri != null) {
+                    properties.put("telemetry.mongo.uri", mongoUri);
+                } else {
+                    properties.put(LoadTestConfiguration.MONGO_PROPERTY, "in-memory");
+                    properties.put("telemetry.mongo.indexing.enabled", "false");
+                }
+                properties.putAll(setup.properties());
+                properties.putAll(passThrough);
+                System.out.printf("Running %s...%n", setup.displayName());
+                rows.add(run(setup, properties, mode, concurrency, rate, warmup, duration));
+            }
+        }
+        print(rows);
+    }
+
+    private static Row run(ExporterSetup setup, Map<String, String> properties, LoadGenerator.Mode mode,
+            int concurrency, double rate, Duration warmup, Duration duration) throws InterruptedException {
+        String[] args = properties.entrySet().stream()
+            .map(property -> "--" + property.getKey() + "=" + property.getValue())
+            .toArray(String[]::new);
+        ConfigurableApplicationContext context = new SpringApplicationBuilder(WeatherServiceApplication.class,
+            LoadTestConfiguration.class)
+            .run(args);
+        try {
+            int port = ((WebServerApplicationContext) context).getWebServer().getPort();
+            InMemoryMongoDatabase database = context.getBeanProvider(InMemoryMongoDatabase.class).getIfAvailable();
+            LoadGenerator generator = new LoadGenerator(URI.create("http://127.0.0.1:" + port), mode, concurrency,
+                rate);
+            generator.run(warmup);
+            flush(context);
+            long documents = database != null ? database.documents() : -1;
+            long bytes = database != null ? database.bytes() : -1;
+            LoadGenerator.Result result = generator.run(duration);
+            flush(context);
+            double seconds = result.elapsed().toNanos() / 1e9;
+            return new Row(setup, result,
+                database != null ? (database.documents() - documents) / seconds : Double.NaN,
+                database != null ? (database.bytes() - bytes) / seconds : Double.NaN);
+        } finally {
+            context.close();
+            GlobalOpenTelemetry.resetForTest();
+        }
+    }
+
+    /** Exports what the run left in the batch queues, so it is counted against the run that produced it. */
+    private static void flush(ConfigurableApplicationContext context) {
+        OpenTelemetrySdk sdk = context.getBean(OpenTelemetrySdk.class);
+        sdk.getSdkTracerProvider().forceFlush().join(FLUSH_TIMEOUT.toNanos(), TimeUnit.NANOSECONDS);
+        sdk.getSdkMeterProvider().forceFlush().join(FLUSH_TIMEOUT.toNanos(), TimeUnit.NANOSECONDS);
+        sdk.getSdkLoggerProvider().forceFlush().join(FLUSH_TIMEOUT.toNanos(), TimeUnit.NANOSECONDS);
+    }
+
+    private static String describe(LoadGenerator.Mode mode, int concurrency, double rate) {
+        return mode == LoadGenerator.Mode.CLOSED
+            ? "closed-loop with " + concurrency + " workers"
+            : String.format(Locale.ROOT, "open-loop at %.0f req/s", rate);
+    }
+
+    private static void print(List<Row> rows) {
+        Row baseline = rows.stream().filter(row -> row.setup() == ExporterSetup.OFF).findFirst().orElse(null);
+        String format = "%-28s %9s %7s %9s %9s %9s %9s %9s %9s %10s %10s%n";
+        System.out.println();
+        System.out.printf(Locale.ROOT, format, "setup", "requests", "errors", "req/s", "p50 ms", "p99 ms",
+            "p99.9 ms", "max ms", "+p99 ms", "docs/s", "KB/s");
+        for (Row row : rows) {
+            LatencyRecorder.Snapshot latencies = row.result().latencies();
+            long p99 = latencies.percentile(0.99);
+            System.out.printf(Locale.ROOT, format, row.setup().displayName(), latencies.count(), latencies.errors(),
+                String.format(Locale.ROOT, "%.1f", row.result().throughput()),
+                millis(latencies.percentile(0.50)), millis(p99), millis(latencies.percentile(0.999)),
+                millis(latencies.max()),
+                baseline != null ? millis(p99 - baseline.result().latencies().percentile(0.99)) : "-",
+                Double.isNaN(row.documentsPerSecond()) ? "-"
+                    : String.format(Locale.ROOT, "%.0f", row.documentsPerSecond()),
+                Double.isNaN(row.bytesPerSecond()) ? "-"
+                    : String.format(Locale.ROOT, "%.1f", row.bytesPerSecond() / 1024));
+        }
+    }
+
+    private static String millis(long nanos) {
+        return String.format(Locale.ROOT, "%.2f", nanos / 1e6);
+    }
+
+    private record Row(ExporterSetup setup, LoadGenerator.Result result, double documentsPerSecond,
+            double bytesPerSecond) {
+    }
+}
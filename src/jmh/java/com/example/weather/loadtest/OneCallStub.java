@@ -0,0 +1,108 @@
+package com.example.weather.loadtest;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.net.InetSocketAddress;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+
+import com.example.weather.service.OneCallPayloads;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * Local OpenWeatherMap stand-in that answers {@code GET /data/3.0/onecall} with a recorded OneCall payload after a
+ * configurable latency, so load tests measure the service and its telemetry rather than the real upstream.
+ * <p>
+ * The payload is read from a file when one is given; otherwise {@link OneCallPayloads#synthetic(int)} with one alert
+ * is served, which is about the size of a real response.
+ */
+final class OneCallStub implements AutoCloseable {
+
+    static final String PATH = "/data/3.0/onecall";
+
+    private final HttpServer server;
+    private final ExecutorService executor;
+    private final byte[] payload;
+    private final Duration latency;
+    private final Duration jitter;
+
+    private OneCallStub(HttpServer server, byte[] payload, Duration latency, Duration jitter) {
+        this.server = server;
+        this.payload = payload;
+        this.latency = latency;
+        this.jitter = jitter;
+        this.executor = Executors.newCachedThreadPool(runnable -> {
+            Thread thread = new Thread(runnable, "onecall-stub");
+            thread.setDaemon(true);
+            return thread;
+        });
+        server.createContext(PATH, this::handle);
+        server.setExecutor(executor);
+    }
+
+    /**
+     * Starts the stub on an ephemeral port.
+     *
+     * @param payloadFile recorded OneCall response to serve, or {@code null} for the synthetic one
+     * @param latency     delay before every response
+     * @param jitter      extra uniformly distributed delay, up to this much
+     */
+    static OneCallStub start(Path payloadFile, Duration latency, Duration jitter) {
+        try {
+            byte[] payload = payloadFile != null ? Files.readAllBytes(payloadFile) : OneCallPayloads.synthetic(1);
+            HttpServer server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 1024);
+            OneCallStub stub = new OneCallStub(server, payload, latency, jitter);
+            server.start();
+            return stub;
+        } catch (IOException exception) {
+            throw new UncheckedIOException("Could not start the OneCall stub", exception);
+        }
+    }
+
+    /** Base URL to configure as {@code weather.base-url}. */
+    String baseUrl() {
+        return "http://127.0.0.1:" + server.getAddress().getPort() + "/data/3.0";
+    }
+
+    int payloadSize() {
+        return payload.length;
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            sleep();
+            exchange.getResponseHeaders().add("Content-Type", "application/json; charset=utf-8");
+            exchange.sendResponseHeaders(200, payload.length);
+            try (OutputStream body = exchange.getResponseBody()) {
+                body.write(payload);
+            }
+        }
+    }
+
+    private void sleep() {
+        long nanos = latency.toNanos();
+        if (!jitter.isZero()) {
+            nanos += ThreadLocalRandom.current().nextLong(jitter.toNanos() + 1);
+        }
+        if (nanos <= 0) {
+            return;
+        }
+        try {
+            Thread.sleep(nanos / 1_000_000, (int) (nanos % 1_000_000));
+        } catch (InterruptedException exception) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,107 @@
+package com.example.weather.service;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.RequestEntity;
+import org.springframework.http.client.ClientHttpRequestFactory;
+import org.springframework.mock.http.client.MockClientHttpRequest;
+import org.springframework.mock.http.client.MockClientHttpResponse;
+import org.springframework.web.client.RestTemplate;
+
+import com.example.weather.config.WeatherProperties;
+import com.example.weather.web.dto.WeatherResponse;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * Cost of answering one weather request from a OneCall body already in memory, so only the JSON handling is measured:
+ * reading the body into a tree and binding the tree to the model (how responses were read before), binding it while
+ * it is read, and passing the bytes through. The parsed variants also write the response as the controller would.
+ * Run with {@code -prof gc} to compare the bytes allocated per request for the standard and the large payload.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class OneCallDeserializationBenchmark {
+
+    /** One alert, about 20 KB; forty alerts with long descriptions, about 60 KB. */
+    public enum Payload {
+        STANDARD(1), LARGE(40);
+
+        private final int alerts;
+
+        Payload(int alerts) {
+            this.alerts = alerts;
+        }
+    }
+
+    @Param({"STANDARD", "LARGE"})
+    public Payload payload;
+
+    private final ObjectMapper mapper = new ObjectMapper();
+    private RestTemplate restTemplate;
+    private RequestEntity<Void> request;
+    private WeatherService service;
+    private WeatherService passThroughService;
+
+    @Setup
+    public void setUp() {
+        byte[] body = OneCallPayloads.synthetic(payload.alerts);
+        ClientHttpRequestFactory upstream = (uri, method) -> {
+            MockClientHttpResponse response = new MockClientHttpResponse(body, HttpStatus.OK);
+            response.getHeaders().setContentType(MediaType.APPLICATION_JSON);
+            MockClientHttpRequest call = new MockClientHttpRequest(method, uri);
+            call.setResponse(response);
+            return call;
+        };
+        restTemplate = new RestTemplate(upstream);
+        request = RequestEntity.method(HttpMethod.GET, "http://localhost/data/3.0/onecall").build();
+        service = new WeatherService(restTemplate, properties(false), mapper, new SimpleMeterRegistry());
+        passThroughService = new WeatherService(restTemplate, properties(true), mapper, new SimpleMeterRegistry());
+    }
+
+    @Benchmark
+    public int treeThenBind() throws Exception {
+        JsonNode tree = restTemplate.exchange(request, JsonNode.class).getBody();
+        WeatherResponse response = mapper.treeToValue(tree, WeatherResponse.class);
+        return mapper.writeValueAsBytes(response).length;
+    }
+
+    @Benchmark
+    public int streamingBind() throws Exception {
+        WeatherResponse response = service.getWeather(40.4168, -3.7038, null, null);
+        return mapper.writeValueAsBytes(response).length;
+    }
+
+    @Benchmark
+    public int passThrough() {
+        return passThroughService.getRawWeather(40.4168, -3.7038, null, null).length;
+    }
+
+    private static WeatherProperties properties(boolean passThrough) {
+        WeatherProperties properties = new WeatherProperties();
+        properties.setApiKey("benchmark");
+        properties.setBaseUrl("http://localhost/data/3.0");
+        properties.setPassThrough(passThrough);
+        properties.getCoalescing().setEnabled(false);
+        return properties;
+    }
+}
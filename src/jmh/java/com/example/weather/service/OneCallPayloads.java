@@ -0,0 +1,113 @@
+package com.example.weather.service;
+
+import java.time.Instant;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+/**
+ * Synthetic OpenWeatherMap OneCall responses shared by the OneCall stub of the load tests and the deserialization
+ * benchmarks.
+ */
+public final class OneCallPayloads {
+
+    private static final String ALERT =
+        "Tormentas localmente fuertes acompañadas de granizo en la Comunidad de Madrid.";
+
+    private OneCallPayloads() {
+    }
+
+    /**
+     * Builds a response with the full OneCall shape: 61 minutely, 48 hourly and 8 daily entries and {@code alerts}
+     * alerts. The first alert is short; the rest carry long descriptions, as national warnings often do, so a high
+     * count gives a large payload.
+     */
+    public static byte[] synthetic(int alerts) {
+        ObjectMapper mapper = new ObjectMapper();
+        long now = Instant.now().getEpochSecond();
+        ObjectNode root = mapper.createObjectNode()
+            .put("lat", 40.4168)
+            .put("lon", -3.7038)
+            .put("timezone", "Europe/Madrid")
+            .put("timezone_offset", 7200);
+        root.set("current", conditions(mapper, now, 0).put("sunrise", now - 21_600).put("sunset", now + 21_600));
+
+        ArrayNode minutely = root.putArray("minutely");
+        for (int minute = 0; minute <= 60; minute++) {
+            minutely.addObject().put("dt", now + minute * 60L).put("precipitation", minute % 7 * 0.12);
+        }
+        ArrayNode hourly = root.putArray("hourly");
+        for (int hour = 0; hour < 48; hour++) {
+            hourly.add(conditions(mapper, now + hour * 3_600L, hour).put("pop", hour % 10 / 10.0));
+        }
+        ArrayNode daily = root.putArray("daily");
+        for (int day = 0; day < 8; day++) {
+            ObjectNode entry = daily.addObject()
+                .put("dt", now + day * 86_400L)
+                .put("sunrise", now + day * 86_400L - 21_600)
+                .put("sunset", now + day * 86_400L + 21_600)
+                .put("moonrise", now + day * 86_400L - 3_600)
+                .put("moonset", now + day * 86_400L + 39_600)
+                .put("moon_phase", day / 8.0)
+                .put("summary", "Expect a day of partly cloudy with rain")
+                .put("pressure", 1016)
+                .put("humidity", 59)
+                .put("dew_point", 11.54)
+                .put("wind_speed", 4.1)
+                .put("wind_deg", 245)
+                .put("wind_gust", 8.8)
+                .put("clouds", 40)
+                .put("pop", 0.47)
+                .put("rain", 1.37)
+                .put("uvi", 6.87);
+            entry.putObject("temp").put("day", 24.3).put("min", 14.1).put("max", 26.7).put("night", 16.2)
+                .put("eve", 22.8).put("morn", 15.4);
+            entry.putObject("feels_like").put("day", 24.1).put("night", 16.0).put("eve", 22.6).put("morn", 15.1);
+            weather(entry.putArray("weather"), day);
+        }
+        ArrayNode alertList = root.putArray("alerts");
+        for (int index = 0; index < alerts; index++) {
+            ObjectNode alert = alertList.addObject()
+                .put("sender_name", "AEMET")
+                .put("event", "Aviso amarillo por tormentas")
+                .put("start", now + index * 3_600L)
+                .put("end", now + index * 3_600L + 43_200)
+                .put("description", index == 0 ? ALERT : ALERT.repeat(12));
+            alert.putArray("tags").add("Thunderstorm");
+        }
+        try {
+            return mapper.writeValueAsBytes(root);
+        } catch (JsonProcessingException exception) {
+            throw new IllegalStateException("Could not write the synthetic OneCall payload", exception);
+        }
+    }
+
+    private static ObjectNode conditions(ObjectMapper mapper, long dt, int index) {
+        ObjectNode entry = mapper.createObjectNode()
+            .put("dt", dt)
+            .put("temp", 18.4 + index % 12)
+            .put("feels_like", 17.9 + index % 12)
+            .put("pressure", 1015 + index % 5)
+            .put("humidity", 55 + index % 30)
+            .put("dew_point", 9.86)
+            .put("uvi", index % 9 * 0.75)
+            .put("clouds", index * 7 % 100)
+            .put("visibility", 10_000)
+            .put("wind_speed", 3.6)
+            .put("wind_deg", 230)
+            .put("wind_gust", 6.2);
+        weather(entry.putArray("weather"), index);
+        return entry;
+    }
+
+    private static void weather(ArrayNode weather, int index) {
+        boolean rain = index % 3 == 0;
+        weather.addObject()
+            .put("id", rain ? 500 : 802)
+            .put("main", rain ? "Rain" : "Clouds")
+            .put("description", rain ? "lluvia ligera" : "nubes dispersas")
+            .put("icon", rain ? "10d" : "03d");
+    }
+}
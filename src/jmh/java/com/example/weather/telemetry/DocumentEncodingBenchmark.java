@@ -0,0 +1,130 @@
+package com.example.weather.telemetry;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.bson.BsonBinaryWriter;
+import org.bson.codecs.Encoder;
+import org.bson.codecs.EncoderContext;
+import org.bson.io.BasicOutputBuffer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import io.opentelemetry.api.common.Attributes;
+import io.opentelemetry.sdk.logs.data.LogRecordData;
+import io.opentelemetry.sdk.trace.data.SpanData;
+
+/**
+ * Cost of turning one signal into its stored BSON form: the codecs the exporters and the spool use, and the
+ * attribute conversion in {@link TelemetryDocumentFactory}. Each operation encodes one item into a reused buffer
+ * and returns the encoded size; run with {@code -prof gc} to see the bytes allocated per operation.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class DocumentEncodingBenchmark {
+
+    private static final EncoderContext CONTEXT = EncoderContext.builder().isEncodingCollectibleDocument(true).build();
+
+    @Param({"DOCUMENT", "DATE", "EPOCH_NANOS"})
+    public MongoTelemetryProperties.TimestampFormat timestampFormat;
+
+    private final BasicOutputBuffer buffer = new BasicOutputBuffer();
+    private SpanDataCodec spanCodec;
+    private LogRecordDataCodec logCodec;
+    private MetricPointCodec pointCodec;
+    private MetricPointCodec packedCodec;
+    private AttributeSanitizer sanitizer;
+    private SpanData span;
+    private SpanData errorSpan;
+    private LogRecordData log;
+    private LogRecordData errorLog;
+    private MetricPoints point;
+    private MetricPoints packed;
+
+    @Setup
+    public void setUp() {
+        TimestampEncoder timestamps = new TimestampEncoder(timestampFormat, true);
+        sanitizer = new AttributeSanitizer(new MongoTelemetryProperties.AttributeLimits());
+        TelemetryFragmentCache fragments = new TelemetryFragmentCache(64, null, sanitizer);
+        AttributeSetDictionary attributeSets = new AttributeSetDictionary(
+            InMemoryMongoCollection.named("attributeSets").collection(Object.class), 1024, sanitizer);
+        spanCodec = new SpanDataCodec(fragments, timestamps);
+        logCodec = new LogRecordDataCodec(fragments, timestamps);
+        pointCodec = new MetricPointCodec(fragments, timestamps, false, new AttributeSetDictionary(null, 1024,
+            sanitizer));
+        packedCodec = new MetricPointCodec(fragments, timestamps, false, attributeSets);
+
+        List<SpanData> spans = TelemetryFixtures.spans(40);
+        span = spans.get(3);
+        errorSpan = spans.get(0);
+        List<LogRecordData> logs = TelemetryFixtures.logs(20);
+        log = logs.get(1);
+        errorLog = logs.get(0);
+        List<MetricPoints> metrics = MongoMetricExporter.toPoints(TelemetryFixtures.metrics(2), false);
+        point = metrics.get(metrics.size() - 1);
+        packed = MongoMetricExporter.toPoints(TelemetryFixtures.metrics(2), true).get(1);
+    }
+
+    @Benchmark
+    public int encodeSpan() {
+        return encode(spanCodec, span);
+    }
+
+    @Benchmark
+    public int encodeSpanWithException() {
+        return encode(spanCodec, errorSpan);
+    }
+
+    @Benchmark
+    public int encodeLogRecord() {
+        return encode(logCodec, log);
+    }
+
+    @Benchmark
+    public int encodeLogRecordWithStackTrace() {
+        return encode(logCodec, errorLog);
+    }
+
+    @Benchmark
+    public int encodeHistogramPoint() {
+        return encode(pointCodec, point);
+    }
+
+    @Benchmark
+    public int encodePackedHistogram() {
+        return encode(packedCodec, packed);
+    }
+
+    @Benchmark
+    public int writeSpanAttributes() {
+        Attributes attributes = span.getAttributes();
+        buffer.truncateToPosition(0);
+        try (BsonBinaryWriter writer = new BsonBinaryWriter(buffer)) {
+            writer.writeStartDocument();
+            TelemetryDocumentFactory.writeAttributes(writer, "attributes", attributes, sanitizer);
+            writer.writeEndDocument();
+        }
+        return buffer.getPosition();
+    }
+
+    private <T> int encode(Encoder<T> codec, T value) {
+        buffer.truncateToPosition(0);
+        try (BsonBinaryWriter writer = new BsonBinaryWriter(buffer)) {
+            codec.encode(writer, value, CONTEXT);
+        }
+        return buffer.getPosition();
+    }
+}
@@ -0,0 +1,148 @@
+package com.example.weather.telemetry;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.bson.Document;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.mongodb.client.MongoCollection;
+
+import io.opentelemetry.sdk.common.CompletableResultCode;
+import io.opentelemetry.sdk.logs.data.LogRecordData;
+import io.opentelemetry.sdk.metrics.data.MetricData;
+import io.opentelemetry.sdk.metrics.export.AggregationTemporalitySelector;
+import io.opentelemetry.sdk.trace.data.SpanData;
+
+/**
+ * End-to-end cost of one export call on the synchronous MongoDB exporters, from the SDK's batch to the encoded
+ * documents the driver would send, against {@link InMemoryMongoCollection}. One operation exports one batch of
+ * {@code batchSize} items; the {@link Written} counters report documents and bytes written per second.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ExportThroughputBenchmark {
+
+    @Param({"64", "512"})
+    public int batchSize;
+
+    @Param({"POINT", "PACKED"})
+    public MongoTelemetryProperties.MetricLayout metricsLayout;
+
+    private InMemoryMongoCollection logs;
+    private InMemoryMongoCollection traces;
+    private InMemoryMongoCollection metrics;
+    private MongoLogRecordExporter logExporter;
+    private MongoSpanExporter spanExporter;
+    private MongoMetricExporter metricExporter;
+    private List<LogRecordData> logBatch;
+    private List<SpanData> spanBatch;
+    private List<MetricData> metricBatch;
+
+    @Setup
+    public void setUp() {
+        MongoTelemetryProperties properties = new MongoTelemetryProperties();
+        properties.setMetricsLayout(metricsLayout);
+        AttributeSanitizer sanitizer = new AttributeSanitizer(properties.getAttributeLimits());
+        TelemetryFragmentCache fragments = new TelemetryFragmentCache(properties.getFragmentCacheSize(), null,
+            sanitizer);
+        TimestampEncoder timestamps = new TimestampEncoder(properties.getTimestampFormat(),
+            properties.isIncludeIsoTimestamps());
+        TimeSeriesMetricsCollection timeSeries = new TimeSeriesMetricsCollection(null,
+            properties.getMetricsCollection(), properties.getMetricsTimeSeries());
+        TelemetryPartitions partitions = new TelemetryPartitions(null, properties, null, timeSeries);
+        AttributeSetDictionary attributeSets = new AttributeSetDictionary(
+            metricsLayout == MongoTelemetryProperties.MetricLayout.PACKED
+                ? InMemoryMongoCollection.named("attributeSets").collection(Document.class)
+                : null,
+            properties.getAttributeSetCacheSize(), sanitizer);
+
+        logs = InMemoryMongoCollection.named(properties.getLogsCollection());
+        traces = InMemoryMongoCollection.named(properties.getTracesCollection());
+        metrics = InMemoryMongoCollection.named(properties.getMetricsCollection());
+        MongoCollection<Document> logsCollection = logs.collection(Document.class);
+        MongoCollection<Document> tracesCollection = traces.collection(Document.class);
+        MongoCollection<Document> metricsCollection = metrics.collection(Document.class);
+        logExporter = new MongoLogRecordExporter(logsCollection, fragments, timestamps,
+            new TelemetrySpool<>(new LogRecordDataCodec(fragments, timestamps), logsCollection,
+                properties.getSpool()),
+            partitions);
+        spanExporter = new MongoSpanExporter(tracesCollection, fragments, timestamps,
+            new TelemetrySpool<>(new SpanDataCodec(fragments, timestamps), tracesCollection, properties.getSpool()),
+            partitions);
+        metricExporter = new MongoMetricExporter(metricsCollection, fragments, timestamps,
+            new TelemetrySpool<>(new MetricPointCodec(fragments, timestamps, false, attributeSets), metricsCollection,
+                properties.getSpool()),
+            timeSeries, AggregationTemporalitySelector.alwaysCumulative(),
+            new UnchangedPointFilter(properties.getMetricsChangeDetection()), attributeSets, partitions);
+
+        logBatch = TelemetryFixtures.logs(batchSize);
+        spanBatch = TelemetryFixtures.spans(batchSize);
+        metricBatch = TelemetryFixtures.metrics(Math.max(1, batchSize / 8));
+    }
+
+    @Benchmark
+    public CompletableResultCode exportLogs(Written written) {
+        CompletableResultCode result = logExporter.export(logBatch);
+        written.record(logs);
+        return result;
+    }
+
+    @Benchmark
+    public CompletableResultCode exportSpans(Written written) {
+        CompletableResultCode result = spanExporter.export(spanBatch);
+        written.record(traces);
+        return result;
+    }
+
+    /** Exports {@code batchSize / 8} metrics of eight points each, so every variant writes about batchSize points. */
+    @Benchmark
+    public CompletableResultCode exportMetrics(Written written) {
+        CompletableResultCode result = metricExporter.export(metricBatch);
+        written.record(metrics);
+        return result;
+    }
+
+    /** Documents and bytes the exporters wrote, reported by JMH as rates next to the operation rate. */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    public static class Written {
+
+        public long documents;
+
+        public long bytes;
+
+        private long lastDocuments;
+
+        private long lastBytes;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            documents = 0;
+            bytes = 0;
+        }
+
+        void record(InMemoryMongoCollection collection) {
+            documents += collection.documents() - lastDocuments;
+            bytes += collection.bytes() - lastBytes;
+            lastDocuments = collection.documents();
+            lastBytes = collection.bytes();
+        }
+    }
+}
@@ -0,0 +1,88 @@
+package com.example.weather.telemetry;
+
+import java.lang.reflect.Proxy;
+import java.util.List;
+
+import org.bson.BsonBinaryWriter;
+import org.bson.codecs.Codec;
+import org.bson.codecs.EncoderContext;
+import org.bson.codecs.configuration.CodecRegistry;
+import org.bson.io.BasicOutputBuffer;
+
+import com.mongodb.MongoClientSettings;
+import com.mongodb.MongoNamespace;
+import com.mongodb.client.MongoCollection;
+
+/**
+ * Stand-in for a {@link MongoCollection} that encodes inserted documents with the collection's codec, exactly as
+ * the driver would before sending them, and then discards the bytes. Export benchmarks run against it offline and
+ * measure the client-side cost of a write without the network or server.
+ * <p>
+ * Only what the exporters call is implemented: {@code insertMany}, {@code insertOne}, {@code bulkWrite} (a no-op),
+ * and the {@code with*} and {@code get*} accessors. Anything else throws {@link UnsupportedOperationException}.
+ * Writes are serialized, so the exporters' background threads can share one instance.
+ */
+final class InMemoryMongoCollection {
+
+    private final MongoNamespace namespace;
+    private final BasicOutputBuffer buffer = new BasicOutputBuffer();
+    private long documents;
+    private long bytes;
+
+    private InMemoryMongoCollection(String name) {
+        this.namespace = new MongoNamespace("benchmark", name);
+    }
+
+    static InMemoryMongoCollection named(String name) {
+        return new InMemoryMongoCollection(name);
+    }
+
+    <T> MongoCollection<T> collection(Class<T> documentClass) {
+        return view(documentClass, MongoClientSettings.getDefaultCodecRegistry());
+    }
+
+    synchronized long documents() {
+        return documents;
+    }
+
+    synchronized long bytes() {
+        return bytes;
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T> MongoCollection<T> view(Class<T> documentClass, CodecRegistry registry) {
+        return (MongoCollection<T>) Proxy.newProxyInstance(MongoCollection.class.getClassLoader(),
+            new Class<?>[] {MongoCollection.class}, (proxy, method, args) -> switch (method.getName()) {
+                case "getNamespace" -> namespace;
+                case "getDocumentClass" -> documentClass;
+                case "getCodecRegistry" -> registry;
+                case "withDocumentClass" -> view((Class<?>) args[0], registry);
+                case "withCodecRegistry" -> view(documentClass, (CodecRegistry) args[0]);
+                case "insertMany" -> {
+                    for (Object document : (List<?>) args[0]) {
+                        encode(registry.get(documentClass), document);
+                    }
+                    yield null;
+                }
+                case "insertOne" -> {
+                    encode(registry.get(documentClass), args[0]);
+                    yield null;
+                }
+                case "bulkWrite" -> null;
+                case "hashCode" -> System.identityHashCode(proxy);
+                case "equals" -> proxy == args[0];
+                case "toString" -> "InMemoryMongoCollection(" + namespace + ")";
+                default -> throw new UnsupportedOperationException(method.getName());
+            });
+    }
+
+    @SuppressWarnings("unchecked")
+    private synchronized <T> void encode(Codec<T> codec, Object document) {
+        buffer.truncateToPosition(0);
+        try (BsonBinaryWriter writer = new BsonBinaryWriter(buffer)) {
+            codec.encode(writer, (T) document, EncoderContext.builder().isEncodingCollectibleDocument(true).build());
+        }
+        documents++;
+        bytes += buffer.getPosition();
+    }
+}
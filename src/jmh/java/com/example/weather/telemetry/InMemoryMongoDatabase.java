@@ -0,0 +1,68 @@
+package com.example.weather.telemetry;
+
+import java.lang.reflect.Proxy;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.bson.Document;
+import org.bson.codecs.configuration.CodecRegistry;
+
+import com.mongodb.MongoClientSettings;
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.MongoDatabase;
+
+/**
+ * Stand-in for a {@link MongoDatabase} whose collections are {@link InMemoryMongoCollection}s, so the whole
+ * application can run its MongoDB exporters without a server. Supports {@code getCollection} and the accessors the
+ * telemetry beans use at startup; index management and partitioning need a real server and must stay disabled.
+ */
+public final class InMemoryMongoDatabase {
+
+    private final String name;
+    private final Map<String, InMemoryMongoCollection> collections = new ConcurrentHashMap<>();
+
+    private InMemoryMongoDatabase(String name) {
+        this.name = name;
+    }
+
+    public static InMemoryMongoDatabase named(String name) {
+        return new InMemoryMongoDatabase(name);
+    }
+
+    public MongoDatabase database() {
+        return view(MongoClientSettings.getDefaultCodecRegistry());
+    }
+
+    /** Documents written to every collection so far. */
+    public long documents() {
+        return collections.values().stream().mapToLong(InMemoryMongoCollection::documents).sum();
+    }
+
+    /** Encoded BSON bytes written to every collection so far. */
+    public long bytes() {
+        return collections.values().stream().mapToLong(InMemoryMongoCollection::bytes).sum();
+    }
+
+    private <T> MongoCollection<T> collection(String collectionName, Class<T> documentClass, CodecRegistry registry) {
+        return collections.computeIfAbsent(collectionName, InMemoryMongoCollection::named)
+            .collection(documentClass)
+            .withCodecRegistry(registry);
+    }
+
+    private MongoDatabase view(CodecRegistry registry) {
+        return (MongoDatabase) Proxy.newProxyInstance(MongoDatabase.class.getClassLoader(),
+            new Class<?>[] {MongoDatabase.class}, (proxy, method, args) -> switch (method.getName()) {
+                case "getName" -> name;
+                case "getCodecRegistry" -> registry;
+                case "withCodecRegistry" -> view((CodecRegistry) args[0]);
+                case "getCollection" -> {
+                    Class<?> documentClass = args.length > 1 ? (Class<?>) args[1] : Document.class;
+                    yield collection((String) args[0], documentClass, registry);
+                }
+                case "hashCode" -> System.identityHashCode(proxy);
+                case "equals" -> proxy == args[0];
+                case "toString" -> "InMemoryMongoDatabase(" + name + ")";
+                default -> throw new UnsupportedOperationException(method.getName());
+            });
+    }
+}
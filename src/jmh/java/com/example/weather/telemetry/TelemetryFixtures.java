@@ -0,0 +1,210 @@
+package com.example.weather.telemetry;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import io.opentelemetry.api.common.AttributeKey;
+import io.opentelemetry.api.common.Attributes;
+import io.opentelemetry.api.logs.Logger;
+import io.opentelemetry.api.logs.Severity;
+import io.opentelemetry.api.trace.Span;
+import io.opentelemetry.api.trace.SpanKind;
+import io.opentelemetry.api.trace.StatusCode;
+import io.opentelemetry.api.trace.Tracer;
+import io.opentelemetry.context.Context;
+import io.opentelemetry.context.Scope;
+import io.opentelemetry.sdk.common.CompletableResultCode;
+import io.opentelemetry.sdk.common.InstrumentationScopeInfo;
+import io.opentelemetry.sdk.logs.LogRecordProcessor;
+import io.opentelemetry.sdk.logs.ReadWriteLogRecord;
+import io.opentelemetry.sdk.logs.SdkLoggerProvider;
+import io.opentelemetry.sdk.logs.data.LogRecordData;
+import io.opentelemetry.sdk.metrics.data.AggregationTemporality;
+import io.opentelemetry.sdk.metrics.data.HistogramPointData;
+import io.opentelemetry.sdk.metrics.data.LongPointData;
+import io.opentelemetry.sdk.metrics.data.MetricData;
+import io.opentelemetry.sdk.metrics.internal.data.ImmutableHistogramData;
+import io.opentelemetry.sdk.metrics.internal.data.ImmutableHistogramPointData;
+import io.opentelemetry.sdk.metrics.internal.data.ImmutableLongPointData;
+import io.opentelemetry.sdk.metrics.internal.data.ImmutableMetricData;
+import io.opentelemetry.sdk.metrics.internal.data.ImmutableSumData;
+import io.opentelemetry.sdk.resources.Resource;
+import io.opentelemetry.sdk.trace.ReadableSpan;
+import io.opentelemetry.sdk.trace.SdkTracerProvider;
+import io.opentelemetry.sdk.trace.data.SpanData;
+
+/**
+ * Synthetic telemetry shaped like what the weather service produces: a server span per {@code /api/weather} call
+ * with a client span to OpenWeatherMap, request logs with the occasional error and stack trace, and per-city request
+ * counters and latency histograms.
+ */
+final class TelemetryFixtures {
+
+    static final Resource RESOURCE = Resource.getDefault().merge(Resource.builder()
+        .put("service.name", "weather-service")
+        .put("service.version", "0.0.1-SNAPSHOT")
+        .put("host.name", "weather-service-7d9f8c6b5-x2lqp")
+        .put("process.pid", 4242L)
+        .put("process.runtime.name", "OpenJDK Runtime Environment")
+        .put("process.runtime.version", "17.0.10+7")
+        .build());
+
+    static final InstrumentationScopeInfo SCOPE = InstrumentationScopeInfo.builder("com.example.weather")
+        .setVersion("0.0.1")
+        .build();
+
+    private static final String[] CITIES = {"Madrid", "Lisbon", "Paris", "Berlin", "Rome", "Vienna", "Prague", "Oslo"};
+
+    private static final String STACK_TRACE = """
+        org.springframework.web.client.HttpServerErrorException$ServiceUnavailable: 503 Service Unavailable
+        \tat org.springframework.web.client.HttpServerErrorException.create(HttpServerErrorException.java:111)
+        \tat org.springframework.web.client.StatusHandler.lambda$defaultHandler$0(StatusHandler.java:86)
+        \tat org.springframework.web.client.DefaultRestClient.applyStatusHandlers(DefaultRestClient.java:698)
+        \tat com.example.weather.service.WeatherService.getCurrentWeather(WeatherService.java:44)
+        """;
+
+    private TelemetryFixtures() {
+    }
+
+    /** {@code count} spans, alternating server spans and their OpenWeatherMap client children. */
+    static List<SpanData> spans(int count) {
+        SdkTracerProvider tracerProvider = SdkTracerProvider.builder().setResource(RESOURCE).build();
+        Tracer tracer = tracerProvider.get(SCOPE.getName(), SCOPE.getVersion());
+        List<SpanData> spans = new ArrayList<>(count);
+        for (int i = 0; spans.size() < count; i++) {
+            String city = CITIES[i % CITIES.length];
+            Span server = tracer.spanBuilder("GET /api/weather")
+                .setSpanKind(SpanKind.SERVER)
+                .setAttribute("http.request.method", "GET")
+                .setAttribute("http.route", "/api/weather")
+                .setAttribute("url.path", "/api/weather")
+                .setAttribute("url.query", "lat=40.4168&lon=-3.7038&city=" + city)
+                .setAttribute("http.response.status_code", 200L)
+                .setAttribute("user_agent.original", "Mozilla/5.0 (X11; Linux x86_64) AppleWebKit/537.36")
+                .setAttribute(AttributeKey.stringArrayKey("weather.conditions"), List.of("clouds", "rain"))
+                .startSpan();
+            try (Scope ignored = server.makeCurrent()) {
+                Span client = tracer.spanBuilder("GET api.openweathermap.org")
+                    .setSpanKind(SpanKind.CLIENT)
+                    .setParent(Context.current())
+                    .setAttribute("http.request.method", "GET")
+                    .setAttribute("server.address", "api.openweathermap.org")
+                    .setAttribute("url.full", "https://api.openweathermap.org/data/3.0/onecall?lat=40.4168&lon=-3.7038")
+                    .setAttribute("http.response.status_code", i % 20 == 0 ? 503L : 200L)
+                    .startSpan();
+                if (i % 20 == 0) {
+                    client.setStatus(StatusCode.ERROR, "503 Service Unavailable");
+                    client.addEvent("exception", Attributes.builder()
+                        .put("exception.type", "HttpServerErrorException$ServiceUnavailable")
+                        .put("exception.stacktrace", STACK_TRACE)
+                        .build());
+                }
+                client.end();
+                spans.add(((ReadableSpan) client).toSpanData());
+            }
+            server.end();
+            if (spans.size() < count) {
+                spans.add(((ReadableSpan) server).toSpanData());
+            }
+        }
+        tracerProvider.close();
+        return spans;
+    }
+
+    /** {@code count} log records; one in twenty is an error carrying a stack trace. */
+    static List<LogRecordData> logs(int count) {
+        List<LogRecordData> logs = new ArrayList<>(count);
+        SdkLoggerProvider loggerProvider = SdkLoggerProvider.builder()
+            .setResource(RESOURCE)
+            .addLogRecordProcessor(new CollectingLogRecordProcessor(logs))
+            .build();
+        Logger logger = loggerProvider.get(SCOPE.getName());
+        for (int i = 0; i < count; i++) {
+            String city = CITIES[i % CITIES.length];
+            if (i % 20 == 0) {
+                logger.logRecordBuilder()
+                    .setSeverity(Severity.ERROR)
+                    .setSeverityText("ERROR")
+                    .setBody("Error al invocar OpenWeatherMap: {\"cod\":503,\"message\":\"Service Unavailable\"}")
+                    .setAttribute(AttributeKey.stringKey("exception.type"),
+                        "org.springframework.web.client.HttpServerErrorException$ServiceUnavailable")
+                    .setAttribute(AttributeKey.stringKey("exception.stacktrace"), STACK_TRACE)
+                    .setAttribute(AttributeKey.stringKey("thread.name"), "http-nio-8080-exec-" + (i % 10))
+                    .emit();
+            } else {
+                logger.logRecordBuilder()
+                    .setSeverity(Severity.INFO)
+                    .setSeverityText("INFO")
+                    .setTimestamp(System.currentTimeMillis(), TimeUnit.MILLISECONDS)
+                    .setBody("Consultando clima para " + city + " (lat=40.4168, lon=-3.7038)")
+                    .setAttribute(AttributeKey.stringKey("thread.name"), "http-nio-8080-exec-" + (i % 10))
+                    .setAttribute(AttributeKey.stringKey("logger.name"), "com.example.weather.service.WeatherService")
+                    .emit();
+            }
+        }
+        loggerProvider.close();
+        return logs;
+    }
+
+    /** {@code count} metrics, alternating per-city request counters and per-city latency histograms. */
+    static List<MetricData> metrics(int count) {
+        long end = System.currentTimeMillis() * 1_000_000L;
+        long start = end - TimeUnit.SECONDS.toNanos(30);
+        List<Double> boundaries = List.of(5d, 10d, 25d, 50d, 75d, 100d, 250d, 500d, 750d, 1000d, 2500d, 5000d);
+        List<MetricData> metrics = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            if (i % 2 == 0) {
+                List<LongPointData> points = new ArrayList<>();
+                for (int city = 0; city < CITIES.length; city++) {
+                    points.add(ImmutableLongPointData.create(start, end, cityAttributes(city), 1000L * city + i));
+                }
+                metrics.add(ImmutableMetricData.createLongSum(RESOURCE, SCOPE, "weather.requests." + i,
+                    "Weather lookups by city", "1",
+                    ImmutableSumData.create(true, AggregationTemporality.CUMULATIVE, points)));
+            } else {
+                List<HistogramPointData> points = new ArrayList<>();
+                for (int city = 0; city < CITIES.length; city++) {
+                    List<Long> counts = new ArrayList<>(boundaries.size() + 1);
+                    for (int bucket = 0; bucket <= boundaries.size(); bucket++) {
+                        counts.add((long) ((bucket * 7 + city + i) % 13));
+                    }
+                    long total = counts.stream().mapToLong(Long::longValue).sum();
+                    points.add(ImmutableHistogramPointData.create(start, end, cityAttributes(city), total * 42.5,
+                        true, 3.2, true, 4800.0, boundaries, counts));
+                }
+                metrics.add(ImmutableMetricData.createDoubleHistogram(RESOURCE, SCOPE, "weather.latency." + i,
+                    "OpenWeatherMap latency by city", "ms",
+                    ImmutableHistogramData.create(AggregationTemporality.CUMULATIVE, points)));
+            }
+        }
+        return metrics;
+    }
+
+    private static Attributes cityAttributes(int city) {
+        return Attributes.builder()
+            .put("city", CITIES[city])
+            .put("units", "metric")
+            .put("http.route", "/api/weather")
+            .build();
+    }
+
+    private static final class CollectingLogRecordProcessor implements LogRecordProcessor {
+
+        private final List<LogRecordData> logs;
+
+        private CollectingLogRecordProcessor(List<LogRecordData> logs) {
+            this.logs = logs;
+        }
+
+        @Override
+        public void onEmit(Context context, ReadWriteLogRecord logRecord) {
+            logs.add(logRecord.toLogRecordData());
+        }
+
+        @Override
+        public CompletableResultCode shutdown() {
+            return CompletableResultCode.ofSuccess();
+        }
+    }
+}
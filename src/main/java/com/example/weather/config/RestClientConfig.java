@@ -1,26 +1,107 @@
 package com.example.weather.config;
 
+import org.apache.hc.client5.http.config.ConnectionConfig;
+import org.apache.hc.client5.http.impl.classic.CloseableHttpClient;
+import org.apache.hc.client5.http.impl.classic.HttpClients;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManager;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManagerBuilder;
+import org.apache.hc.core5.util.TimeValue;
+import org.apache.hc.core5.util.Timeout;
 import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.boot.actuate.metrics.web.client.ObservationRestTemplateCustomizer;
 import org.springframework.boot.web.client.RestTemplateBuilder;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.http.client.BufferingClientHttpRequestFactory;
+import org.springframework.http.client.ClientHttpRequestFactory;
+import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
+import org.springframework.http.client.JdkClientHttpRequestFactory;
 import org.springframework.http.client.SimpleClientHttpRequestFactory;
 import org.springframework.web.client.RestTemplate;
 
+import java.net.http.HttpClient;
+import java.time.Duration;
+
 @Configuration
 public class RestClientConfig {
 
     @Bean
     public RestTemplate restTemplate(RestTemplateBuilder builder,
-                                     ObjectProvider<ObservationRestTemplateCustomizer> observationCustomizer) {
+                                     ObjectProvider<ObservationRestTemplateCustomizer> observationCustomizer,
+                                     WeatherProperties properties) {
         RestTemplateBuilder restTemplateBuilder = builder
-                .requestFactory(() -> new BufferingClientHttpRequestFactory(new SimpleClientHttpRequestFactory()));
+                .requestFactory(() -> requestFactory(properties.getHttp()));
         ObservationRestTemplateCustomizer customizer = observationCustomizer.getIfAvailable();
         if (customizer != null) {
             restTemplateBuilder = restTemplateBuilder.additionalCustomizers(customizer);
         }
         return restTemplateBuilder.build();
     }
+
+    static ClientHttpRequestFactory requestFactory(WeatherProperties.Http http) {
+        ClientHttpRequestFactory factory = switch (http.getClient()) {
+            case SIMPLE -> simpleRequestFactory(http);
+            case JDK -> jdkRequestFactory(http);
+            case APACHE -> apacheRequestFactory(http);
+        };
+        return http.isBufferResponses() ? new BufferingClientHttpRequestFactory(factory) : factory;
+    }
+
+    /** {@code HttpURLConnection} keeps idle connections in a JVM-wide cache sized by {@code -Dhttp.maxConnections}. */
+    private static ClientHttpRequestFactory simpleRequestFactory(WeatherProperties.Http http) {
+        SimpleClientHttpRequestFactory factory = new SimpleClientHttpRequestFactory();
+        factory.setConnectTimeout((int) http.getConnectTimeout().toMillis());
+        factory.setReadTimeout((int) http.getReadTimeout().toMillis());
+        return factory;
+    }
+
+    /**
+     * The JDK client keeps its connection pool per JVM and reads the pool settings once, from
+     * {@code -Djdk.httpclient.*} flags, so the pool properties of this service do not apply to it.
+     */
+    private static ClientHttpRequestFactory jdkRequestFactory(WeatherProperties.Http http) {
+        HttpClient.Builder client = HttpClient.newBuilder()
+                .version(http.isHttp2() ? HttpClient.Version.HTTP_2 : HttpClient.Version.HTTP_1_1)
+                .followRedirects(HttpClient.Redirect.NORMAL);
+        if (isPositive(http.getConnectTimeout())) {
+            client.connectTimeout(http.getConnectTimeout());
+        }
+        JdkClientHttpRequestFactory factory = new JdkClientHttpRequestFactory(client.build());
+        if (isPositive(http.getReadTimeout())) {
+            factory.setReadTimeout(http.getReadTimeout());
+        }
+        return factory;
+    }
+
+    /** Apache HttpClient 5 with a pool owned by this client, so nothing else in the JVM is affected by its settings. */
+    private static ClientHttpRequestFactory apacheRequestFactory(WeatherProperties.Http http) {
+        Timeout connectTimeout = timeout(http.getConnectTimeout());
+        PoolingHttpClientConnectionManager connections = PoolingHttpClientConnectionManagerBuilder.create()
+                .setMaxConnTotal(http.getMaxConnections())
+                .setMaxConnPerRoute(http.getMaxConnections())
+                .setDefaultConnectionConfig(ConnectionConfig.custom()
+                        .setConnectTimeout(connectTimeout)
+                        .setSocketTimeout(timeout(http.getReadTimeout()))
+                        .build())
+                .build();
+        TimeValue keepAlive = TimeValue.ofMilliseconds(http.getKeepAlive().toMillis());
+        CloseableHttpClient client = HttpClients.custom()
+                .setConnectionManager(connections)
+                .setKeepAliveStrategy((response, context) -> keepAlive)
+                .evictIdleConnections(keepAlive)
+                .evictExpiredConnections()
+                .build();
+        HttpComponentsClientHttpRequestFactory factory = new HttpComponentsClientHttpRequestFactory(client);
+        factory.setConnectionRequestTimeout((int) connectTimeout.toMilliseconds());
+        return factory;
+    }
+
+    private static boolean isPositive(Duration duration) {
+        return !duration.isNegative() && !duration.isZero();
+    }
+
+    /** Apache's timeouts, where zero also means no limit. */
+    private static Timeout timeout(Duration duration) {
+        return isPositive(duration) ? Timeout.ofMilliseconds(duration.toMillis()) : Timeout.DISABLED;
+    }
 }
@@ -0,0 +1,16 @@
+package com.example.weather.config;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+public class ThreadingConfig {
+
+    @Bean(initMethod = "start", destroyMethod = "close")
+    @ConditionalOnProperty(prefix = "weather.virtual-threads", name = "enabled", havingValue = "true")
+    VirtualThreadDiagnostics virtualThreadDiagnostics(WeatherProperties properties, MeterRegistry meterRegistry) {
+        return new VirtualThreadDiagnostics(properties.getVirtualThreads(), meterRegistry);
+    }
+}
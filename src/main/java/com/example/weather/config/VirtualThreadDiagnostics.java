@@ -0,0 +1,82 @@
+package com.example.weather.config;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordedFrame;
+import jdk.jfr.consumer.RecordedStackTrace;
+import jdk.jfr.consumer.RecordingStream;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Reports virtual threads that stay blocked while pinned to their carrier thread, typically because they wait on I/O
+ * or a lock inside a {@code synchronized} block, and so hold a carrier the other virtual threads need. Pinned waits
+ * longer than the threshold are read from the JFR {@code jdk.VirtualThreadPinned} event, counted as
+ * {@code weather.threads.pinned} and logged with the frames that caused them.
+ * <p>
+ * Before Java 21 there are no virtual threads: it only warns that platform threads are used instead.
+ */
+class VirtualThreadDiagnostics implements AutoCloseable {
+
+    private static final Logger log = LoggerFactory.getLogger(VirtualThreadDiagnostics.class);
+
+    private static final String PINNED_EVENT = "jdk.VirtualThreadPinned";
+
+    private static final int LOGGED_FRAMES = 8;
+
+    private final WeatherProperties.VirtualThreads settings;
+    private final Counter pinned;
+    private RecordingStream stream;
+
+    VirtualThreadDiagnostics(WeatherProperties.VirtualThreads settings, MeterRegistry registry) {
+        this.settings = settings;
+        this.pinned = Counter.builder("weather.threads.pinned")
+                .description("Virtual threads blocked while pinned to their carrier for longer than the threshold")
+                .register(registry);
+    }
+
+    void start() {
+        if (!VirtualThreads.isSupported()) {
+            log.warn("Los hilos virtuales requieren Java 21 o superior; con Java {} se usan hilos de plataforma",
+                    Runtime.version().feature());
+            return;
+        }
+        if (!settings.isReportPinning()) {
+            return;
+        }
+        stream = new RecordingStream();
+        stream.enable(PINNED_EVENT).withThreshold(settings.getPinningThreshold()).withStackTrace();
+        stream.onEvent(PINNED_EVENT, this::onPinned);
+        stream.startAsync();
+    }
+
+    @Override
+    public void close() {
+        if (stream != null) {
+            stream.close();
+        }
+    }
+
+    private void onPinned(RecordedEvent event) {
+        pinned.increment();
+        log.warn("Hilo virtual bloqueado {} ms sin liberar su hilo portador en {}", event.getDuration().toMillis(),
+                frames(event.getStackTrace()));
+    }
+
+    private static String frames(RecordedStackTrace stackTrace) {
+        if (stackTrace == null) {
+            return "(sin traza)";
+        }
+        List<RecordedFrame> frames = stackTrace.getFrames();
+        return frames.stream()
+                .dropWhile(frame -> frame.getMethod().getType().getName().equals("java.lang.VirtualThread"))
+                .limit(LOGGED_FRAMES)
+                .map(frame -> frame.getMethod().getType().getName() + "." + frame.getMethod().getName()
+                        + ":" + frame.getLineNumber())
+                .collect(Collectors.joining(" <- "));
+    }
+}
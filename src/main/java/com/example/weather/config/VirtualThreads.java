@@ -0,0 +1,58 @@
+package com.example.weather.config;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Thread factories for threads that spend most of their time blocked on I/O. They create virtual threads when asked
+ * to and the JVM has them (Java 21 or later), and named daemon platform threads otherwise. The project compiles for
+ * Java 17, so {@code Thread.ofVirtual()} is looked up at runtime.
+ */
+public final class VirtualThreads {
+
+    private static final MethodHandle VIRTUAL_THREAD_FACTORY = lookupVirtualThreadFactory();
+
+    private VirtualThreads() {
+    }
+
+    public static boolean isSupported() {
+        return VIRTUAL_THREAD_FACTORY != null;
+    }
+
+    /** Creates threads called {@code name}, virtual ones if {@code virtual} is set and supported. */
+    public static ThreadFactory factory(String name, boolean virtual) {
+        if (virtual && isSupported()) {
+            try {
+                return (ThreadFactory) VIRTUAL_THREAD_FACTORY.invoke(name);
+            } catch (Throwable ex) {
+                throw new IllegalStateException("No fue posible crear hilos virtuales", ex);
+            }
+        }
+        return runnable -> {
+            Thread thread = new Thread(runnable, name);
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    /** {@code name -> Thread.ofVirtual().name(name).factory()}, or {@code null} before Java 21. */
+    private static MethodHandle lookupVirtualThreadFactory() {
+        if (Runtime.version().feature() < 21) {
+            return null;
+        }
+        try {
+            MethodHandles.Lookup lookup = MethodHandles.publicLookup();
+            Class<?> builder = Class.forName("java.lang.Thread$Builder");
+            Class<?> ofVirtual = Class.forName("java.lang.Thread$Builder$OfVirtual");
+            MethodHandle create = lookup.findStatic(Thread.class, "ofVirtual", MethodType.methodType(ofVirtual));
+            MethodHandle name = lookup.findVirtual(ofVirtual, "name", MethodType.methodType(ofVirtual, String.class));
+            MethodHandle factory = lookup.findVirtual(builder, "factory", MethodType.methodType(ThreadFactory.class))
+                    .asType(MethodType.methodType(ThreadFactory.class, ofVirtual));
+            return MethodHandles.filterReturnValue(MethodHandles.collectArguments(name, 0, create), factory);
+        } catch (ReflectiveOperationException ex) {
+            return null;
+        }
+    }
+}
@@ -2,6 +2,8 @@ package com.example.weather.config;
 
 import org.springframework.boot.context.properties.ConfigurationProperties;
 
+import java.time.Duration;
+
 @ConfigurationProperties(prefix = "weather")
 public class WeatherProperties {
 
@@ -13,6 +15,17 @@ public class WeatherProperties {
 
     private String language = "es";
 
+    /** Answer with the OneCall JSON exactly as received instead of parsing it and writing it again. */
+    private boolean passThrough = false;
+
+    private final Cache cache = new Cache();
+
+    private final Coalescing coalescing = new Coalescing();
+
+    private final Http http = new Http();
+
+    private final VirtualThreads virtualThreads = new VirtualThreads();
+
     public String getApiKey() {
         return apiKey;
     }
@@ -44,4 +57,223 @@ public class WeatherProperties {
     public void setLanguage(String language) {
         this.language = language;
     }
+
+    public boolean isPassThrough() {
+        return passThrough;
+    }
+
+    public void setPassThrough(boolean passThrough) {
+        this.passThrough = passThrough;
+    }
+
+    public Cache getCache() {
+        return cache;
+    }
+
+    public Coalescing getCoalescing() {
+        return coalescing;
+    }
+
+    public Http getHttp() {
+        return http;
+    }
+
+    public VirtualThreads getVirtualThreads() {
+        return virtualThreads;
+    }
+
+    public static class Cache {
+
+        private boolean enabled = false;
+
+        /** Spacing in degrees of the grid whose nearest point replaces the coordinates; 0 caches exact coordinates. */
+        private double gridDegrees = 0.01;
+
+        private int maxEntries = 1000;
+
+        /** How long a response is served without asking OpenWeatherMap again. */
+        private Duration ttl = Duration.ofMinutes(10);
+
+        /** How long past {@code ttl} a response is still served while a background refresh replaces it. */
+        private Duration staleWhileRevalidate = Duration.ofMinutes(30);
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public double getGridDegrees() {
+            return gridDegrees;
+        }
+
+        public void setGridDegrees(double gridDegrees) {
+            this.gridDegrees = gridDegrees;
+        }
+
+        public int getMaxEntries() {
+            return maxEntries;
+        }
+
+        public void setMaxEntries(int maxEntries) {
+            this.maxEntries = maxEntries;
+        }
+
+        public Duration getTtl() {
+            return ttl;
+        }
+
+        public void setTtl(Duration ttl) {
+            this.ttl = ttl;
+        }
+
+        public Duration getStaleWhileRevalidate() {
+            return staleWhileRevalidate;
+        }
+
+        public void setStaleWhileRevalidate(Duration staleWhileRevalidate) {
+            this.staleWhileRevalidate = staleWhileRevalidate;
+        }
+    }
+
+    public static class Coalescing {
+
+        /** Whether concurrent identical OneCall requests share one upstream call. */
+        private boolean enabled = true;
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+    }
+
+    public static class Http {
+
+        private ClientType client = ClientType.SIMPLE;
+
+        private Duration connectTimeout = Duration.ofSeconds(5);
+
+        private Duration readTimeout = Duration.ofSeconds(30);
+
+        /** Size of the Apache client's own connection pool; requests wait up to the connect timeout for a free one. */
+        private int maxConnections = 64;
+
+        /** How long an idle connection of the Apache client's pool stays open for reuse. */
+        private Duration keepAlive = Duration.ofSeconds(30);
+
+        /** Whether the JDK client negotiates HTTP/2, falling back to HTTP/1.1 when the server does not offer it. */
+        private boolean http2 = true;
+
+        /** Whether responses are copied into memory before being read; nothing in the service needs it. */
+        private boolean bufferResponses = true;
+
+        public ClientType getClient() {
+            return client;
+        }
+
+        public void setClient(ClientType client) {
+            this.client = client;
+        }
+
+        public Duration getConnectTimeout() {
+            return connectTimeout;
+        }
+
+        public void setConnectTimeout(Duration connectTimeout) {
+            this.connectTimeout = connectTimeout;
+        }
+
+        public Duration getReadTimeout() {
+            return readTimeout;
+        }
+
+        public void setReadTimeout(Duration readTimeout) {
+            this.readTimeout = readTimeout;
+        }
+
+        public int getMaxConnections() {
+            return maxConnections;
+        }
+
+        public void setMaxConnections(int maxConnections) {
+            this.maxConnections = maxConnections;
+        }
+
+        public Duration getKeepAlive() {
+            return keepAlive;
+        }
+
+        public void setKeepAlive(Duration keepAlive) {
+            this.keepAlive = keepAlive;
+        }
+
+        public boolean isHttp2() {
+            return http2;
+        }
+
+        public void setHttp2(boolean http2) {
+            this.http2 = http2;
+        }
+
+        public boolean isBufferResponses() {
+            return bufferResponses;
+        }
+
+        public void setBufferResponses(boolean bufferResponses) {
+            this.bufferResponses = bufferResponses;
+        }
+    }
+
+    public static class VirtualThreads {
+
+        /** Whether the service's own blocking work runs on virtual threads; Java 21 or later. */
+        private boolean enabled = false;
+
+        /** Whether virtual threads blocked while pinned to their carrier are logged and counted. */
+        private boolean reportPinning = true;
+
+        /** Shortest pinned wait that is reported. */
+        private Duration pinningThreshold = Duration.ofMillis(20);
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public boolean isReportPinning() {
+            return reportPinning;
+        }
+
+        public void setReportPinning(boolean reportPinning) {
+            this.reportPinning = reportPinning;
+        }
+
+        public Duration getPinningThreshold() {
+            return pinningThreshold;
+        }
+
+        public void setPinningThreshold(Duration pinningThreshold) {
+            this.pinningThreshold = pinningThreshold;
+        }
+    }
+
+    public enum ClientType {
+        /** {@code HttpURLConnection}, one blocking connection per request with the JVM's keep-alive cache. */
+        SIMPLE,
+        /**
+         * {@code java.net.http.HttpClient}, pooled connections and HTTP/2 multiplexing. Its pool is shared by the
+         * whole JVM and only configurable with {@code -Djdk.httpclient.*} flags.
+         */
+        JDK,
+        /** Apache HttpClient 5 with a connection pool of its own, sized by {@code maxConnections}. */
+        APACHE
+    }
 }
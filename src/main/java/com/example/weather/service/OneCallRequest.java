@@ -0,0 +1,24 @@
+package com.example.weather.service;
+
+/**
+ * Normalized parameters of one OneCall request: units and language already resolved against the defaults and, with
+ * the cache enabled, coordinates rounded to its grid. Requests with equal parameters get the same upstream answer.
+ */
+record OneCallRequest(double latitude, double longitude, String units, String language) {
+
+    /**
+     * Rounds the coordinates to the nearest point of a grid spaced {@code gridDegrees} apart, so every location within
+     * half a step of that point makes the same request; a grid of 0 or less keeps the exact coordinates.
+     */
+    OneCallRequest quantized(double gridDegrees) {
+        if (gridDegrees <= 0) {
+            return this;
+        }
+        return new OneCallRequest(quantize(latitude, gridDegrees), quantize(longitude, gridDegrees), units, language);
+    }
+
+    private static double quantize(double degrees, double gridDegrees) {
+        double nearest = Math.round(degrees / gridDegrees) * gridDegrees;
+        return Math.round(nearest * 1e6) / 1e6;
+    }
+}
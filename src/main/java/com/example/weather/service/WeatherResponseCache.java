@@ -0,0 +1,228 @@
+package com.example.weather.service;
+
+import com.example.weather.config.VirtualThreads;
+import com.example.weather.config.WeatherProperties;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+
+/**
+ * In-process cache of OneCall responses, parsed or raw, keyed by the normalized request: location rounded to a grid,
+ * units and language, so nearby requests share one upstream call. A response is fresh for {@code ttl}; for
+ * {@code stale-while-revalidate} after that it is still served while a background refresh replaces it, and only then
+ * does a request wait for OpenWeatherMap again.
+ * <p>
+ * Entries are kept in LRU order, and a full cache admits a new location only if it has been requested more often
+ * than the entry it would evict, judged by a TinyLFU frequency sketch; one-off lookups therefore cannot flush the
+ * locations most traffic asks for. Lookups are published as {@code weather.cache.requests} by {@code result}
+ * ({@code hit}, {@code stale} or {@code miss}), removals as {@code weather.cache.evictions} by {@code cause}
+ * ({@code size} or {@code expired}), refused admissions as {@code weather.cache.rejections}, and the entry count
+ * as {@code weather.cache.size}.
+ */
+class WeatherResponseCache<V> implements AutoCloseable {
+
+    private static final Logger log = LoggerFactory.getLogger(WeatherResponseCache.class);
+
+    private final int maxEntries;
+    private final long ttlNanos;
+    private final long staleNanos;
+    private final LongSupplier clock;
+    private final ExecutorService refreshExecutor;
+    private final Map<OneCallRequest, Entry<V>> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private final FrequencySketch sketch;
+    private final Counter hits;
+    private final Counter staleHits;
+    private final Counter misses;
+    private final Counter sizeEvictions;
+    private final Counter expirations;
+    private final Counter rejections;
+
+    WeatherResponseCache(WeatherProperties.Cache settings, MeterRegistry registry, boolean virtualThreads) {
+        this(settings, registry, System::nanoTime,
+                Executors.newFixedThreadPool(2, VirtualThreads.factory("weather-cache-refresh", virtualThreads)));
+    }
+
+    WeatherResponseCache(WeatherProperties.Cache settings, MeterRegistry registry, LongSupplier clock,
+                         ExecutorService refreshExecutor) {
+        this.maxEntries = Math.max(1, settings.getMaxEntries());
+        this.ttlNanos = settings.getTtl().toNanos();
+        this.staleNanos = settings.getStaleWhileRevalidate().toNanos();
+        this.clock = clock;
+        this.refreshExecutor = refreshExecutor;
+        this.sketch = new FrequencySketch(maxEntries);
+        this.hits = requests(registry, "hit");
+        this.staleHits = requests(registry, "stale");
+        this.misses = requests(registry, "miss");
+        this.sizeEvictions = evictions(registry, "size");
+        this.expirations = evictions(registry, "expired");
+        this.rejections = Counter.builder("weather.cache.rejections")
+                .description("Responses not cached because the location is requested less than the one it would evict")
+                .register(registry);
+        Gauge.builder("weather.cache.size", this, WeatherResponseCache::size)
+                .description("OneCall responses currently cached")
+                .register(registry);
+    }
+
+    /**
+     * Returns the cached response for {@code key}, loading it with {@code loader} on a miss. A stale entry is
+     * returned as is and refreshed in the background, once at a time per key.
+     */
+    V get(OneCallRequest key, Supplier<V> loader) {
+        long now = clock.getAsLong();
+        Entry<V> entry = lookup(key, now);
+        if (entry == null) {
+            misses.increment();
+            V response = loader.get();
+            put(key, response, now);
+            return response;
+        }
+        if (now - entry.loadedAt() < ttlNanos) {
+            hits.increment();
+        } else {
+            staleHits.increment();
+            if (entry.refreshing().compareAndSet(false, true)) {
+                refreshExecutor.execute(() -> refresh(key, entry, loader));
+            }
+        }
+        return entry.response();
+    }
+
+    int size() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    @Override
+    public void close() {
+        refreshExecutor.shutdownNow();
+    }
+
+    private Entry<V> lookup(OneCallRequest key, long now) {
+        synchronized (entries) {
+            sketch.increment(key.hashCode());
+            Entry<V> entry = entries.get(key);
+            if (entry != null && now - entry.loadedAt() >= ttlNanos + staleNanos) {
+                entries.remove(key);
+                expirations.increment();
+                return null;
+            }
+            return entry;
+        }
+    }
+
+    private void refresh(OneCallRequest key, Entry<V> stale, Supplier<V> loader) {
+        try {
+            put(key, loader.get(), clock.getAsLong());
+        } catch (RuntimeException ex) {
+            log.warn("No fue posible refrescar el clima en caché para {}; se sigue sirviendo la respuesta anterior",
+                    key, ex);
+            stale.refreshing().set(false);
+        }
+    }
+
+    private void put(OneCallRequest key, V response, long loadedAt) {
+        synchronized (entries) {
+            if (!entries.containsKey(key) && entries.size() >= maxEntries) {
+                Iterator<Map.Entry<OneCallRequest, Entry<V>>> eldest = entries.entrySet().iterator();
+                OneCallRequest victim = eldest.next().getKey();
+                if (sketch.frequency(key.hashCode()) <= sketch.frequency(victim.hashCode())) {
+                    rejections.increment();
+                    return;
+                }
+                eldest.remove();
+                sizeEvictions.increment();
+            }
+            entries.put(key, new Entry<>(response, loadedAt, new AtomicBoolean()));
+        }
+    }
+
+    private static Counter requests(MeterRegistry registry, String result) {
+        return Counter.builder("weather.cache.requests")
+                .description("Weather lookups served by the response cache, by result")
+                .tag("result", result)
+                .register(registry);
+    }
+
+    private static Counter evictions(MeterRegistry registry, String cause) {
+        return Counter.builder("weather.cache.evictions")
+                .description("Responses removed from the cache, by cause")
+                .tag("cause", cause)
+                .register(registry);
+    }
+
+    private record Entry<V>(V response, long loadedAt, AtomicBoolean refreshing) {
+    }
+
+    /**
+     * Count-min sketch of 4-bit counters over four rows, sized to the cache. Counters are halved once the cache has
+     * seen ten times its capacity in requests, so the estimate follows recent popularity rather than all-time totals.
+     */
+    private static final class FrequencySketch {
+
+        private static final long[] SEEDS = {
+                0xc3a5c85c97cb3127L, 0xb492b66fbe98f273L, 0x9ae16a3b2f90404fL, 0xcbf29ce484222325L
+        };
+
+        private final byte[][] rows = new byte[SEEDS.length][];
+        private final int mask;
+        private final int sampleSize;
+        private int additions;
+
+        FrequencySketch(int maxEntries) {
+            int width = Integer.highestOneBit(Math.max(16, maxEntries * 4) - 1) << 1;
+            for (int row = 0; row < rows.length; row++) {
+                rows[row] = new byte[width];
+            }
+            this.mask = width - 1;
+            this.sampleSize = 10 * maxEntries;
+        }
+
+        void increment(int hash) {
+            boolean added = false;
+            for (int row = 0; row < rows.length; row++) {
+                int index = index(hash, row);
+                if (rows[row][index] < 15) {
+                    rows[row][index]++;
+                    added = true;
+                }
+            }
+            if (added && ++additions >= sampleSize) {
+                halve();
+            }
+        }
+
+        int frequency(int hash) {
+            int frequency = Integer.MAX_VALUE;
+            for (int row = 0; row < rows.length; row++) {
+                frequency = Math.min(frequency, rows[row][index(hash, row)]);
+            }
+            return frequency;
+        }
+
+        private void halve() {
+            for (byte[] row : rows) {
+                for (int i = 0; i < row.length; i++) {
+                    row[i] >>= 1;
+                }
+            }
+            additions /= 2;
+        }
+
+        private int index(int hash, int row) {
+            long spread = (hash + SEEDS[row]) * 0x9e3779b97f4a7c15L;
+            return (int) (spread ^ (spread >>> 32)) & mask;
+        }
+    }
+}
@@ -3,21 +3,31 @@ package com.example.weather.service;
 import com.example.weather.config.WeatherProperties;
 import com.example.weather.web.dto.WeatherResponse;
 import com.example.weather.web.exception.ExternalServiceException;
+import com.fasterxml.jackson.core.JsonParser;
 import com.fasterxml.jackson.core.JsonProcessingException;
-import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.http.HttpMethod;
-import org.springframework.http.RequestEntity;
-import org.springframework.http.ResponseEntity;
+import org.springframework.http.MediaType;
+import org.springframework.http.client.ClientHttpResponse;
 import org.springframework.stereotype.Service;
+import org.springframework.util.StreamUtils;
 import org.springframework.util.StringUtils;
 import org.springframework.web.client.HttpStatusCodeException;
+import org.springframework.web.client.ResourceAccessException;
+import org.springframework.web.client.ResponseExtractor;
 import org.springframework.web.client.RestTemplate;
 import org.springframework.web.util.UriComponentsBuilder;
 
+import java.io.IOException;
+import java.io.InputStream;
 import java.net.URI;
+import java.util.List;
+import java.util.function.Supplier;
 
 @Service
 public class WeatherService {
@@ -27,50 +37,130 @@ public class WeatherService {
     private final RestTemplate restTemplate;
     private final WeatherProperties properties;
     private final ObjectMapper objectMapper;
+    private final WeatherResponseCache<WeatherResponse> cache;
+    private final WeatherResponseCache<byte[]> rawCache;
+    private final SingleFlight<OneCallRequest, WeatherResponse> inFlight;
+    private final SingleFlight<OneCallRequest, byte[]> rawInFlight;
 
-    public WeatherService(RestTemplate restTemplate, WeatherProperties properties, ObjectMapper objectMapper) {
+    public WeatherService(RestTemplate restTemplate, WeatherProperties properties, ObjectMapper objectMapper,
+                          MeterRegistry meterRegistry) {
         this.restTemplate = restTemplate;
         this.properties = properties;
         this.objectMapper = objectMapper;
+        boolean cached = properties.getCache().isEnabled();
+        boolean virtualThreads = properties.getVirtualThreads().isEnabled();
+        this.cache = cached && !properties.isPassThrough()
+                ? new WeatherResponseCache<>(properties.getCache(), meterRegistry, virtualThreads)
+                : null;
+        this.rawCache = cached && properties.isPassThrough()
+                ? new WeatherResponseCache<>(properties.getCache(), meterRegistry, virtualThreads)
+                : null;
+        Counter coalesced = properties.getCoalescing().isEnabled()
+                ? Counter.builder("weather.upstream.coalesced")
+                        .description("Weather lookups that waited for an identical OneCall request already in flight")
+                        .register(meterRegistry)
+                : null;
+        this.inFlight = coalesced != null ? new SingleFlight<>(coalesced) : null;
+        this.rawInFlight = coalesced != null ? new SingleFlight<>(coalesced) : null;
     }
 
     public WeatherResponse getWeather(double latitude, double longitude, String units, String language) {
+        return load(request(latitude, longitude, units, language), cache, inFlight, this::readResponse);
+    }
+
+    /**
+     * Returns the OneCall response exactly as OpenWeatherMap sent it, without parsing it or writing it again, for
+     * callers that answer with the upstream JSON as is.
+     */
+    public byte[] getRawWeather(double latitude, double longitude, String units, String language) {
+        return load(request(latitude, longitude, units, language), rawCache, rawInFlight, WeatherService::readBytes);
+    }
+
+    public boolean isPassThrough() {
+        return properties.isPassThrough();
+    }
+
+    @PreDestroy
+    public void close() {
+        if (cache != null) {
+            cache.close();
+        }
+        if (rawCache != null) {
+            rawCache.close();
+        }
+    }
+
+    private OneCallRequest request(double latitude, double longitude, String units, String language) {
         validateApiKey();
-        URI uri = buildOneCallUri(latitude, longitude, units, language);
-        RequestEntity<Void> request = new RequestEntity<>(HttpMethod.GET, uri);
+        String resolvedUnits = StringUtils.hasText(units) ? units : properties.getUnits();
+        String resolvedLanguage = StringUtils.hasText(language) ? language : properties.getLanguage();
+        OneCallRequest request = new OneCallRequest(latitude, longitude, resolvedUnits, resolvedLanguage);
+        return properties.getCache().isEnabled() ? request.quantized(properties.getCache().getGridDegrees()) : request;
+    }
+
+    private <T> T load(OneCallRequest request, WeatherResponseCache<T> cache, SingleFlight<OneCallRequest, T> inFlight,
+                       ResponseExtractor<T> extractor) {
+        Supplier<T> fetch = inFlight != null
+                ? () -> inFlight.execute(request, () -> fetch(request, extractor))
+                : () -> fetch(request, extractor);
+        return cache != null ? cache.get(request, fetch) : fetch.get();
+    }
+
+    private <T> T fetch(OneCallRequest oneCallRequest, ResponseExtractor<T> extractor) {
+        URI uri = buildOneCallUri(oneCallRequest);
         try {
-            ResponseEntity<JsonNode> response = restTemplate.exchange(request, JsonNode.class);
-            JsonNode body = response.getBody();
+            T body = restTemplate.execute(uri, HttpMethod.GET,
+                    request -> request.getHeaders().setAccept(List.of(MediaType.APPLICATION_JSON)), extractor);
             if (body == null) {
                 throw new ExternalServiceException("La respuesta de OpenWeatherMap fue vacía");
             }
-            return objectMapper.treeToValue(body, WeatherResponse.class);
+            return body;
         } catch (HttpStatusCodeException ex) {
             log.error("Error al invocar OpenWeatherMap: {}", ex.getResponseBodyAsString(), ex);
             throw new ExternalServiceException(
                     "Error al invocar OpenWeatherMap: " + ex.getStatusCode().value(),
                     ex
             );
+        } catch (ResourceAccessException ex) {
+            log.error("No fue posible conectar con OpenWeatherMap", ex);
+            throw new ExternalServiceException("No fue posible conectar con OpenWeatherMap", ex);
+        }
+    }
+
+    /** Binds the body to the model while it is read, without building an intermediate tree of the whole document. */
+    private WeatherResponse readResponse(ClientHttpResponse response) throws IOException {
+        try (InputStream body = response.getBody(); JsonParser parser = objectMapper.createParser(body)) {
+            if (parser.nextToken() == null) {
+                return null;
+            }
+            return objectMapper.readValue(parser, WeatherResponse.class);
         } catch (JsonProcessingException ex) {
             log.error("No fue posible interpretar la respuesta de OpenWeatherMap", ex);
             throw new ExternalServiceException("No fue posible interpretar la respuesta de OpenWeatherMap", ex);
         }
     }
 
+    private static byte[] readBytes(ClientHttpResponse response) throws IOException {
+        try (InputStream body = response.getBody()) {
+            byte[] bytes = StreamUtils.copyToByteArray(body);
+            return bytes.length > 0 ? bytes : null;
+        }
+    }
+
     private void validateApiKey() {
         if (!StringUtils.hasText(properties.getApiKey())) {
             throw new ExternalServiceException("No se configuró la API key de OpenWeatherMap. Defina la propiedad weather.api-key o la variable de entorno OPENWEATHER_API_KEY.");
         }
     }
 
-    private URI buildOneCallUri(double latitude, double longitude, String units, String language) {
+    private URI buildOneCallUri(OneCallRequest request) {
         return UriComponentsBuilder.fromHttpUrl(properties.getBaseUrl())
                 .path("/onecall")
-                .queryParam("lat", latitude)
-                .queryParam("lon", longitude)
+                .queryParam("lat", request.latitude())
+                .queryParam("lon", request.longitude())
                 .queryParam("appid", properties.getApiKey())
-                .queryParam("units", StringUtils.hasText(units) ? units : properties.getUnits())
-                .queryParam("lang", StringUtils.hasText(language) ? language : properties.getLanguage())
+                .queryParam("units", request.units())
+                .queryParam("lang", request.language())
                 .build(true)
                 .toUri();
     }
@@ -0,0 +1,285 @@
+package com.example.weather.telemetry;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import io.opentelemetry.api.common.AttributeKey;
+import io.opentelemetry.api.common.Attributes;
+import io.opentelemetry.api.common.AttributesBuilder;
+import io.opentelemetry.api.logs.Severity;
+import io.opentelemetry.api.trace.SpanContext;
+import io.opentelemetry.context.Context;
+import io.opentelemetry.sdk.common.CompletableResultCode;
+import io.opentelemetry.sdk.common.InstrumentationScopeInfo;
+import io.opentelemetry.sdk.logs.LogRecordProcessor;
+import io.opentelemetry.sdk.logs.ReadWriteLogRecord;
+import io.opentelemetry.sdk.logs.data.Body;
+import io.opentelemetry.sdk.logs.data.LogRecordData;
+import io.opentelemetry.sdk.resources.Resource;
+
+/**
+ * Collapses repeated log records before they reach {@code downstream}. Records at or above {@code minSeverity} are
+ * fingerprinted by severity, body template (the body with every run of digits replaced by {@code #}), exception
+ * type and instrumentation scope. The first record of a fingerprint passes through at once and opens a window;
+ * repeats inside the window are only counted, and when the window closes they are emitted as one record carrying
+ * the occurrence count, the first and last timestamps, and the body and span context of the first repeat.
+ * <p>
+ * At most {@code maxFingerprints} windows are open at once; records beyond that pass through unaggregated.
+ */
+class AggregatingLogRecordProcessor implements LogRecordProcessor {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(AggregatingLogRecordProcessor.class);
+
+    static final AttributeKey<Long> OCCURRENCES = AttributeKey.longKey("log.aggregated.count");
+
+    static final AttributeKey<Long> FIRST_TIMESTAMP = AttributeKey.longKey("log.aggregated.first_timestamp_nanos");
+
+    static final AttributeKey<Long> LAST_TIMESTAMP = AttributeKey.longKey("log.aggregated.last_timestamp_nanos");
+
+    private static final AttributeKey<String> EXCEPTION_TYPE = AttributeKey.stringKey("exception.type");
+
+    /** Longest body prefix that takes part in the fingerprint. */
+    private static final int MAX_TEMPLATE_LENGTH = 256;
+
+    private final LogRecordProcessor downstream;
+    private final int minSeverityNumber;
+    private final long windowNanos;
+    private final int maxFingerprints;
+    private final Map<Fingerprint, Window> windows = new ConcurrentHashMap<>();
+    private final AtomicLong suppressedRecords = new AtomicLong();
+    private final ScheduledExecutorService sweeper;
+
+    AggregatingLogRecordProcessor(LogRecordProcessor downstream, MongoTelemetryProperties.LogAggregation settings) {
+        this.downstream = downstream;
+        this.minSeverityNumber = settings.getMinSeverity().getSeverityNumber();
+        this.windowNanos = settings.getWindow().toNanos();
+        this.maxFingerprints = Math.max(1, settings.getMaxFingerprints());
+        this.sweeper = TelemetrySchedulers.sweeper("telemetry-log-aggregation", windowNanos, this::sweep);
+    }
+
+    @Override
+    public void onEmit(Context context, ReadWriteLogRecord logRecord) {
+        LogRecordData record = logRecord.toLogRecordData();
+        Severity severity = record.getSeverity();
+        if (severity == null || severity.getSeverityNumber() < minSeverityNumber) {
+            downstream.onEmit(context, logRecord);
+            return;
+        }
+        Fingerprint fingerprint = Fingerprint.of(record);
+        Window window = windows.get(fingerprint);
+        if (window == null && windows.size() >= maxFingerprints) {
+            downstream.onEmit(context, logRecord);
+            return;
+        }
+        long now = System.nanoTime();
+        boolean[] opened = new boolean[1];
+        windows.compute(fingerprint, (key, current) -> {
+            if (current == null) {
+                opened[0] = true;
+                return new Window(now);
+            }
+            current.add(record);
+            return current;
+        });
+        if (opened[0]) {
+            downstream.onEmit(context, logRecord);
+        } else {
+            suppressedRecords.incrementAndGet();
+        }
+    }
+
+    @Override
+    public CompletableResultCode forceFlush() {
+        closeOlderThan(Long.MAX_VALUE);
+        return downstream.forceFlush();
+    }
+
+    @Override
+    public CompletableResultCode shutdown() {
+        sweeper.shutdownNow();
+        closeOlderThan(Long.MAX_VALUE);
+        return downstream.shutdown();
+    }
+
+    long getSuppressedRecords() {
+        return suppressedRecords.get();
+    }
+
+    private void sweep() {
+        try {
+            closeOlderThan(windowNanos);
+        } catch (RuntimeException exception) {
+            LOGGER.warn("Could not emit aggregated log records", exception);
+        }
+    }
+
+    /** Closes every window opened at least {@code ageNanos} ago and emits the repeats it counted. */
+    private void closeOlderThan(long ageNanos) {
+        long now = System.nanoTime();
+        List<Window> closed = new ArrayList<>();
+        for (Fingerprint fingerprint : windows.keySet()) {
+            windows.computeIfPresent(fingerprint, (key, window) -> {
+                if (ageNanos != Long.MAX_VALUE && now - window.openedNanos < ageNanos) {
+                    return window;
+                }
+                closed.add(window);
+                return null;
+            });
+        }
+        for (Window window : closed) {
+            if (window.sample != null) {
+                downstream.onEmit(Context.root(), new AggregatedLogRecord(window));
+            }
+        }
+    }
+
+    /** Replaces every run of digits with {@code #}, so ids, counts and status codes do not split a fingerprint. */
+    static String template(String body) {
+        if (body == null) {
+            return "";
+        }
+        int length = Math.min(body.length(), MAX_TEMPLATE_LENGTH);
+        StringBuilder template = null;
+        for (int i = 0; i < length; i++) {
+            char c = body.charAt(i);
+            if (c >= '0' && c <= '9') {
+                if (template == null) {
+                    template = new StringBuilder(length).append(body, 0, i);
+                }
+                if (template.length() == 0 || template.charAt(template.length() - 1) != '#') {
+                    template.append('#');
+                }
+            } else if (template != null) {
+                template.append(c);
+            }
+        }
+        if (template != null) {
+            return template.toString();
+        }
+        return length == body.length() ? body : body.substring(0, length);
+    }
+
+    private record Fingerprint(int severityNumber, String bodyTemplate, String exceptionType,
+            InstrumentationScopeInfo scope) {
+
+        private static Fingerprint of(LogRecordData record) {
+            return new Fingerprint(record.getSeverity().getSeverityNumber(), template(record.getBody().asString()),
+                record.getAttributes().get(EXCEPTION_TYPE), record.getInstrumentationScopeInfo());
+        }
+    }
+
+    /** Repeats of one fingerprint; only touched inside {@link ConcurrentHashMap#compute} for its key. */
+    private static final class Window {
+
+        private final long openedNanos;
+        private LogRecordData sample;
+        private long count;
+        private long firstTimestamp;
+        private long lastTimestamp;
+
+        private Window(long openedNanos) {
+            this.openedNanos = openedNanos;
+        }
+
+        private void add(LogRecordData record) {
+            long timestamp = record.getTimestampEpochNanos() != 0
+                ? record.getTimestampEpochNanos()
+                : record.getObservedTimestampEpochNanos();
+            if (sample == null) {
+                sample = record;
+                firstTimestamp = timestamp;
+            }
+            firstTimestamp = Math.min(firstTimestamp, timestamp);
+            lastTimestamp = Math.max(lastTimestamp, timestamp);
+            count++;
+        }
+    }
+
+    /** The record emitted for a closed window: its first repeat, stamped with the counts of the whole window. */
+    private static final class AggregatedLogRecord implements ReadWriteLogRecord, LogRecordData {
+
+        private final LogRecordData sample;
+        private final long lastTimestamp;
+        private Attributes attributes;
+
+        private AggregatedLogRecord(Window window) {
+            this.sample = window.sample;
+            this.lastTimestamp = window.lastTimestamp;
+            this.attributes = sample.getAttributes().toBuilder()
+                .put(OCCURRENCES, window.count)
+                .put(FIRST_TIMESTAMP, window.firstTimestamp)
+                .put(LAST_TIMESTAMP, window.lastTimestamp)
+                .build();
+        }
+
+        @Override
+        public <T> ReadWriteLogRecord setAttribute(AttributeKey<T> key, T value) {
+            AttributesBuilder builder = attributes.toBuilder();
+            builder.put(key, value);
+            attributes = builder.build();
+            return this;
+        }
+
+        @Override
+        public LogRecordData toLogRecordData() {
+            return this;
+        }
+
+        @Override
+        public Resource getResource() {
+            return sample.getResource();
+        }
+
+        @Override
+        public InstrumentationScopeInfo getInstrumentationScopeInfo() {
+            return sample.getInstrumentationScopeInfo();
+        }
+
+        @Override
+        public long getTimestampEpochNanos() {
+            return lastTimestamp;
+        }
+
+        @Override
+        public long getObservedTimestampEpochNanos() {
+            return lastTimestamp;
+        }
+
+        @Override
+        public SpanContext getSpanContext() {
+            return sample.getSpanContext();
+        }
+
+        @Override
+        public Severity getSeverity() {
+            return sample.getSeverity();
+        }
+
+        @Override
+        public String getSeverityText() {
+            return sample.getSeverityText();
+        }
+
+        @Override
+        public Body getBody() {
+            return sample.getBody();
+        }
+
+        @Override
+        public Attributes getAttributes() {
+            return attributes;
+        }
+
+        @Override
+        public int getTotalAttributeCount() {
+            return attributes.size();
+        }
+    }
+}
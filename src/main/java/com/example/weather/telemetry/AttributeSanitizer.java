@@ -0,0 +1,104 @@
+package com.example.weather.telemetry;
+
+import java.util.concurrent.atomic.LongAdder;
+
+import io.opentelemetry.api.common.AttributeKey;
+import io.opentelemetry.api.common.Attributes;
+import io.opentelemetry.api.metrics.Meter;
+
+/**
+ * Limits applied to attributes as they are written to telemetry documents: attributes beyond {@code maxAttributes}
+ * are dropped, and strings and arrays are cut to {@code maxStringLength} characters and {@code maxArrayLength}
+ * elements. Every cut is counted and published as the counter {@value #TRUNCATIONS_METRIC}, so a large attribute
+ * costs a counter increment instead of a large document.
+ */
+class AttributeSanitizer {
+
+    static final String TRUNCATIONS_METRIC = "telemetry.attributes.truncated";
+
+    private static final AttributeKey<String> KIND = AttributeKey.stringKey("kind");
+
+    private final int maxAttributes;
+    private final int maxStringLength;
+    private final int maxArrayLength;
+    private final LongAdder droppedAttributes = new LongAdder();
+    private final LongAdder truncatedStrings = new LongAdder();
+    private final LongAdder truncatedArrays = new LongAdder();
+
+    AttributeSanitizer(MongoTelemetryProperties.AttributeLimits settings) {
+        this(settings.getMaxAttributes(), settings.getMaxStringLength(), settings.getMaxArrayLength());
+    }
+
+    private AttributeSanitizer(int maxAttributes, int maxStringLength, int maxArrayLength) {
+        this.maxAttributes = limit(maxAttributes);
+        this.maxStringLength = limit(maxStringLength);
+        this.maxArrayLength = limit(maxArrayLength);
+    }
+
+    /** A sanitizer that writes every attribute unchanged. */
+    static AttributeSanitizer unlimited() {
+        return new AttributeSanitizer(0, 0, 0);
+    }
+
+    int maxAttributes() {
+        return maxAttributes;
+    }
+
+    int maxArrayLength() {
+        return maxArrayLength;
+    }
+
+    /** Returns {@code value}, or its first {@code maxStringLength} characters without splitting a surrogate pair. */
+    String truncate(String value) {
+        if (value.length() <= maxStringLength) {
+            return value;
+        }
+        truncatedStrings.increment();
+        int end = maxStringLength;
+        if (Character.isHighSurrogate(value.charAt(end - 1))) {
+            end--;
+        }
+        return value.substring(0, end);
+    }
+
+    void attributesDropped(int count) {
+        if (count > 0) {
+            droppedAttributes.add(count);
+        }
+    }
+
+    void arrayTruncated() {
+        truncatedArrays.increment();
+    }
+
+    long getDroppedAttributes() {
+        return droppedAttributes.sum();
+    }
+
+    long getTruncatedStrings() {
+        return truncatedStrings.sum();
+    }
+
+    long getTruncatedArrays() {
+        return truncatedArrays.sum();
+    }
+
+    /** Publishes the number of dropped attributes and truncated values through {@code meter}. */
+    void registerMetrics(Meter meter) {
+        Attributes dropped = Attributes.of(KIND, "attribute");
+        Attributes strings = Attributes.of(KIND, "string");
+        Attributes arrays = Attributes.of(KIND, "array");
+        meter.counterBuilder(TRUNCATIONS_METRIC)
+            .setDescription("Attributes dropped and attribute values truncated while writing telemetry documents")
+            .setUnit("1")
+            .buildWithCallback(measurement -> {
+                measurement.record(droppedAttributes.sum(), dropped);
+                measurement.record(truncatedStrings.sum(), strings);
+                measurement.record(truncatedArrays.sum(), arrays);
+            });
+    }
+
+    private static int limit(int configured) {
+        return configured > 0 ? configured : Integer.MAX_VALUE;
+    }
+}
@@ -0,0 +1,142 @@
+package com.example.weather.telemetry;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.bson.BsonDocument;
+import org.bson.BsonInt64;
+import org.bson.BsonValue;
+import org.bson.RawBsonDocument;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.model.BulkWriteOptions;
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.ReplaceOneModel;
+import com.mongodb.client.model.ReplaceOptions;
+
+import io.opentelemetry.api.common.Attributes;
+import io.opentelemetry.sdk.metrics.data.PointData;
+
+/**
+ * Maps point attribute sets to 64-bit content hashes for the packed metric layout. Each distinct set is stored once
+ * in its own collection as {@code {_id: hash, attributes: {...}}}, so packed documents only carry the hash of each
+ * point's attributes and readers resolve them with {@link #resolve(Collection)}.
+ */
+class AttributeSetDictionary {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(AttributeSetDictionary.class);
+
+    static final String ATTRIBUTES_FIELD = "attributes";
+
+    private final MongoCollection<BsonDocument> collection;
+    private final int maxEntries;
+    private final AttributeSanitizer sanitizer;
+    private final Map<Attributes, Entry> entries = new ConcurrentHashMap<>();
+    private final Set<Long> storedIds = ConcurrentHashMap.newKeySet();
+
+    /**
+     * @param collection collection that receives each distinct attribute set once, or {@code null} to store one
+     *                   document per point with its attributes inline
+     */
+    AttributeSetDictionary(MongoCollection<?> collection, int maxEntries, AttributeSanitizer sanitizer) {
+        this.collection = collection != null ? collection.withDocumentClass(BsonDocument.class) : null;
+        this.maxEntries = Math.max(1, maxEntries);
+        this.sanitizer = sanitizer;
+    }
+
+    boolean isEnabled() {
+        return collection != null;
+    }
+
+    long idOf(Attributes attributes) {
+        return entry(attributes).id();
+    }
+
+    /** Name of the attribute sets collection, or {@code null} when attributes are stored inline. */
+    String getCollectionName() {
+        return isEnabled() ? collection.getNamespace().getCollectionName() : null;
+    }
+
+    /** Makes sure the attribute sets of {@code items} exist in the collection before documents referencing them. */
+    void store(List<MetricPoints> items) {
+        List<ReplaceOneModel<BsonDocument>> missing = upserts(items);
+        if (!missing.isEmpty()) {
+            collection.bulkWrite(missing, new BulkWriteOptions().ordered(false));
+            stored(missing);
+        }
+    }
+
+    /**
+     * Upserts of the attribute sets of {@code items} that are not in the collection yet, for callers that write them
+     * themselves and then report them through {@link #stored(List)}. Empty when attributes are stored inline.
+     */
+    List<ReplaceOneModel<BsonDocument>> upserts(List<MetricPoints> items) {
+        if (!isEnabled()) {
+            return List.of();
+        }
+        List<ReplaceOneModel<BsonDocument>> missing = new ArrayList<>();
+        Set<Long> missingIds = new HashSet<>();
+        for (MetricPoints item : items) {
+            for (PointData point : item.points()) {
+                Entry entry = entry(point.getAttributes());
+                if (!storedIds.contains(entry.id()) && missingIds.add(entry.id())) {
+                    BsonDocument document = new BsonDocument("_id", new BsonInt64(entry.id()))
+                        .append(ATTRIBUTES_FIELD, entry.encoded());
+                    missing.add(new ReplaceOneModel<>(Filters.eq("_id", entry.id()), document,
+                        new ReplaceOptions().upsert(true)));
+                }
+            }
+        }
+        return missing;
+    }
+
+    /** Records that {@code upserts} returned by {@link #upserts(List)} were written. */
+    void stored(List<ReplaceOneModel<BsonDocument>> upserts) {
+        for (ReplaceOneModel<BsonDocument> upsert : upserts) {
+            storedIds.add(upsert.getReplacement().getInt64("_id").getValue());
+        }
+        LOGGER.debug("Stored {} attribute sets in the attribute sets collection", upserts.size());
+    }
+
+    /**
+     * Looks up the attributes stored for {@code ids}; ids that are not stored are missing from the result, as are all
+     * of them once the packed layout has been turned off.
+     */
+    Map<Long, BsonDocument> resolve(Collection<Long> ids) {
+        Map<Long, BsonDocument> attributes = new HashMap<>();
+        if (ids.isEmpty() || !isEnabled()) {
+            return attributes;
+        }
+        for (BsonDocument document : collection.find(Filters.in("_id", ids))) {
+            BsonValue id = document.get("_id");
+            attributes.put(id.asInt64().getValue(), document.getDocument(ATTRIBUTES_FIELD));
+        }
+        return attributes;
+    }
+
+    private Entry entry(Attributes attributes) {
+        Entry entry = entries.get(attributes);
+        if (entry != null) {
+            return entry;
+        }
+        if (entries.size() >= maxEntries) {
+            entries.clear();
+            storedIds.clear();
+        }
+        RawBsonDocument encoded = TelemetryDocumentFactory.encodeAttributes(attributes, sanitizer);
+        entry = new Entry(TelemetryFragmentCache.hash(encoded), encoded);
+        entries.put(attributes, entry);
+        return entry;
+    }
+
+    private record Entry(long id, RawBsonDocument encoded) {
+    }
+}
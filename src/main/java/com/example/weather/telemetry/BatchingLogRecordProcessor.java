@@ -0,0 +1,264 @@
+package com.example.weather.telemetry;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.LockSupport;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import io.opentelemetry.api.common.AttributeKey;
+import io.opentelemetry.api.logs.Severity;
+import io.opentelemetry.context.Context;
+import io.opentelemetry.sdk.common.CompletableResultCode;
+import io.opentelemetry.sdk.logs.LogRecordProcessor;
+import io.opentelemetry.sdk.logs.ReadWriteLogRecord;
+import io.opentelemetry.sdk.logs.data.LogRecordData;
+import io.opentelemetry.sdk.logs.export.LogRecordExporter;
+
+/**
+ * Queues emitted log records in a lock-free ring buffer and exports them from a dedicated worker thread in batches
+ * bounded by record count and estimated size. Logging threads never block: as the buffer fills up, records are
+ * rejected by severity band, so debug output is shed first and errors are kept until the buffer is completely full.
+ * With asynchronous exporters up to {@code maxPendingExports} batches may be in flight at once.
+ */
+class BatchingLogRecordProcessor implements LogRecordProcessor {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(BatchingLogRecordProcessor.class);
+
+    /** Queue occupancy, as a fraction of capacity, above which each severity band is rejected. */
+    private static final double[] BAND_ADMISSION_LIMITS = {0.5, 0.75, 0.9, 1.0};
+
+    private static final String[] BAND_NAMES = {"TRACE/DEBUG", "INFO", "WARN", "ERROR/FATAL"};
+
+    /** Rough size of the resource, scope, timestamps and span context stored with every record. */
+    private static final int RECORD_OVERHEAD_BYTES = 512;
+
+    private static final int ATTRIBUTE_OVERHEAD_BYTES = 16;
+
+    private final LogRecordExporter exporter;
+    private final BoundedRingBuffer<LogRecordData> buffer;
+    private final int[] bandCapacities = new int[BAND_ADMISSION_LIMITS.length];
+    private final int maxExportBatchSize;
+    private final long maxExportBatchBytes;
+    private final long scheduleDelayNanos;
+    private final long exportTimeoutNanos;
+    private final int maxPendingExports;
+    private final Deque<CompletableResultCode> pendingExports = new ArrayDeque<>();
+    private final AtomicInteger recordsNeeded = new AtomicInteger(Integer.MAX_VALUE);
+    private final AtomicReference<CompletableResultCode> flushRequested = new AtomicReference<>();
+    private final AtomicBoolean shutdownRequested = new AtomicBoolean();
+    private final AtomicLongArray droppedByBand = new AtomicLongArray(BAND_ADMISSION_LIMITS.length);
+    private final CompletableResultCode shutdownResult = new CompletableResultCode();
+    private final List<LogRecordData> batch;
+    private final Thread worker;
+    private long batchBytes;
+    private LogRecordData carriedOver;
+
+    BatchingLogRecordProcessor(LogRecordExporter exporter, MongoTelemetryProperties.LogBatch settings,
+            int maxPendingExports) {
+        this.exporter = exporter;
+        this.buffer = new BoundedRingBuffer<>(settings.getMaxQueueSize());
+        for (int band = 0; band < bandCapacities.length; band++) {
+            bandCapacities[band] = (int) (buffer.capacity() * BAND_ADMISSION_LIMITS[band]);
+        }
+        this.maxExportBatchSize = Math.min(settings.getMaxExportBatchSize(), buffer.capacity());
+        this.maxExportBatchBytes = settings.getMaxExportBatchBytes().toBytes();
+        this.scheduleDelayNanos = settings.getScheduleDelay().toNanos();
+        this.exportTimeoutNanos = settings.getExportTimeout().toNanos();
+        this.maxPendingExports = Math.max(1, maxPendingExports);
+        this.batch = new ArrayList<>(maxExportBatchSize);
+        this.worker = new Thread(this::run, "telemetry-log-batch");
+        this.worker.setDaemon(true);
+        this.worker.start();
+    }
+
+    @Override
+    public void onEmit(Context context, ReadWriteLogRecord logRecord) {
+        LogRecordData record = logRecord.toLogRecordData();
+        int band = severityBand(record.getSeverity());
+        if (shutdownRequested.get() || buffer.size() >= bandCapacities[band] || !buffer.offer(record)) {
+            droppedByBand.incrementAndGet(band);
+            return;
+        }
+        if (buffer.size() >= recordsNeeded.get()) {
+            LockSupport.unpark(worker);
+        }
+    }
+
+    @Override
+    public CompletableResultCode forceFlush() {
+        if (shutdownRequested.get()) {
+            return CompletableResultCode.ofSuccess();
+        }
+        CompletableResultCode flushResult = new CompletableResultCode();
+        if (!flushRequested.compareAndSet(null, flushResult)) {
+            flushResult = flushRequested.get();
+            if (flushResult == null) {
+                return CompletableResultCode.ofSuccess();
+            }
+        }
+        LockSupport.unpark(worker);
+        return flushResult;
+    }
+
+    @Override
+    public CompletableResultCode shutdown() {
+        if (shutdownRequested.compareAndSet(false, true)) {
+            LockSupport.unpark(worker);
+        }
+        return shutdownResult;
+    }
+
+    long getDroppedLogRecords() {
+        long total = 0;
+        for (int band = 0; band < droppedByBand.length(); band++) {
+            total += droppedByBand.get(band);
+        }
+        return total;
+    }
+
+    long getDroppedLogRecords(Severity severity) {
+        return droppedByBand.get(severityBand(severity));
+    }
+
+    private static int severityBand(Severity severity) {
+        int number = severity != null ? severity.getSeverityNumber() : 0;
+        if (number >= Severity.ERROR.getSeverityNumber()) {
+            return 3;
+        }
+        if (number >= Severity.WARN.getSeverityNumber()) {
+            return 2;
+        }
+        if (number >= Severity.INFO.getSeverityNumber()) {
+            return 1;
+        }
+        return 0;
+    }
+
+    private void run() {
+        long nextExportTime = System.nanoTime() + scheduleDelayNanos;
+        while (!shutdownRequested.get()) {
+            CompletableResultCode flushResult = flushRequested.get();
+            if (flushResult != null) {
+                drainAndExport();
+                flushRequested.compareAndSet(flushResult, null);
+                flushResult.succeed();
+                nextExportTime = System.nanoTime() + scheduleDelayNanos;
+                continue;
+            }
+            boolean batchFull = fillBatch();
+            if (batchFull || System.nanoTime() >= nextExportTime) {
+                exportCurrentBatch();
+                nextExportTime = System.nanoTime() + scheduleDelayNanos;
+                continue;
+            }
+            long parkNanos = nextExportTime - System.nanoTime();
+            if (buffer.isEmpty() && parkNanos > 0) {
+                recordsNeeded.set(maxExportBatchSize - batch.size());
+                LockSupport.parkNanos(this, parkNanos);
+                recordsNeeded.set(Integer.MAX_VALUE);
+            }
+        }
+        drainAndExport();
+        CompletableResultCode pendingFlush = flushRequested.getAndSet(null);
+        if (pendingFlush != null) {
+            pendingFlush.succeed();
+        }
+        reportDrops();
+        CompletableResultCode exporterShutdown = exporter.shutdown();
+        exporterShutdown.whenComplete(() -> {
+            if (exporterShutdown.isSuccess()) {
+                shutdownResult.succeed();
+            } else {
+                shutdownResult.fail();
+            }
+        });
+    }
+
+    /** Moves queued records into the current batch and returns whether a count or size limit was reached. */
+    private boolean fillBatch() {
+        while (batch.size() < maxExportBatchSize) {
+            LogRecordData record = carriedOver != null ? carriedOver : buffer.poll();
+            carriedOver = null;
+            if (record == null) {
+                return false;
+            }
+            int recordBytes = estimateSize(record);
+            if (!batch.isEmpty() && batchBytes + recordBytes > maxExportBatchBytes) {
+                carriedOver = record;
+                return true;
+            }
+            batch.add(record);
+            batchBytes += recordBytes;
+        }
+        return true;
+    }
+
+    private void drainAndExport() {
+        while (carriedOver != null || !buffer.isEmpty() || !batch.isEmpty()) {
+            fillBatch();
+            exportCurrentBatch();
+        }
+        awaitPendingExports(0);
+    }
+
+    private void exportCurrentBatch() {
+        if (batch.isEmpty()) {
+            return;
+        }
+        try {
+            pendingExports.addLast(exporter.export(Collections.unmodifiableList(new ArrayList<>(batch))));
+            awaitPendingExports(maxPendingExports - 1);
+        } catch (RuntimeException exception) {
+            LOGGER.warn("Exporter threw an exception while exporting log records", exception);
+        } finally {
+            batch.clear();
+            batchBytes = 0;
+        }
+    }
+
+    /** Waits for the oldest exports until at most {@code allowed} are still running. */
+    private void awaitPendingExports(int allowed) {
+        while (!pendingExports.isEmpty()
+                && (pendingExports.size() > allowed || pendingExports.peekFirst().isDone())) {
+            CompletableResultCode oldest = pendingExports.pollFirst();
+            oldest.join(exportTimeoutNanos, TimeUnit.NANOSECONDS);
+            if (!oldest.isSuccess()) {
+                LOGGER.debug("Exporting a batch of log records failed");
+            }
+        }
+    }
+
+    private void reportDrops() {
+        for (int band = 0; band < droppedByBand.length(); band++) {
+            long dropped = droppedByBand.get(band);
+            if (dropped > 0) {
+                LOGGER.warn("Dropped {} {} log records because the export queue was saturated", dropped,
+                    BAND_NAMES[band]);
+            }
+        }
+    }
+
+    static int estimateSize(LogRecordData record) {
+        int[] size = {RECORD_OVERHEAD_BYTES};
+        String body = record.getBody().asString();
+        size[0] += body != null ? body.length() : 0;
+        if (record.getSeverityText() != null) {
+            size[0] += record.getSeverityText().length();
+        }
+        record.getAttributes().forEach((AttributeKey<?> key, Object value) -> {
+            size[0] += ATTRIBUTE_OVERHEAD_BYTES + key.getKey().length();
+            size[0] += value instanceof String text ? text.length() : Long.BYTES;
+        });
+        return size[0];
+    }
+}
@@ -0,0 +1,221 @@
+package com.example.weather.telemetry;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import io.opentelemetry.context.Context;
+import io.opentelemetry.sdk.common.CompletableResultCode;
+import io.opentelemetry.sdk.trace.ReadWriteSpan;
+import io.opentelemetry.sdk.trace.ReadableSpan;
+import io.opentelemetry.sdk.trace.SpanProcessor;
+import io.opentelemetry.sdk.trace.data.SpanData;
+import io.opentelemetry.sdk.trace.export.SpanExporter;
+
+/**
+ * Queues finished spans and exports them in batches from a dedicated worker thread, so the thread that ends a span
+ * never waits on the exporters. Unlike the SDK batch processor, the behaviour on a full queue is configurable, and
+ * with asynchronous exporters up to {@code maxPendingExports} batches may be in flight at once.
+ */
+class BatchingSpanProcessor implements SpanProcessor {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(BatchingSpanProcessor.class);
+
+    private final SpanExporter exporter;
+    private final BlockingQueue<ReadableSpan> queue;
+    private final int maxExportBatchSize;
+    private final long scheduleDelayNanos;
+    private final long exportTimeoutNanos;
+    private final int maxPendingExports;
+    private final Deque<CompletableResultCode> pendingExports = new ArrayDeque<>();
+    private final MongoTelemetryProperties.QueueFullPolicy queueFullPolicy;
+    private final BlockingQueue<Boolean> signal = new ArrayBlockingQueue<>(1);
+    private final AtomicInteger spansNeeded = new AtomicInteger(Integer.MAX_VALUE);
+    private final AtomicReference<CompletableResultCode> flushRequested = new AtomicReference<>();
+    private final AtomicBoolean shutdownRequested = new AtomicBoolean();
+    private final AtomicLong droppedSpans = new AtomicLong();
+    private final CompletableResultCode shutdownResult = new CompletableResultCode();
+    private final List<ReadableSpan> batch;
+
+    BatchingSpanProcessor(SpanExporter exporter, MongoTelemetryProperties.SpanBatch settings,
+            int maxPendingExports) {
+        this.exporter = exporter;
+        this.queue = new ArrayBlockingQueue<>(settings.getMaxQueueSize());
+        this.maxExportBatchSize = Math.min(settings.getMaxExportBatchSize(), settings.getMaxQueueSize());
+        this.scheduleDelayNanos = settings.getScheduleDelay().toNanos();
+        this.exportTimeoutNanos = settings.getExportTimeout().toNanos();
+        this.maxPendingExports = Math.max(1, maxPendingExports);
+        this.queueFullPolicy = settings.getQueueFullPolicy();
+        this.batch = new ArrayList<>(maxExportBatchSize);
+        Thread worker = new Thread(this::run, "telemetry-span-batch");
+        worker.setDaemon(true);
+        worker.start();
+    }
+
+    @Override
+    public void onStart(Context parentContext, ReadWriteSpan span) {
+    }
+
+    @Override
+    public boolean isStartRequired() {
+        return false;
+    }
+
+    @Override
+    public void onEnd(ReadableSpan span) {
+        if (!span.getSpanContext().isSampled()) {
+            return;
+        }
+        if (shutdownRequested.get() || !enqueue(span)) {
+            droppedSpans.incrementAndGet();
+            return;
+        }
+        if (queue.size() >= spansNeeded.get()) {
+            signal.offer(Boolean.TRUE);
+        }
+    }
+
+    @Override
+    public boolean isEndRequired() {
+        return true;
+    }
+
+    @Override
+    public CompletableResultCode forceFlush() {
+        if (shutdownRequested.get()) {
+            return CompletableResultCode.ofSuccess();
+        }
+        CompletableResultCode flushResult = new CompletableResultCode();
+        if (!flushRequested.compareAndSet(null, flushResult)) {
+            flushResult = flushRequested.get();
+            if (flushResult == null) {
+                return CompletableResultCode.ofSuccess();
+            }
+        }
+        signal.offer(Boolean.TRUE);
+        return flushResult;
+    }
+
+    @Override
+    public CompletableResultCode shutdown() {
+        if (shutdownRequested.compareAndSet(false, true)) {
+            signal.offer(Boolean.TRUE);
+        }
+        return shutdownResult;
+    }
+
+    long getDroppedSpans() {
+        return droppedSpans.get();
+    }
+
+    private boolean enqueue(ReadableSpan span) {
+        if (queueFullPolicy == MongoTelemetryProperties.QueueFullPolicy.DROP) {
+            return queue.offer(span);
+        }
+        try {
+            return queue.offer(span, exportTimeoutNanos, TimeUnit.NANOSECONDS);
+        } catch (InterruptedException exception) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    private void run() {
+        long nextExportTime = System.nanoTime() + scheduleDelayNanos;
+        while (!shutdownRequested.get()) {
+            CompletableResultCode flushResult = flushRequested.get();
+            if (flushResult != null) {
+                drainAndExport();
+                flushRequested.compareAndSet(flushResult, null);
+                flushResult.succeed();
+                nextExportTime = System.nanoTime() + scheduleDelayNanos;
+                continue;
+            }
+            queue.drainTo(batch, maxExportBatchSize - batch.size());
+            if (batch.size() >= maxExportBatchSize || System.nanoTime() >= nextExportTime) {
+                exportCurrentBatch();
+                nextExportTime = System.nanoTime() + scheduleDelayNanos;
+                continue;
+            }
+            if (queue.isEmpty()) {
+                long pollWaitNanos = nextExportTime - System.nanoTime();
+                if (pollWaitNanos > 0) {
+                    spansNeeded.set(maxExportBatchSize - batch.size());
+                    try {
+                        signal.poll(pollWaitNanos, TimeUnit.NANOSECONDS);
+                    } catch (InterruptedException exception) {
+                        Thread.currentThread().interrupt();
+                        break;
+                    }
+                    spansNeeded.set(Integer.MAX_VALUE);
+                }
+            }
+        }
+        drainAndExport();
+        CompletableResultCode pendingFlush = flushRequested.getAndSet(null);
+        if (pendingFlush != null) {
+            pendingFlush.succeed();
+        }
+        if (droppedSpans.get() > 0) {
+            LOGGER.warn("Dropped {} spans because the export queue was full", droppedSpans.get());
+        }
+        CompletableResultCode exporterShutdown = exporter.shutdown();
+        exporterShutdown.whenComplete(() -> {
+            if (exporterShutdown.isSuccess()) {
+                shutdownResult.succeed();
+            } else {
+                shutdownResult.fail();
+            }
+        });
+    }
+
+    private void drainAndExport() {
+        while (!queue.isEmpty() || !batch.isEmpty()) {
+            queue.drainTo(batch, maxExportBatchSize - batch.size());
+            exportCurrentBatch();
+        }
+        awaitPendingExports(0);
+    }
+
+    private void exportCurrentBatch() {
+        if (batch.isEmpty()) {
+            return;
+        }
+        try {
+            List<SpanData> spans = new ArrayList<>(batch.size());
+            for (ReadableSpan span : batch) {
+                spans.add(span.toSpanData());
+            }
+            pendingExports.addLast(exporter.export(Collections.unmodifiableList(spans)));
+            awaitPendingExports(maxPendingExports - 1);
+        } catch (RuntimeException exception) {
+            LOGGER.warn("Exporter threw an exception while exporting spans", exception);
+        } finally {
+            batch.clear();
+        }
+    }
+
+    /** Waits for the oldest exports until at most {@code allowed} are still running. */
+    private void awaitPendingExports(int allowed) {
+        while (!pendingExports.isEmpty()
+                && (pendingExports.size() > allowed || pendingExports.peekFirst().isDone())) {
+            CompletableResultCode oldest = pendingExports.pollFirst();
+            oldest.join(exportTimeoutNanos, TimeUnit.NANOSECONDS);
+            if (!oldest.isSuccess()) {
+                LOGGER.debug("Exporting a batch of spans failed");
+            }
+        }
+    }
+}
@@ -0,0 +1,53 @@
+package com.example.weather.telemetry;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Consecutive-failure circuit breaker. After {@code failureThreshold} failures in a row the circuit opens and rejects
+ * calls for {@code openDuration}; afterwards a single trial call is let through and its outcome closes or re-opens it.
+ */
+final class CircuitBreaker {
+
+    private final int failureThreshold;
+    private final long openDurationNanos;
+    private final AtomicInteger consecutiveFailures = new AtomicInteger();
+    private final AtomicBoolean trialInProgress = new AtomicBoolean();
+    private volatile long openUntilNanos;
+
+    CircuitBreaker(int failureThreshold, Duration openDuration) {
+        this.failureThreshold = Math.max(1, failureThreshold);
+        this.openDurationNanos = openDuration.toNanos();
+    }
+
+    boolean allowRequest() {
+        if (consecutiveFailures.get() < failureThreshold) {
+            return true;
+        }
+        if (System.nanoTime() - openUntilNanos < 0) {
+            return false;
+        }
+        return trialInProgress.compareAndSet(false, true);
+    }
+
+    void recordSuccess() {
+        consecutiveFailures.set(0);
+        trialInProgress.set(false);
+    }
+
+    /** Returns {@code true} when this failure opened (or re-opened) the circuit. */
+    boolean recordFailure() {
+        int failures = consecutiveFailures.incrementAndGet();
+        if (failures < failureThreshold) {
+            return false;
+        }
+        openUntilNanos = System.nanoTime() + openDurationNanos;
+        trialInProgress.set(false);
+        return true;
+    }
+
+    boolean isOpen() {
+        return consecutiveFailures.get() >= failureThreshold;
+    }
+}
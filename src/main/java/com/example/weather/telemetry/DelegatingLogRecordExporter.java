@@ -10,36 +10,36 @@ import io.opentelemetry.sdk.logs.export.LogRecordExporter;
 
 class DelegatingLogRecordExporter implements LogRecordExporter {
 
-    private final List<LogRecordExporter> delegates;
+    private final List<IsolatedExporter<LogRecordExporter>> delegates;
 
-    DelegatingLogRecordExporter(List<LogRecordExporter> delegates) {
-        this.delegates = delegates;
+    DelegatingLogRecordExporter(List<LogRecordExporter> delegates, MongoTelemetryProperties.FanOut settings) {
+        this.delegates = new ArrayList<>(delegates.size());
+        for (LogRecordExporter delegate : delegates) {
+            this.delegates.add(new IsolatedExporter<>(delegate, settings));
+        }
     }
 
     @Override
     public CompletableResultCode export(Collection<LogRecordData> logs) {
         List<CompletableResultCode> results = new ArrayList<>(delegates.size());
-        for (LogRecordExporter delegate : delegates) {
-            results.add(delegate.export(logs));
+        for (IsolatedExporter<LogRecordExporter> delegate : delegates) {
+            results.add(delegate.call(exporter -> exporter.export(logs),
+                exporter -> IsolatedExporter.spool(exporter, logs)));
         }
-        return CompletableResultCode.ofAll(results);
+        return IsolatedExporter.anySucceeded(results);
     }
 
     @Override
     public CompletableResultCode flush() {
         List<CompletableResultCode> results = new ArrayList<>(delegates.size());
-        for (LogRecordExporter delegate : delegates) {
-            results.add(delegate.flush());
+        for (IsolatedExporter<LogRecordExporter> delegate : delegates) {
+            results.add(delegate.call(LogRecordExporter::flush));
         }
         return CompletableResultCode.ofAll(results);
     }
 
     @Override
     public CompletableResultCode shutdown() {
-        List<CompletableResultCode> results = new ArrayList<>(delegates.size());
-        for (LogRecordExporter delegate : delegates) {
-            results.add(delegate.shutdown());
-        }
-        return CompletableResultCode.ofAll(results);
+        return IsolatedExporter.shutdownAll(delegates, LogRecordExporter::shutdown);
     }
 }
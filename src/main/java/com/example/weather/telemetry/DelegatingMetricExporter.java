@@ -4,55 +4,84 @@ import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
 import io.opentelemetry.sdk.common.CompletableResultCode;
 import io.opentelemetry.sdk.metrics.InstrumentType;
 import io.opentelemetry.sdk.metrics.data.AggregationTemporality;
 import io.opentelemetry.sdk.metrics.data.MetricData;
 import io.opentelemetry.sdk.metrics.export.MetricExporter;
 
+/**
+ * Sends each metrics export to every delegate, isolated from one another by {@link IsolatedExporter}.
+ * <p>
+ * The SDK aggregates metrics once per reader, so every delegate receives points in the same temporality: the one
+ * the first delegate reports. The configuration gives every sink the same temporality selector; delegates that
+ * disagree anyway are reported at startup.
+ */
 class DelegatingMetricExporter implements MetricExporter {
 
-    private final List<MetricExporter> delegates;
+    private static final Logger LOGGER = LoggerFactory.getLogger(DelegatingMetricExporter.class);
+
+    private final List<IsolatedExporter<MetricExporter>> delegates;
 
-    DelegatingMetricExporter(List<MetricExporter> delegates) {
-        this.delegates = delegates;
+    DelegatingMetricExporter(List<MetricExporter> delegates, MongoTelemetryProperties.FanOut settings) {
+        this.delegates = new ArrayList<>(delegates.size());
+        for (MetricExporter delegate : delegates) {
+            this.delegates.add(new IsolatedExporter<>(delegate, settings));
+        }
+        warnOnMixedTemporality(delegates);
     }
 
     @Override
     public CompletableResultCode export(Collection<MetricData> metrics) {
         List<CompletableResultCode> results = new ArrayList<>(delegates.size());
-        for (MetricExporter delegate : delegates) {
-            results.add(delegate.export(metrics));
+        for (IsolatedExporter<MetricExporter> delegate : delegates) {
+            results.add(delegate.call(exporter -> exporter.export(metrics),
+                exporter -> IsolatedExporter.spool(exporter, metrics)));
         }
-        return CompletableResultCode.ofAll(results);
+        return IsolatedExporter.anySucceeded(results);
     }
 
     @Override
     public CompletableResultCode flush() {
         List<CompletableResultCode> results = new ArrayList<>(delegates.size());
-        for (MetricExporter delegate : delegates) {
-            results.add(delegate.flush());
+        for (IsolatedExporter<MetricExporter> delegate : delegates) {
+            results.add(delegate.call(MetricExporter::flush));
         }
         return CompletableResultCode.ofAll(results);
     }
 
     @Override
     public CompletableResultCode shutdown() {
-        List<CompletableResultCode> results = new ArrayList<>(delegates.size());
-        for (MetricExporter delegate : delegates) {
-            results.add(delegate.shutdown());
-        }
-        return CompletableResultCode.ofAll(results);
+        return IsolatedExporter.shutdownAll(delegates, MetricExporter::shutdown);
     }
 
     @Override
     public AggregationTemporality getAggregationTemporality(InstrumentType instrumentType) {
-        for (MetricExporter delegate : delegates) {
-            AggregationTemporality temporality = delegate.getAggregationTemporality(instrumentType);
+        for (IsolatedExporter<MetricExporter> delegate : delegates) {
+            AggregationTemporality temporality = delegate.delegate().getAggregationTemporality(instrumentType);
             if (temporality != null) {
                 return temporality;
             }
         }
         return AggregationTemporality.CUMULATIVE;
     }
+
+    private static void warnOnMixedTemporality(List<MetricExporter> delegates) {
+        for (InstrumentType instrumentType : InstrumentType.values()) {
+            AggregationTemporality first = delegates.isEmpty()
+                ? null
+                : delegates.get(0).getAggregationTemporality(instrumentType);
+            for (int i = 1; i < delegates.size(); i++) {
+                AggregationTemporality other = delegates.get(i).getAggregationTemporality(instrumentType);
+                if (first != other) {
+                    LOGGER.warn("{} prefers {} temporality for {} but receives {} like {}",
+                        delegates.get(i).getClass().getSimpleName(), other, instrumentType, first,
+                        delegates.get(0).getClass().getSimpleName());
+                }
+            }
+        }
+    }
 }
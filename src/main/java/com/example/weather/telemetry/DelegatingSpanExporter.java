@@ -1,7 +1,8 @@
 package com.example.weather.telemetry;
 
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
-import java.util.stream.Collectors;
 
 import io.opentelemetry.sdk.common.CompletableResultCode;
 import io.opentelemetry.sdk.trace.data.SpanData;
@@ -9,30 +10,36 @@ import io.opentelemetry.sdk.trace.export.SpanExporter;
 
 class DelegatingSpanExporter implements SpanExporter {
 
-    private final List<SpanExporter> delegates;
+    private final List<IsolatedExporter<SpanExporter>> delegates;
 
-    DelegatingSpanExporter(List<SpanExporter> delegates) {
-        this.delegates = delegates;
+    DelegatingSpanExporter(List<SpanExporter> delegates, MongoTelemetryProperties.FanOut settings) {
+        this.delegates = new ArrayList<>(delegates.size());
+        for (SpanExporter delegate : delegates) {
+            this.delegates.add(new IsolatedExporter<>(delegate, settings));
+        }
     }
 
     @Override
-    public CompletableResultCode export(java.util.Collection<SpanData> spans) {
-        return CompletableResultCode.ofAll(delegates.stream()
-            .map(delegate -> delegate.export(spans))
-            .collect(Collectors.toList()));
+    public CompletableResultCode export(Collection<SpanData> spans) {
+        List<CompletableResultCode> results = new ArrayList<>(delegates.size());
+        for (IsolatedExporter<SpanExporter> delegate : delegates) {
+            results.add(delegate.call(exporter -> exporter.export(spans),
+                exporter -> IsolatedExporter.spool(exporter, spans)));
+        }
+        return IsolatedExporter.anySucceeded(results);
     }
 
     @Override
     public CompletableResultCode flush() {
-        return CompletableResultCode.ofAll(delegates.stream()
-            .map(SpanExporter::flush)
-            .collect(Collectors.toList()));
+        List<CompletableResultCode> results = new ArrayList<>(delegates.size());
+        for (IsolatedExporter<SpanExporter> delegate : delegates) {
+            results.add(delegate.call(SpanExporter::flush));
+        }
+        return CompletableResultCode.ofAll(results);
     }
 
     @Override
     public CompletableResultCode shutdown() {
-        return CompletableResultCode.ofAll(delegates.stream()
-            .map(SpanExporter::shutdown)
-            .collect(Collectors.toList()));
+        return IsolatedExporter.shutdownAll(delegates, SpanExporter::shutdown);
     }
 }
@@ -0,0 +1,219 @@
+package com.example.weather.telemetry;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.example.weather.config.VirtualThreads;
+
+import io.opentelemetry.sdk.common.CompletableResultCode;
+
+/**
+ * Runs calls to one delegate exporter on its own single-threaded executor with a bounded queue, a timeout and a
+ * {@link CircuitBreaker}, so a slow or hung sink cannot hold up the others behind the same delegating exporter.
+ * <p>
+ * Exports that never reach the delegate, because the queue is full, the circuit is open or the export timed out
+ * before it started, go to the delegate's spool when it is a {@link SpoolingExporter}. Spooling writes to disk, so it
+ * runs on a fallback thread of this sink rather than on the exporting thread or the JDK's shared timeout thread. An
+ * export that timed out while running is left to the delegate, which spools it itself if its write fails.
+ * <p>
+ * Only exports count towards the circuit breaker; flushes and shutdowns neither open nor close it.
+ */
+class IsolatedExporter<E> {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(IsolatedExporter.class);
+
+    private final E delegate;
+    private final String name;
+    private final ThreadPoolExecutor executor;
+    private final ExecutorService fallbackExecutor;
+    private final long timeoutNanos;
+    private final CircuitBreaker circuitBreaker;
+
+    IsolatedExporter(E delegate, MongoTelemetryProperties.FanOut settings) {
+        this.delegate = delegate;
+        this.name = delegate.getClass().getSimpleName();
+        this.executor = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS,
+            new ArrayBlockingQueue<>(Math.max(1, settings.getQueueCapacity())),
+            VirtualThreads.factory("telemetry-export-" + name, settings.isVirtualThreads()));
+        this.fallbackExecutor = Executors.newSingleThreadExecutor(
+            VirtualThreads.factory("telemetry-fallback-" + name, false));
+        this.timeoutNanos = settings.getTimeout().toNanos();
+        this.circuitBreaker = new CircuitBreaker(settings.getFailureThreshold(), settings.getOpenDuration());
+    }
+
+    E delegate() {
+        return delegate;
+    }
+
+    /**
+     * Calls {@code operation}, such as a flush, on the delegate without counting its outcome towards the circuit
+     * breaker; fails at once while the circuit is open.
+     */
+    CompletableResultCode call(Function<E, CompletableResultCode> operation) {
+        if (circuitBreaker.isOpen()) {
+            return CompletableResultCode.ofFailure();
+        }
+        return execute(operation, null, false);
+    }
+
+    /**
+     * Calls the export {@code operation} on the delegate, or {@code fallback} on the fallback thread when the call
+     * cannot reach the delegate; a {@code null} fallback fails such calls.
+     */
+    CompletableResultCode call(Function<E, CompletableResultCode> operation,
+            Function<E, CompletableResultCode> fallback) {
+        if (!circuitBreaker.allowRequest()) {
+            CompletableResultCode result = new CompletableResultCode();
+            runFallback(fallback, result);
+            return result;
+        }
+        return execute(operation, fallback, true);
+    }
+
+    private CompletableResultCode execute(Function<E, CompletableResultCode> operation,
+            Function<E, CompletableResultCode> fallback, boolean counted) {
+        CompletableFuture<Boolean> outcome = new CompletableFuture<>();
+        Runnable task = () -> {
+            try {
+                CompletableResultCode result = operation.apply(delegate);
+                result.whenComplete(() -> outcome.complete(result.isSuccess()));
+            } catch (RuntimeException exception) {
+                outcome.completeExceptionally(exception);
+            }
+        };
+        try {
+            executor.execute(task);
+        } catch (RejectedExecutionException exception) {
+            outcome.completeExceptionally(exception);
+        }
+        CompletableResultCode result = new CompletableResultCode();
+        outcome.orTimeout(timeoutNanos, TimeUnit.NANOSECONDS).whenComplete((success, error) -> {
+            if (error == null && Boolean.TRUE.equals(success)) {
+                if (counted) {
+                    circuitBreaker.recordSuccess();
+                }
+                result.succeed();
+                return;
+            }
+            boolean wasOpen = circuitBreaker.isOpen();
+            if (counted && circuitBreaker.recordFailure() && !wasOpen) {
+                LOGGER.warn("Opening circuit for {} after repeated export failures", name);
+            }
+            boolean notStarted = false;
+            if (error instanceof TimeoutException) {
+                LOGGER.debug("{} did not complete within the export timeout", name);
+                notStarted = executor.remove(task);
+            } else if (error instanceof RejectedExecutionException) {
+                LOGGER.debug("{} is still busy with earlier exports; skipping this call", name);
+                notStarted = true;
+            } else if (error != null) {
+                LOGGER.warn("{} failed to export", name, error);
+            }
+            if (notStarted) {
+                runFallback(fallback, result);
+                return;
+            }
+            result.fail();
+        });
+        return result;
+    }
+
+    /** Completes {@code result} with {@code fallback} run on the fallback thread, or fails it without a fallback. */
+    private void runFallback(Function<E, CompletableResultCode> fallback, CompletableResultCode result) {
+        if (fallback == null) {
+            result.fail();
+            return;
+        }
+        Runnable task = () -> {
+            CompletableResultCode fallbackResult;
+            try {
+                fallbackResult = fallback.apply(delegate);
+            } catch (RuntimeException exception) {
+                LOGGER.warn("{} failed to run its fallback", name, exception);
+                result.fail();
+                return;
+            }
+            fallbackResult.whenComplete(() -> {
+                if (fallbackResult.isSuccess()) {
+                    result.succeed();
+                } else {
+                    result.fail();
+                }
+            });
+        };
+        try {
+            fallbackExecutor.execute(task);
+        } catch (RejectedExecutionException exception) {
+            task.run();
+        }
+    }
+
+    /** Fallback for exports: writes {@code items} to the spool of a {@link SpoolingExporter}, fails otherwise. */
+    @SuppressWarnings("unchecked")
+    static <T> CompletableResultCode spool(Object exporter, Collection<T> items) {
+        if (exporter instanceof SpoolingExporter<?> spooling) {
+            return ((SpoolingExporter<T>) spooling).spool(items);
+        }
+        return CompletableResultCode.ofFailure();
+    }
+
+    void close() {
+        executor.shutdown();
+        fallbackExecutor.shutdown();
+    }
+
+    /**
+     * Completes once every result has completed. The combined result succeeds when at least one delegate succeeded,
+     * so a degraded sink is reported in the logs without failing the batch for the healthy ones.
+     */
+    static CompletableResultCode anySucceeded(List<CompletableResultCode> results) {
+        if (results.isEmpty()) {
+            return CompletableResultCode.ofSuccess();
+        }
+        CompletableResultCode combined = new CompletableResultCode();
+        AtomicInteger remaining = new AtomicInteger(results.size());
+        AtomicBoolean anySuccess = new AtomicBoolean();
+        for (CompletableResultCode result : results) {
+            result.whenComplete(() -> {
+                if (result.isSuccess()) {
+                    anySuccess.set(true);
+                }
+                if (remaining.decrementAndGet() == 0) {
+                    if (anySuccess.get()) {
+                        combined.succeed();
+                    } else {
+                        combined.fail();
+                    }
+                }
+            });
+        }
+        return combined;
+    }
+
+    /** Shuts every delegate down, bypassing open circuits, and then stops their executors. */
+    static <E> CompletableResultCode shutdownAll(List<IsolatedExporter<E>> exporters,
+            Function<E, CompletableResultCode> shutdown) {
+        List<CompletableResultCode> results = new ArrayList<>(exporters.size());
+        for (IsolatedExporter<E> exporter : exporters) {
+            results.add(exporter.execute(shutdown, null, false));
+        }
+        CompletableResultCode combined = CompletableResultCode.ofAll(results);
+        combined.whenComplete(() -> exporters.forEach(IsolatedExporter::close));
+        return combined;
+    }
+}
@@ -0,0 +1,59 @@
+package com.example.weather.telemetry;
+
+import java.util.Map;
+
+import org.bson.BsonWriter;
+import org.bson.codecs.Encoder;
+import org.bson.codecs.EncoderContext;
+
+import io.opentelemetry.api.trace.SpanContext;
+import io.opentelemetry.sdk.logs.data.LogRecordData;
+
+/** Encodes {@link LogRecordData} directly as a BSON document in the layout stored in the logs collection. */
+class LogRecordDataCodec implements Encoder<LogRecordData> {
+
+    /** Set on every record by the SDK, unlike {@code timestamp}, which is 0 when the caller did not set one. */
+    static final String TIME_FIELD = "observedTime";
+
+    private final TelemetryFragmentCache fragments;
+    private final TimestampEncoder timestamps;
+
+    LogRecordDataCodec(TelemetryFragmentCache fragments, TimestampEncoder timestamps) {
+        this.fragments = fragments;
+        this.timestamps = timestamps;
+    }
+
+    @Override
+    public void encode(BsonWriter writer, LogRecordData log, EncoderContext encoderContext) {
+        writer.writeStartDocument();
+        timestamps.write(writer, TIME_FIELD, log.getObservedTimestampEpochNanos());
+        timestamps.write(writer, "timestamp", log.getTimestampEpochNanos());
+        TelemetryDocumentFactory.writeNullableString(writer, "severityText", log.getSeverityText());
+        if (log.getSeverity() != null) {
+            writer.writeInt32("severityNumber", log.getSeverity().getSeverityNumber());
+        } else {
+            writer.writeNull("severityNumber");
+        }
+        TelemetryDocumentFactory.writeNullableString(writer, "body", log.getBody().asString());
+        fragments.writeAttributes(writer, "attributes", log.getAttributes());
+        fragments.writeResource(writer, log.getResource());
+        fragments.writeInstrumentationScope(writer, log.getInstrumentationScopeInfo());
+        SpanContext spanContext = log.getSpanContext();
+        writer.writeStartDocument("spanContext");
+        writer.writeString("traceId", spanContext.getTraceId());
+        writer.writeString("spanId", spanContext.getSpanId());
+        writer.writeString("traceFlags", spanContext.getTraceFlags().asHex());
+        writer.writeStartDocument("traceState");
+        for (Map.Entry<String, String> entry : spanContext.getTraceState().asMap().entrySet()) {
+            writer.writeString(entry.getKey(), entry.getValue());
+        }
+        writer.writeEndDocument();
+        writer.writeEndDocument();
+        writer.writeEndDocument();
+    }
+
+    @Override
+    public Class<LogRecordData> getEncoderClass() {
+        return LogRecordData.class;
+    }
+}
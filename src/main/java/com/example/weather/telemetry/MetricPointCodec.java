@@ -0,0 +1,273 @@
+package com.example.weather.telemetry;
+
+import java.util.List;
+
+import org.bson.BsonWriter;
+import org.bson.codecs.Encoder;
+import org.bson.codecs.EncoderContext;
+
+import io.opentelemetry.sdk.metrics.data.DoubleExemplarData;
+import io.opentelemetry.sdk.metrics.data.DoublePointData;
+import io.opentelemetry.sdk.metrics.data.ExemplarData;
+import io.opentelemetry.sdk.metrics.data.ExponentialHistogramBuckets;
+import io.opentelemetry.sdk.metrics.data.ExponentialHistogramPointData;
+import io.opentelemetry.sdk.metrics.data.HistogramPointData;
+import io.opentelemetry.sdk.metrics.data.LongExemplarData;
+import io.opentelemetry.sdk.metrics.data.LongPointData;
+import io.opentelemetry.sdk.metrics.data.MetricData;
+import io.opentelemetry.sdk.metrics.data.MetricDataType;
+import io.opentelemetry.sdk.metrics.data.PointData;
+import io.opentelemetry.sdk.metrics.data.SumData;
+import io.opentelemetry.sdk.metrics.data.SummaryPointData;
+import io.opentelemetry.sdk.metrics.data.ValueAtQuantile;
+
+/**
+ * Encodes {@link MetricPoints} directly as a BSON document in the layout stored in the metrics collection. In the
+ * time-series layout {@code end} is always a BSON date and the fields identifying the series (name, attributes and
+ * resource) are grouped under {@code meta}, so MongoDB buckets points of the same series together.
+ * <p>
+ * When the {@link AttributeSetDictionary} is enabled, all points of a metric go into one packed document: the
+ * metric descriptor, resource and scope are written once and the points are held in parallel arrays
+ * ({@code pointStartNanos}, {@code pointEndNanos}, {@code attributeSetIds}, {@code values}) that
+ * {@link PackedMetricDecoder} turns back into one document per point. The arrays are not named {@code startNanos}
+ * and {@code endNanos}, which hold the sub-millisecond remainders of BSON date timestamps.
+ */
+class MetricPointCodec implements Encoder<MetricPoints> {
+
+    static final String TIME_FIELD = "end";
+
+    static final String META_FIELD = "meta";
+
+    static final String POINT_COUNT_FIELD = "pointCount";
+
+    static final String POINT_START_NANOS_FIELD = "pointStartNanos";
+
+    static final String POINT_END_NANOS_FIELD = "pointEndNanos";
+
+    static final String ATTRIBUTE_SET_IDS_FIELD = "attributeSetIds";
+
+    static final String VALUES_FIELD = "values";
+
+    static final String EXEMPLARS_FIELD = "exemplars";
+
+    private final TelemetryFragmentCache fragments;
+    private final TimestampEncoder timestamps;
+    private final boolean timeSeries;
+    private final AttributeSetDictionary attributeSets;
+
+    MetricPointCodec(TelemetryFragmentCache fragments, TimestampEncoder timestamps, boolean timeSeries,
+            AttributeSetDictionary attributeSets) {
+        this.fragments = fragments;
+        this.timestamps = timestamps;
+        this.timeSeries = timeSeries;
+        this.attributeSets = attributeSets;
+    }
+
+    @Override
+    public void encode(BsonWriter writer, MetricPoints metricPoints, EncoderContext encoderContext) {
+        if (attributeSets.isEnabled()) {
+            encodePacked(writer, metricPoints.metric(), metricPoints.points());
+        } else {
+            encodePoint(writer, metricPoints.metric(), metricPoints.points().get(0));
+        }
+    }
+
+    @Override
+    public Class<MetricPoints> getEncoderClass() {
+        return MetricPoints.class;
+    }
+
+    private void encodePoint(BsonWriter writer, MetricData metric, PointData point) {
+        writer.writeStartDocument();
+        if (timeSeries) {
+            timestamps.writeDate(writer, TIME_FIELD, point.getEpochNanos());
+            writer.writeStartDocument(META_FIELD);
+            writer.writeString("name", metric.getName());
+            fragments.writeAttributes(writer, "attributes", point.getAttributes());
+            fragments.writeResource(writer, metric.getResource());
+            writer.writeEndDocument();
+            writeDescriptor(writer, metric);
+            timestamps.write(writer, "start", point.getStartEpochNanos());
+        } else {
+            writer.writeString("name", metric.getName());
+            writeDescriptor(writer, metric);
+            timestamps.write(writer, "start", point.getStartEpochNanos());
+            timestamps.write(writer, TIME_FIELD, point.getEpochNanos());
+            fragments.writeAttributes(writer, "attributes", point.getAttributes());
+            fragments.writeResource(writer, metric.getResource());
+        }
+        fragments.writeInstrumentationScope(writer, metric.getInstrumentationScopeInfo());
+        if (!point.getExemplars().isEmpty()) {
+            writer.writeName(EXEMPLARS_FIELD);
+            writeExemplars(writer, point.getExemplars());
+        }
+        writer.writeName("value");
+        writePointValue(writer, point);
+        writeSumProperties(writer, metric);
+        writer.writeEndDocument();
+    }
+
+    private void encodePacked(BsonWriter writer, MetricData metric, List<PointData> points) {
+        long start = Long.MAX_VALUE;
+        long end = Long.MIN_VALUE;
+        boolean hasExemplars = false;
+        for (int i = 0; i < points.size(); i++) {
+            PointData point = points.get(i);
+            start = Math.min(start, point.getStartEpochNanos());
+            end = Math.max(end, point.getEpochNanos());
+            hasExemplars |= !point.getExemplars().isEmpty();
+        }
+        writer.writeStartDocument();
+        if (timeSeries) {
+            timestamps.writeDate(writer, TIME_FIELD, end);
+            writer.writeStartDocument(META_FIELD);
+            writer.writeString("name", metric.getName());
+            fragments.writeResource(writer, metric.getResource());
+            writer.writeEndDocument();
+            writeDescriptor(writer, metric);
+            timestamps.write(writer, "start", start);
+        } else {
+            writer.writeString("name", metric.getName());
+            writeDescriptor(writer, metric);
+            timestamps.write(writer, "start", start);
+            timestamps.write(writer, TIME_FIELD, end);
+            fragments.writeResource(writer, metric.getResource());
+        }
+        fragments.writeInstrumentationScope(writer, metric.getInstrumentationScopeInfo());
+        writeSumProperties(writer, metric);
+        writer.writeInt32(POINT_COUNT_FIELD, points.size());
+        writer.writeStartArray(POINT_START_NANOS_FIELD);
+        for (int i = 0; i < points.size(); i++) {
+            writer.writeInt64(points.get(i).getStartEpochNanos());
+        }
+        writer.writeEndArray();
+        writer.writeStartArray(POINT_END_NANOS_FIELD);
+        for (int i = 0; i < points.size(); i++) {
+            writer.writeInt64(points.get(i).getEpochNanos());
+        }
+        writer.writeEndArray();
+        writer.writeStartArray(ATTRIBUTE_SET_IDS_FIELD);
+        for (int i = 0; i < points.size(); i++) {
+            writer.writeInt64(attributeSets.idOf(points.get(i).getAttributes()));
+        }
+        writer.writeEndArray();
+        writer.writeStartArray(VALUES_FIELD);
+        for (int i = 0; i < points.size(); i++) {
+            writePointValue(writer, points.get(i));
+        }
+        writer.writeEndArray();
+        if (hasExemplars) {
+            writer.writeStartArray(EXEMPLARS_FIELD);
+            for (int i = 0; i < points.size(); i++) {
+                writeExemplars(writer, points.get(i).getExemplars());
+            }
+            writer.writeEndArray();
+        }
+        writer.writeEndDocument();
+    }
+
+    private void writeDescriptor(BsonWriter writer, MetricData metric) {
+        writer.writeString("description", metric.getDescription());
+        writer.writeString("unit", metric.getUnit());
+        writer.writeString("type", metric.getType().name());
+    }
+
+    private void writeSumProperties(BsonWriter writer, MetricData metric) {
+        if (metric.getType() == MetricDataType.LONG_SUM || metric.getType() == MetricDataType.DOUBLE_SUM) {
+            SumData<?> sumData = (SumData<?>) metric.getData();
+            writer.writeBoolean("monotonic", sumData.isMonotonic());
+            writer.writeString("temporality", sumData.getAggregationTemporality().name());
+        }
+    }
+
+    /** Writes the value of {@code point} without a field name, as a number or a subdocument. */
+    private void writePointValue(BsonWriter writer, PointData point) {
+        if (point instanceof LongPointData longPointData) {
+            writer.writeInt64(longPointData.getValue());
+        } else if (point instanceof DoublePointData doublePointData) {
+            writer.writeDouble(doublePointData.getValue());
+        } else if (point instanceof HistogramPointData histogram) {
+            writeHistogram(writer, histogram);
+        } else if (point instanceof ExponentialHistogramPointData histogram) {
+            writeExponentialHistogram(writer, histogram);
+        } else if (point instanceof SummaryPointData summary) {
+            writeSummary(writer, summary);
+        } else {
+            writer.writeNull();
+        }
+    }
+
+    private void writeHistogram(BsonWriter writer, HistogramPointData histogram) {
+        writer.writeStartDocument();
+        writer.writeDouble("sum", histogram.getSum());
+        writer.writeInt64("count", histogram.getCount());
+        if (histogram.hasMin()) {
+            writer.writeDouble("min", histogram.getMin());
+        }
+        if (histogram.hasMax()) {
+            writer.writeDouble("max", histogram.getMax());
+        }
+        TelemetryDocumentFactory.writeDoubleArray(writer, "boundaries", histogram.getBoundaries());
+        TelemetryDocumentFactory.writeLongArray(writer, "counts", histogram.getCounts());
+        writer.writeEndDocument();
+    }
+
+    private void writeExponentialHistogram(BsonWriter writer, ExponentialHistogramPointData histogram) {
+        writer.writeStartDocument();
+        writer.writeInt32("scale", histogram.getScale());
+        writer.writeDouble("sum", histogram.getSum());
+        writer.writeInt64("count", histogram.getCount());
+        writer.writeInt64("zeroCount", histogram.getZeroCount());
+        if (histogram.hasMin()) {
+            writer.writeDouble("min", histogram.getMin());
+        }
+        if (histogram.hasMax()) {
+            writer.writeDouble("max", histogram.getMax());
+        }
+        writeExponentialBuckets(writer, "positive", histogram.getPositiveBuckets());
+        writeExponentialBuckets(writer, "negative", histogram.getNegativeBuckets());
+        writer.writeEndDocument();
+    }
+
+    private void writeExponentialBuckets(BsonWriter writer, String name, ExponentialHistogramBuckets buckets) {
+        writer.writeStartDocument(name);
+        writer.writeInt32("scale", buckets.getScale());
+        writer.writeInt32("offset", buckets.getOffset());
+        TelemetryDocumentFactory.writeLongArray(writer, "counts", buckets.getBucketCounts());
+        writer.writeInt64("totalCount", buckets.getTotalCount());
+        writer.writeEndDocument();
+    }
+
+    private void writeSummary(BsonWriter writer, SummaryPointData summary) {
+        writer.writeStartDocument();
+        writer.writeDouble("sum", summary.getSum());
+        writer.writeInt64("count", summary.getCount());
+        writer.writeStartArray("quantiles");
+        for (ValueAtQuantile quantile : summary.getValues()) {
+            writer.writeStartDocument();
+            writer.writeDouble("quantile", quantile.getQuantile());
+            writer.writeDouble("value", quantile.getValue());
+            writer.writeEndDocument();
+        }
+        writer.writeEndArray();
+        writer.writeEndDocument();
+    }
+
+    /** Writes {@code exemplars} as an array without a field name. */
+    private void writeExemplars(BsonWriter writer, List<? extends ExemplarData> exemplars) {
+        writer.writeStartArray();
+        for (ExemplarData exemplar : exemplars) {
+            writer.writeStartDocument();
+            timestamps.write(writer, "time", exemplar.getEpochNanos());
+            fragments.writeAttributes(writer, "filteredAttributes", exemplar.getFilteredAttributes());
+            TelemetryDocumentFactory.writeSpanIds(writer, "spanContext", exemplar.getSpanContext());
+            if (exemplar instanceof DoubleExemplarData doubleExemplar) {
+                writer.writeDouble("value", doubleExemplar.getValue());
+            } else if (exemplar instanceof LongExemplarData longExemplar) {
+                writer.writeInt64("value", longExemplar.getValue());
+            }
+            writer.writeEndDocument();
+        }
+        writer.writeEndArray();
+    }
+}
@@ -0,0 +1,19 @@
+package com.example.weather.telemetry;
+
+import java.util.List;
+
+import io.opentelemetry.sdk.metrics.data.MetricData;
+import io.opentelemetry.sdk.metrics.data.PointData;
+
+/**
+ * Points of a metric that are stored as one document in the metrics collection: a single point in the
+ * {@link MongoTelemetryProperties.MetricLayout#POINT} layout, every exported point of the metric in the
+ * {@link MongoTelemetryProperties.MetricLayout#PACKED} layout.
+ */
+record MetricPoints(MetricData metric, List<PointData> points) {
+
+    /** End time of the points, which the SDK sets to the same collection time for every point of an export. */
+    long epochNanos() {
+        return points.get(0).getEpochNanos();
+    }
+}
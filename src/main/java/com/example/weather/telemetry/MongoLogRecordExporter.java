@@ -1,10 +1,12 @@
 package com.example.weather.telemetry;
 
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
-import java.util.stream.Collectors;
+import java.util.Map;
 
 import org.bson.Document;
+import org.bson.RawBsonDocument;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -14,14 +16,22 @@ import io.opentelemetry.sdk.common.CompletableResultCode;
 import io.opentelemetry.sdk.logs.data.LogRecordData;
 import io.opentelemetry.sdk.logs.export.LogRecordExporter;
 
-class MongoLogRecordExporter implements LogRecordExporter {
+class MongoLogRecordExporter implements LogRecordExporter, SpoolingExporter<LogRecordData> {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(MongoLogRecordExporter.class);
 
-    private final MongoCollection<Document> collection;
+    private final LogRecordDataCodec codec;
+    private final PartitionRouter<LogRecordData, MongoCollection<RawBsonDocument>> collections;
+    private final TelemetryFragmentCache fragments;
+    private final TelemetrySpool<LogRecordData> spool;
 
-    MongoLogRecordExporter(MongoCollection<Document> collection) {
-        this.collection = collection;
+    MongoLogRecordExporter(MongoCollection<Document> collection, TelemetryFragmentCache fragments,
+            TimestampEncoder timestamps, TelemetrySpool<LogRecordData> spool, TelemetryPartitions partitions) {
+        this.codec = new LogRecordDataCodec(fragments, timestamps);
+        this.collections = partitions.router(collection.withDocumentClass(RawBsonDocument.class),
+            LogRecordData::getObservedTimestampEpochNanos);
+        this.fragments = fragments;
+        this.spool = spool;
     }
 
     @Override
@@ -29,18 +39,29 @@ class MongoLogRecordExporter implements LogRecordExporter {
         if (logs == null || logs.isEmpty()) {
             return CompletableResultCode.ofSuccess();
         }
+        if (spool.isBacklogged()) {
+            return spool.append(logs);
+        }
         try {
-            List<Document> documents = logs.stream()
-                .map(this::toDocument)
-                .collect(Collectors.toList());
-            collection.insertMany(documents);
+            for (LogRecordData log : logs) {
+                fragments.storeResource(log.getResource());
+            }
+            for (Map.Entry<MongoCollection<RawBsonDocument>, List<LogRecordData>> partition
+                    : collections.route(new ArrayList<>(logs)).entrySet()) {
+                partition.getKey().insertMany(TelemetryDocumentFactory.encodeAll(codec, partition.getValue()));
+            }
             return CompletableResultCode.ofSuccess();
         } catch (Exception exception) {
             LOGGER.error("Failed to persist logs to MongoDB", exception);
-            return CompletableResultCode.ofFailure();
+            return spool.append(logs);
         }
     }
 
+    @Override
+    public CompletableResultCode spool(Collection<LogRecordData> logs) {
+        return spool.append(logs);
+    }
+
     @Override
     public CompletableResultCode flush() {
         return CompletableResultCode.ofSuccess();
@@ -50,23 +71,4 @@ class MongoLogRecordExporter implements LogRecordExporter {
     public CompletableResultCode shutdown() {
         return CompletableResultCode.ofSuccess();
     }
-
-    private Document toDocument(LogRecordData log) {
-        Document document = new Document();
-        document.append("observedTime", TelemetryDocumentFactory.createInstantDocument(log.getObservedTimestampEpochNanos()));
-        document.append("timestamp", TelemetryDocumentFactory.createInstantDocument(log.getTimestampEpochNanos()));
-        document.append("severityText", log.getSeverityText());
-        document.append("severityNumber", log.getSeverity() != null ? log.getSeverity().getSeverityNumber() : null);
-        document.append("body", log.getBody().asString());
-        document.append("attributes", TelemetryDocumentFactory.toDocument(log.getAttributes()));
-        document.append("resource", TelemetryDocumentFactory.createResourceDocument(log.getResource()));
-        document.append("instrumentationScope",
-            TelemetryDocumentFactory.createInstrumentationScopeDocument(log.getInstrumentationScopeInfo()));
-        document.append("spanContext", new Document()
-            .append("traceId", log.getSpanContext().getTraceId())
-            .append("spanId", log.getSpanContext().getSpanId())
-            .append("traceFlags", log.getSpanContext().getTraceFlags().asHex())
-            .append("traceState", log.getSpanContext().getTraceState().asMap()));
-        return document;
-    }
 }
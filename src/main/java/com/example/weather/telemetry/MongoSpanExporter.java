@@ -1,28 +1,37 @@
 package com.example.weather.telemetry;
 
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
-import java.util.stream.Collectors;
+import java.util.Map;
 
 import org.bson.Document;
+import org.bson.RawBsonDocument;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import com.mongodb.client.MongoCollection;
 
 import io.opentelemetry.sdk.common.CompletableResultCode;
-import io.opentelemetry.sdk.trace.data.EventData;
 import io.opentelemetry.sdk.trace.data.SpanData;
 import io.opentelemetry.sdk.trace.export.SpanExporter;
 
-class MongoSpanExporter implements SpanExporter {
+class MongoSpanExporter implements SpanExporter, SpoolingExporter<SpanData> {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(MongoSpanExporter.class);
 
-    private final MongoCollection<Document> collection;
+    private final SpanDataCodec codec;
+    private final PartitionRouter<SpanData, MongoCollection<RawBsonDocument>> collections;
+    private final TelemetryFragmentCache fragments;
+    private final TelemetrySpool<SpanData> spool;
 
-    MongoSpanExporter(MongoCollection<Document> collection) {
-        this.collection = collection;
+    MongoSpanExporter(MongoCollection<Document> collection, TelemetryFragmentCache fragments,
+            TimestampEncoder timestamps, TelemetrySpool<SpanData> spool, TelemetryPartitions partitions) {
+        this.codec = new SpanDataCodec(fragments, timestamps);
+        this.collections = partitions.router(collection.withDocumentClass(RawBsonDocument.class),
+            SpanData::getStartEpochNanos);
+        this.fragments = fragments;
+        this.spool = spool;
     }
 
     @Override
@@ -30,18 +39,29 @@ class MongoSpanExporter implements SpanExporter {
         if (spans == null || spans.isEmpty()) {
             return CompletableResultCode.ofSuccess();
         }
+        if (spool.isBacklogged()) {
+            return spool.append(spans);
+        }
         try {
-            List<Document> documents = spans.stream()
-                .map(this::toDocument)
-                .collect(Collectors.toList());
-            collection.insertMany(documents);
+            for (SpanData span : spans) {
+                fragments.storeResource(span.getResource());
+            }
+            for (Map.Entry<MongoCollection<RawBsonDocument>, List<SpanData>> partition
+                    : collections.route(new ArrayList<>(spans)).entrySet()) {
+                partition.getKey().insertMany(TelemetryDocumentFactory.encodeAll(codec, partition.getValue()));
+            }
             return CompletableResultCode.ofSuccess();
         } catch (Exception exception) {
             LOGGER.error("Failed to persist spans to MongoDB", exception);
-            return CompletableResultCode.ofFailure();
+            return spool.append(spans);
         }
     }
 
+    @Override
+    public CompletableResultCode spool(Collection<SpanData> spans) {
+        return spool.append(spans);
+    }
+
     @Override
     public CompletableResultCode flush() {
         return CompletableResultCode.ofSuccess();
@@ -51,40 +71,4 @@ class MongoSpanExporter implements SpanExporter {
     public CompletableResultCode shutdown() {
         return CompletableResultCode.ofSuccess();
     }
-
-    private Document toDocument(SpanData span) {
-        Document document = new Document();
-        document.append("traceId", span.getTraceId());
-        document.append("spanId", span.getSpanId());
-        document.append("parentSpanId", span.getParentSpanId());
-        document.append("name", span.getName());
-        document.append("kind", span.getKind().name());
-        document.append("start", TelemetryDocumentFactory.createInstantDocument(span.getStartEpochNanos()));
-        document.append("end", TelemetryDocumentFactory.createInstantDocument(span.getEndEpochNanos()));
-        document.append("status", span.getStatus().getStatusCode().name());
-        document.append("attributes", TelemetryDocumentFactory.toDocument(span.getAttributes()));
-        document.append("totalRecordedEvents", span.getTotalRecordedEvents());
-        document.append("totalRecordedLinks", span.getTotalRecordedLinks());
-        document.append("resource", TelemetryDocumentFactory.createResourceDocument(span.getResource()));
-        document.append("instrumentationScope",
-            TelemetryDocumentFactory.createInstrumentationScopeDocument(span.getInstrumentationScopeInfo()));
-        if (!span.getEvents().isEmpty()) {
-            document.append("events", span.getEvents().stream().map(this::toEventDocument).collect(Collectors.toList()));
-        }
-        if (!span.getLinks().isEmpty()) {
-            document.append("links", span.getLinks().stream().map(link -> new Document()
-                .append("traceId", link.getSpanContext().getTraceId())
-                .append("spanId", link.getSpanContext().getSpanId())
-                .append("attributes", TelemetryDocumentFactory.toDocument(link.getAttributes()))).collect(Collectors.toList()));
-        }
-        return document;
-    }
-
-    private Document toEventDocument(EventData event) {
-        Document document = new Document();
-        document.append("name", event.getName());
-        document.append("time", TelemetryDocumentFactory.createInstantDocument(event.getEpochNanos()));
-        document.append("attributes", TelemetryDocumentFactory.toDocument(event.getAttributes()));
-        return document;
-    }
 }
@@ -2,9 +2,13 @@ package com.example.weather.telemetry;
 
 import java.time.Duration;
 import java.util.ArrayList;
+import java.util.EnumMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
 
 import org.bson.Document;
+import org.bson.RawBsonDocument;
 import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.boot.context.properties.EnableConfigurationProperties;
@@ -13,25 +17,34 @@ import org.springframework.context.annotation.Configuration;
 import org.springframework.context.annotation.Primary;
 import org.springframework.core.env.Environment;
 
+import com.mongodb.ConnectionString;
+import com.mongodb.MongoClientSettings;
 import com.mongodb.client.MongoClient;
 import com.mongodb.client.MongoClients;
 import com.mongodb.client.MongoCollection;
 import com.mongodb.client.MongoDatabase;
 
+import io.opentelemetry.api.metrics.Meter;
 import io.opentelemetry.exporter.otlp.logs.OtlpGrpcLogRecordExporter;
 import io.opentelemetry.exporter.otlp.metrics.OtlpGrpcMetricExporter;
 import io.opentelemetry.exporter.otlp.trace.OtlpGrpcSpanExporter;
 import io.opentelemetry.sdk.OpenTelemetrySdk;
+import io.opentelemetry.sdk.logs.LogRecordProcessor;
 import io.opentelemetry.sdk.logs.SdkLoggerProvider;
+import io.opentelemetry.sdk.logs.data.LogRecordData;
 import io.opentelemetry.sdk.logs.export.LogRecordExporter;
-import io.opentelemetry.sdk.logs.export.SimpleLogRecordProcessor;
+import io.opentelemetry.sdk.metrics.InstrumentType;
 import io.opentelemetry.sdk.metrics.SdkMeterProvider;
+import io.opentelemetry.sdk.metrics.data.AggregationTemporality;
+import io.opentelemetry.sdk.metrics.export.AggregationTemporalitySelector;
 import io.opentelemetry.sdk.metrics.export.MetricExporter;
 import io.opentelemetry.sdk.metrics.export.PeriodicMetricReader;
 import io.opentelemetry.sdk.resources.Resource;
 import io.opentelemetry.sdk.trace.SdkTracerProvider;
+import io.opentelemetry.sdk.trace.SpanProcessor;
+import io.opentelemetry.sdk.trace.data.SpanData;
 import io.opentelemetry.sdk.trace.export.SpanExporter;
-import io.opentelemetry.sdk.trace.export.SimpleSpanProcessor;
+import io.opentelemetry.sdk.trace.samplers.Sampler;
 import io.opentelemetry.semconv.ResourceAttributes;
 
 @Configuration
@@ -40,7 +53,33 @@ public class MongoTelemetryConfiguration {
 
     @Bean
     public MongoClient mongoClient(MongoTelemetryProperties properties) {
-        return MongoClients.create(properties.getUri());
+        return MongoClients.create(clientSettings(properties));
+    }
+
+    /**
+     * Client settings from the URI, with server selection, connect and read timeouts of half the fan-out timeout
+     * unless the URI sets them. The exporters then fail, and spool the batch, while the fan-out is still waiting for
+     * them; with the driver's 30-second defaults the fan-out would give up first and the batch would never be spooled.
+     */
+    static MongoClientSettings clientSettings(MongoTelemetryProperties properties) {
+        ConnectionString uri = new ConnectionString(properties.getUri());
+        MongoClientSettings.Builder settings = MongoClientSettings.builder().applyConnectionString(uri);
+        int timeoutMillis = (int) Math.min(properties.getFanOut().getTimeout().toMillis() / 2, Integer.MAX_VALUE);
+        if (timeoutMillis > 0) {
+            if (uri.getServerSelectionTimeout() == null) {
+                settings.applyToClusterSettings(cluster ->
+                    cluster.serverSelectionTimeout(timeoutMillis, TimeUnit.MILLISECONDS));
+            }
+            settings.applyToSocketSettings(socket -> {
+                if (uri.getConnectTimeout() == null) {
+                    socket.connectTimeout(timeoutMillis, TimeUnit.MILLISECONDS);
+                }
+                if (uri.getSocketTimeout() == null) {
+                    socket.readTimeout(timeoutMillis, TimeUnit.MILLISECONDS);
+                }
+            });
+        }
+        return settings.build();
     }
 
     @Bean
@@ -64,51 +103,183 @@ public class MongoTelemetryConfiguration {
     }
 
     @Bean
-    public MongoLogRecordExporter mongoLogRecordExporter(MongoCollection<Document> logsCollection) {
-        return new MongoLogRecordExporter(logsCollection);
+    public AttributeSanitizer attributeSanitizer(MongoTelemetryProperties properties) {
+        return new AttributeSanitizer(properties.getAttributeLimits());
     }
 
     @Bean
-    public MongoSpanExporter mongoSpanExporter(MongoCollection<Document> tracesCollection) {
-        return new MongoSpanExporter(tracesCollection);
+    public TelemetryFragmentCache telemetryFragmentCache(MongoDatabase database, AttributeSanitizer attributeSanitizer,
+            MongoTelemetryProperties properties) {
+        MongoCollection<Document> resourcesCollection =
+            properties.getResourceStorage() == MongoTelemetryProperties.ResourceStorage.NORMALIZED
+                ? database.getCollection(properties.getResourcesCollection())
+                : null;
+        return new TelemetryFragmentCache(properties.getFragmentCacheSize(), resourcesCollection, attributeSanitizer);
     }
 
     @Bean
-    public MongoMetricExporter mongoMetricExporter(MongoCollection<Document> metricsCollection) {
-        return new MongoMetricExporter(metricsCollection);
+    public TimestampEncoder timestampEncoder(MongoTelemetryProperties properties) {
+        return new TimestampEncoder(properties.getTimestampFormat(), properties.isIncludeIsoTimestamps());
+    }
+
+    @Bean(destroyMethod = "close")
+    public TelemetrySpool<LogRecordData> logsSpool(MongoCollection<Document> logsCollection,
+            TelemetryFragmentCache telemetryFragmentCache, TimestampEncoder timestampEncoder,
+            TelemetryPartitions telemetryPartitions, MongoTelemetryProperties properties) {
+        return new TelemetrySpool<>(new LogRecordDataCodec(telemetryFragmentCache, timestampEncoder),
+            spoolRouter(telemetryPartitions, logsCollection, LogRecordDataCodec.TIME_FIELD), properties.getSpool(), () -> {
+            });
+    }
+
+    @Bean(destroyMethod = "close")
+    public TelemetrySpool<SpanData> tracesSpool(MongoCollection<Document> tracesCollection,
+            TelemetryFragmentCache telemetryFragmentCache, TimestampEncoder timestampEncoder,
+            TelemetryPartitions telemetryPartitions, MongoTelemetryProperties properties) {
+        return new TelemetrySpool<>(new SpanDataCodec(telemetryFragmentCache, timestampEncoder),
+            spoolRouter(telemetryPartitions, tracesCollection, "start"), properties.getSpool(), () -> {
+            });
     }
 
     @Bean
-    public LogRecordExporter logRecordExporter(MongoLogRecordExporter mongoLogRecordExporter,
-            ObjectProvider<OtlpGrpcLogRecordExporter> otlpProvider) {
+    public TimeSeriesMetricsCollection timeSeriesMetricsCollection(MongoDatabase database,
+            MongoTelemetryProperties properties) {
+        return new TimeSeriesMetricsCollection(database, properties.getMetricsCollection(),
+            properties.getMetricsTimeSeries());
+    }
+
+    @Bean(initMethod = "start", destroyMethod = "close")
+    public TelemetryIndexManager telemetryIndexManager(MongoDatabase database, MongoTelemetryProperties properties,
+            TimestampEncoder timestampEncoder, TimeSeriesMetricsCollection timeSeriesMetricsCollection) {
+        return new TelemetryIndexManager(database, properties, timestampEncoder, timeSeriesMetricsCollection);
+    }
+
+    @Bean(initMethod = "start", destroyMethod = "close")
+    public TelemetryPartitions telemetryPartitions(MongoDatabase database, MongoTelemetryProperties properties,
+            TelemetryIndexManager telemetryIndexManager, TimeSeriesMetricsCollection timeSeriesMetricsCollection) {
+        return new TelemetryPartitions(database, properties, telemetryIndexManager, timeSeriesMetricsCollection);
+    }
+
+    @Bean
+    public TraceQueryService traceQueryService(MongoDatabase database, MongoTelemetryProperties properties,
+            TelemetryPartitions telemetryPartitions) {
+        return new TraceQueryService(database, properties, telemetryPartitions);
+    }
+
+    @Bean
+    public AttributeSetDictionary attributeSetDictionary(MongoDatabase database,
+            AttributeSanitizer attributeSanitizer, MongoTelemetryProperties properties) {
+        MongoCollection<Document> attributeSetsCollection =
+            properties.getMetricsLayout() == MongoTelemetryProperties.MetricLayout.PACKED
+                ? database.getCollection(properties.getAttributeSetsCollection())
+                : null;
+        return new AttributeSetDictionary(attributeSetsCollection, properties.getAttributeSetCacheSize(),
+            attributeSanitizer);
+    }
+
+    @Bean
+    public AggregationTemporalitySelector metricsTemporalitySelector(MongoTelemetryProperties properties) {
+        MongoTelemetryProperties.Temporality temporality = properties.getMetricsTemporality();
+        AggregationTemporalitySelector preferred = switch (temporality.getPreference()) {
+            case CUMULATIVE -> AggregationTemporalitySelector.alwaysCumulative();
+            case DELTA -> AggregationTemporalitySelector.deltaPreferred();
+            case LOW_MEMORY -> AggregationTemporalitySelector.lowMemory();
+        };
+        Map<InstrumentType, AggregationTemporality> overrides = new EnumMap<>(InstrumentType.class);
+        overrides.putAll(temporality.getOverrides());
+        return instrumentType -> overrides.getOrDefault(instrumentType,
+            preferred.getAggregationTemporality(instrumentType));
+    }
+
+    @Bean(destroyMethod = "close")
+    public TelemetrySpool<MetricPoints> metricsSpool(MongoCollection<Document> metricsCollection,
+            TelemetryFragmentCache telemetryFragmentCache, TimestampEncoder timestampEncoder,
+            TimeSeriesMetricsCollection timeSeriesMetricsCollection, AttributeSetDictionary attributeSetDictionary,
+            TelemetryPartitions telemetryPartitions, MongoTelemetryProperties properties) {
+        MetricPointCodec codec = new MetricPointCodec(telemetryFragmentCache, timestampEncoder,
+            timeSeriesMetricsCollection.isEnabled(), attributeSetDictionary);
+        return new TelemetrySpool<>(codec,
+            spoolRouter(telemetryPartitions, metricsCollection, MetricPointCodec.TIME_FIELD), properties.getSpool(),
+            timeSeriesMetricsCollection::ensureCreated);
+    }
+
+    /** Routes replayed documents by the timestamp stored in {@code timeField}, in whatever format it was written. */
+    private static PartitionRouter<RawBsonDocument, MongoCollection<RawBsonDocument>> spoolRouter(
+            TelemetryPartitions partitions, MongoCollection<Document> collection, String timeField) {
+        return partitions.router(collection.withDocumentClass(RawBsonDocument.class),
+            document -> TimestampEncoder.readEpochNanos(document, timeField));
+    }
+
+    @Bean
+    @ConditionalOnProperty(prefix = "telemetry.mongo.reactive", name = "enabled", havingValue = "false",
+        matchIfMissing = true)
+    public MongoLogRecordExporter mongoLogRecordExporter(MongoCollection<Document> logsCollection,
+            TelemetryFragmentCache telemetryFragmentCache, TimestampEncoder timestampEncoder,
+            TelemetrySpool<LogRecordData> logsSpool, TelemetryPartitions telemetryPartitions) {
+        return new MongoLogRecordExporter(logsCollection, telemetryFragmentCache, timestampEncoder, logsSpool,
+            telemetryPartitions);
+    }
+
+    @Bean
+    @ConditionalOnProperty(prefix = "telemetry.mongo.reactive", name = "enabled", havingValue = "false",
+        matchIfMissing = true)
+    public MongoSpanExporter mongoSpanExporter(MongoCollection<Document> tracesCollection,
+            TelemetryFragmentCache telemetryFragmentCache, TimestampEncoder timestampEncoder,
+            TelemetrySpool<SpanData> tracesSpool, TelemetryPartitions telemetryPartitions) {
+        return new MongoSpanExporter(tracesCollection, telemetryFragmentCache, timestampEncoder, tracesSpool,
+            telemetryPartitions);
+    }
+
+    @Bean
+    @ConditionalOnProperty(prefix = "telemetry.mongo.reactive", name = "enabled", havingValue = "false",
+        matchIfMissing = true)
+    public MongoMetricExporter mongoMetricExporter(MongoCollection<Document> metricsCollection,
+            TelemetryFragmentCache telemetryFragmentCache, TimestampEncoder timestampEncoder,
+            TelemetrySpool<MetricPoints> metricsSpool, TimeSeriesMetricsCollection timeSeriesMetricsCollection,
+            AggregationTemporalitySelector metricsTemporalitySelector, AttributeSetDictionary attributeSetDictionary,
+            TelemetryPartitions telemetryPartitions, MongoTelemetryProperties properties) {
+        return new MongoMetricExporter(metricsCollection, telemetryFragmentCache, timestampEncoder, metricsSpool,
+            timeSeriesMetricsCollection, metricsTemporalitySelector,
+            new UnchangedPointFilter(properties.getMetricsChangeDetection()), attributeSetDictionary,
+            telemetryPartitions);
+    }
+
+    @Bean
+    public LogRecordExporter logRecordExporter(ObjectProvider<MongoLogRecordExporter> mongoProvider,
+            ObjectProvider<ReactiveMongoLogRecordExporter> reactiveMongoProvider,
+            ObjectProvider<OtlpGrpcLogRecordExporter> otlpProvider, MongoTelemetryProperties properties) {
         List<LogRecordExporter> exporters = new ArrayList<>();
-        exporters.add(mongoLogRecordExporter);
+        mongoProvider.ifAvailable(exporters::add);
+        reactiveMongoProvider.ifAvailable(exporters::add);
         otlpProvider.ifAvailable(exporters::add);
-        return new DelegatingLogRecordExporter(exporters);
+        return new DelegatingLogRecordExporter(exporters, properties.getFanOut());
     }
 
     @Bean
-    public SpanExporter spanExporter(MongoSpanExporter mongoSpanExporter,
-            ObjectProvider<OtlpGrpcSpanExporter> otlpProvider) {
+    public SpanExporter spanExporter(ObjectProvider<MongoSpanExporter> mongoProvider,
+            ObjectProvider<ReactiveMongoSpanExporter> reactiveMongoProvider,
+            ObjectProvider<OtlpGrpcSpanExporter> otlpProvider, MongoTelemetryProperties properties) {
         List<SpanExporter> exporters = new ArrayList<>();
-        exporters.add(mongoSpanExporter);
+        mongoProvider.ifAvailable(exporters::add);
+        reactiveMongoProvider.ifAvailable(exporters::add);
         otlpProvider.ifAvailable(exporters::add);
-        return new DelegatingSpanExporter(exporters);
+        return new DelegatingSpanExporter(exporters, properties.getFanOut());
     }
 
     @Bean
-    public MetricExporter metricExporter(MongoMetricExporter mongoMetricExporter,
-            ObjectProvider<OtlpGrpcMetricExporter> otlpProvider) {
+    public MetricExporter metricExporter(ObjectProvider<MongoMetricExporter> mongoProvider,
+            ObjectProvider<ReactiveMongoMetricExporter> reactiveMongoProvider,
+            ObjectProvider<OtlpGrpcMetricExporter> otlpProvider, MongoTelemetryProperties properties) {
         List<MetricExporter> exporters = new ArrayList<>();
-        exporters.add(mongoMetricExporter);
+        mongoProvider.ifAvailable(exporters::add);
+        reactiveMongoProvider.ifAvailable(exporters::add);
         otlpProvider.ifAvailable(exporters::add);
-        return new DelegatingMetricExporter(exporters);
+        return new DelegatingMetricExporter(exporters, properties.getFanOut());
     }
 
     @Bean
     @ConditionalOnProperty(prefix = "management.otlp.metrics.export", name = "enabled", havingValue = "true")
-    public OtlpGrpcMetricExporter otlpGrpcMetricExporter() {
-        return OtlpGrpcMetricExporter.builder().build();
+    public OtlpGrpcMetricExporter otlpGrpcMetricExporter(AggregationTemporalitySelector metricsTemporalitySelector) {
+        return OtlpGrpcMetricExporter.builder().setAggregationTemporalitySelector(metricsTemporalitySelector).build();
     }
 
     @Bean
@@ -127,14 +298,27 @@ public class MongoTelemetryConfiguration {
     @Primary
     public OpenTelemetrySdk openTelemetrySdk(Environment environment, SpanExporter spanExporter,
             MetricExporter metricExporter, LogRecordExporter logRecordExporter,
-            MongoTelemetryProperties properties) {
+            AttributeSanitizer attributeSanitizer, MongoTelemetryProperties properties) {
+        MongoTelemetryProperties.Reactive reactive = properties.getReactive();
+        int maxPendingExports = reactive.isEnabled() ? reactive.getMaxInFlightWrites() : 1;
         Resource resource = Resource.getDefault().merge(Resource.builder()
             .put(ResourceAttributes.SERVICE_NAME, environment.getProperty("spring.application.name", "weather-service"))
             .build());
 
+        SpanProcessor spanProcessor = new BatchingSpanProcessor(spanExporter, properties.getSpanBatch(),
+            maxPendingExports);
+        if (properties.getTailSampling().isEnabled()) {
+            spanProcessor = new TailSamplingSpanProcessor(spanProcessor, properties.getTailSampling());
+        }
+        RateLimitingSampler rateLimitingSampler = properties.getRateLimitedSampling().isEnabled()
+            ? new RateLimitingSampler(properties.getRateLimitedSampling())
+            : null;
         SdkTracerProvider tracerProvider = SdkTracerProvider.builder()
             .setResource(resource)
-            .addSpanProcessor(SimpleSpanProcessor.create(spanExporter))
+            .setSampler(rateLimitingSampler != null
+                ? Sampler.parentBased(rateLimitingSampler)
+                : Sampler.parentBased(Sampler.alwaysOn()))
+            .addSpanProcessor(spanProcessor)
             .build();
 
         Duration exportInterval = properties.getMetricsExportInterval();
@@ -144,10 +328,20 @@ public class MongoTelemetryConfiguration {
                 .setInterval(exportInterval)
                 .build())
             .build();
+        Meter telemetryMeter = meterProvider.get(MongoTelemetryConfiguration.class.getPackageName());
+        attributeSanitizer.registerMetrics(telemetryMeter);
+        if (rateLimitingSampler != null) {
+            rateLimitingSampler.registerMetrics(telemetryMeter);
+        }
 
+        LogRecordProcessor logRecordProcessor = new BatchingLogRecordProcessor(logRecordExporter,
+            properties.getLogBatch(), maxPendingExports);
+        if (properties.getLogAggregation().isEnabled()) {
+            logRecordProcessor = new AggregatingLogRecordProcessor(logRecordProcessor, properties.getLogAggregation());
+        }
         SdkLoggerProvider loggerProvider = SdkLoggerProvider.builder()
             .setResource(resource)
-            .addLogRecordProcessor(SimpleLogRecordProcessor.create(logRecordExporter))
+            .addLogRecordProcessor(logRecordProcessor)
             .build();
 
         OpenTelemetrySdk openTelemetrySdk = OpenTelemetrySdk.builder()
@@ -1,9 +1,25 @@
 package com.example.weather.telemetry;
 
 import java.time.Duration;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 
 import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.util.unit.DataSize;
+import org.springframework.validation.annotation.Validated;
 
+import com.mongodb.client.model.TimeSeriesGranularity;
+
+import jakarta.validation.constraints.AssertTrue;
+
+import io.opentelemetry.api.logs.Severity;
+import io.opentelemetry.sdk.metrics.InstrumentType;
+import io.opentelemetry.sdk.metrics.data.AggregationTemporality;
+
+@Validated
 @ConfigurationProperties(prefix = "telemetry.mongo")
 public class MongoTelemetryProperties {
 
@@ -22,9 +38,78 @@ public class MongoTelemetryProperties {
     /** Collection used for metric samples. */
     private String metricsCollection = "metrics";
 
+    /** Collection used for resources when {@link ResourceStorage#NORMALIZED} storage is enabled. */
+    private String resourcesCollection = "resources";
+
+    /** Whether each document embeds its resource or references a single copy in the resources collection. */
+    private ResourceStorage resourceStorage = ResourceStorage.EMBEDDED;
+
+    /** Number of encoded resources and instrumentation scopes kept in memory; rounded up to a power of two. */
+    private int fragmentCacheSize = 64;
+
+    /** Whether each metric point is its own document or all points of a metric share one packed document. */
+    private MetricLayout metricsLayout = MetricLayout.POINT;
+
+    /** Collection used for point attribute sets when the {@link MetricLayout#PACKED} layout is enabled. */
+    private String attributeSetsCollection = "attributeSets";
+
+    /** Number of encoded attribute sets kept in memory for the packed layout. */
+    private int attributeSetCacheSize = 10000;
+
+    /** How timestamps are stored in telemetry documents. */
+    private TimestampFormat timestampFormat = TimestampFormat.DOCUMENT;
+
+    /** Whether an ISO-8601 rendering is stored next to each timestamp. */
+    private boolean includeIsoTimestamps = true;
+
     /** Interval used to persist metrics from the OpenTelemetry meter provider. */
     private Duration metricsExportInterval = Duration.ofSeconds(30);
 
+    /** Batching applied to finished spans before they reach the span exporters. */
+    private final SpanBatch spanBatch = new SpanBatch();
+
+    /** Batching applied to emitted log records before they reach the log exporters. */
+    private final LogBatch logBatch = new LogBatch();
+
+    /** Isolation applied to each sink (MongoDB, OTLP) behind the delegating exporters. */
+    private final FanOut fanOut = new FanOut();
+
+    /** Asynchronous exporters built on the reactive-streams driver. */
+    private final Reactive reactive = new Reactive();
+
+    /** On-disk spool that keeps telemetry while MongoDB is unavailable. */
+    private final Spool spool = new Spool();
+
+    /** Storage of metric points in a MongoDB time-series collection. */
+    private final TimeSeries metricsTimeSeries = new TimeSeries();
+
+    /** Aggregation temporality requested from the SDK for each instrument type. */
+    private final Temporality metricsTemporality = new Temporality();
+
+    /** Skipping of metric points whose value has not changed since the last export. */
+    private final ChangeDetection metricsChangeDetection = new ChangeDetection();
+
+    /** Indexes and retention applied to the telemetry collections at startup. */
+    private final Indexing indexing = new Indexing();
+
+    /** Writing of each signal to one collection per time bucket, dropped once past its retention. */
+    private final Partitioning partitioning = new Partitioning();
+
+    /** Lookup of stored traces through the trace API. */
+    private final TraceQuery traceQuery = new TraceQuery();
+
+    /** Per-trace keep or drop decision taken once a trace has finished, ahead of the span exporters. */
+    private final TailSampling tailSampling = new TailSampling();
+
+    /** Head sampling of root spans that keeps each span name within a spans-per-second budget. */
+    private final RateLimitedSampling rateLimitedSampling = new RateLimitedSampling();
+
+    /** Collapsing of repeated log records into one record per window before they reach the log exporters. */
+    private final LogAggregation logAggregation = new LogAggregation();
+
+    /** Limits on the attributes written to each telemetry document. */
+    private final AttributeLimits attributeLimits = new AttributeLimits();
+
     public String getUri() {
         return uri;
     }
@@ -65,6 +150,70 @@ public class MongoTelemetryProperties {
         this.metricsCollection = metricsCollection;
     }
 
+    public String getResourcesCollection() {
+        return resourcesCollection;
+    }
+
+    public void setResourcesCollection(String resourcesCollection) {
+        this.resourcesCollection = resourcesCollection;
+    }
+
+    public ResourceStorage getResourceStorage() {
+        return resourceStorage;
+    }
+
+    public void setResourceStorage(ResourceStorage resourceStorage) {
+        this.resourceStorage = resourceStorage;
+    }
+
+    public int getFragmentCacheSize() {
+        return fragmentCacheSize;
+    }
+
+    public void setFragmentCacheSize(int fragmentCacheSize) {
+        this.fragmentCacheSize = fragmentCacheSize;
+    }
+
+    public MetricLayout getMetricsLayout() {
+        return metricsLayout;
+    }
+
+    public void setMetricsLayout(MetricLayout metricsLayout) {
+        this.metricsLayout = metricsLayout;
+    }
+
+    public String getAttributeSetsCollection() {
+        return attributeSetsCollection;
+    }
+
+    public void setAttributeSetsCollection(String attributeSetsCollection) {
+        this.attributeSetsCollection = attributeSetsCollection;
+    }
+
+    public int getAttributeSetCacheSize() {
+        return attributeSetCacheSize;
+    }
+
+    public void setAttributeSetCacheSize(int attributeSetCacheSize) {
+        this.attributeSetCacheSize = attributeSetCacheSize;
+    }
+
+    public TimestampFormat getTimestampFormat() {
+        return timestampFormat;
+    }
+
+    public void setTimestampFormat(TimestampFormat timestampFormat) {
+        this.timestampFormat = timestampFormat;
+    }
+
+    public boolean isIncludeIsoTimestamps() {
+        return includeIsoTimestamps;
+    }
+
+    public void setIncludeIsoTimestamps(boolean includeIsoTimestamps) {
+        this.includeIsoTimestamps = includeIsoTimestamps;
+    }
+
     public Duration getMetricsExportInterval() {
         return metricsExportInterval;
     }
@@ -72,4 +221,845 @@ public class MongoTelemetryProperties {
     public void setMetricsExportInterval(Duration metricsExportInterval) {
         this.metricsExportInterval = metricsExportInterval;
     }
+
+    public SpanBatch getSpanBatch() {
+        return spanBatch;
+    }
+
+    public LogBatch getLogBatch() {
+        return logBatch;
+    }
+
+    /**
+     * Retention is applied with TTL indexes, which MongoDB only honours on BSON dates, except for partitioned
+     * collections, which are dropped whole, and a time-series metrics collection, which expires its own buckets.
+     */
+    @AssertTrue(message = "indexing.*-retention needs timestamp-format 'date' unless the collection is partitioned "
+        + "or, for metrics, a time-series collection")
+    public boolean isRetentionApplicable() {
+        if (timestampFormat == TimestampFormat.DATE || partitioning.isEnabled()) {
+            return true;
+        }
+        return !isPositive(indexing.getLogsRetention()) && !isPositive(indexing.getTracesRetention())
+            && (metricsTimeSeries.isEnabled() || !isPositive(indexing.getMetricsRetention()));
+    }
+
+    private static boolean isPositive(Duration duration) {
+        return duration != null && !duration.isZero() && !duration.isNegative();
+    }
+
+    /** Representation of a timestamp field named {@code time}. */
+    public enum TimestampFormat {
+        /** Subdocument {@code time: {epochSeconds, epochNanos, iso}}; the original layout. */
+        DOCUMENT,
+        /** BSON date {@code time} plus the sub-millisecond remainder in {@code timeNanos}. */
+        DATE,
+        /** Single int64 {@code time} holding nanoseconds since the epoch. */
+        EPOCH_NANOS
+    }
+
+    public FanOut getFanOut() {
+        return fanOut;
+    }
+
+    public Reactive getReactive() {
+        return reactive;
+    }
+
+    public Spool getSpool() {
+        return spool;
+    }
+
+    public TimeSeries getMetricsTimeSeries() {
+        return metricsTimeSeries;
+    }
+
+    public Temporality getMetricsTemporality() {
+        return metricsTemporality;
+    }
+
+    public ChangeDetection getMetricsChangeDetection() {
+        return metricsChangeDetection;
+    }
+
+    public Indexing getIndexing() {
+        return indexing;
+    }
+
+    public Partitioning getPartitioning() {
+        return partitioning;
+    }
+
+    public TraceQuery getTraceQuery() {
+        return traceQuery;
+    }
+
+    public TailSampling getTailSampling() {
+        return tailSampling;
+    }
+
+    public RateLimitedSampling getRateLimitedSampling() {
+        return rateLimitedSampling;
+    }
+
+    public LogAggregation getLogAggregation() {
+        return logAggregation;
+    }
+
+    public AttributeLimits getAttributeLimits() {
+        return attributeLimits;
+    }
+
+    /** How the resource that produced a signal is stored alongside it. */
+    public enum ResourceStorage {
+        /** Every document carries a full copy of its resource. */
+        EMBEDDED,
+        /** Resources are stored once in the resources collection and documents keep a 64-bit hash reference. */
+        NORMALIZED
+    }
+
+    /** How the points of a metric are laid out in the metrics collection. */
+    public enum MetricLayout {
+        /** One document per point; the original layout. */
+        POINT,
+        /**
+         * One document per metric and export with the points in parallel arrays and attribute sets referenced by
+         * a 64-bit hash into the attribute sets collection.
+         */
+        PACKED
+    }
+
+    /** Time bucket covered by each partition collection. */
+    public enum PartitionPeriod {
+        /** One partition per UTC hour, named {@code <collection>_yyyyMMddHH}. */
+        HOURLY,
+        /** One partition per UTC day, named {@code <collection>_yyyyMMdd}. */
+        DAILY
+    }
+
+    /** Default aggregation temporality for metric instruments, matching the SDK's standard selectors. */
+    public enum TemporalityPreference {
+        /** Every instrument reports cumulative values. */
+        CUMULATIVE,
+        /** Counters and histograms report deltas; up-down counters stay cumulative. */
+        DELTA,
+        /** Synchronous counters and histograms report deltas; everything else stays cumulative. */
+        LOW_MEMORY
+    }
+
+    /** Behaviour of a telemetry queue when producers outpace the exporter. */
+    public enum QueueFullPolicy {
+        /** Discard the new item and count it as dropped. */
+        DROP,
+        /** Make the producing thread wait for free capacity, bounded by the export timeout. */
+        BLOCK
+    }
+
+    public static class SpanBatch {
+
+        /** Maximum number of finished spans waiting to be exported. */
+        private int maxQueueSize = 2048;
+
+        /** Maximum number of spans handed to the exporters in a single call. */
+        private int maxExportBatchSize = 512;
+
+        /** Maximum time a span waits in the queue before a partial batch is exported. */
+        private Duration scheduleDelay = Duration.ofSeconds(5);
+
+        /** Maximum time allowed for a single export call. */
+        private Duration exportTimeout = Duration.ofSeconds(30);
+
+        /** What to do with a finished span when the queue is full. */
+        private QueueFullPolicy queueFullPolicy = QueueFullPolicy.DROP;
+
+        public int getMaxQueueSize() {
+            return maxQueueSize;
+        }
+
+        public void setMaxQueueSize(int maxQueueSize) {
+            this.maxQueueSize = maxQueueSize;
+        }
+
+        public int getMaxExportBatchSize() {
+            return maxExportBatchSize;
+        }
+
+        public void setMaxExportBatchSize(int maxExportBatchSize) {
+            this.maxExportBatchSize = maxExportBatchSize;
+        }
+
+        public Duration getScheduleDelay() {
+            return scheduleDelay;
+        }
+
+        public void setScheduleDelay(Duration scheduleDelay) {
+            this.scheduleDelay = scheduleDelay;
+        }
+
+        public Duration getExportTimeout() {
+            return exportTimeout;
+        }
+
+        public void setExportTimeout(Duration exportTimeout) {
+            this.exportTimeout = exportTimeout;
+        }
+
+        public QueueFullPolicy getQueueFullPolicy() {
+            return queueFullPolicy;
+        }
+
+        public void setQueueFullPolicy(QueueFullPolicy queueFullPolicy) {
+            this.queueFullPolicy = queueFullPolicy;
+        }
+    }
+
+    public static class LogBatch {
+
+        /** Maximum number of log records waiting to be exported; rounded up to a power of two. */
+        private int maxQueueSize = 2048;
+
+        /** Maximum number of log records handed to the exporters in a single call. */
+        private int maxExportBatchSize = 512;
+
+        /** Maximum estimated size of the log records handed to the exporters in a single call. */
+        private DataSize maxExportBatchBytes = DataSize.ofMegabytes(1);
+
+        /** Maximum time a log record waits in the queue before a partial batch is exported. */
+        private Duration scheduleDelay = Duration.ofSeconds(1);
+
+        /** Maximum time allowed for a single export call. */
+        private Duration exportTimeout = Duration.ofSeconds(30);
+
+        public int getMaxQueueSize() {
+            return maxQueueSize;
+        }
+
+        public void setMaxQueueSize(int maxQueueSize) {
+            this.maxQueueSize = maxQueueSize;
+        }
+
+        public int getMaxExportBatchSize() {
+            return maxExportBatchSize;
+        }
+
+        public void setMaxExportBatchSize(int maxExportBatchSize) {
+            this.maxExportBatchSize = maxExportBatchSize;
+        }
+
+        public DataSize getMaxExportBatchBytes() {
+            return maxExportBatchBytes;
+        }
+
+        public void setMaxExportBatchBytes(DataSize maxExportBatchBytes) {
+            this.maxExportBatchBytes = maxExportBatchBytes;
+        }
+
+        public Duration getScheduleDelay() {
+            return scheduleDelay;
+        }
+
+        public void setScheduleDelay(Duration scheduleDelay) {
+            this.scheduleDelay = scheduleDelay;
+        }
+
+        public Duration getExportTimeout() {
+            return exportTimeout;
+        }
+
+        public void setExportTimeout(Duration exportTimeout) {
+            this.exportTimeout = exportTimeout;
+        }
+    }
+
+    public static class Reactive {
+
+        /** Whether the exporters write through the reactive-streams driver instead of the synchronous one. */
+        private boolean enabled = false;
+
+        /** Maximum number of insert operations in flight per signal. */
+        private int maxInFlightWrites = 4;
+
+        /** Maximum time an export waits for a free write slot before the batch is spooled or discarded. */
+        private Duration inFlightWaitTimeout = Duration.ofSeconds(30);
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public int getMaxInFlightWrites() {
+            return maxInFlightWrites;
+        }
+
+        public void setMaxInFlightWrites(int maxInFlightWrites) {
+            this.maxInFlightWrites = maxInFlightWrites;
+        }
+
+        public Duration getInFlightWaitTimeout() {
+            return inFlightWaitTimeout;
+        }
+
+        public void setInFlightWaitTimeout(Duration inFlightWaitTimeout) {
+            this.inFlightWaitTimeout = inFlightWaitTimeout;
+        }
+    }
+
+    public static class FanOut {
+
+        /** Maximum time a single sink may take to complete an export before it counts as failed. */
+        private Duration timeout = Duration.ofSeconds(10);
+
+        /** Exports that may wait for a busy sink before further batches are skipped for it. */
+        private int queueCapacity = 2;
+
+        /** Consecutive failures after which a sink's circuit opens. */
+        private int failureThreshold = 5;
+
+        /** Time an open circuit skips its sink before a trial export is attempted. */
+        private Duration openDuration = Duration.ofSeconds(30);
+
+        /** Whether each sink's exports run on a virtual thread, which blocking MongoDB writes do not tie up. */
+        private boolean virtualThreads = false;
+
+        public Duration getTimeout() {
+            return timeout;
+        }
+
+        public void setTimeout(Duration timeout) {
+            this.timeout = timeout;
+        }
+
+        public int getQueueCapacity() {
+            return queueCapacity;
+        }
+
+        public void setQueueCapacity(int queueCapacity) {
+            this.queueCapacity = queueCapacity;
+        }
+
+        public int getFailureThreshold() {
+            return failureThreshold;
+        }
+
+        public void setFailureThreshold(int failureThreshold) {
+            this.failureThreshold = failureThreshold;
+        }
+
+        public Duration getOpenDuration() {
+            return openDuration;
+        }
+
+        public void setOpenDuration(Duration openDuration) {
+            this.openDuration = openDuration;
+        }
+
+        public boolean isVirtualThreads() {
+            return virtualThreads;
+        }
+
+        public void setVirtualThreads(boolean virtualThreads) {
+            this.virtualThreads = virtualThreads;
+        }
+    }
+
+    public static class Spool {
+
+        /** Whether failed or rejected batches are written to disk and replayed later instead of being discarded. */
+        private boolean enabled = false;
+
+        /** Directory holding one subdirectory of segment files per collection. */
+        private String directory = "telemetry-spool";
+
+        /** Size of each memory-mapped segment file. */
+        private DataSize segmentSize = DataSize.ofMegabytes(16);
+
+        /** Maximum disk space per collection; the oldest segment is discarded once it is reached. */
+        private DataSize maxSize = DataSize.ofMegabytes(256);
+
+        /** Time between attempts to replay spooled documents into MongoDB. */
+        private Duration replayInterval = Duration.ofSeconds(10);
+
+        /** Maximum number of spooled documents inserted in a single call while replaying. */
+        private int replayBatchSize = 500;
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public String getDirectory() {
+            return directory;
+        }
+
+        public void setDirectory(String directory) {
+            this.directory = directory;
+        }
+
+        public DataSize getSegmentSize() {
+            return segmentSize;
+        }
+
+        public void setSegmentSize(DataSize segmentSize) {
+            this.segmentSize = segmentSize;
+        }
+
+        public DataSize getMaxSize() {
+            return maxSize;
+        }
+
+        public void setMaxSize(DataSize maxSize) {
+            this.maxSize = maxSize;
+        }
+
+        public Duration getReplayInterval() {
+            return replayInterval;
+        }
+
+        public void setReplayInterval(Duration replayInterval) {
+            this.replayInterval = replayInterval;
+        }
+
+        public int getReplayBatchSize() {
+            return replayBatchSize;
+        }
+
+        public void setReplayBatchSize(int replayBatchSize) {
+            this.replayBatchSize = replayBatchSize;
+        }
+    }
+
+    public static class TimeSeries {
+
+        /** Whether the metrics collection is created as a time-series collection and points are shaped for it. */
+        private boolean enabled = false;
+
+        /** Expected interval between points of the same series, used by MongoDB to size its buckets. */
+        private TimeSeriesGranularity granularity = TimeSeriesGranularity.SECONDS;
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public TimeSeriesGranularity getGranularity() {
+            return granularity;
+        }
+
+        public void setGranularity(TimeSeriesGranularity granularity) {
+            this.granularity = granularity;
+        }
+    }
+
+    public static class Temporality {
+
+        /** Temporality used for instrument types without an override. */
+        private TemporalityPreference preference = TemporalityPreference.CUMULATIVE;
+
+        /** Temporality per instrument type, taking precedence over the preference. */
+        private Map<InstrumentType, AggregationTemporality> overrides = new EnumMap<>(InstrumentType.class);
+
+        public TemporalityPreference getPreference() {
+            return preference;
+        }
+
+        public void setPreference(TemporalityPreference preference) {
+            this.preference = preference;
+        }
+
+        public Map<InstrumentType, AggregationTemporality> getOverrides() {
+            return overrides;
+        }
+
+        public void setOverrides(Map<InstrumentType, AggregationTemporality> overrides) {
+            this.overrides = overrides;
+        }
+    }
+
+    public static class ChangeDetection {
+
+        /** Whether cumulative and gauge points equal to the last written value of their series are skipped. */
+        private boolean enabled = false;
+
+        /** Maximum number of series remembered; all fingerprints are forgotten once it is exceeded. */
+        private int maxSeries = 10_000;
+
+        /** Maximum time an unchanged series goes without a written point. */
+        private Duration heartbeat = Duration.ofMinutes(5);
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public int getMaxSeries() {
+            return maxSeries;
+        }
+
+        public void setMaxSeries(int maxSeries) {
+            this.maxSeries = maxSeries;
+        }
+
+        public Duration getHeartbeat() {
+            return heartbeat;
+        }
+
+        public void setHeartbeat(Duration heartbeat) {
+            this.heartbeat = heartbeat;
+        }
+    }
+
+    public static class Indexing {
+
+        /** Whether indexes and retention are applied to the telemetry collections at startup. */
+        private boolean enabled = true;
+
+        /** Time between attempts while MongoDB rejects or cannot be reached for index creation. */
+        private Duration retryInterval = Duration.ofSeconds(30);
+
+        /** How long log records are kept; zero keeps them forever. */
+        private Duration logsRetention = Duration.ZERO;
+
+        /** How long spans are kept; zero keeps them forever. */
+        private Duration tracesRetention = Duration.ZERO;
+
+        /** How long metric points are kept; zero keeps them forever. */
+        private Duration metricsRetention = Duration.ZERO;
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public Duration getRetryInterval() {
+            return retryInterval;
+        }
+
+        public void setRetryInterval(Duration retryInterval) {
+            this.retryInterval = retryInterval;
+        }
+
+        public Duration getLogsRetention() {
+            return logsRetention;
+        }
+
+        public void setLogsRetention(Duration logsRetention) {
+            this.logsRetention = logsRetention;
+        }
+
+        public Duration getTracesRetention() {
+            return tracesRetention;
+        }
+
+        public void setTracesRetention(Duration tracesRetention) {
+            this.tracesRetention = tracesRetention;
+        }
+
+        public Duration getMetricsRetention() {
+            return metricsRetention;
+        }
+
+        public void setMetricsRetention(Duration metricsRetention) {
+            this.metricsRetention = metricsRetention;
+        }
+    }
+
+    public static class Partitioning {
+
+        /** Whether logs, traces and metrics are written to one collection per time bucket. */
+        private boolean enabled = false;
+
+        /** Time span covered by each partition. */
+        private PartitionPeriod period = PartitionPeriod.DAILY;
+
+        /** Time between runs that create upcoming partitions and drop expired ones. */
+        private Duration rotationInterval = Duration.ofMinutes(5);
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public PartitionPeriod getPeriod() {
+            return period;
+        }
+
+        public void setPeriod(PartitionPeriod period) {
+            this.period = period;
+        }
+
+        public Duration getRotationInterval() {
+            return rotationInterval;
+        }
+
+        public void setRotationInterval(Duration rotationInterval) {
+            this.rotationInterval = rotationInterval;
+        }
+    }
+
+    public static class TraceQuery {
+
+        /** Number of recently requested traces kept in memory; zero disables the cache. */
+        private int cacheSize = 256;
+
+        /** How long a cached trace is served before it is read again, picking up spans exported since. */
+        private Duration cacheTtl = Duration.ofMinutes(1);
+
+        /** How far back a lookup searches the trace partitions; zero searches every partition. */
+        private Duration lookback = Duration.ofDays(7);
+
+        public int getCacheSize() {
+            return cacheSize;
+        }
+
+        public void setCacheSize(int cacheSize) {
+            this.cacheSize = cacheSize;
+        }
+
+        public Duration getCacheTtl() {
+            return cacheTtl;
+        }
+
+        public void setCacheTtl(Duration cacheTtl) {
+            this.cacheTtl = cacheTtl;
+        }
+
+        public Duration getLookback() {
+            return lookback;
+        }
+
+        public void setLookback(Duration lookback) {
+            this.lookback = lookback;
+        }
+    }
+
+    public static class TailSampling {
+
+        /** Whether finished spans are held per trace and only kept traces reach the span exporters. */
+        private boolean enabled = false;
+
+        /** How long a trace whose local root has not ended is held before it is decided. */
+        private Duration decisionWait = Duration.ofSeconds(10);
+
+        /** Maximum number of traces held at once; traces arriving beyond it are decided on their first span. */
+        private int maxTraces = 10000;
+
+        /** Number of spans after which a trace is decided without waiting for its local root. */
+        private int maxSpansPerTrace = 1000;
+
+        /** Traces with a span at least this long are always kept; zero disables the policy. */
+        private Duration latencyThreshold = Duration.ofSeconds(2);
+
+        /** Route templates, as in the server span's {@code uri} attribute, whose traces are always kept. */
+        private List<String> routes = new ArrayList<>();
+
+        /** Fraction of the remaining traces kept, chosen from the trace id. */
+        private double baselineRatio = 0.1;
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public Duration getDecisionWait() {
+            return decisionWait;
+        }
+
+        public void setDecisionWait(Duration decisionWait) {
+            this.decisionWait = decisionWait;
+        }
+
+        public int getMaxTraces() {
+            return maxTraces;
+        }
+
+        public void setMaxTraces(int maxTraces) {
+            this.maxTraces = maxTraces;
+        }
+
+        public int getMaxSpansPerTrace() {
+            return maxSpansPerTrace;
+        }
+
+        public void setMaxSpansPerTrace(int maxSpansPerTrace) {
+            this.maxSpansPerTrace = maxSpansPerTrace;
+        }
+
+        public Duration getLatencyThreshold() {
+            return latencyThreshold;
+        }
+
+        public void setLatencyThreshold(Duration latencyThreshold) {
+            this.latencyThreshold = latencyThreshold;
+        }
+
+        public List<String> getRoutes() {
+            return routes;
+        }
+
+        public void setRoutes(List<String> routes) {
+            this.routes = routes;
+        }
+
+        public double getBaselineRatio() {
+            return baselineRatio;
+        }
+
+        public void setBaselineRatio(double baselineRatio) {
+            this.baselineRatio = baselineRatio;
+        }
+    }
+
+    public static class RateLimitedSampling {
+
+        /** Whether root spans are sampled to stay within the configured spans-per-second budgets. */
+        private boolean enabled = false;
+
+        /** Root spans sampled per second for span names without a budget of their own. */
+        private double spansPerSecond = 100;
+
+        /**
+         * Spans-per-second budget per root span name, as it is when the span starts. Server spans are all named
+         * {@code http get} (or the request's method) at that point, so routes cannot have budgets of their own.
+         */
+        private Map<String, Double> budgets = new LinkedHashMap<>();
+
+        /** Interval after which each budget recomputes its sampling probability from the observed rate. */
+        private Duration window = Duration.ofSeconds(1);
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public double getSpansPerSecond() {
+            return spansPerSecond;
+        }
+
+        public void setSpansPerSecond(double spansPerSecond) {
+            this.spansPerSecond = spansPerSecond;
+        }
+
+        public Map<String, Double> getBudgets() {
+            return budgets;
+        }
+
+        public void setBudgets(Map<String, Double> budgets) {
+            this.budgets = budgets;
+        }
+
+        public Duration getWindow() {
+            return window;
+        }
+
+        public void setWindow(Duration window) {
+            this.window = window;
+        }
+    }
+
+    public static class LogAggregation {
+
+        /** Whether repeated log records are counted and emitted once per window instead of one by one. */
+        private boolean enabled = false;
+
+        /** How long repeats of a record are counted before they are emitted as a single record. */
+        private Duration window = Duration.ofSeconds(10);
+
+        /** Maximum number of distinct records counted at once; records beyond it pass through unaggregated. */
+        private int maxFingerprints = 1000;
+
+        /** Lowest severity that is aggregated; less severe records always pass through. */
+        private Severity minSeverity = Severity.WARN;
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public Duration getWindow() {
+            return window;
+        }
+
+        public void setWindow(Duration window) {
+            this.window = window;
+        }
+
+        public int getMaxFingerprints() {
+            return maxFingerprints;
+        }
+
+        public void setMaxFingerprints(int maxFingerprints) {
+            this.maxFingerprints = maxFingerprints;
+        }
+
+        public Severity getMinSeverity() {
+            return minSeverity;
+        }
+
+        public void setMinSeverity(Severity minSeverity) {
+            this.minSeverity = minSeverity;
+        }
+    }
+
+    public static class AttributeLimits {
+
+        /** Maximum number of attributes written per attribute set; zero disables the limit. */
+        private int maxAttributes = 128;
+
+        /** Maximum number of characters written per string value; zero disables the limit. */
+        private int maxStringLength = 4096;
+
+        /** Maximum number of elements written per array value; zero disables the limit. */
+        private int maxArrayLength = 128;
+
+        public int getMaxAttributes() {
+            return maxAttributes;
+        }
+
+        public void setMaxAttributes(int maxAttributes) {
+            this.maxAttributes = maxAttributes;
+        }
+
+        public int getMaxStringLength() {
+            return maxStringLength;
+        }
+
+        public void setMaxStringLength(int maxStringLength) {
+            this.maxStringLength = maxStringLength;
+        }
+
+        public int getMaxArrayLength() {
+            return maxArrayLength;
+        }
+
+        public void setMaxArrayLength(int maxArrayLength) {
+            this.maxArrayLength = maxArrayLength;
+        }
+    }
 }
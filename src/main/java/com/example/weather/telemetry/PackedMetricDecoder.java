@@ -0,0 +1,98 @@
+package com.example.weather.telemetry;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.bson.BsonArray;
+import org.bson.BsonDocument;
+import org.bson.BsonInt64;
+import org.bson.BsonValue;
+
+/**
+ * Turns a packed metric document written by {@link MetricPointCodec} back into one document per point, in the same
+ * shape as the point layout except that {@code start} and {@code end} are always epoch nanoseconds.
+ */
+final class PackedMetricDecoder {
+
+    private static final Set<String> PACKED_FIELDS = Set.of(MetricPointCodec.META_FIELD,
+        MetricPointCodec.POINT_COUNT_FIELD, MetricPointCodec.POINT_START_NANOS_FIELD,
+        MetricPointCodec.POINT_END_NANOS_FIELD, MetricPointCodec.ATTRIBUTE_SET_IDS_FIELD, MetricPointCodec.VALUES_FIELD,
+        MetricPointCodec.EXEMPLARS_FIELD);
+
+    private PackedMetricDecoder() {
+    }
+
+    static boolean isPacked(BsonDocument document) {
+        return document.containsKey(MetricPointCodec.POINT_COUNT_FIELD);
+    }
+
+    /** Unpacks {@code packed}, resolving its attribute sets through {@code attributeSets}. */
+    static List<BsonDocument> unpack(BsonDocument packed, AttributeSetDictionary attributeSets) {
+        Set<Long> ids = new HashSet<>();
+        for (BsonValue id : packed.getArray(MetricPointCodec.ATTRIBUTE_SET_IDS_FIELD)) {
+            ids.add(id.asInt64().getValue());
+        }
+        return unpack(packed, attributeSets.resolve(ids));
+    }
+
+    /**
+     * Unpacks {@code packed} using already resolved attribute sets. Points whose set is not in {@code attributeSets}
+     * get empty attributes and keep the id under {@code attributeSetId}.
+     */
+    static List<BsonDocument> unpack(BsonDocument packed, Map<Long, BsonDocument> attributeSets) {
+        BsonDocument common = commonFields(packed);
+        int count = packed.getInt32(MetricPointCodec.POINT_COUNT_FIELD).getValue();
+        BsonArray startNanos = packed.getArray(MetricPointCodec.POINT_START_NANOS_FIELD);
+        BsonArray endNanos = packed.getArray(MetricPointCodec.POINT_END_NANOS_FIELD);
+        BsonArray attributeSetIds = packed.getArray(MetricPointCodec.ATTRIBUTE_SET_IDS_FIELD);
+        BsonArray values = packed.getArray(MetricPointCodec.VALUES_FIELD);
+        BsonArray exemplars = packed.getArray(MetricPointCodec.EXEMPLARS_FIELD, null);
+        List<BsonDocument> points = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            BsonDocument point = common.clone();
+            point.put("start", startNanos.get(i));
+            point.put(MetricPointCodec.TIME_FIELD, endNanos.get(i));
+            long attributeSetId = attributeSetIds.get(i).asInt64().getValue();
+            BsonDocument attributes = attributeSets.get(attributeSetId);
+            if (attributes != null) {
+                point.put("attributes", attributes);
+            } else {
+                point.put("attributes", new BsonDocument());
+                point.put("attributeSetId", new BsonInt64(attributeSetId));
+            }
+            point.put("value", values.get(i));
+            if (exemplars != null && !exemplars.get(i).asArray().isEmpty()) {
+                point.put(MetricPointCodec.EXEMPLARS_FIELD, exemplars.get(i));
+            }
+            points.add(point);
+        }
+        return points;
+    }
+
+    private static BsonDocument commonFields(BsonDocument packed) {
+        BsonDocument common = new BsonDocument();
+        BsonDocument meta = packed.getDocument(MetricPointCodec.META_FIELD, null);
+        if (meta != null) {
+            common.putAll(meta);
+        }
+        for (Map.Entry<String, BsonValue> field : packed.entrySet()) {
+            if (!PACKED_FIELDS.contains(field.getKey()) && !isTimeField(field.getKey())) {
+                common.put(field.getKey(), field.getValue());
+            }
+        }
+        return common;
+    }
+
+    private static boolean isTimeField(String name) {
+        for (String base : List.of("start", MetricPointCodec.TIME_FIELD)) {
+            if (name.equals(base) || name.equals(base + TimestampEncoder.NANOS_SUFFIX)
+                    || name.equals(base + TimestampEncoder.ISO_SUFFIX)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,80 @@
+package com.example.weather.telemetry;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+import java.util.function.ToLongFunction;
+
+/**
+ * Splits a batch by the time partition each item belongs to, for either driver's collection type {@code C}. When
+ * the collection is not partitioned every batch goes to the base collection unchanged. Partition collections are
+ * created once per time bucket and kept for the few buckets a batch can span.
+ */
+final class PartitionRouter<T, C> {
+
+    private static final int MAX_CACHED_PARTITIONS = 8;
+
+    private final C base;
+    private final String baseName;
+    private final TelemetryPartitions partitions;
+    private final Function<String, C> partitionCollections;
+    private final ToLongFunction<? super T> epochNanos;
+    private final Map<Long, C> collections = new ConcurrentHashMap<>();
+
+    /**
+     * @param partitions           partitioning scheme, or {@code null} to always write to {@code base}
+     * @param partitionCollections creates the collection of a partition from its name
+     * @param epochNanos           time that decides the partition of an item
+     */
+    PartitionRouter(C base, String baseName, TelemetryPartitions partitions, Function<String, C> partitionCollections,
+            ToLongFunction<? super T> epochNanos) {
+        this.base = base;
+        this.baseName = baseName;
+        this.partitions = partitions;
+        this.partitionCollections = partitionCollections;
+        this.epochNanos = epochNanos;
+    }
+
+    static <T, C> PartitionRouter<T, C> unpartitioned(C base, String baseName) {
+        return new PartitionRouter<>(base, baseName, null, null, null);
+    }
+
+    String baseName() {
+        return baseName;
+    }
+
+    /** Groups {@code items} by destination collection, keeping their order within each group. */
+    Map<C, List<T>> route(List<T> items) {
+        if (partitions == null || !partitions.isPartitioned(baseName)) {
+            return Map.of(base, items);
+        }
+        Map<C, List<T>> routed = new LinkedHashMap<>();
+        long lastBucket = Long.MIN_VALUE;
+        List<T> lastGroup = null;
+        for (int i = 0; i < items.size(); i++) {
+            T item = items.get(i);
+            long bucket = partitions.bucketOf(epochNanos.applyAsLong(item));
+            if (bucket != lastBucket) {
+                lastGroup = routed.computeIfAbsent(collection(bucket), collection -> new ArrayList<>());
+                lastBucket = bucket;
+            }
+            lastGroup.add(item);
+        }
+        return routed;
+    }
+
+    private C collection(long bucket) {
+        C collection = collections.get(bucket);
+        if (collection == null) {
+            if (collections.size() >= MAX_CACHED_PARTITIONS) {
+                collections.clear();
+            }
+            collection = collections.computeIfAbsent(bucket,
+                key -> partitionCollections.apply(partitions.partitionName(baseName, key)));
+        }
+        return collection;
+    }
+}
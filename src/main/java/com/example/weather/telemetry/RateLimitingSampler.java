@@ -0,0 +1,155 @@
+package com.example.weather.telemetry;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+import io.opentelemetry.api.common.AttributeKey;
+import io.opentelemetry.api.common.Attributes;
+import io.opentelemetry.api.metrics.Meter;
+import io.opentelemetry.api.trace.SpanKind;
+import io.opentelemetry.context.Context;
+import io.opentelemetry.sdk.trace.data.LinkData;
+import io.opentelemetry.sdk.trace.samplers.Sampler;
+import io.opentelemetry.sdk.trace.samplers.SamplingResult;
+
+/**
+ * Samples root spans so that each budget stays within its spans-per-second rate. Spans are matched to a budget by
+ * the name they start with, falling back to the default budget. Routes cannot be told apart here: Spring only tags
+ * the server span with its {@code uri} when the request ends, and names it {@code http get} until then.
+ * <p>
+ * Each budget adjusts a sampling probability once per {@code window} from the rate observed in the previous window,
+ * so a spike is thinned evenly instead of keeping only the first spans of each second. A lock-free token bucket,
+ * kept as the time the next token becomes free, then caps whatever the probability lets through at one second's
+ * worth of burst. The fraction of spans sampled in the last window is published as the gauge
+ * {@value #EFFECTIVE_RATE_METRIC}. Meant to be wrapped in {@link Sampler#parentBased(Sampler)} so that child spans
+ * follow their root.
+ */
+class RateLimitingSampler implements Sampler {
+
+    static final String EFFECTIVE_RATE_METRIC = "telemetry.sampler.effective_rate";
+
+    static final String DEFAULT_BUDGET = "default";
+
+    private static final AttributeKey<String> BUDGET = AttributeKey.stringKey("budget");
+
+    private static final long NANOS_PER_SECOND = 1_000_000_000L;
+
+    private final Budget defaultBudget;
+    private final Map<String, Budget> budgets;
+    private final String description;
+
+    RateLimitingSampler(MongoTelemetryProperties.RateLimitedSampling settings) {
+        long windowNanos = Math.max(1L, settings.getWindow().toNanos());
+        this.defaultBudget = new Budget(DEFAULT_BUDGET, settings.getSpansPerSecond(), windowNanos);
+        this.budgets = settings.getBudgets().entrySet().stream()
+            .collect(Collectors.toUnmodifiableMap(Map.Entry::getKey,
+                entry -> new Budget(entry.getKey(), entry.getValue(), windowNanos)));
+        this.description = "RateLimitingSampler{spansPerSecond=" + settings.getSpansPerSecond() + ", budgets="
+            + settings.getBudgets() + "}";
+    }
+
+    @Override
+    public SamplingResult shouldSample(Context parentContext, String traceId, String name, SpanKind spanKind,
+            Attributes attributes, List<LinkData> parentLinks) {
+        return budgets.getOrDefault(name, defaultBudget).trySample(System.nanoTime())
+            ? SamplingResult.recordAndSample()
+            : SamplingResult.drop();
+    }
+
+    @Override
+    public String getDescription() {
+        return description;
+    }
+
+    /** Publishes the effective sampling rate of every budget through {@code meter}. */
+    void registerMetrics(Meter meter) {
+        meter.gaugeBuilder(EFFECTIVE_RATE_METRIC)
+            .setDescription("Fraction of root spans sampled by each rate limiting budget in the last window")
+            .setUnit("1")
+            .buildWithCallback(measurement -> {
+                measurement.record(defaultBudget.effectiveRate, Attributes.of(BUDGET, defaultBudget.key));
+                for (Budget budget : budgets.values()) {
+                    measurement.record(budget.effectiveRate, Attributes.of(BUDGET, budget.key));
+                }
+            });
+    }
+
+    double effectiveRate(String budget) {
+        return budgets.getOrDefault(budget, defaultBudget).effectiveRate;
+    }
+
+    private static final class Budget {
+
+        private final String key;
+        private final double spansPerSecond;
+        private final long windowNanos;
+        private final long intervalNanos;
+        private final long burstNanos;
+        private final AtomicLong nextFreeNanos;
+        private final AtomicLong windowStartNanos;
+        private final AtomicLong seen = new AtomicLong();
+        private final AtomicLong sampled = new AtomicLong();
+        private volatile double probability = 1.0;
+        private volatile double effectiveRate;
+
+        private Budget(String key, double spansPerSecond, long windowNanos) {
+            this.key = key;
+            this.spansPerSecond = spansPerSecond;
+            this.windowNanos = windowNanos;
+            this.intervalNanos = spansPerSecond > 0 ? Math.max(1L, (long) (NANOS_PER_SECOND / spansPerSecond)) : 0L;
+            this.burstNanos = NANOS_PER_SECOND;
+            long now = System.nanoTime();
+            this.nextFreeNanos = new AtomicLong(now - burstNanos);
+            this.windowStartNanos = new AtomicLong(now);
+            this.effectiveRate = spansPerSecond > 0 ? 1.0 : 0.0;
+        }
+
+        private boolean trySample(long now) {
+            if (spansPerSecond <= 0) {
+                return false;
+            }
+            seen.incrementAndGet();
+            adjust(now);
+            double currentProbability = probability;
+            if (currentProbability < 1.0 && ThreadLocalRandom.current().nextDouble() >= currentProbability) {
+                return false;
+            }
+            if (!tryAcquire(now)) {
+                return false;
+            }
+            sampled.incrementAndGet();
+            return true;
+        }
+
+        /** Takes a token if one is free, moving the time the next one frees up by one interval. */
+        private boolean tryAcquire(long now) {
+            while (true) {
+                long nextFree = nextFreeNanos.get();
+                long start = Math.max(nextFree, now - burstNanos + intervalNanos);
+                if (start - now > 0) {
+                    return false;
+                }
+                if (nextFreeNanos.compareAndSet(nextFree, start + intervalNanos)) {
+                    return true;
+                }
+            }
+        }
+
+        /** Recomputes the probability from the previous window; only the thread that closes the window does it. */
+        private void adjust(long now) {
+            long start = windowStartNanos.get();
+            long elapsed = now - start;
+            if (elapsed < windowNanos || !windowStartNanos.compareAndSet(start, now)) {
+                return;
+            }
+            long seenInWindow = seen.getAndSet(0);
+            long sampledInWindow = sampled.getAndSet(0);
+            double observedRate = seenInWindow * (double) NANOS_PER_SECOND / elapsed;
+            probability = observedRate <= spansPerSecond ? 1.0 : spansPerSecond / observedRate;
+            effectiveRate = seenInWindow == 0 ? 1.0 : (double) sampledInWindow / seenInWindow;
+        }
+    }
+}
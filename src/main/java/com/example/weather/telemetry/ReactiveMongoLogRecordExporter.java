@@ -0,0 +1,75 @@
+package com.example.weather.telemetry;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+import org.bson.BsonDocument;
+import org.bson.RawBsonDocument;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.mongodb.client.model.ReplaceOneModel;
+import com.mongodb.reactivestreams.client.MongoCollection;
+import com.mongodb.reactivestreams.client.MongoDatabase;
+
+import io.opentelemetry.sdk.common.CompletableResultCode;
+import io.opentelemetry.sdk.logs.data.LogRecordData;
+import io.opentelemetry.sdk.logs.export.LogRecordExporter;
+
+class ReactiveMongoLogRecordExporter implements LogRecordExporter, SpoolingExporter<LogRecordData> {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ReactiveMongoLogRecordExporter.class);
+
+    private final ReactiveMongoWriter<LogRecordData> writer;
+    private final TelemetryFragmentCache fragments;
+    private final MongoCollection<BsonDocument> resources;
+
+    ReactiveMongoLogRecordExporter(MongoDatabase database, String collectionName, TelemetryFragmentCache fragments,
+            TimestampEncoder timestamps, MongoTelemetryProperties.Reactive settings,
+            TelemetrySpool<LogRecordData> spool, TelemetryPartitions partitions) {
+        MongoCollection<RawBsonDocument> documents = database.getCollection(collectionName, RawBsonDocument.class);
+        this.writer = new ReactiveMongoWriter<>(new LogRecordDataCodec(fragments, timestamps),
+            partitions.router(database, documents, LogRecordData::getObservedTimestampEpochNanos), "logs", settings,
+            spool);
+        this.fragments = fragments;
+        this.resources = fragments.isNormalized()
+            ? database.getCollection(fragments.getResourcesCollectionName(), BsonDocument.class)
+            : null;
+    }
+
+    @Override
+    public CompletableResultCode export(Collection<LogRecordData> logs) {
+        if (logs == null || logs.isEmpty()) {
+            return CompletableResultCode.ofSuccess();
+        }
+        if (writer.isSpooling()) {
+            return writer.spool(new ArrayList<>(logs));
+        }
+        List<ReplaceOneModel<BsonDocument>> upserts;
+        try {
+            upserts = fragments.resourceUpserts(logs, LogRecordData::getResource);
+        } catch (RuntimeException exception) {
+            LOGGER.error("Failed to encode log resources", exception);
+            return writer.spool(new ArrayList<>(logs));
+        }
+        return writer.insert(new ArrayList<>(logs), upserts.isEmpty()
+            ? List.of()
+            : List.of(new ReactiveMongoWriter.Upsert(resources, upserts, () -> fragments.resourcesStored(upserts))));
+    }
+
+    @Override
+    public CompletableResultCode spool(Collection<LogRecordData> logs) {
+        return writer.spool(new ArrayList<>(logs));
+    }
+
+    @Override
+    public CompletableResultCode flush() {
+        return writer.flush();
+    }
+
+    @Override
+    public CompletableResultCode shutdown() {
+        return writer.shutdown();
+    }
+}
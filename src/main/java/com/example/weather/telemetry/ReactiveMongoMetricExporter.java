@@ -0,0 +1,118 @@
+package com.example.weather.telemetry;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+import org.bson.BsonDocument;
+import org.bson.RawBsonDocument;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.mongodb.client.model.ReplaceOneModel;
+import com.mongodb.reactivestreams.client.MongoCollection;
+import com.mongodb.reactivestreams.client.MongoDatabase;
+
+import io.opentelemetry.sdk.common.CompletableResultCode;
+import io.opentelemetry.sdk.metrics.InstrumentType;
+import io.opentelemetry.sdk.metrics.data.AggregationTemporality;
+import io.opentelemetry.sdk.metrics.data.MetricData;
+import io.opentelemetry.sdk.metrics.export.AggregationTemporalitySelector;
+import io.opentelemetry.sdk.metrics.export.MetricExporter;
+
+class ReactiveMongoMetricExporter implements MetricExporter, SpoolingExporter<MetricData> {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ReactiveMongoMetricExporter.class);
+
+    private final ReactiveMongoWriter<MetricPoints> writer;
+    private final TelemetryFragmentCache fragments;
+    private final AttributeSetDictionary attributeSets;
+    private final MongoCollection<BsonDocument> resources;
+    private final MongoCollection<BsonDocument> attributeSetsCollection;
+    private final TimeSeriesMetricsCollection timeSeries;
+    private final AggregationTemporalitySelector temporalitySelector;
+    private final UnchangedPointFilter unchangedPoints;
+
+    ReactiveMongoMetricExporter(MongoDatabase database, String collectionName, TelemetryFragmentCache fragments,
+            TimestampEncoder timestamps, MongoTelemetryProperties.Reactive settings,
+            TelemetrySpool<MetricPoints> spool, TimeSeriesMetricsCollection timeSeries,
+            AggregationTemporalitySelector temporalitySelector, UnchangedPointFilter unchangedPoints,
+            AttributeSetDictionary attributeSets, TelemetryPartitions partitions) {
+        MongoCollection<RawBsonDocument> points = database.getCollection(collectionName, RawBsonDocument.class);
+        this.writer = new ReactiveMongoWriter<>(
+            new MetricPointCodec(fragments, timestamps, timeSeries.isEnabled(), attributeSets),
+            partitions.router(database, points, MetricPoints::epochNanos), "metric points", settings, spool);
+        this.fragments = fragments;
+        this.attributeSets = attributeSets;
+        this.resources = fragments.isNormalized()
+            ? database.getCollection(fragments.getResourcesCollectionName(), BsonDocument.class)
+            : null;
+        this.attributeSetsCollection = attributeSets.isEnabled()
+            ? database.getCollection(attributeSets.getCollectionName(), BsonDocument.class)
+            : null;
+        this.timeSeries = timeSeries;
+        this.temporalitySelector = temporalitySelector;
+        this.unchangedPoints = unchangedPoints;
+    }
+
+    @Override
+    public CompletableResultCode export(Collection<MetricData> metrics) {
+        if (metrics == null || metrics.isEmpty()) {
+            return CompletableResultCode.ofSuccess();
+        }
+        List<MetricPoints> points = unchangedPoints.retainChanged(MongoMetricExporter.toPoints(metrics,
+            attributeSets.isEnabled()));
+        if (writer.isSpooling() || !timeSeries.isReady()) {
+            // Creating the time-series collection blocks; it is left to the index manager and the spool replayer.
+            return committed(points, writer.spool(points));
+        }
+        List<ReactiveMongoWriter.Upsert> upserts = new ArrayList<>(2);
+        try {
+            List<ReplaceOneModel<BsonDocument>> missingResources = fragments.resourceUpserts(metrics,
+                MetricData::getResource);
+            if (!missingResources.isEmpty()) {
+                upserts.add(new ReactiveMongoWriter.Upsert(resources, missingResources,
+                    () -> fragments.resourcesStored(missingResources)));
+            }
+            List<ReplaceOneModel<BsonDocument>> missingAttributeSets = attributeSets.upserts(points);
+            if (!missingAttributeSets.isEmpty()) {
+                upserts.add(new ReactiveMongoWriter.Upsert(attributeSetsCollection, missingAttributeSets,
+                    () -> attributeSets.stored(missingAttributeSets)));
+            }
+        } catch (Exception exception) {
+            LOGGER.error("Failed to prepare MongoDB for metric points", exception);
+            return committed(points, writer.spool(points));
+        }
+        return committed(points, writer.insert(points, upserts));
+    }
+
+    /** Commits {@code points} to the change filter if {@code result} succeeds, so failed points are not skipped. */
+    private CompletableResultCode committed(List<MetricPoints> points, CompletableResultCode result) {
+        result.whenComplete(() -> {
+            if (result.isSuccess()) {
+                unchangedPoints.commit(points);
+            }
+        });
+        return result;
+    }
+
+    @Override
+    public CompletableResultCode spool(Collection<MetricData> metrics) {
+        return writer.spool(MongoMetricExporter.toPoints(metrics, attributeSets.isEnabled()));
+    }
+
+    @Override
+    public CompletableResultCode flush() {
+        return writer.flush();
+    }
+
+    @Override
+    public CompletableResultCode shutdown() {
+        return writer.shutdown();
+    }
+
+    @Override
+    public AggregationTemporality getAggregationTemporality(InstrumentType instrumentType) {
+        return temporalitySelector.getAggregationTemporality(instrumentType);
+    }
+}
@@ -0,0 +1,74 @@
+package com.example.weather.telemetry;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+import org.bson.BsonDocument;
+import org.bson.RawBsonDocument;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.mongodb.client.model.ReplaceOneModel;
+import com.mongodb.reactivestreams.client.MongoCollection;
+import com.mongodb.reactivestreams.client.MongoDatabase;
+
+import io.opentelemetry.sdk.common.CompletableResultCode;
+import io.opentelemetry.sdk.trace.data.SpanData;
+import io.opentelemetry.sdk.trace.export.SpanExporter;
+
+class ReactiveMongoSpanExporter implements SpanExporter, SpoolingExporter<SpanData> {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ReactiveMongoSpanExporter.class);
+
+    private final ReactiveMongoWriter<SpanData> writer;
+    private final TelemetryFragmentCache fragments;
+    private final MongoCollection<BsonDocument> resources;
+
+    ReactiveMongoSpanExporter(MongoDatabase database, String collectionName, TelemetryFragmentCache fragments,
+            TimestampEncoder timestamps, MongoTelemetryProperties.Reactive settings,
+            TelemetrySpool<SpanData> spool, TelemetryPartitions partitions) {
+        MongoCollection<RawBsonDocument> documents = database.getCollection(collectionName, RawBsonDocument.class);
+        this.writer = new ReactiveMongoWriter<>(new SpanDataCodec(fragments, timestamps),
+            partitions.router(database, documents, SpanData::getStartEpochNanos), "spans", settings, spool);
+        this.fragments = fragments;
+        this.resources = fragments.isNormalized()
+            ? database.getCollection(fragments.getResourcesCollectionName(), BsonDocument.class)
+            : null;
+    }
+
+    @Override
+    public CompletableResultCode export(Collection<SpanData> spans) {
+        if (spans == null || spans.isEmpty()) {
+            return CompletableResultCode.ofSuccess();
+        }
+        if (writer.isSpooling()) {
+            return writer.spool(new ArrayList<>(spans));
+        }
+        List<ReplaceOneModel<BsonDocument>> upserts;
+        try {
+            upserts = fragments.resourceUpserts(spans, SpanData::getResource);
+        } catch (RuntimeException exception) {
+            LOGGER.error("Failed to encode span resources", exception);
+            return writer.spool(new ArrayList<>(spans));
+        }
+        return writer.insert(new ArrayList<>(spans), upserts.isEmpty()
+            ? List.of()
+            : List.of(new ReactiveMongoWriter.Upsert(resources, upserts, () -> fragments.resourcesStored(upserts))));
+    }
+
+    @Override
+    public CompletableResultCode spool(Collection<SpanData> spans) {
+        return writer.spool(new ArrayList<>(spans));
+    }
+
+    @Override
+    public CompletableResultCode flush() {
+        return writer.flush();
+    }
+
+    @Override
+    public CompletableResultCode shutdown() {
+        return writer.shutdown();
+    }
+}
@@ -0,0 +1,61 @@
+package com.example.weather.telemetry;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import com.mongodb.reactivestreams.client.MongoClient;
+import com.mongodb.reactivestreams.client.MongoClients;
+import com.mongodb.reactivestreams.client.MongoDatabase;
+
+import io.opentelemetry.sdk.logs.data.LogRecordData;
+import io.opentelemetry.sdk.metrics.export.AggregationTemporalitySelector;
+import io.opentelemetry.sdk.trace.data.SpanData;
+
+@Configuration
+@ConditionalOnProperty(prefix = "telemetry.mongo.reactive", name = "enabled", havingValue = "true")
+public class ReactiveMongoTelemetryConfiguration {
+
+    @Bean(destroyMethod = "close")
+    public MongoClient reactiveTelemetryMongoClient(MongoTelemetryProperties properties) {
+        return MongoClients.create(MongoTelemetryConfiguration.clientSettings(properties));
+    }
+
+    @Bean
+    public MongoDatabase reactiveTelemetryMongoDatabase(MongoClient reactiveTelemetryMongoClient,
+            MongoTelemetryProperties properties) {
+        return reactiveTelemetryMongoClient.getDatabase(properties.getDatabase());
+    }
+
+    @Bean
+    public ReactiveMongoLogRecordExporter reactiveMongoLogRecordExporter(MongoDatabase reactiveTelemetryMongoDatabase,
+            MongoTelemetryProperties properties, TelemetryFragmentCache telemetryFragmentCache,
+            TimestampEncoder timestampEncoder, TelemetrySpool<LogRecordData> logsSpool,
+            TelemetryPartitions telemetryPartitions) {
+        return new ReactiveMongoLogRecordExporter(reactiveTelemetryMongoDatabase, properties.getLogsCollection(),
+            telemetryFragmentCache, timestampEncoder, properties.getReactive(), logsSpool, telemetryPartitions);
+    }
+
+    @Bean
+    public ReactiveMongoSpanExporter reactiveMongoSpanExporter(MongoDatabase reactiveTelemetryMongoDatabase,
+            MongoTelemetryProperties properties, TelemetryFragmentCache telemetryFragmentCache,
+            TimestampEncoder timestampEncoder, TelemetrySpool<SpanData> tracesSpool,
+            TelemetryPartitions telemetryPartitions) {
+        return new ReactiveMongoSpanExporter(reactiveTelemetryMongoDatabase, properties.getTracesCollection(),
+            telemetryFragmentCache, timestampEncoder, properties.getReactive(), tracesSpool, telemetryPartitions);
+    }
+
+    @Bean
+    public ReactiveMongoMetricExporter reactiveMongoMetricExporter(MongoDatabase reactiveTelemetryMongoDatabase,
+            MongoTelemetryProperties properties, TelemetryFragmentCache telemetryFragmentCache,
+            TimestampEncoder timestampEncoder, TelemetrySpool<MetricPoints> metricsSpool,
+            TimeSeriesMetricsCollection timeSeriesMetricsCollection,
+            AggregationTemporalitySelector metricsTemporalitySelector, AttributeSetDictionary attributeSetDictionary,
+            TelemetryPartitions telemetryPartitions) {
+        return new ReactiveMongoMetricExporter(reactiveTelemetryMongoDatabase, properties.getMetricsCollection(),
+            telemetryFragmentCache, timestampEncoder, properties.getReactive(), metricsSpool,
+            timeSeriesMetricsCollection, metricsTemporalitySelector,
+            new UnchangedPointFilter(properties.getMetricsChangeDetection()), attributeSetDictionary,
+            telemetryPartitions);
+    }
+}
@@ -0,0 +1,271 @@
+package com.example.weather.telemetry;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+import org.bson.BsonDocument;
+import org.bson.RawBsonDocument;
+import org.bson.codecs.Encoder;
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.example.weather.config.VirtualThreads;
+import com.mongodb.bulk.BulkWriteResult;
+import com.mongodb.client.model.BulkWriteOptions;
+import com.mongodb.client.model.ReplaceOneModel;
+import com.mongodb.client.result.InsertManyResult;
+import com.mongodb.reactivestreams.client.MongoCollection;
+
+import io.opentelemetry.sdk.common.CompletableResultCode;
+
+/**
+ * Inserts batches through the reactive-streams driver and completes a {@link CompletableResultCode} from the driver
+ * callback. The number of concurrent writes is capped; once the cap is reached the calling export thread waits for a
+ * write to finish, which pushes back on the batching processor instead of queueing unbounded work in the driver.
+ * Batches that time out waiting for a slot or fail to insert go to the {@link TelemetrySpool}; spooling writes to
+ * disk, so a batch that fails on a driver callback is spooled on the writer's own thread instead.
+ * <p>
+ * A batch may come with {@link Upsert upserts} of the documents it references, such as its resources. They run
+ * first, on the same asynchronous chain, and the batch is only inserted once they are stored.
+ */
+class ReactiveMongoWriter<T> {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ReactiveMongoWriter.class);
+
+    private static final BulkWriteOptions UNORDERED = new BulkWriteOptions().ordered(false);
+
+    private final Encoder<T> encoder;
+    private final PartitionRouter<T, MongoCollection<RawBsonDocument>> collections;
+    private final String signal;
+    private final Semaphore inFlightWrites;
+    private final long inFlightWaitTimeoutNanos;
+    private final int maxInFlightWrites;
+    private final TelemetrySpool<T> spool;
+    private final ExecutorService spooler;
+
+    ReactiveMongoWriter(Encoder<T> encoder, PartitionRouter<T, MongoCollection<RawBsonDocument>> collections,
+            String signal, MongoTelemetryProperties.Reactive settings, TelemetrySpool<T> spool) {
+        this.encoder = encoder;
+        this.collections = collections;
+        this.signal = signal;
+        this.maxInFlightWrites = settings.getMaxInFlightWrites();
+        this.inFlightWrites = new Semaphore(maxInFlightWrites);
+        this.inFlightWaitTimeoutNanos = settings.getInFlightWaitTimeout().toNanos();
+        this.spool = spool;
+        this.spooler = Executors.newSingleThreadExecutor(
+            VirtualThreads.factory("telemetry-spool-" + signal.replace(' ', '-'), false));
+    }
+
+    /** Inserts {@code documents}, with one write per time partition they fall into. */
+    CompletableResultCode insert(List<T> documents) {
+        return insert(documents, List.of());
+    }
+
+    /**
+     * Runs {@code upserts} one after the other, then inserts {@code documents} with one write per time partition
+     * they fall into. If an upsert fails the documents are spooled.
+     */
+    CompletableResultCode insert(List<T> documents, List<Upsert> upserts) {
+        if (documents.isEmpty()) {
+            return CompletableResultCode.ofSuccess();
+        }
+        Map<MongoCollection<RawBsonDocument>, List<T>> partitions = collections.route(documents);
+        List<Write> writes = new ArrayList<>(partitions.size());
+        List<CompletableResultCode> results = new ArrayList<>(partitions.size());
+        for (Map.Entry<MongoCollection<RawBsonDocument>, List<T>> partition : partitions.entrySet()) {
+            try {
+                if (!inFlightWrites.tryAcquire(inFlightWaitTimeoutNanos, TimeUnit.NANOSECONDS)) {
+                    LOGGER.error("Timed out waiting for a free MongoDB write slot for {} {}",
+                        partition.getValue().size(), signal);
+                    results.add(spool.append(partition.getValue()));
+                    continue;
+                }
+            } catch (InterruptedException exception) {
+                Thread.currentThread().interrupt();
+                inFlightWrites.release(writes.size());
+                return CompletableResultCode.ofFailure();
+            }
+            Write write = new Write(partition.getKey(), partition.getValue());
+            writes.add(write);
+            results.add(write.result);
+        }
+        if (!writes.isEmpty()) {
+            new UpsertChain(upserts, writes).next();
+        }
+        return results.size() == 1 ? results.get(0) : CompletableResultCode.ofAll(results);
+    }
+
+    /** Whether earlier batches are still spooled; new batches should then be spooled behind them. */
+    boolean isSpooling() {
+        return spool.isBacklogged();
+    }
+
+    /** Hands {@code documents} straight to the spool, for batches that cannot be inserted at all. */
+    CompletableResultCode spool(List<T> documents) {
+        return spool.append(documents);
+    }
+
+    /** Completes once every write started so far has finished, or fails after the wait timeout. */
+    CompletableResultCode flush() {
+        try {
+            if (!inFlightWrites.tryAcquire(maxInFlightWrites, inFlightWaitTimeoutNanos, TimeUnit.NANOSECONDS)) {
+                return CompletableResultCode.ofFailure();
+            }
+        } catch (InterruptedException exception) {
+            Thread.currentThread().interrupt();
+            return CompletableResultCode.ofFailure();
+        }
+        inFlightWrites.release(maxInFlightWrites);
+        return CompletableResultCode.ofSuccess();
+    }
+
+    /** Waits for the writes started so far, then stops the spooling thread once it has spooled what it was given. */
+    CompletableResultCode shutdown() {
+        CompletableResultCode flushed = flush();
+        spooler.shutdown();
+        return flushed;
+    }
+
+    private void start(Write write) {
+        try {
+            write.collection.insertMany(TelemetryDocumentFactory.encodeAll(encoder, write.documents))
+                .subscribe(new ResultSubscriber(write));
+        } catch (RuntimeException exception) {
+            LOGGER.error("Failed to persist {} to MongoDB", signal, exception);
+            spoolAndRelease(write);
+        }
+    }
+
+    /** Spools a write that failed and frees its slot, off the driver callback thread. */
+    private void spoolAndRelease(Write write) {
+        Runnable task = () -> {
+            try {
+                CompletableResultCode spooled = spool.append(write.documents);
+                if (spooled.isSuccess()) {
+                    write.result.succeed();
+                } else {
+                    write.result.fail();
+                }
+            } finally {
+                inFlightWrites.release();
+            }
+        };
+        try {
+            spooler.execute(task);
+        } catch (RejectedExecutionException exception) {
+            task.run();
+        }
+    }
+
+    /**
+     * Upserts of documents a batch references, written unordered to {@code collection}; {@code onStored} runs once
+     * they are acknowledged.
+     */
+    record Upsert(MongoCollection<BsonDocument> collection, List<ReplaceOneModel<BsonDocument>> models,
+            Runnable onStored) {
+    }
+
+    private final class Write {
+
+        private final MongoCollection<RawBsonDocument> collection;
+        private final List<T> documents;
+        private final CompletableResultCode result = new CompletableResultCode();
+
+        private Write(MongoCollection<RawBsonDocument> collection, List<T> documents) {
+            this.collection = collection;
+            this.documents = documents;
+        }
+    }
+
+    /** Subscribes to each upsert once the previous one completed, then starts the writes. */
+    private final class UpsertChain implements Subscriber<BulkWriteResult> {
+
+        private final Iterator<Upsert> upserts;
+        private final List<Write> writes;
+        private Upsert current;
+
+        private UpsertChain(List<Upsert> upserts, List<Write> writes) {
+            this.upserts = upserts.iterator();
+            this.writes = writes;
+        }
+
+        private void next() {
+            while (upserts.hasNext()) {
+                current = upserts.next();
+                if (!current.models().isEmpty()) {
+                    try {
+                        current.collection().bulkWrite(current.models(), UNORDERED).subscribe(this);
+                    } catch (RuntimeException exception) {
+                        onError(exception);
+                    }
+                    return;
+                }
+            }
+            for (Write write : writes) {
+                start(write);
+            }
+        }
+
+        @Override
+        public void onSubscribe(Subscription subscription) {
+            subscription.request(1);
+        }
+
+        @Override
+        public void onNext(BulkWriteResult bulkWriteResult) {
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            LOGGER.error("Failed to store the documents referenced by {} in MongoDB", signal, throwable);
+            for (Write write : writes) {
+                spoolAndRelease(write);
+            }
+        }
+
+        @Override
+        public void onComplete() {
+            current.onStored().run();
+            next();
+        }
+    }
+
+    private final class ResultSubscriber implements Subscriber<InsertManyResult> {
+
+        private final Write write;
+
+        private ResultSubscriber(Write write) {
+            this.write = write;
+        }
+
+        @Override
+        public void onSubscribe(Subscription subscription) {
+            subscription.request(1);
+        }
+
+        @Override
+        public void onNext(InsertManyResult insertManyResult) {
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            LOGGER.error("Failed to persist {} {} to MongoDB", write.documents.size(), signal, throwable);
+            spoolAndRelease(write);
+        }
+
+        @Override
+        public void onComplete() {
+            inFlightWrites.release();
+            write.result.succeed();
+        }
+    }
+}
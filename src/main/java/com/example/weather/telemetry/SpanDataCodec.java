@@ -0,0 +1,67 @@
+package com.example.weather.telemetry;
+
+import org.bson.BsonWriter;
+import org.bson.codecs.Encoder;
+import org.bson.codecs.EncoderContext;
+
+import io.opentelemetry.sdk.trace.data.EventData;
+import io.opentelemetry.sdk.trace.data.LinkData;
+import io.opentelemetry.sdk.trace.data.SpanData;
+
+/** Encodes {@link SpanData} directly as a BSON document in the layout stored in the traces collection. */
+class SpanDataCodec implements Encoder<SpanData> {
+
+    private final TelemetryFragmentCache fragments;
+    private final TimestampEncoder timestamps;
+
+    SpanDataCodec(TelemetryFragmentCache fragments, TimestampEncoder timestamps) {
+        this.fragments = fragments;
+        this.timestamps = timestamps;
+    }
+
+    @Override
+    public void encode(BsonWriter writer, SpanData span, EncoderContext encoderContext) {
+        writer.writeStartDocument();
+        writer.writeString("traceId", span.getTraceId());
+        writer.writeString("spanId", span.getSpanId());
+        writer.writeString("parentSpanId", span.getParentSpanId());
+        writer.writeString("name", span.getName());
+        writer.writeString("kind", span.getKind().name());
+        timestamps.write(writer, "start", span.getStartEpochNanos());
+        timestamps.write(writer, "end", span.getEndEpochNanos());
+        writer.writeString("status", span.getStatus().getStatusCode().name());
+        fragments.writeAttributes(writer, "attributes", span.getAttributes());
+        writer.writeInt32("totalRecordedEvents", span.getTotalRecordedEvents());
+        writer.writeInt32("totalRecordedLinks", span.getTotalRecordedLinks());
+        fragments.writeResource(writer, span.getResource());
+        fragments.writeInstrumentationScope(writer, span.getInstrumentationScopeInfo());
+        if (!span.getEvents().isEmpty()) {
+            writer.writeStartArray("events");
+            for (EventData event : span.getEvents()) {
+                writer.writeStartDocument();
+                writer.writeString("name", event.getName());
+                timestamps.write(writer, "time", event.getEpochNanos());
+                fragments.writeAttributes(writer, "attributes", event.getAttributes());
+                writer.writeEndDocument();
+            }
+            writer.writeEndArray();
+        }
+        if (!span.getLinks().isEmpty()) {
+            writer.writeStartArray("links");
+            for (LinkData link : span.getLinks()) {
+                writer.writeStartDocument();
+                writer.writeString("traceId", link.getSpanContext().getTraceId());
+                writer.writeString("spanId", link.getSpanContext().getSpanId());
+                fragments.writeAttributes(writer, "attributes", link.getAttributes());
+                writer.writeEndDocument();
+            }
+            writer.writeEndArray();
+        }
+        writer.writeEndDocument();
+    }
+
+    @Override
+    public Class<SpanData> getEncoderClass() {
+        return SpanData.class;
+    }
+}
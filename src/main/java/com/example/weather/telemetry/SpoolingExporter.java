@@ -0,0 +1,16 @@
+package com.example.weather.telemetry;
+
+import java.util.Collection;
+
+import io.opentelemetry.sdk.common.CompletableResultCode;
+
+/**
+ * An exporter backed by a {@link TelemetrySpool}. The fan-out uses it for batches it cannot hand to the exporter,
+ * because the exporter is still busy, its circuit is open or the batch was still queued when the export timed out,
+ * so that those batches are written to disk instead of being lost.
+ */
+interface SpoolingExporter<T> {
+
+    /** Writes {@code items} to the spool without trying MongoDB; fails when the spool is disabled. */
+    CompletableResultCode spool(Collection<T> items);
+}
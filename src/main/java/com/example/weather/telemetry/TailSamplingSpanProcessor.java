@@ -0,0 +1,280 @@
+package com.example.weather.telemetry;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import io.opentelemetry.api.common.AttributeKey;
+import io.opentelemetry.api.trace.SpanContext;
+import io.opentelemetry.api.trace.StatusCode;
+import io.opentelemetry.context.Context;
+import io.opentelemetry.sdk.common.CompletableResultCode;
+import io.opentelemetry.sdk.trace.ReadWriteSpan;
+import io.opentelemetry.sdk.trace.ReadableSpan;
+import io.opentelemetry.sdk.trace.SpanProcessor;
+
+/**
+ * Holds finished spans per trace and forwards a trace to {@code downstream} only if it is kept. The decision is
+ * taken when the local root span ends (a span without parent or with a remote one), or once the trace has waited
+ * {@code decisionWait}. A trace is kept if any span ended with an error, lasted at least {@code latencyThreshold} or
+ * served one of the configured routes, read from the {@code uri} attribute of the server span; the rest are kept
+ * with probability {@code baselineRatio}, derived from the trace id so every service keeps the same traces.
+ * <p>
+ * Buffered traces live in a fixed number of stripes, each a map guarded by its own lock and bounded to its share of
+ * {@code maxTraces}. A trace that finds its stripe full is decided on each span alone, and only a decision to keep it
+ * is remembered, so a later error span is still judged on its own; such a trace counts as dropped once, however many
+ * of its spans are dropped. Spans that end after their trace was decided
+ * follow the remembered decision, except that an error span always turns a dropped trace into a kept one and is
+ * forwarded; spans of that trace that ended before it stay dropped.
+ */
+class TailSamplingSpanProcessor implements SpanProcessor {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(TailSamplingSpanProcessor.class);
+
+    /** Route template that the Micrometer tracing bridge copies from the server observation's {@code uri} tag. */
+    private static final AttributeKey<String> URI = AttributeKey.stringKey("uri");
+
+    private static final int STRIPES = 16;
+
+    private final SpanProcessor downstream;
+    private final long decisionWaitNanos;
+    private final int maxSpansPerTrace;
+    private final long latencyThresholdNanos;
+    private final Set<String> routes;
+    private final long baselineBound;
+    private final Stripe[] stripes = new Stripe[STRIPES];
+    private final AtomicLong keptTraces = new AtomicLong();
+    private final AtomicLong droppedTraces = new AtomicLong();
+    private final ScheduledExecutorService sweeper;
+
+    TailSamplingSpanProcessor(SpanProcessor downstream, MongoTelemetryProperties.TailSampling settings) {
+        this.downstream = downstream;
+        this.decisionWaitNanos = settings.getDecisionWait().toNanos();
+        this.maxSpansPerTrace = Math.max(1, settings.getMaxSpansPerTrace());
+        this.latencyThresholdNanos = settings.getLatencyThreshold().toNanos();
+        this.routes = Set.copyOf(settings.getRoutes());
+        this.baselineBound = baselineBound(settings.getBaselineRatio());
+        int tracesPerStripe = Math.max(1, settings.getMaxTraces() / STRIPES);
+        for (int i = 0; i < STRIPES; i++) {
+            stripes[i] = new Stripe(tracesPerStripe);
+        }
+        this.sweeper = TelemetrySchedulers.sweeper("telemetry-tail-sampling", decisionWaitNanos, this::sweep);
+    }
+
+    @Override
+    public void onStart(Context parentContext, ReadWriteSpan span) {
+    }
+
+    @Override
+    public boolean isStartRequired() {
+        return false;
+    }
+
+    @Override
+    public void onEnd(ReadableSpan span) {
+        if (!span.getSpanContext().isSampled()) {
+            return;
+        }
+        String traceId = span.getSpanContext().getTraceId();
+        Stripe stripe = stripes[Math.floorMod(traceId.hashCode(), STRIPES)];
+        TraceBuffer decided;
+        synchronized (stripe) {
+            Boolean decision = stripe.decisions.get(traceId);
+            if (decision != null) {
+                if (!decision) {
+                    if (!isError(span)) {
+                        return;
+                    }
+                    stripe.decisions.put(traceId, Boolean.TRUE);
+                    keptTraces.incrementAndGet();
+                }
+                decided = null;
+            } else {
+                TraceBuffer buffer = stripe.pending.get(traceId);
+                if (buffer == null) {
+                    buffer = new TraceBuffer(traceId, System.nanoTime());
+                    if (stripe.pending.size() < stripe.maxTraces) {
+                        stripe.pending.put(traceId, buffer);
+                    }
+                }
+                buffer.add(span);
+                boolean buffered = stripe.pending.get(traceId) == buffer;
+                if (buffered && !isLocalRoot(span) && buffer.spans.size() < maxSpansPerTrace) {
+                    return;
+                }
+                stripe.pending.remove(traceId);
+                boolean kept = isKept(buffer);
+                if (kept || buffered) {
+                    stripe.decisions.put(traceId, kept);
+                } else if (!stripe.overflowDrops.add(traceId)) {
+                    return;
+                }
+                decided = buffer;
+            }
+        }
+        if (decided == null) {
+            downstream.onEnd(span);
+        } else {
+            forward(decided);
+        }
+    }
+
+    @Override
+    public boolean isEndRequired() {
+        return true;
+    }
+
+    @Override
+    public CompletableResultCode forceFlush() {
+        decideOlderThan(Long.MAX_VALUE);
+        return downstream.forceFlush();
+    }
+
+    @Override
+    public CompletableResultCode shutdown() {
+        sweeper.shutdownNow();
+        decideOlderThan(Long.MAX_VALUE);
+        return downstream.shutdown();
+    }
+
+    long getKeptTraces() {
+        return keptTraces.get();
+    }
+
+    long getDroppedTraces() {
+        return droppedTraces.get();
+    }
+
+    private void sweep() {
+        try {
+            decideOlderThan(decisionWaitNanos);
+        } catch (RuntimeException exception) {
+            LOGGER.warn("Could not decide on timed-out traces", exception);
+        }
+    }
+
+    /** Decides every buffered trace whose first span arrived at least {@code ageNanos} ago. */
+    private void decideOlderThan(long ageNanos) {
+        long now = System.nanoTime();
+        for (Stripe stripe : stripes) {
+            List<TraceBuffer> expired = new ArrayList<>();
+            synchronized (stripe) {
+                Iterator<TraceBuffer> iterator = stripe.pending.values().iterator();
+                while (iterator.hasNext()) {
+                    TraceBuffer buffer = iterator.next();
+                    if (ageNanos != Long.MAX_VALUE && now - buffer.firstSeenNanos < ageNanos) {
+                        break;
+                    }
+                    iterator.remove();
+                    stripe.decisions.put(buffer.traceId, isKept(buffer));
+                    expired.add(buffer);
+                }
+            }
+            for (TraceBuffer buffer : expired) {
+                forward(buffer);
+            }
+        }
+    }
+
+    private void forward(TraceBuffer buffer) {
+        if (!buffer.kept) {
+            droppedTraces.incrementAndGet();
+            return;
+        }
+        keptTraces.incrementAndGet();
+        for (ReadableSpan span : buffer.spans) {
+            downstream.onEnd(span);
+        }
+    }
+
+    private boolean isKept(TraceBuffer buffer) {
+        buffer.kept = buffer.error
+            || (latencyThresholdNanos > 0 && buffer.maxDurationNanos >= latencyThresholdNanos)
+            || buffer.routeMatched
+            || isInBaseline(buffer.traceId);
+        return buffer.kept;
+    }
+
+    /** Same rule as the SDK's trace id ratio sampler, so the baseline agrees with head sampling elsewhere. */
+    private boolean isInBaseline(String traceId) {
+        long randomPart = Long.parseUnsignedLong(traceId.substring(16), 16);
+        return Math.abs(randomPart) < baselineBound;
+    }
+
+    private static long baselineBound(double ratio) {
+        if (ratio <= 0.0) {
+            return Long.MIN_VALUE;
+        }
+        if (ratio >= 1.0) {
+            return Long.MAX_VALUE;
+        }
+        return (long) (ratio * Long.MAX_VALUE);
+    }
+
+    private static boolean isError(ReadableSpan span) {
+        return span.toSpanData().getStatus().getStatusCode() == StatusCode.ERROR;
+    }
+
+    private static boolean isLocalRoot(ReadableSpan span) {
+        SpanContext parent = span.getParentSpanContext();
+        return !parent.isValid() || parent.isRemote();
+    }
+
+    private final class TraceBuffer {
+
+        private final String traceId;
+        private final long firstSeenNanos;
+        private final List<ReadableSpan> spans = new ArrayList<>();
+        private boolean error;
+        private long maxDurationNanos;
+        private boolean routeMatched;
+        private boolean kept;
+
+        private TraceBuffer(String traceId, long firstSeenNanos) {
+            this.traceId = traceId;
+            this.firstSeenNanos = firstSeenNanos;
+        }
+
+        private void add(ReadableSpan span) {
+            spans.add(span);
+            error |= isError(span);
+            maxDurationNanos = Math.max(maxDurationNanos, span.getLatencyNanos());
+            if (!routeMatched && !routes.isEmpty()) {
+                String route = span.getAttribute(URI);
+                routeMatched = route != null && routes.contains(route);
+            }
+        }
+    }
+
+    private static final class Stripe {
+
+        private final int maxTraces;
+        private final Map<String, TraceBuffer> pending = new LinkedHashMap<>();
+        private final Map<String, Boolean> decisions;
+        private final Set<String> overflowDrops;
+
+        private Stripe(int maxTraces) {
+            this.maxTraces = maxTraces;
+            this.decisions = bounded(maxTraces);
+            this.overflowDrops = Collections.newSetFromMap(bounded(maxTraces));
+        }
+
+        private static <V> Map<String, V> bounded(int maxTraces) {
+            return new LinkedHashMap<>(16, 0.75f, false) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, V> eldest) {
+                    return size() > maxTraces;
+                }
+            };
+        }
+    }
+}
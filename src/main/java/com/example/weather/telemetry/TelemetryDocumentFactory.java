@@ -1,126 +1,186 @@
 package com.example.weather.telemetry;
 
-import java.time.Instant;
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.List;
-import java.util.Map;
-import java.util.stream.Collectors;
-import java.util.stream.Stream;
-import java.util.stream.StreamSupport;
 
-import org.bson.Document;
+import org.bson.BsonBinaryReader;
+import org.bson.BsonBinaryWriter;
+import org.bson.BsonWriter;
+import org.bson.RawBsonDocument;
+import org.bson.codecs.Encoder;
+import org.bson.codecs.EncoderContext;
+import org.bson.io.BasicOutputBuffer;
 
+import io.opentelemetry.api.common.AttributeType;
 import io.opentelemetry.api.common.Attributes;
+import io.opentelemetry.api.trace.SpanContext;
 import io.opentelemetry.sdk.common.InstrumentationScopeInfo;
 import io.opentelemetry.sdk.resources.Resource;
 
+/**
+ * Writes the fragments shared by every telemetry document (resource, scope, attributes) straight to a
+ * {@link BsonWriter}, so the codecs never build intermediate {@link org.bson.Document} trees.
+ */
 final class TelemetryDocumentFactory {
 
+    private static final EncoderContext ENCODER_CONTEXT = EncoderContext.builder().build();
+
     private TelemetryDocumentFactory() {
     }
 
-    static Document createResourceDocument(Resource resource) {
-        Document resourceDoc = new Document();
-        resourceDoc.append("schemaUrl", resource.getSchemaUrl());
-        resourceDoc.append("attributes", toDocument(resource.getAttributes()));
-        return resourceDoc;
+    /**
+     * Encodes each of {@code items} with {@code encoder} into a {@link RawBsonDocument}, which the driver inserts by
+     * copying its bytes, so the telemetry types never need a decoder.
+     */
+    static <T> List<RawBsonDocument> encodeAll(Encoder<T> encoder, List<? extends T> items) {
+        List<RawBsonDocument> documents = new ArrayList<>(items.size());
+        BasicOutputBuffer buffer = new BasicOutputBuffer();
+        for (T item : items) {
+            buffer.truncateToPosition(0);
+            try (BsonBinaryWriter writer = new BsonBinaryWriter(buffer)) {
+                encoder.encode(writer, item, ENCODER_CONTEXT);
+            }
+            documents.add(new RawBsonDocument(buffer.toByteArray()));
+        }
+        return documents;
     }
 
-    static Document createInstrumentationScopeDocument(InstrumentationScopeInfo info) {
-        Document scope = new Document();
-        scope.append("name", info.getName());
-        scope.append("version", info.getVersion());
-        scope.append("schemaUrl", info.getSchemaUrl());
-        if (!info.getAttributes().isEmpty()) {
-            scope.append("attributes", toDocument(info.getAttributes()));
+    static RawBsonDocument encodeResource(Resource resource, AttributeSanitizer sanitizer) {
+        BasicOutputBuffer buffer = new BasicOutputBuffer();
+        try (BsonBinaryWriter writer = new BsonBinaryWriter(buffer)) {
+            writer.writeStartDocument();
+            writeNullableString(writer, "schemaUrl", resource.getSchemaUrl());
+            writeAttributes(writer, "attributes", resource.getAttributes(), sanitizer);
+            writer.writeEndDocument();
         }
-        return scope;
+        return new RawBsonDocument(buffer.toByteArray());
     }
 
-    static Document createInstantDocument(long epochNanos) {
-        long seconds = epochNanos / 1_000_000_000L;
-        long nanos = epochNanos % 1_000_000_000L;
-        Instant instant = Instant.ofEpochSecond(seconds, nanos);
-        return new Document(Map.of(
-            "epochSeconds", seconds,
-            "epochNanos", epochNanos,
-            "iso", instant.toString()));
+    static RawBsonDocument encodeInstrumentationScope(InstrumentationScopeInfo info, AttributeSanitizer sanitizer) {
+        BasicOutputBuffer buffer = new BasicOutputBuffer();
+        try (BsonBinaryWriter writer = new BsonBinaryWriter(buffer)) {
+            writer.writeStartDocument();
+            writer.writeString("name", info.getName());
+            writeNullableString(writer, "version", info.getVersion());
+            writeNullableString(writer, "schemaUrl", info.getSchemaUrl());
+            if (!info.getAttributes().isEmpty()) {
+                writeAttributes(writer, "attributes", info.getAttributes(), sanitizer);
+            }
+            writer.writeEndDocument();
+        }
+        return new RawBsonDocument(buffer.toByteArray());
     }
 
-    static Document toDocument(Attributes attributes) {
-        Document document = new Document();
-        attributes.forEach((key, value) -> document.append(key.getKey(), sanitizeValue(value)));
-        return document;
+    static RawBsonDocument encodeAttributes(Attributes attributes, AttributeSanitizer sanitizer) {
+        BasicOutputBuffer buffer = new BasicOutputBuffer();
+        try (BsonBinaryWriter writer = new BsonBinaryWriter(buffer)) {
+            writer.writeStartDocument();
+            writeAttributeFields(writer, attributes, sanitizer);
+            writer.writeEndDocument();
+        }
+        return new RawBsonDocument(buffer.toByteArray());
     }
 
-    static Object sanitizeValue(Object value) {
-        if (value == null) {
-            return null;
-        }
-        if (value instanceof Map<?, ?> map) {
-            return map.entrySet().stream()
-                .collect(Collectors.toMap(e -> String.valueOf(e.getKey()), e -> sanitizeValue(e.getValue())));
+    /** Copies an already encoded document into {@code writer}; binary writers copy the bytes verbatim. */
+    static void writeEncoded(BsonWriter writer, String name, RawBsonDocument encoded) {
+        writer.writeName(name);
+        ByteBuffer bytes = encoded.getByteBuffer().asNIO();
+        try (BsonBinaryReader reader = new BsonBinaryReader(bytes)) {
+            writer.pipe(reader);
         }
-        if (value instanceof Iterable<?> iterable) {
-            return StreamSupport.stream(iterable.spliterator(), false)
-                .map(TelemetryDocumentFactory::sanitizeValue)
-                .collect(Collectors.toList());
-        }
-        if (value.getClass().isArray()) {
-            return sanitizeArray(value);
-        }
-        return value;
     }
 
-    private static Object sanitizeArray(Object array) {
-        if (array instanceof Object[] objects) {
-            return Arrays.stream(objects)
-                .map(TelemetryDocumentFactory::sanitizeValue)
-                .collect(Collectors.toList());
-        }
-        if (array instanceof long[] longs) {
-            return Arrays.stream(longs).boxed().collect(Collectors.toList());
-        }
-        if (array instanceof int[] ints) {
-            return Arrays.stream(ints).boxed().collect(Collectors.toList());
+    static void writeSpanIds(BsonWriter writer, String name, SpanContext spanContext) {
+        writer.writeStartDocument(name);
+        writer.writeString("traceId", spanContext.getTraceId());
+        writer.writeString("spanId", spanContext.getSpanId());
+        writer.writeEndDocument();
+    }
+
+    static void writeAttributes(BsonWriter writer, String name, Attributes attributes,
+            AttributeSanitizer sanitizer) {
+        writer.writeStartDocument(name);
+        writeAttributeFields(writer, attributes, sanitizer);
+        writer.writeEndDocument();
+    }
+
+    /**
+     * Writes each attribute as a field of the current document, converting by {@link AttributeType} so values are
+     * written from the SDK's own objects without reflection or intermediate collections. Attributes beyond the
+     * sanitizer's count limit are skipped, and strings and arrays are cut to its length limits.
+     */
+    private static void writeAttributeFields(BsonWriter writer, Attributes attributes, AttributeSanitizer sanitizer) {
+        int maxAttributes = sanitizer.maxAttributes();
+        int[] written = new int[1];
+        attributes.forEach((key, value) -> {
+            if (written[0] == maxAttributes) {
+                return;
+            }
+            written[0]++;
+            writer.writeName(key.getKey());
+            writeAttributeValue(writer, key.getType(), value, sanitizer);
+        });
+        sanitizer.attributesDropped(attributes.size() - written[0]);
+    }
+
+    private static void writeAttributeValue(BsonWriter writer, AttributeType type, Object value,
+            AttributeSanitizer sanitizer) {
+        switch (type) {
+            case STRING -> writer.writeString(sanitizer.truncate((String) value));
+            case BOOLEAN -> writer.writeBoolean((Boolean) value);
+            case LONG -> writer.writeInt64((Long) value);
+            case DOUBLE -> writer.writeDouble((Double) value);
+            case STRING_ARRAY, BOOLEAN_ARRAY, LONG_ARRAY, DOUBLE_ARRAY ->
+                writeAttributeArray(writer, type, (List<?>) value, sanitizer);
         }
-        if (array instanceof double[] doubles) {
-            return Arrays.stream(doubles).boxed().collect(Collectors.toList());
+    }
+
+    private static void writeAttributeArray(BsonWriter writer, AttributeType type, List<?> values,
+            AttributeSanitizer sanitizer) {
+        int length = Math.min(values.size(), sanitizer.maxArrayLength());
+        if (length < values.size()) {
+            sanitizer.arrayTruncated();
         }
-        if (array instanceof float[] floats) {
-            List<Double> values = new ArrayList<>(floats.length);
-            for (float element : floats) {
-                values.add((double) element);
+        writer.writeStartArray();
+        for (int i = 0; i < length; i++) {
+            Object element = values.get(i);
+            if (element == null) {
+                writer.writeNull();
+                continue;
             }
-            return values;
-        }
-        if (array instanceof short[] shorts) {
-            List<Integer> values = new ArrayList<>(shorts.length);
-            for (short element : shorts) {
-                values.add((int) element);
+            switch (type) {
+                case STRING_ARRAY -> writer.writeString(sanitizer.truncate((String) element));
+                case BOOLEAN_ARRAY -> writer.writeBoolean((Boolean) element);
+                case LONG_ARRAY -> writer.writeInt64((Long) element);
+                case DOUBLE_ARRAY -> writer.writeDouble((Double) element);
+                default -> writer.writeNull();
             }
-            return values;
         }
-        if (array instanceof byte[] bytes) {
-            List<Integer> values = new ArrayList<>(bytes.length);
-            for (byte element : bytes) {
-                values.add((int) element);
-            }
-            return values;
+        writer.writeEndArray();
+    }
+
+    static void writeNullableString(BsonWriter writer, String name, String value) {
+        if (value == null) {
+            writer.writeNull(name);
+        } else {
+            writer.writeString(name, value);
         }
-        if (array instanceof boolean[] booleans) {
-            List<Boolean> values = new ArrayList<>(booleans.length);
-            for (boolean element : booleans) {
-                values.add(element);
-            }
-            return values;
+    }
+
+    static void writeDoubleArray(BsonWriter writer, String name, List<Double> values) {
+        writer.writeStartArray(name);
+        for (int i = 0; i < values.size(); i++) {
+            writer.writeDouble(values.get(i));
         }
-        if (array instanceof char[] chars) {
-            return new String(chars);
+        writer.writeEndArray();
+    }
+
+    static void writeLongArray(BsonWriter writer, String name, List<Long> values) {
+        writer.writeStartArray(name);
+        for (int i = 0; i < values.size(); i++) {
+            writer.writeInt64(values.get(i));
         }
-        return Stream.of(array)
-            .map(TelemetryDocumentFactory::sanitizeValue)
-            .collect(Collectors.toList());
+        writer.writeEndArray();
     }
 }
@@ -0,0 +1,198 @@
+package com.example.weather.telemetry;
+
+import java.nio.ByteBuffer;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.Function;
+
+import org.bson.BsonDocument;
+import org.bson.BsonInt64;
+import org.bson.BsonWriter;
+import org.bson.RawBsonDocument;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.ReplaceOneModel;
+import com.mongodb.client.model.ReplaceOptions;
+
+import io.opentelemetry.api.common.Attributes;
+import io.opentelemetry.sdk.common.InstrumentationScopeInfo;
+import io.opentelemetry.sdk.resources.Resource;
+
+/**
+ * Keeps the encoded form of the {@link Resource} and {@link InstrumentationScopeInfo} instances seen by the
+ * exporters. Both are shared by every signal of a provider and almost never change, so they are encoded once and
+ * copied verbatim into each document afterwards.
+ * <p>
+ * Entries are keyed by identity in a small direct-mapped table: a lookup never allocates or locks, and a colliding
+ * instance simply evicts the previous one. In {@link MongoTelemetryProperties.ResourceStorage#NORMALIZED} mode the
+ * resource is stored once in its own collection and documents only carry its 64-bit content hash.
+ */
+class TelemetryFragmentCache {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(TelemetryFragmentCache.class);
+
+    static final String RESOURCE_FIELD = "resource";
+
+    static final String RESOURCE_REFERENCE_FIELD = "resourceId";
+
+    static final String SCOPE_FIELD = "instrumentationScope";
+
+    private final Slots<Resource> resources;
+    private final Slots<InstrumentationScopeInfo> scopes;
+    private final MongoCollection<BsonDocument> resourcesCollection;
+    private final Set<Long> storedResources = ConcurrentHashMap.newKeySet();
+    private final AttributeSanitizer sanitizer;
+    private volatile Resource lastStoredResource;
+
+    /**
+     * @param resourcesCollection collection that receives each distinct resource once, or {@code null} to embed the
+     *                            resource in every document
+     */
+    TelemetryFragmentCache(int size, MongoCollection<?> resourcesCollection, AttributeSanitizer sanitizer) {
+        int capacity = Integer.highestOneBit(Math.max(1, size - 1)) << 1;
+        this.resources = new Slots<>(capacity, resource -> TelemetryDocumentFactory.encodeResource(resource,
+            sanitizer));
+        this.scopes = new Slots<>(capacity, scope -> TelemetryDocumentFactory.encodeInstrumentationScope(scope,
+            sanitizer));
+        this.sanitizer = sanitizer;
+        this.resourcesCollection = resourcesCollection != null
+            ? resourcesCollection.withDocumentClass(BsonDocument.class)
+            : null;
+    }
+
+    boolean isNormalized() {
+        return resourcesCollection != null;
+    }
+
+    void writeResource(BsonWriter writer, Resource resource) {
+        Entry<Resource> entry = resources.get(resource);
+        if (isNormalized()) {
+            writer.writeInt64(RESOURCE_REFERENCE_FIELD, entry.hash());
+        } else {
+            TelemetryDocumentFactory.writeEncoded(writer, RESOURCE_FIELD, entry.encoded());
+        }
+    }
+
+    void writeInstrumentationScope(BsonWriter writer, InstrumentationScopeInfo scope) {
+        TelemetryDocumentFactory.writeEncoded(writer, SCOPE_FIELD, scopes.get(scope).encoded());
+    }
+
+    /** Writes the per-signal {@code attributes} under {@code name}, within the configured attribute limits. */
+    void writeAttributes(BsonWriter writer, String name, Attributes attributes) {
+        TelemetryDocumentFactory.writeAttributes(writer, name, attributes, sanitizer);
+    }
+
+    /** Name of the resources collection, or {@code null} when resources are embedded. */
+    String getResourcesCollectionName() {
+        return isNormalized() ? resourcesCollection.getNamespace().getCollectionName() : null;
+    }
+
+    /**
+     * Makes sure {@code resource} exists in the resources collection before documents referencing it are written.
+     * Does nothing when resources are embedded.
+     */
+    void storeResource(Resource resource) {
+        if (!isNormalized() || resource == lastStoredResource) {
+            return;
+        }
+        ReplaceOneModel<BsonDocument> upsert = resourceUpsert(resource);
+        if (upsert != null) {
+            resourcesCollection.replaceOne(upsert.getFilter(), upsert.getReplacement(), upsert.getReplaceOptions());
+            resourcesStored(List.of(upsert));
+        }
+        lastStoredResource = resource;
+    }
+
+    /**
+     * Upserts of the resources of {@code items} that are not in the resources collection yet, for callers that write
+     * them themselves and then report them through {@link #resourcesStored(List)}. Empty when resources are
+     * embedded.
+     */
+    <T> List<ReplaceOneModel<BsonDocument>> resourceUpserts(Collection<T> items, Function<T, Resource> resourceOf) {
+        if (!isNormalized()) {
+            return List.of();
+        }
+        List<ReplaceOneModel<BsonDocument>> upserts = new ArrayList<>(1);
+        Resource previous = null;
+        for (T item : items) {
+            Resource resource = resourceOf.apply(item);
+            if (resource == previous || resource == lastStoredResource) {
+                continue;
+            }
+            previous = resource;
+            ReplaceOneModel<BsonDocument> upsert = resourceUpsert(resource);
+            if (upsert == null) {
+                lastStoredResource = resource;
+            } else if (upserts.stream().noneMatch(pending -> pending.getReplacement().equals(upsert.getReplacement()))) {
+                upserts.add(upsert);
+            }
+        }
+        return upserts;
+    }
+
+    /** Records that {@code upserts} returned by {@link #resourceUpserts} were written. */
+    void resourcesStored(List<ReplaceOneModel<BsonDocument>> upserts) {
+        for (ReplaceOneModel<BsonDocument> upsert : upserts) {
+            long hash = upsert.getReplacement().getInt64("_id").getValue();
+            storedResources.add(hash);
+            LOGGER.debug("Stored resource {} in the resources collection", hash);
+        }
+    }
+
+    private ReplaceOneModel<BsonDocument> resourceUpsert(Resource resource) {
+        Entry<Resource> entry = resources.get(resource);
+        if (storedResources.contains(entry.hash())) {
+            return null;
+        }
+        BsonDocument document = new BsonDocument("_id", new BsonInt64(entry.hash()));
+        document.putAll(entry.encoded());
+        return new ReplaceOneModel<>(Filters.eq("_id", entry.hash()), document, new ReplaceOptions().upsert(true));
+    }
+
+    static long hash(RawBsonDocument encoded) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            digest.update(encoded.getByteBuffer().asNIO());
+            return ByteBuffer.wrap(digest.digest()).getLong();
+        } catch (NoSuchAlgorithmException exception) {
+            throw new IllegalStateException("SHA-256 is not available", exception);
+        }
+    }
+
+    private record Entry<K>(K key, RawBsonDocument encoded, long hash) {
+    }
+
+    private static final class Slots<K> {
+
+        private final AtomicReferenceArray<Entry<K>> entries;
+        private final int mask;
+        private final Function<K, RawBsonDocument> encoder;
+
+        private Slots(int capacity, Function<K, RawBsonDocument> encoder) {
+            this.entries = new AtomicReferenceArray<>(capacity);
+            this.mask = capacity - 1;
+            this.encoder = encoder;
+        }
+
+        private Entry<K> get(K key) {
+            int index = System.identityHashCode(key) & mask;
+            Entry<K> entry = entries.get(index);
+            if (entry != null && entry.key() == key) {
+                return entry;
+            }
+            RawBsonDocument encoded = encoder.apply(key);
+            Entry<K> created = new Entry<>(key, encoded, hash(encoded));
+            entries.set(index, created);
+            return created;
+        }
+    }
+}
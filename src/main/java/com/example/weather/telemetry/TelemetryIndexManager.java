@@ -0,0 +1,216 @@
+package com.example.weather.telemetry;
+
+import java.io.Closeable;
+import java.time.Duration;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.bson.Document;
+import org.bson.conversions.Bson;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.mongodb.MongoCommandException;
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.MongoDatabase;
+import com.mongodb.client.model.IndexOptions;
+import com.mongodb.client.model.Indexes;
+
+/**
+ * Creates the indexes of the logs, traces and metrics collections and applies the configured retention. Index
+ * creation is idempotent, so it runs on every startup; it happens on a background thread and is retried until
+ * MongoDB accepts it, so a slow build or an unavailable database never delays the application.
+ * <p>
+ * Retention uses a TTL index on the time field of each collection, which MongoDB only honours for BSON dates: it
+ * requires {@link MongoTelemetryProperties.TimestampFormat#DATE} timestamps, which the properties enforce when they
+ * are bound, except for a time-series metrics collection, whose retention is set with {@code expireAfterSeconds} on
+ * the collection itself.
+ */
+class TelemetryIndexManager implements Closeable {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(TelemetryIndexManager.class);
+
+    private static final int INDEX_OPTIONS_CONFLICT_ERROR = 85;
+
+    private static final int INDEX_KEY_SPECS_CONFLICT_ERROR = 86;
+
+    private static final int INDEX_NOT_FOUND_ERROR = 27;
+
+    /** Log field the time index was built on before it moved to {@link LogRecordDataCodec#TIME_FIELD}. */
+    private static final String LEGACY_LOG_TIME_FIELD = "timestamp";
+
+    private final MongoDatabase database;
+    private final MongoTelemetryProperties properties;
+    private final MongoTelemetryProperties.Indexing settings;
+    private final TimestampEncoder timestamps;
+    private final TimeSeriesMetricsCollection timeSeries;
+    private final ScheduledExecutorService executor;
+
+    TelemetryIndexManager(MongoDatabase database, MongoTelemetryProperties properties, TimestampEncoder timestamps,
+            TimeSeriesMetricsCollection timeSeries) {
+        this.database = database;
+        this.properties = properties;
+        this.settings = properties.getIndexing();
+        this.timestamps = timestamps;
+        this.timeSeries = timeSeries;
+        this.executor = TelemetrySchedulers.scheduler("telemetry-indexes");
+    }
+
+    boolean isEnabled() {
+        return settings.isEnabled();
+    }
+
+    /**
+     * Starts creating the indexes in the background, or only the time-series metrics collection when indexing is
+     * disabled; returns immediately.
+     */
+    void start() {
+        if (isEnabled()) {
+            executor.execute(() -> run(this::ensureIndexes));
+        } else if (timeSeries.isEnabled()) {
+            executor.execute(() -> run(timeSeries::ensureCreated));
+        } else {
+            executor.shutdown();
+        }
+    }
+
+    @Override
+    public void close() {
+        executor.shutdownNow();
+    }
+
+    private void run(Runnable task) {
+        try {
+            task.run();
+            executor.shutdown();
+        } catch (Exception exception) {
+            LOGGER.warn("Failed to create the telemetry indexes; retrying in {}", settings.getRetryInterval(),
+                exception);
+            executor.schedule(() -> run(task), settings.getRetryInterval().toNanos(), TimeUnit.NANOSECONDS);
+        }
+    }
+
+    /**
+     * Creates every index and applies retention; safe to call repeatedly. Partitioned collections are left to
+     * {@link TelemetryPartitions}, which indexes each partition when it creates it.
+     */
+    void ensureIndexes() {
+        boolean partitioned = properties.getPartitioning().isEnabled();
+        if (!partitioned) {
+            MongoCollection<Document> logs = database.getCollection(properties.getLogsCollection());
+            dropIndexIfPresent(logs, Indexes.ascending(timestamps.indexPath(LEGACY_LOG_TIME_FIELD)));
+            ensureLogIndexes(logs, settings.getLogsRetention());
+            ensureTraceIndexes(database.getCollection(properties.getTracesCollection()),
+                settings.getTracesRetention());
+        }
+        MongoCollection<Document> metrics = database.getCollection(properties.getMetricsCollection());
+        if (timeSeries.isEnabled()) {
+            timeSeries.ensureCreated();
+            createIndex(metrics, Indexes.ascending(MetricPointCodec.META_FIELD + ".name", MetricPointCodec.TIME_FIELD));
+            expireTimeSeries(metrics, settings.getMetricsRetention());
+        } else if (!partitioned) {
+            ensureMetricIndexes(metrics, settings.getMetricsRetention());
+        }
+        LOGGER.info("Telemetry indexes are in place");
+    }
+
+    /**
+     * Indexes a logs collection. Time and retention use the observed time, as partitioning does: the record
+     * timestamp is optional and a TTL on its zero value would expire the record on the next sweep.
+     */
+    void ensureLogIndexes(MongoCollection<Document> logs, Duration retention) {
+        createIndex(logs, Indexes.ascending("spanContext.traceId", "spanContext.spanId"));
+        createIndex(logs, Indexes.compoundIndex(Indexes.ascending("severityNumber"),
+            Indexes.descending(timestamps.indexPath(LogRecordDataCodec.TIME_FIELD))));
+        createTimeIndex(logs, LogRecordDataCodec.TIME_FIELD, retention);
+    }
+
+    void ensureTraceIndexes(MongoCollection<Document> traces, Duration retention) {
+        createIndex(traces, Indexes.ascending("traceId", "spanId"));
+        createTimeIndex(traces, "start", retention);
+    }
+
+    /** Indexes a metrics collection in the point or packed layout; time-series collections are handled apart. */
+    void ensureMetricIndexes(MongoCollection<Document> metrics, Duration retention) {
+        createIndex(metrics, Indexes.compoundIndex(Indexes.ascending("name"),
+            Indexes.ascending(timestamps.indexPath(MetricPointCodec.TIME_FIELD))));
+        createTimeIndex(metrics, MetricPointCodec.TIME_FIELD, retention);
+    }
+
+    private void createIndex(MongoCollection<Document> collection, Bson keys) {
+        try {
+            collection.createIndex(keys, new IndexOptions().background(true));
+        } catch (MongoCommandException exception) {
+            if (!isConflict(exception)) {
+                throw exception;
+            }
+            LOGGER.warn("Collection {} already has an index on {} with different options; keeping it",
+                name(collection), keys.toBsonDocument());
+        }
+    }
+
+    /**
+     * Indexes the time field {@code field}, as a TTL index when {@code retention} is positive. A TTL index left from
+     * an earlier retention is dropped and rebuilt without it when retention is turned off, since {@code collMod}
+     * can change a TTL but not remove it.
+     */
+    private void createTimeIndex(MongoCollection<Document> collection, String field, Duration retention) {
+        Bson keys = Indexes.ascending(timestamps.indexPath(field));
+        if (!isPositive(retention) || !timestamps.writesDates()) {
+            try {
+                collection.createIndex(keys, new IndexOptions().background(true));
+            } catch (MongoCommandException exception) {
+                if (exception.getErrorCode() != INDEX_OPTIONS_CONFLICT_ERROR) {
+                    throw exception;
+                }
+                collection.dropIndex(keys);
+                collection.createIndex(keys, new IndexOptions().background(true));
+                LOGGER.info("Removed the retention of collection {}", name(collection));
+            }
+            return;
+        }
+        long seconds = retention.toSeconds();
+        try {
+            collection.createIndex(keys, new IndexOptions().background(true).expireAfter(seconds, TimeUnit.SECONDS));
+        } catch (MongoCommandException exception) {
+            if (!isConflict(exception)) {
+                throw exception;
+            }
+            database.runCommand(new Document("collMod", name(collection))
+                .append("index", new Document("keyPattern", keys).append("expireAfterSeconds", seconds)));
+            LOGGER.info("Changed the retention of collection {} to {}", name(collection), retention);
+        }
+    }
+
+    /** Drops an index built by an earlier version, such as a TTL that would keep expiring documents. */
+    private void dropIndexIfPresent(MongoCollection<Document> collection, Bson keys) {
+        try {
+            collection.dropIndex(keys);
+            LOGGER.info("Dropped index {} of collection {}", keys.toBsonDocument(), name(collection));
+        } catch (MongoCommandException exception) {
+            if (exception.getErrorCode() != INDEX_NOT_FOUND_ERROR) {
+                throw exception;
+            }
+        }
+    }
+
+    private void expireTimeSeries(MongoCollection<Document> collection, Duration retention) {
+        if (isPositive(retention)) {
+            database.runCommand(new Document("collMod", name(collection))
+                .append("expireAfterSeconds", retention.toSeconds()));
+        }
+    }
+
+    private static boolean isPositive(Duration retention) {
+        return retention != null && !retention.isZero() && !retention.isNegative();
+    }
+
+    private static boolean isConflict(MongoCommandException exception) {
+        return exception.getErrorCode() == INDEX_OPTIONS_CONFLICT_ERROR
+            || exception.getErrorCode() == INDEX_KEY_SPECS_CONFLICT_ERROR;
+    }
+
+    private static String name(MongoCollection<?> collection) {
+        return collection.getNamespace().getCollectionName();
+    }
+}
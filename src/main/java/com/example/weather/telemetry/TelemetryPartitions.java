@@ -0,0 +1,240 @@
+package com.example.weather.telemetry;
+
+import java.io.Closeable;
+import java.time.DateTimeException;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.ToLongFunction;
+
+import org.bson.Document;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.mongodb.MongoCommandException;
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.MongoDatabase;
+
+/**
+ * Time partitioning of the telemetry collections: each signal is written to one collection per hour or day, named
+ * after the base collection and the UTC start of its bucket ({@code logs_20261017}, {@code logs_2026101714}).
+ * A scheduler creates the current and next partitions with their indexes ahead of time and drops every partition
+ * whose whole bucket is older than the signal's retention, so expiring data is a metadata operation instead of a
+ * stream of TTL deletes.
+ * <p>
+ * A time-series metrics collection is never partitioned: MongoDB already buckets it by time and expires whole
+ * buckets.
+ */
+class TelemetryPartitions implements Closeable {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(TelemetryPartitions.class);
+
+    private static final int NAMESPACE_EXISTS_ERROR = 48;
+
+    private static final int DAY_DIGITS = 8;
+
+    private static final int HOUR_DIGITS = 10;
+
+    private final MongoDatabase database;
+    private final MongoTelemetryProperties properties;
+    private final MongoTelemetryProperties.Partitioning settings;
+    private final TelemetryIndexManager indexes;
+    private final TimeSeriesMetricsCollection timeSeries;
+    private final MongoTelemetryProperties.PartitionPeriod period;
+    private final long periodNanos;
+    private final Set<String> preparedPartitions = ConcurrentHashMap.newKeySet();
+    private final ScheduledExecutorService rotator;
+
+    TelemetryPartitions(MongoDatabase database, MongoTelemetryProperties properties, TelemetryIndexManager indexes,
+            TimeSeriesMetricsCollection timeSeries) {
+        this.database = database;
+        this.properties = properties;
+        this.settings = properties.getPartitioning();
+        this.indexes = indexes;
+        this.timeSeries = timeSeries;
+        this.period = settings.getPeriod();
+        this.periodNanos = switch (period) {
+            case HOURLY -> Duration.ofHours(1).toNanos();
+            case DAILY -> Duration.ofDays(1).toNanos();
+        };
+        this.rotator = TelemetrySchedulers.scheduler("telemetry-partitions");
+    }
+
+    boolean isEnabled() {
+        return settings.isEnabled();
+    }
+
+    boolean isPartitioned(String baseName) {
+        return isEnabled() && !(timeSeries.isEnabled() && baseName.equals(properties.getMetricsCollection()));
+    }
+
+    long bucketOf(long epochNanos) {
+        return Math.floorDiv(epochNanos, periodNanos);
+    }
+
+    String partitionName(String baseName, long bucket) {
+        LocalDateTime start = LocalDateTime.ofEpochSecond(bucket * (periodNanos / 1_000_000_000L), 0, ZoneOffset.UTC);
+        String day = start.format(DateTimeFormatter.BASIC_ISO_DATE);
+        return switch (period) {
+            case HOURLY -> baseName + "_" + day + String.format("%02d", start.getHour());
+            case DAILY -> baseName + "_" + day;
+        };
+    }
+
+    /**
+     * Collections holding the data written to {@code baseName}: itself, or its partitions from newest to oldest,
+     * leaving out those whose whole bucket ended before {@code sinceEpochNanos}.
+     */
+    List<String> collectionNames(String baseName, long sinceEpochNanos) {
+        if (!isPartitioned(baseName)) {
+            return List.of(baseName);
+        }
+        List<String> names = new ArrayList<>();
+        for (String name : database.listCollectionNames().into(new ArrayList<>())) {
+            long endNanos = partitionEndNanos(baseName, name);
+            if (endNanos != Long.MAX_VALUE && endNanos > sinceEpochNanos) {
+                names.add(name);
+            }
+        }
+        names.sort(Comparator.comparingLong((String name) -> partitionEndNanos(baseName, name)).reversed());
+        return names;
+    }
+
+    /** Routes items written to {@code base} to the partition matching the time returned by {@code epochNanos}. */
+    <T, D> PartitionRouter<T, MongoCollection<D>> router(MongoCollection<D> base,
+            ToLongFunction<? super T> epochNanos) {
+        return new PartitionRouter<>(base, base.getNamespace().getCollectionName(), this,
+            name -> database.getCollection(name, base.getDocumentClass()).withCodecRegistry(base.getCodecRegistry()),
+            epochNanos);
+    }
+
+    <T, D> PartitionRouter<T, com.mongodb.reactivestreams.client.MongoCollection<D>> router(
+            com.mongodb.reactivestreams.client.MongoDatabase reactiveDatabase,
+            com.mongodb.reactivestreams.client.MongoCollection<D> base, ToLongFunction<? super T> epochNanos) {
+        return new PartitionRouter<>(base, base.getNamespace().getCollectionName(), this,
+            name -> reactiveDatabase.getCollection(name, base.getDocumentClass())
+                .withCodecRegistry(base.getCodecRegistry()),
+            epochNanos);
+    }
+
+    /** Starts rotating partitions in the background; returns immediately. */
+    void start() {
+        if (!isEnabled()) {
+            rotator.shutdown();
+            return;
+        }
+        long intervalNanos = settings.getRotationInterval().toNanos();
+        rotator.scheduleWithFixedDelay(this::rotate, 0, intervalNanos, TimeUnit.NANOSECONDS);
+    }
+
+    @Override
+    public void close() {
+        rotator.shutdownNow();
+    }
+
+    private void rotate() {
+        try {
+            rotate(System.currentTimeMillis() * 1_000_000L);
+        } catch (Exception exception) {
+            LOGGER.warn("Failed to rotate the telemetry partitions; retrying in {}", settings.getRotationInterval(),
+                exception);
+        }
+    }
+
+    /** Prepares the partitions for {@code nowNanos} and the next bucket, then drops the expired ones. */
+    void rotate(long nowNanos) {
+        List<String> existing = database.listCollectionNames().into(new ArrayList<>());
+        for (Signal signal : signals()) {
+            if (!isPartitioned(signal.baseName())) {
+                continue;
+            }
+            long bucket = bucketOf(nowNanos);
+            prepare(signal, partitionName(signal.baseName(), bucket));
+            prepare(signal, partitionName(signal.baseName(), bucket + 1));
+            dropExpired(signal, existing, nowNanos);
+        }
+    }
+
+    private List<Signal> signals() {
+        MongoTelemetryProperties.Indexing indexing = properties.getIndexing();
+        return List.of(
+            new Signal(properties.getLogsCollection(), indexing.getLogsRetention(),
+                collection -> indexes.ensureLogIndexes(collection, Duration.ZERO)),
+            new Signal(properties.getTracesCollection(), indexing.getTracesRetention(),
+                collection -> indexes.ensureTraceIndexes(collection, Duration.ZERO)),
+            new Signal(properties.getMetricsCollection(), indexing.getMetricsRetention(),
+                collection -> indexes.ensureMetricIndexes(collection, Duration.ZERO)));
+    }
+
+    private void prepare(Signal signal, String name) {
+        if (preparedPartitions.contains(name)) {
+            return;
+        }
+        try {
+            database.createCollection(name);
+            LOGGER.info("Created telemetry partition {}", name);
+        } catch (MongoCommandException exception) {
+            if (exception.getErrorCode() != NAMESPACE_EXISTS_ERROR) {
+                throw exception;
+            }
+        }
+        if (indexes.isEnabled()) {
+            signal.createIndexes().accept(database.getCollection(name));
+        }
+        preparedPartitions.add(name);
+    }
+
+    private void dropExpired(Signal signal, List<String> existing, long nowNanos) {
+        if (signal.retention().isZero() || signal.retention().isNegative()) {
+            return;
+        }
+        long cutoffNanos = nowNanos - signal.retention().toNanos();
+        for (String name : existing) {
+            long endNanos = partitionEndNanos(signal.baseName(), name);
+            if (endNanos != Long.MAX_VALUE && endNanos <= cutoffNanos) {
+                database.getCollection(name).drop();
+                preparedPartitions.remove(name);
+                LOGGER.info("Dropped telemetry partition {} past the {} retention", name, signal.retention());
+            }
+        }
+    }
+
+    /**
+     * End of the bucket held by collection {@code name}, or {@link Long#MAX_VALUE} when it is not a partition of
+     * {@code baseName}. Both daily and hourly names are recognised, so changing the period keeps expiring the
+     * partitions written before the change.
+     */
+    static long partitionEndNanos(String baseName, String name) {
+        String prefix = baseName + "_";
+        if (!name.startsWith(prefix)) {
+            return Long.MAX_VALUE;
+        }
+        String suffix = name.substring(prefix.length());
+        boolean digits = suffix.chars().allMatch(Character::isDigit);
+        if (!digits || (suffix.length() != DAY_DIGITS && suffix.length() != HOUR_DIGITS)) {
+            return Long.MAX_VALUE;
+        }
+        try {
+            LocalDate day = LocalDate.parse(suffix.substring(0, DAY_DIGITS), DateTimeFormatter.BASIC_ISO_DATE);
+            LocalDateTime end = suffix.length() == DAY_DIGITS
+                ? day.plusDays(1).atStartOfDay()
+                : day.atTime(Integer.parseInt(suffix.substring(DAY_DIGITS)), 0).plusHours(1);
+            return TimeUnit.SECONDS.toNanos(end.toEpochSecond(ZoneOffset.UTC));
+        } catch (DateTimeException exception) {
+            return Long.MAX_VALUE;
+        }
+    }
+
+    private record Signal(String baseName, Duration retention, Consumer<MongoCollection<Document>> createIndexes) {
+    }
+}
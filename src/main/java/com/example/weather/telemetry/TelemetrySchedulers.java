@@ -0,0 +1,36 @@
+package com.example.weather.telemetry;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import com.example.weather.config.VirtualThreads;
+
+/**
+ * Single-thread schedulers for the pipeline's background work (index creation, partition rotation, spool replay and
+ * the sweeps of the span and log processors), each on one named daemon platform thread so it never keeps the JVM up.
+ */
+final class TelemetrySchedulers {
+
+    private static final long MIN_SWEEP_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
+
+    private static final long MAX_SWEEP_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+    private TelemetrySchedulers() {
+    }
+
+    static ScheduledExecutorService scheduler(String name) {
+        return Executors.newSingleThreadScheduledExecutor(VirtualThreads.factory(name, false));
+    }
+
+    /**
+     * Runs {@code sweep} every half {@code windowNanos}, between 100 ms and 1 s, so whatever the sweep releases waits
+     * at most half a window past its deadline without short windows spinning the thread.
+     */
+    static ScheduledExecutorService sweeper(String name, long windowNanos, Runnable sweep) {
+        ScheduledExecutorService sweeper = scheduler(name);
+        long sweepNanos = Math.max(MIN_SWEEP_NANOS, Math.min(windowNanos / 2, MAX_SWEEP_NANOS));
+        sweeper.scheduleWithFixedDelay(sweep, sweepNanos, sweepNanos, TimeUnit.NANOSECONDS);
+        return sweeper;
+    }
+}
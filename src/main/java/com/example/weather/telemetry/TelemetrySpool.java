@@ -0,0 +1,361 @@
+package com.example.weather.telemetry;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+import org.bson.BsonBinaryWriter;
+import org.bson.RawBsonDocument;
+import org.bson.codecs.Encoder;
+import org.bson.codecs.EncoderContext;
+import org.bson.io.BasicOutputBuffer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.mongodb.client.MongoCollection;
+
+import io.opentelemetry.sdk.common.CompletableResultCode;
+
+/**
+ * Write-ahead spool that keeps telemetry on local disk while MongoDB cannot take it. Items are encoded with the same
+ * codec the exporter uses and appended to memory-mapped segment files as {@code [length][crc32][bson]} records, so
+ * spooled data lives in the page cache rather than on the heap. A background thread replays sealed segments into
+ * the collection once inserts succeed again and deletes each segment after it has been written.
+ * <p>
+ * Disk usage is bounded by {@code max-size}: when a new segment would exceed it, the oldest segment is deleted. A
+ * record whose checksum does not match, such as one torn by a crash, ends the replay of its segment. Replay is
+ * at-least-once; a batch that fails halfway may be inserted twice.
+ */
+class TelemetrySpool<T> implements Closeable {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(TelemetrySpool.class);
+
+    private static final String SEGMENT_SUFFIX = ".seg";
+
+    private static final int RECORD_HEADER_BYTES = 2 * Integer.BYTES;
+
+    private static final int MIN_SEGMENT_BYTES = 64 * 1024;
+
+    private static final EncoderContext ENCODER_CONTEXT = EncoderContext.builder().build();
+
+    private final boolean enabled;
+    private final Encoder<T> encoder;
+    private final PartitionRouter<RawBsonDocument, MongoCollection<RawBsonDocument>> collections;
+    private final String name;
+    private final Path directory;
+    private final int segmentBytes;
+    private final int maxSegments;
+    private final int replayBatchSize;
+    private final Runnable prepareCollection;
+    /** Guards the segments; unlike a monitor it does not pin a virtual thread through mmap writes and rolls. */
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Deque<Path> sealedSegments = new ArrayDeque<>();
+    private final BasicOutputBuffer encodeBuffer = new BasicOutputBuffer();
+    private final CRC32 checksum = new CRC32();
+    private final AtomicLong evictedSegments = new AtomicLong();
+    private final ScheduledExecutorService replayer;
+    private Segment activeSegment;
+    private long nextSequence;
+    private volatile boolean backlogged;
+    private Path replayingSegment;
+    private int replayOffset;
+
+    TelemetrySpool(Encoder<T> encoder, MongoCollection<?> collection, MongoTelemetryProperties.Spool settings) {
+        this(encoder, collection, settings, () -> {
+        });
+    }
+
+    /**
+     * @param prepareCollection run before each replay, for collections that must be set up before the first insert
+     */
+    TelemetrySpool(Encoder<T> encoder, MongoCollection<?> collection, MongoTelemetryProperties.Spool settings,
+            Runnable prepareCollection) {
+        this(encoder, PartitionRouter.unpartitioned(collection.withDocumentClass(RawBsonDocument.class),
+            collection.getNamespace().getCollectionName()), settings, prepareCollection);
+    }
+
+    /**
+     * @param collections routes replayed documents to the collection, or to its time partitions
+     */
+    TelemetrySpool(Encoder<T> encoder, PartitionRouter<RawBsonDocument, MongoCollection<RawBsonDocument>> collections,
+            MongoTelemetryProperties.Spool settings, Runnable prepareCollection) {
+        this.prepareCollection = prepareCollection;
+        this.enabled = settings.isEnabled();
+        this.encoder = encoder;
+        this.collections = collections;
+        this.name = collections.baseName();
+        this.directory = Path.of(settings.getDirectory()).resolve(name);
+        this.segmentBytes = (int) Math.min(Integer.MAX_VALUE,
+            Math.max(MIN_SEGMENT_BYTES, settings.getSegmentSize().toBytes()));
+        this.maxSegments = (int) Math.max(2, settings.getMaxSize().toBytes() / segmentBytes);
+        this.replayBatchSize = Math.max(1, settings.getReplayBatchSize());
+        if (!enabled) {
+            this.replayer = null;
+            return;
+        }
+        recoverSegments();
+        this.replayer = TelemetrySchedulers.scheduler("telemetry-spool-" + name);
+        long intervalNanos = settings.getReplayInterval().toNanos();
+        replayer.scheduleWithFixedDelay(this::replay, intervalNanos, intervalNanos, TimeUnit.NANOSECONDS);
+    }
+
+    boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Whether items are waiting on disk. Exporters then append new items behind them instead of trying the
+     * database, which keeps the original order and avoids a round of connection timeouts per batch.
+     */
+    boolean isBacklogged() {
+        return backlogged;
+    }
+
+    long getEvictedSegments() {
+        return evictedSegments.get();
+    }
+
+    /** Appends {@code items} to the spool; fails when the spool is disabled or the disk write fails. */
+    CompletableResultCode append(Collection<? extends T> items) {
+        if (!enabled) {
+            return CompletableResultCode.ofFailure();
+        }
+        lock.lock();
+        try {
+            for (T item : items) {
+                encodeBuffer.truncateToPosition(0);
+                encoder.encode(new BsonBinaryWriter(encodeBuffer), item, ENCODER_CONTEXT);
+                writeRecord(encodeBuffer.getInternalBuffer(), encodeBuffer.getPosition());
+            }
+            backlogged = true;
+            LOGGER.debug("Spooled {} {} to {}", items.size(), name, directory);
+            return CompletableResultCode.ofSuccess();
+        } catch (IOException | RuntimeException exception) {
+            LOGGER.error("Failed to spool {} {} to {}", items.size(), name, directory, exception);
+            return CompletableResultCode.ofFailure();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Replays sealed segments, oldest first, until the spool is empty or an insert fails. Runs on the replayer
+     * thread; package-private so it can be driven directly.
+     */
+    void replay() {
+        try {
+            Path segment;
+            while ((segment = nextSegmentToReplay()) != null) {
+                prepareCollection.run();
+                replaySegment(segment);
+                lock.lock();
+                try {
+                    sealedSegments.remove(segment);
+                    replayingSegment = null;
+                } finally {
+                    lock.unlock();
+                }
+                Files.deleteIfExists(segment);
+                LOGGER.info("Replayed spooled {} from {}", name, segment.getFileName());
+            }
+        } catch (Exception exception) {
+            LOGGER.debug("MongoDB is still unavailable; {} remain spooled", name, exception);
+        }
+    }
+
+    @Override
+    public void close() {
+        if (!enabled) {
+            return;
+        }
+        replayer.shutdownNow();
+        lock.lock();
+        try {
+            if (activeSegment != null) {
+                try {
+                    activeSegment.close();
+                } catch (IOException exception) {
+                    LOGGER.warn("Failed to close spool segment {}", activeSegment.path(), exception);
+                }
+                activeSegment = null;
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void recoverSegments() {
+        try {
+            Files.createDirectories(directory);
+            try (Stream<Path> files = Files.list(directory)) {
+                files.filter(file -> file.getFileName().toString().endsWith(SEGMENT_SUFFIX))
+                    .sorted()
+                    .forEach(sealedSegments::addLast);
+            }
+        } catch (IOException exception) {
+            throw new IllegalStateException("Cannot open telemetry spool directory " + directory, exception);
+        }
+        if (!sealedSegments.isEmpty()) {
+            String last = sealedSegments.peekLast().getFileName().toString();
+            nextSequence = Long.parseLong(last.substring(0, last.length() - SEGMENT_SUFFIX.length())) + 1;
+            backlogged = true;
+            LOGGER.info("Found {} spooled {} segments in {}", sealedSegments.size(), name, directory);
+        }
+        evictOldestSegments(maxSegments);
+    }
+
+    private void writeRecord(byte[] bytes, int length) throws IOException {
+        int recordBytes = RECORD_HEADER_BYTES + length;
+        if (recordBytes > segmentBytes) {
+            LOGGER.warn("Skipping a {} document of {} bytes that is larger than a spool segment", name, length);
+            return;
+        }
+        if (activeSegment == null || activeSegment.buffer().remaining() < recordBytes) {
+            rollSegment();
+        }
+        checksum.reset();
+        checksum.update(bytes, 0, length);
+        activeSegment.buffer()
+            .putInt(length)
+            .putInt((int) checksum.getValue())
+            .put(bytes, 0, length);
+    }
+
+    private void rollSegment() throws IOException {
+        sealActiveSegment();
+        evictOldestSegments(maxSegments - 1);
+        Path path = directory.resolve(String.format("%020d%s", nextSequence++, SEGMENT_SUFFIX));
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE_NEW, StandardOpenOption.READ,
+                StandardOpenOption.WRITE)) {
+            activeSegment = new Segment(path, channel.map(FileChannel.MapMode.READ_WRITE, 0, segmentBytes));
+        }
+    }
+
+    private void sealActiveSegment() throws IOException {
+        if (activeSegment == null) {
+            return;
+        }
+        activeSegment.close();
+        if (activeSegment.buffer().position() > 0) {
+            sealedSegments.addLast(activeSegment.path());
+        }
+        activeSegment = null;
+    }
+
+    private void evictOldestSegments(int allowed) {
+        while (sealedSegments.size() > allowed) {
+            Path oldest = sealedSegments.pollFirst();
+            if (oldest.equals(replayingSegment)) {
+                replayingSegment = null;
+                replayOffset = 0;
+            }
+            try {
+                Files.deleteIfExists(oldest);
+            } catch (IOException exception) {
+                LOGGER.warn("Failed to delete spool segment {}", oldest, exception);
+            }
+            evictedSegments.incrementAndGet();
+            LOGGER.warn("Spool for {} is full; discarded the oldest segment {}", name, oldest.getFileName());
+        }
+    }
+
+    private Path nextSegmentToReplay() throws IOException {
+        lock.lock();
+        try {
+            if (sealedSegments.isEmpty()) {
+                if (activeSegment == null || activeSegment.buffer().position() == 0) {
+                    backlogged = false;
+                    return null;
+                }
+                sealActiveSegment();
+            }
+            Path segment = sealedSegments.peekFirst();
+            if (!segment.equals(replayingSegment)) {
+                replayingSegment = segment;
+                replayOffset = 0;
+            }
+            return segment;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void replaySegment(Path segment) throws IOException {
+        MappedByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.READ)) {
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+        CRC32 crc = new CRC32();
+        List<RawBsonDocument> batch = new ArrayList<>(replayBatchSize);
+        int position = replayOffset;
+        while (position + RECORD_HEADER_BYTES <= buffer.limit()) {
+            int length = buffer.getInt(position);
+            if (length == 0) {
+                break;
+            }
+            int expectedChecksum = buffer.getInt(position + Integer.BYTES);
+            int end = position + RECORD_HEADER_BYTES + length;
+            if (length < 0 || end > buffer.limit()) {
+                LOGGER.warn("Truncated record at offset {} of spool segment {}", position, segment.getFileName());
+                break;
+            }
+            byte[] bytes = new byte[length];
+            buffer.get(position + RECORD_HEADER_BYTES, bytes);
+            crc.reset();
+            crc.update(bytes);
+            if ((int) crc.getValue() != expectedChecksum) {
+                LOGGER.warn("Checksum mismatch at offset {} of spool segment {}; skipping the rest of it", position,
+                    segment.getFileName());
+                break;
+            }
+            batch.add(new RawBsonDocument(bytes));
+            position = end;
+            if (batch.size() == replayBatchSize) {
+                insertReplayed(batch, position);
+            }
+        }
+        insertReplayed(batch, position);
+    }
+
+    private void insertReplayed(List<RawBsonDocument> batch, int position) {
+        if (!batch.isEmpty()) {
+            for (Map.Entry<MongoCollection<RawBsonDocument>, List<RawBsonDocument>> partition
+                    : collections.route(new ArrayList<>(batch)).entrySet()) {
+                partition.getKey().insertMany(partition.getValue());
+            }
+            batch.clear();
+        }
+        lock.lock();
+        try {
+            replayOffset = position;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private record Segment(Path path, MappedByteBuffer buffer) {
+
+        private void close() throws IOException {
+            buffer.force();
+            if (buffer.position() == 0) {
+                Files.deleteIfExists(path);
+            }
+        }
+    }
+}
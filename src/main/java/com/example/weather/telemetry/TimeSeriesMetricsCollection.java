@@ -0,0 +1,89 @@
+package com.example.weather.telemetry;
+
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.bson.Document;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.mongodb.MongoCommandException;
+import com.mongodb.client.MongoDatabase;
+import com.mongodb.client.model.CreateCollectionOptions;
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.TimeSeriesOptions;
+
+/**
+ * Creates the metrics collection as a MongoDB time-series collection, with {@link MetricPointCodec#TIME_FIELD} as
+ * time field and {@link MetricPointCodec#META_FIELD} as meta field. The {@link TelemetryIndexManager} creates it in
+ * the background at startup, and the synchronous exporter and the spool replayer make sure it exists before they
+ * write, so that the collection is never created implicitly as a regular one and a database that is down at startup
+ * does not delay the application. The reactive exporter never waits for it: it spools points until it is ready.
+ */
+class TimeSeriesMetricsCollection {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(TimeSeriesMetricsCollection.class);
+
+    private static final int NAMESPACE_EXISTS_ERROR = 48;
+
+    private final MongoDatabase database;
+    private final String collectionName;
+    private final MongoTelemetryProperties.TimeSeries settings;
+    /** Guards creation, which talks to MongoDB; unlike a monitor it does not pin a virtual thread while waiting. */
+    private final ReentrantLock lock = new ReentrantLock();
+    private volatile boolean ready;
+
+    TimeSeriesMetricsCollection(MongoDatabase database, String collectionName,
+            MongoTelemetryProperties.TimeSeries settings) {
+        this.database = database;
+        this.collectionName = collectionName;
+        this.settings = settings;
+        this.ready = !settings.isEnabled();
+    }
+
+    boolean isEnabled() {
+        return settings.isEnabled();
+    }
+
+    /** Whether metric points can be written without creating the collection first. */
+    boolean isReady() {
+        return ready;
+    }
+
+    /** Creates the collection unless it already exists; cheap once it has succeeded. */
+    void ensureCreated() {
+        if (ready) {
+            return;
+        }
+        lock.lock();
+        try {
+            if (ready) {
+                return;
+            }
+            Document existing = database.listCollections().filter(Filters.eq("name", collectionName)).first();
+            if (existing == null) {
+                create();
+            } else if (!"timeseries".equals(existing.getString("type"))) {
+                LOGGER.warn("Collection {} already exists as a regular collection; metric points are written in the "
+                    + "time-series layout but without time-series storage", collectionName);
+            }
+            ready = true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void create() {
+        TimeSeriesOptions options = new TimeSeriesOptions(MetricPointCodec.TIME_FIELD)
+            .metaField(MetricPointCodec.META_FIELD)
+            .granularity(settings.getGranularity());
+        try {
+            database.createCollection(collectionName, new CreateCollectionOptions().timeSeriesOptions(options));
+            LOGGER.info("Created time-series collection {} with {} granularity", collectionName,
+                settings.getGranularity());
+        } catch (MongoCommandException exception) {
+            if (exception.getErrorCode() != NAMESPACE_EXISTS_ERROR) {
+                throw exception;
+            }
+        }
+    }
+}
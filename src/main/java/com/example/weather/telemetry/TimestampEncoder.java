@@ -0,0 +1,102 @@
+package com.example.weather.telemetry;
+
+import java.time.Instant;
+
+import org.bson.BsonDocument;
+import org.bson.BsonValue;
+import org.bson.BsonWriter;
+
+/**
+ * Writes telemetry timestamps in the configured {@link MongoTelemetryProperties.TimestampFormat} and reads them back
+ * from documents written in any of the formats, so collections holding a mix of layouts remain readable.
+ */
+final class TimestampEncoder {
+
+    static final String NANOS_SUFFIX = "Nanos";
+
+    static final String ISO_SUFFIX = "Iso";
+
+    private static final long NANOS_PER_SECOND = 1_000_000_000L;
+
+    private static final long NANOS_PER_MILLI = 1_000_000L;
+
+    private final MongoTelemetryProperties.TimestampFormat format;
+    private final boolean includeIso;
+
+    TimestampEncoder(MongoTelemetryProperties.TimestampFormat format, boolean includeIso) {
+        this.format = format;
+        this.includeIso = includeIso;
+    }
+
+    void write(BsonWriter writer, String name, long epochNanos) {
+        switch (format) {
+            case DOCUMENT -> {
+                writer.writeStartDocument(name);
+                writer.writeInt64("epochSeconds", epochNanos / NANOS_PER_SECOND);
+                writer.writeInt64("epochNanos", epochNanos);
+                if (includeIso) {
+                    writer.writeString("iso", toIso(epochNanos));
+                }
+                writer.writeEndDocument();
+            }
+            case DATE -> writeDate(writer, name, epochNanos);
+            case EPOCH_NANOS -> {
+                writer.writeInt64(name, epochNanos);
+                if (includeIso) {
+                    writer.writeString(name + ISO_SUFFIX, toIso(epochNanos));
+                }
+            }
+        }
+    }
+
+    /**
+     * Writes the {@link MongoTelemetryProperties.TimestampFormat#DATE} layout regardless of the configured format,
+     * for fields that MongoDB requires to be a BSON date.
+     */
+    void writeDate(BsonWriter writer, String name, long epochNanos) {
+        writer.writeDateTime(name, Math.floorDiv(epochNanos, NANOS_PER_MILLI));
+        writer.writeInt32(name + NANOS_SUFFIX, (int) Math.floorMod(epochNanos, NANOS_PER_MILLI));
+        if (includeIso) {
+            writer.writeString(name + ISO_SUFFIX, toIso(epochNanos));
+        }
+    }
+
+    /** Path of the sortable part of the timestamp stored under {@code name}, for indexes and range queries. */
+    String indexPath(String name) {
+        return format == MongoTelemetryProperties.TimestampFormat.DOCUMENT ? name + ".epochNanos" : name;
+    }
+
+    /** Whether timestamps are written as BSON dates, the only type a TTL index expires. */
+    boolean writesDates() {
+        return format == MongoTelemetryProperties.TimestampFormat.DATE;
+    }
+
+    /**
+     * Reads the timestamp stored under {@code name} in any supported format.
+     *
+     * @throws IllegalArgumentException if the field is missing or is not a recognised timestamp
+     */
+    static long readEpochNanos(BsonDocument document, String name) {
+        BsonValue value = document.get(name);
+        if (value == null) {
+            throw new IllegalArgumentException("Missing timestamp field " + name);
+        }
+        if (value.isDocument() && value.asDocument().isNumber("epochNanos")) {
+            return value.asDocument().getNumber("epochNanos").longValue();
+        }
+        if (value.isDateTime()) {
+            long nanos = value.asDateTime().getValue() * NANOS_PER_MILLI;
+            BsonValue remainder = document.get(name + NANOS_SUFFIX);
+            return remainder != null && remainder.isNumber() ? nanos + remainder.asNumber().longValue() : nanos;
+        }
+        if (value.isInt64()) {
+            return value.asInt64().getValue();
+        }
+        throw new IllegalArgumentException("Unsupported timestamp representation for field " + name);
+    }
+
+    private static String toIso(long epochNanos) {
+        long seconds = Math.floorDiv(epochNanos, NANOS_PER_SECOND);
+        return Instant.ofEpochSecond(seconds, Math.floorMod(epochNanos, NANOS_PER_SECOND)).toString();
+    }
+}
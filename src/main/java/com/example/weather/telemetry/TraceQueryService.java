@@ -0,0 +1,120 @@
+package com.example.weather.telemetry;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+
+import org.bson.BsonDocument;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.mongodb.client.MongoCursor;
+import com.mongodb.client.MongoDatabase;
+import com.mongodb.client.model.Filters;
+
+/**
+ * Reads a trace back from the traces collection, or from its time partitions, through the {@code traceId} index,
+ * feeding the cursor straight into a {@link TraceTree}. Partitions are read from newest to oldest, only those
+ * overlapping {@code lookback}, and the scan stops one partition after the first that holds spans of the trace, as
+ * a trace only straddles a partition boundary when it was running at that moment. Recently requested traces are kept in
+ * a small LRU cache for {@code cache-ttl}, so repeated lookups during an incident do not hit MongoDB while spans of
+ * a trace still being written show up after a short delay.
+ */
+public class TraceQueryService {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(TraceQueryService.class);
+
+    private final MongoDatabase database;
+    private final String tracesCollection;
+    private final String resourcesCollection;
+    private final TelemetryPartitions partitions;
+    private final long lookbackNanos;
+    private final int cacheSize;
+    private final long cacheTtlNanos;
+    private final Map<String, CachedTrace> cache;
+
+    TraceQueryService(MongoDatabase database, MongoTelemetryProperties properties, TelemetryPartitions partitions) {
+        this.database = database;
+        this.tracesCollection = properties.getTracesCollection();
+        this.resourcesCollection = properties.getResourcesCollection();
+        this.partitions = partitions;
+        this.lookbackNanos = properties.getTraceQuery().getLookback().toNanos();
+        this.cacheSize = Math.max(0, properties.getTraceQuery().getCacheSize());
+        this.cacheTtlNanos = properties.getTraceQuery().getCacheTtl().toNanos();
+        this.cache = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, CachedTrace> eldest) {
+                return size() > cacheSize;
+            }
+        };
+    }
+
+    /** Returns the spans of {@code traceId} as a tree, or an empty result when none is stored. */
+    public Optional<TraceTree> findTrace(String traceId) {
+        long now = System.nanoTime();
+        synchronized (cache) {
+            CachedTrace cached = cache.get(traceId);
+            if (cached != null && now - cached.loadedAt() < cacheTtlNanos) {
+                return Optional.of(cached.tree());
+            }
+        }
+        TraceTree tree = load(traceId);
+        if (tree == null) {
+            return Optional.empty();
+        }
+        if (cacheSize > 0) {
+            synchronized (cache) {
+                cache.put(traceId, new CachedTrace(tree, now));
+            }
+        }
+        return Optional.of(tree);
+    }
+
+    private TraceTree load(String traceId) {
+        TraceTree.Assembler assembler = new TraceTree.Assembler(traceId);
+        long sinceNanos = lookbackNanos > 0 ? System.currentTimeMillis() * 1_000_000L - lookbackNanos : Long.MIN_VALUE;
+        boolean found = false;
+        for (String collection : partitions.collectionNames(tracesCollection, sinceNanos)) {
+            int spans = read(collection, traceId, assembler);
+            if (found) {
+                break;
+            }
+            found = spans > 0;
+        }
+        TraceTree tree = assembler.build();
+        if (tree != null && !tree.getResourceIds().isEmpty()) {
+            tree.resolveResources(loadResources(tree));
+        }
+        return tree;
+    }
+
+    /** Adds the spans of {@code traceId} stored in {@code collection} to {@code assembler}; returns how many. */
+    private int read(String collection, String traceId, TraceTree.Assembler assembler) {
+        int spans = 0;
+        try (MongoCursor<BsonDocument> cursor = database.getCollection(collection, BsonDocument.class)
+                .find(Filters.eq("traceId", traceId)).iterator()) {
+            while (cursor.hasNext()) {
+                assembler.add(cursor.next());
+                spans++;
+            }
+        }
+        return spans;
+    }
+
+    private Map<Long, BsonDocument> loadResources(TraceTree tree) {
+        Map<Long, BsonDocument> resources = new HashMap<>();
+        for (BsonDocument resource : database.getCollection(resourcesCollection, BsonDocument.class)
+                .find(Filters.in("_id", tree.getResourceIds()))) {
+            resources.put(resource.getInt64("_id").getValue(), resource);
+        }
+        if (resources.size() < tree.getResourceIds().size()) {
+            LOGGER.debug("Trace {} references {} resources missing from {}", tree.getTraceId(),
+                tree.getResourceIds().size() - resources.size(), resourcesCollection);
+        }
+        return resources;
+    }
+
+    private record CachedTrace(TraceTree tree, long loadedAt) {
+    }
+}
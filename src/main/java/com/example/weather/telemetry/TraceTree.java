@@ -0,0 +1,224 @@
+package com.example.weather.telemetry;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.bson.BsonDocument;
+import org.bson.BsonString;
+import org.bson.BsonValue;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+
+/**
+ * Spans of one trace arranged as a parent/child tree. The tree is built in a single pass over the spans as they
+ * come from the cursor: each span is linked to its parent if already seen, and otherwise waits for the parent to
+ * show up. Spans whose parent is not stored, such as the entry span of a trace continued from another service, are
+ * roots. {@link #writeTo(OutputStream)} streams the tree as JSON without building the response in memory.
+ */
+public final class TraceTree {
+
+    private static final JsonFactory JSON = new JsonFactory();
+
+    private static final String INVALID_SPAN_ID = "0000000000000000";
+
+    private static final BsonString INVALID_SPAN_ID_VALUE = new BsonString(INVALID_SPAN_ID);
+
+    private static final Comparator<Node> BY_START = Comparator.comparingLong(Node::start);
+
+    /** Span fields rendered apart from the generic copy of the stored document. */
+    private static final Set<String> OMITTED_FIELDS = Set.of("_id", "traceId", "spanId", "parentSpanId",
+        TelemetryFragmentCache.RESOURCE_REFERENCE_FIELD);
+
+    private final String traceId;
+    private final List<Node> roots;
+    private final int spanCount;
+    private final Set<Long> resourceIds;
+    private Map<Long, BsonDocument> resources = Map.of();
+
+    private TraceTree(String traceId, List<Node> roots, int spanCount, Set<Long> resourceIds) {
+        this.traceId = traceId;
+        this.roots = roots;
+        this.spanCount = spanCount;
+        this.resourceIds = resourceIds;
+    }
+
+    /** Builds the tree of {@code spans}; returns {@code null} when there are none. */
+    static TraceTree assemble(String traceId, Iterable<? extends BsonDocument> spans) {
+        Assembler assembler = new Assembler(traceId);
+        for (BsonDocument span : spans) {
+            assembler.add(span);
+        }
+        return assembler.build();
+    }
+
+    public String getTraceId() {
+        return traceId;
+    }
+
+    public int getSpanCount() {
+        return spanCount;
+    }
+
+    /** Ids of the normalized resources the spans reference. */
+    Set<Long> getResourceIds() {
+        return resourceIds;
+    }
+
+    /** Supplies the documents of normalized resources, rendered in place of each span's {@code resourceId}. */
+    void resolveResources(Map<Long, BsonDocument> resources) {
+        this.resources = resources;
+    }
+
+    public void writeTo(OutputStream output) throws IOException {
+        try (JsonGenerator json = JSON.createGenerator(output, JsonEncoding.UTF8)) {
+            json.writeStartObject();
+            json.writeStringField("traceId", traceId);
+            json.writeNumberField("spanCount", spanCount);
+            json.writeArrayFieldStart("spans");
+            for (Node root : roots) {
+                writeNode(json, root);
+            }
+            json.writeEndArray();
+            json.writeEndObject();
+        }
+    }
+
+    private void writeNode(JsonGenerator json, Node node) throws IOException {
+        BsonDocument span = node.span();
+        json.writeStartObject();
+        json.writeStringField("spanId", span.getString("spanId").getValue());
+        json.writeStringField("parentSpanId", span.getString("parentSpanId", INVALID_SPAN_ID_VALUE).getValue());
+        json.writeNumberField("startEpochNanos", node.start());
+        json.writeNumberField("endEpochNanos", node.end());
+        json.writeNumberField("durationNanos", node.end() - node.start());
+        for (Map.Entry<String, BsonValue> field : span.entrySet()) {
+            if (!OMITTED_FIELDS.contains(field.getKey()) && !isTimeField(field.getKey())) {
+                json.writeFieldName(field.getKey());
+                writeValue(json, field.getValue());
+            }
+        }
+        if (span.isInt64(TelemetryFragmentCache.RESOURCE_REFERENCE_FIELD)) {
+            long resourceId = span.getInt64(TelemetryFragmentCache.RESOURCE_REFERENCE_FIELD).getValue();
+            BsonDocument resource = resources.get(resourceId);
+            if (resource != null) {
+                json.writeFieldName(TelemetryFragmentCache.RESOURCE_FIELD);
+                writeValue(json, resource);
+            } else {
+                json.writeNumberField(TelemetryFragmentCache.RESOURCE_REFERENCE_FIELD, resourceId);
+            }
+        }
+        json.writeArrayFieldStart("children");
+        for (Node child : node.children()) {
+            writeNode(json, child);
+        }
+        json.writeEndArray();
+        json.writeEndObject();
+    }
+
+    private static boolean isTimeField(String name) {
+        for (String base : List.of("start", "end")) {
+            if (name.equals(base) || name.equals(base + TimestampEncoder.NANOS_SUFFIX)
+                    || name.equals(base + TimestampEncoder.ISO_SUFFIX)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static void writeValue(JsonGenerator json, BsonValue value) throws IOException {
+        switch (value.getBsonType()) {
+            case STRING -> json.writeString(value.asString().getValue());
+            case INT32 -> json.writeNumber(value.asInt32().getValue());
+            case INT64 -> json.writeNumber(value.asInt64().getValue());
+            case DOUBLE -> json.writeNumber(value.asDouble().getValue());
+            case BOOLEAN -> json.writeBoolean(value.asBoolean().getValue());
+            case DATE_TIME -> json.writeString(Instant.ofEpochMilli(value.asDateTime().getValue()).toString());
+            case DOCUMENT -> {
+                json.writeStartObject();
+                for (Map.Entry<String, BsonValue> field : value.asDocument().entrySet()) {
+                    if (!"_id".equals(field.getKey())) {
+                        json.writeFieldName(field.getKey());
+                        writeValue(json, field.getValue());
+                    }
+                }
+                json.writeEndObject();
+            }
+            case ARRAY -> {
+                json.writeStartArray();
+                for (BsonValue element : value.asArray()) {
+                    writeValue(json, element);
+                }
+                json.writeEndArray();
+            }
+            case NULL, UNDEFINED -> json.writeNull();
+            default -> json.writeString(value.toString());
+        }
+    }
+
+    private record Node(BsonDocument span, long start, long end, List<Node> children) {
+    }
+
+    /** Links spans into the tree as they arrive, so several cursors can feed the same trace. */
+    static final class Assembler {
+
+        private final String traceId;
+        private final Map<String, Node> nodes = new HashMap<>();
+        private final Map<String, List<Node>> waitingForParent = new HashMap<>();
+        private final Set<Long> resourceIds = new HashSet<>();
+        private final List<Node> roots = new ArrayList<>();
+
+        Assembler(String traceId) {
+            this.traceId = traceId;
+        }
+
+        void add(BsonDocument span) {
+            String spanId = span.getString("spanId").getValue();
+            String parentSpanId = span.getString("parentSpanId", INVALID_SPAN_ID_VALUE).getValue();
+            Node node = new Node(span, TimestampEncoder.readEpochNanos(span, "start"),
+                TimestampEncoder.readEpochNanos(span, "end"), new ArrayList<>());
+            if (nodes.putIfAbsent(spanId, node) != null) {
+                return;
+            }
+            List<Node> children = waitingForParent.remove(spanId);
+            if (children != null) {
+                node.children().addAll(children);
+            }
+            if (INVALID_SPAN_ID.equals(parentSpanId)) {
+                roots.add(node);
+            } else {
+                Node parent = nodes.get(parentSpanId);
+                if (parent != null) {
+                    parent.children().add(node);
+                } else {
+                    waitingForParent.computeIfAbsent(parentSpanId, key -> new ArrayList<>()).add(node);
+                }
+            }
+            if (span.isInt64(TelemetryFragmentCache.RESOURCE_REFERENCE_FIELD)) {
+                resourceIds.add(span.getInt64(TelemetryFragmentCache.RESOURCE_REFERENCE_FIELD).getValue());
+            }
+        }
+
+        /** Returns the tree, or {@code null} when no span was added. */
+        TraceTree build() {
+            if (nodes.isEmpty()) {
+                return null;
+            }
+            waitingForParent.values().forEach(roots::addAll);
+            roots.sort(BY_START);
+            for (Node node : nodes.values()) {
+                node.children().sort(BY_START);
+            }
+            return new TraceTree(traceId, roots, nodes.size(), resourceIds);
+        }
+    }
+}
@@ -0,0 +1,221 @@
+package com.example.weather.telemetry;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import io.opentelemetry.sdk.metrics.data.AggregationTemporality;
+import io.opentelemetry.sdk.metrics.data.DoublePointData;
+import io.opentelemetry.sdk.metrics.data.ExponentialHistogramBuckets;
+import io.opentelemetry.sdk.metrics.data.ExponentialHistogramPointData;
+import io.opentelemetry.sdk.metrics.data.HistogramPointData;
+import io.opentelemetry.sdk.metrics.data.LongPointData;
+import io.opentelemetry.sdk.metrics.data.MetricData;
+import io.opentelemetry.sdk.metrics.data.PointData;
+import io.opentelemetry.sdk.metrics.data.SummaryPointData;
+import io.opentelemetry.sdk.resources.Resource;
+
+/**
+ * Skips metric points whose value is the same as the last one written for their series; exporters
+ * {@link #commit(List) commit} the points once they are written. Each series is remembered as three longs (series
+ * hash, value fingerprint, time last written) in an open-addressing table, so idle series cost no writes and a few
+ * bytes of memory. Only cumulative and gauge points are filtered: a delta point is a new
+ * measurement even when it repeats the previous value. A series is written again after {@code heartbeat} even if
+ * unchanged, so range queries over recent data keep finding it.
+ */
+class UnchangedPointFilter {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(UnchangedPointFilter.class);
+
+    private static final long EMPTY_KEY = 0L;
+
+    private static final long GOLDEN_GAMMA = 0x9E3779B97F4A7C15L;
+
+    private final boolean enabled;
+    private final int maxSeries;
+    private final long heartbeatNanos;
+    private final long[] keys;
+    private final long[] fingerprints;
+    private final long[] writtenAt;
+    private final int mask;
+    private int size;
+    private long suppressedPoints;
+    private Resource lastResource;
+    private long lastResourceHash;
+
+    UnchangedPointFilter(MongoTelemetryProperties.ChangeDetection settings) {
+        this.enabled = settings.isEnabled();
+        this.maxSeries = Math.max(1, settings.getMaxSeries());
+        this.heartbeatNanos = settings.getHeartbeat().toNanos();
+        int capacity = enabled ? Integer.highestOneBit(Math.max(2, 2 * maxSeries - 1)) << 1 : 0;
+        this.keys = new long[capacity];
+        this.fingerprints = new long[capacity];
+        this.writtenAt = new long[capacity];
+        this.mask = capacity - 1;
+    }
+
+    /**
+     * Returns the points that must be written: those whose series changed, or was last written more than a heartbeat
+     * ago. Groups left without points are dropped. Nothing is remembered until the points are {@link #commit
+     * committed}, so points that fail to be written are not suppressed the next time.
+     */
+    List<MetricPoints> retainChanged(List<MetricPoints> items) {
+        if (!enabled) {
+            return items;
+        }
+        synchronized (this) {
+            List<MetricPoints> changed = new ArrayList<>(items.size());
+            for (MetricPoints item : items) {
+                List<PointData> points = item.points();
+                List<PointData> changedPoints = new ArrayList<>(points.size());
+                for (int i = 0; i < points.size(); i++) {
+                    if (isChanged(item.metric(), points.get(i))) {
+                        changedPoints.add(points.get(i));
+                    } else {
+                        suppressedPoints++;
+                    }
+                }
+                if (changedPoints.size() == points.size()) {
+                    changed.add(item);
+                } else if (!changedPoints.isEmpty()) {
+                    changed.add(new MetricPoints(item.metric(), changedPoints));
+                }
+            }
+            return changed;
+        }
+    }
+
+    /** Remembers {@code items} as the latest values of their series, once they have been inserted or spooled. */
+    void commit(List<MetricPoints> items) {
+        if (!enabled) {
+            return;
+        }
+        synchronized (this) {
+            for (MetricPoints item : items) {
+                if (isFilterable(item.metric())) {
+                    for (PointData point : item.points()) {
+                        record(item.metric(), point);
+                    }
+                }
+            }
+        }
+    }
+
+    synchronized long getSuppressedPoints() {
+        return suppressedPoints;
+    }
+
+    private boolean isChanged(MetricData metric, PointData point) {
+        if (!isFilterable(metric)) {
+            return true;
+        }
+        int slot = slot(seriesKey(metric, point));
+        return keys[slot] == EMPTY_KEY || fingerprints[slot] != fingerprint(point)
+            || point.getEpochNanos() - writtenAt[slot] >= heartbeatNanos;
+    }
+
+    private void record(MetricData metric, PointData point) {
+        long key = seriesKey(metric, point);
+        int slot = slot(key);
+        if (keys[slot] == EMPTY_KEY) {
+            if (size >= maxSeries) {
+                LOGGER.debug("Tracking more than {} metric series; forgetting all fingerprints", maxSeries);
+                Arrays.fill(keys, EMPTY_KEY);
+                size = 0;
+                slot = slot(key);
+            }
+            keys[slot] = key;
+            size++;
+        }
+        fingerprints[slot] = fingerprint(point);
+        writtenAt[slot] = point.getEpochNanos();
+    }
+
+    /** Slot holding {@code key}, or the empty slot where it would go. */
+    private int slot(long key) {
+        int slot = (int) key & mask;
+        while (keys[slot] != EMPTY_KEY && keys[slot] != key) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    private static boolean isFilterable(MetricData metric) {
+        return switch (metric.getType()) {
+            case LONG_GAUGE, DOUBLE_GAUGE, SUMMARY -> true;
+            case LONG_SUM -> metric.getLongSumData().getAggregationTemporality() == AggregationTemporality.CUMULATIVE;
+            case DOUBLE_SUM ->
+                metric.getDoubleSumData().getAggregationTemporality() == AggregationTemporality.CUMULATIVE;
+            case HISTOGRAM ->
+                metric.getHistogramData().getAggregationTemporality() == AggregationTemporality.CUMULATIVE;
+            case EXPONENTIAL_HISTOGRAM ->
+                metric.getExponentialHistogramData().getAggregationTemporality() == AggregationTemporality.CUMULATIVE;
+        };
+    }
+
+    private long seriesKey(MetricData metric, PointData point) {
+        Resource resource = metric.getResource();
+        if (resource != lastResource) {
+            lastResourceHash = resource.hashCode();
+            lastResource = resource;
+        }
+        long key = mix(lastResourceHash);
+        key = combine(key, metric.getInstrumentationScopeInfo().hashCode());
+        key = combine(key, metric.getName().hashCode());
+        key = combine(key, point.getAttributes().hashCode());
+        return key == EMPTY_KEY ? 1L : key;
+    }
+
+    private static long fingerprint(PointData point) {
+        long fingerprint = mix(point.getStartEpochNanos());
+        if (point instanceof LongPointData longPoint) {
+            fingerprint = combine(fingerprint, longPoint.getValue());
+        } else if (point instanceof DoublePointData doublePoint) {
+            fingerprint = combine(fingerprint, Double.doubleToLongBits(doublePoint.getValue()));
+        } else if (point instanceof HistogramPointData histogram) {
+            fingerprint = combine(fingerprint, histogram.getCount());
+            fingerprint = combine(fingerprint, Double.doubleToLongBits(histogram.getSum()));
+            fingerprint = combine(fingerprint, histogram.getCounts());
+        } else if (point instanceof ExponentialHistogramPointData histogram) {
+            fingerprint = combine(fingerprint, histogram.getCount());
+            fingerprint = combine(fingerprint, Double.doubleToLongBits(histogram.getSum()));
+            fingerprint = combine(fingerprint, histogram.getZeroCount());
+            fingerprint = combine(fingerprint, histogram.getPositiveBuckets());
+            fingerprint = combine(fingerprint, histogram.getNegativeBuckets());
+        } else if (point instanceof SummaryPointData summary) {
+            fingerprint = combine(fingerprint, summary.getCount());
+            fingerprint = combine(fingerprint, Double.doubleToLongBits(summary.getSum()));
+        }
+        return fingerprint;
+    }
+
+    private static long combine(long hash, ExponentialHistogramBuckets buckets) {
+        hash = combine(hash, buckets.getScale());
+        hash = combine(hash, buckets.getOffset());
+        return combine(hash, buckets.getBucketCounts());
+    }
+
+    private static long combine(long hash, List<Long> values) {
+        for (int i = 0; i < values.size(); i++) {
+            hash = combine(hash, values.get(i));
+        }
+        return hash;
+    }
+
+    private static long combine(long hash, long value) {
+        return mix(hash * GOLDEN_GAMMA + value);
+    }
+
+    /** MurmurHash3 64-bit finalizer. */
+    private static long mix(long value) {
+        value ^= value >>> 33;
+        value *= 0xff51afd7ed558ccdL;
+        value ^= value >>> 33;
+        value *= 0xc4ceb9fe1a85ec53L;
+        value ^= value >>> 33;
+        return value;
+    }
+}
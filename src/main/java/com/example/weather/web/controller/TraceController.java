@@ -0,0 +1,34 @@
+package com.example.weather.web.controller;
+
+import com.example.weather.telemetry.TraceQueryService;
+import io.opentelemetry.api.trace.TraceId;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+@RestController
+@RequestMapping("/api/telemetry/traces")
+public class TraceController {
+
+    private final TraceQueryService traceQueryService;
+
+    public TraceController(TraceQueryService traceQueryService) {
+        this.traceQueryService = traceQueryService;
+    }
+
+    @GetMapping("/{traceId}")
+    public ResponseEntity<StreamingResponseBody> getTrace(@PathVariable("traceId") String traceId) {
+        if (!TraceId.isValid(traceId)) {
+            return ResponseEntity.badRequest().build();
+        }
+        return traceQueryService.findTrace(traceId)
+            .map(trace -> ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .body((StreamingResponseBody) trace::writeTo))
+            .orElseGet(() -> ResponseEntity.notFound().build());
+    }
+}
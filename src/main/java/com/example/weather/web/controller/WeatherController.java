@@ -3,6 +3,8 @@ package com.example.weather.web.controller;
 import com.example.weather.service.WeatherService;
 import com.example.weather.web.dto.WeatherResponse;
 import jakarta.validation.constraints.NotNull;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
@@ -21,10 +23,16 @@ public class WeatherController {
     }
 
     @GetMapping
-    public WeatherResponse getWeather(@RequestParam("lat") @NotNull Double latitude,
-                                      @RequestParam("lon") @NotNull Double longitude,
-                                      @RequestParam(value = "units", required = false) String units,
-                                      @RequestParam(value = "lang", required = false) String language) {
-        return weatherService.getWeather(latitude, longitude, units, language);
+    public ResponseEntity<?> getWeather(@RequestParam("lat") @NotNull Double latitude,
+                                        @RequestParam("lon") @NotNull Double longitude,
+                                        @RequestParam(value = "units", required = false) String units,
+                                        @RequestParam(value = "lang", required = false) String language) {
+        if (weatherService.isPassThrough()) {
+            return ResponseEntity.ok()
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .body(weatherService.getRawWeather(latitude, longitude, units, language));
+        }
+        WeatherResponse response = weatherService.getWeather(latitude, longitude, units, language);
+        return ResponseEntity.ok(response);
     }
 }
@@ -0,0 +1,122 @@
+package com.example.weather.config;
+
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.client.BufferingClientHttpRequestFactory;
+import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
+import org.springframework.http.client.JdkClientHttpRequestFactory;
+import org.springframework.http.client.SimpleClientHttpRequestFactory;
+import org.springframework.web.client.ResourceAccessException;
+import org.springframework.web.client.RestTemplate;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.concurrent.Executors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class RestClientConfigTest {
+
+    private HttpServer server;
+
+    @BeforeEach
+    void startServer() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/onecall", exchange -> {
+            byte[] body = "{\"lat\":10.0}".getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().add("Content-Type", "application/json");
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        });
+        server.createContext("/slow", exchange -> {
+            try {
+                Thread.sleep(2000);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+            exchange.sendResponseHeaders(204, -1);
+            exchange.close();
+        });
+        server.setExecutor(Executors.newCachedThreadPool());
+        server.start();
+    }
+
+    @AfterEach
+    void stopServer() {
+        server.stop(0);
+    }
+
+    @Test
+    void shouldKeepBufferedSimpleClientByDefault() {
+        WeatherProperties.Http http = new WeatherProperties.Http();
+
+        assertThat(RestClientConfig.requestFactory(http)).isInstanceOf(BufferingClientHttpRequestFactory.class);
+        http.setBufferResponses(false);
+        assertThat(RestClientConfig.requestFactory(http)).isInstanceOf(SimpleClientHttpRequestFactory.class);
+    }
+
+    @Test
+    void shouldStreamResponsesThroughTheJdkClient() {
+        WeatherProperties.Http http = jdk();
+        RestTemplate restTemplate = new RestTemplate(RestClientConfig.requestFactory(http));
+
+        assertThat(restTemplate.getRequestFactory()).isInstanceOf(JdkClientHttpRequestFactory.class);
+        assertThat(restTemplate.getForObject(url("/onecall"), String.class)).isEqualTo("{\"lat\":10.0}");
+        assertThat(restTemplate.getForObject(url("/onecall"), String.class)).isEqualTo("{\"lat\":10.0}");
+    }
+
+    @Test
+    void shouldFailWhenTheReadTimeoutElapses() {
+        WeatherProperties.Http http = jdk();
+        http.setReadTimeout(Duration.ofMillis(200));
+        RestTemplate restTemplate = new RestTemplate(RestClientConfig.requestFactory(http));
+
+        assertThatThrownBy(() -> restTemplate.getForObject(url("/slow"), String.class))
+                .isInstanceOf(ResourceAccessException.class);
+    }
+
+    @Test
+    void shouldReuseConnectionsOfTheApacheClientPool() {
+        WeatherProperties.Http http = new WeatherProperties.Http();
+        http.setClient(WeatherProperties.ClientType.APACHE);
+        http.setBufferResponses(false);
+        http.setMaxConnections(1);
+        RestTemplate restTemplate = new RestTemplate(RestClientConfig.requestFactory(http));
+
+        assertThat(restTemplate.getRequestFactory()).isInstanceOf(HttpComponentsClientHttpRequestFactory.class);
+        assertThat(restTemplate.getForObject(url("/onecall"), String.class)).isEqualTo("{\"lat\":10.0}");
+        assertThat(restTemplate.getForObject(url("/onecall"), String.class)).isEqualTo("{\"lat\":10.0}");
+    }
+
+    @Test
+    void shouldLeaveTheJvmConnectionPoolSettingsAlone() {
+        for (WeatherProperties.ClientType client : WeatherProperties.ClientType.values()) {
+            WeatherProperties.Http http = new WeatherProperties.Http();
+            http.setClient(client);
+            RestClientConfig.requestFactory(http);
+        }
+
+        assertThat(System.getProperties()).doesNotContainKeys("http.maxConnections",
+                "jdk.httpclient.connectionPoolSize", "jdk.httpclient.keepalive.timeout");
+    }
+
+    private static WeatherProperties.Http jdk() {
+        WeatherProperties.Http http = new WeatherProperties.Http();
+        http.setClient(WeatherProperties.ClientType.JDK);
+        http.setBufferResponses(false);
+        http.setHttp2(false);
+        return http;
+    }
+
+    private String url(String path) {
+        return "http://127.0.0.1:" + server.getAddress().getPort() + path;
+    }
+}
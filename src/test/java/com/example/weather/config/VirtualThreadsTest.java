@@ -0,0 +1,75 @@
+package com.example.weather.config;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledForJreRange;
+import org.junit.jupiter.api.condition.JRE;
+
+import java.lang.reflect.Method;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class VirtualThreadsTest {
+
+    @Test
+    void shouldFallBackToNamedDaemonPlatformThreads() {
+        Thread thread = VirtualThreads.factory("weather-test", false).newThread(() -> { });
+
+        assertThat(thread.getName()).isEqualTo("weather-test");
+        assertThat(thread.isDaemon()).isTrue();
+        assertThat(VirtualThreads.isSupported()).isEqualTo(Runtime.version().feature() >= 21);
+    }
+
+    @Test
+    void shouldCreateVirtualThreadsWhenSupported() throws Exception {
+        Thread thread = VirtualThreads.factory("weather-test", true).newThread(() -> { });
+
+        assertThat(thread.getName()).isEqualTo("weather-test");
+        assertThat(thread.isDaemon()).isTrue();
+        assertThat(isVirtual(thread)).isEqualTo(VirtualThreads.isSupported());
+    }
+
+    @Test
+    @EnabledForJreRange(min = JRE.JAVA_21)
+    void shouldReportVirtualThreadsPinnedBySynchronizedBlocks() throws Exception {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        WeatherProperties.VirtualThreads settings = new WeatherProperties.VirtualThreads();
+        settings.setPinningThreshold(Duration.ofMillis(10));
+        Object monitor = new Object();
+
+        try (VirtualThreadDiagnostics diagnostics = new VirtualThreadDiagnostics(settings, registry)) {
+            diagnostics.start();
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+            while (registry.get("weather.threads.pinned").counter().count() == 0 && System.nanoTime() < deadline) {
+                Thread pinned = VirtualThreads.factory("weather-pinned", true).newThread(() -> {
+                    synchronized (monitor) {
+                        sleep(50);
+                    }
+                });
+                pinned.start();
+                pinned.join();
+                sleep(200);
+            }
+        }
+
+        assertThat(registry.get("weather.threads.pinned").counter().count()).isPositive();
+    }
+
+    private static boolean isVirtual(Thread thread) throws Exception {
+        if (Runtime.version().feature() < 21) {
+            return false;
+        }
+        Method isVirtual = Thread.class.getMethod("isVirtual");
+        return (boolean) isVirtual.invoke(thread);
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,136 @@
+package com.example.weather.service;
+
+import com.example.weather.web.exception.ExternalServiceException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class SingleFlightTest {
+
+    private static final int CALLERS = 8;
+
+    private final ExecutorService callers = Executors.newFixedThreadPool(CALLERS);
+    private final Counter coalesced = new SimpleMeterRegistry().counter("coalesced");
+    private final SingleFlight<String, String> singleFlight = new SingleFlight<>(coalesced);
+
+    @AfterEach
+    void shutdown() {
+        callers.shutdownNow();
+    }
+
+    @Test
+    void shouldShareOneCallAmongConcurrentCallersWithTheSameKey() throws Exception {
+        BlockingLoader loader = new BlockingLoader(() -> "sunny");
+
+        List<Future<String>> results = callConcurrently("madrid", loader);
+        loader.release();
+
+        for (Future<String> result : results) {
+            assertThat(result.get(5, TimeUnit.SECONDS)).isEqualTo("sunny");
+        }
+        assertThat(loader.calls.get()).isEqualTo(1);
+        assertThat(coalesced.count()).isEqualTo(CALLERS - 1);
+        assertThat(singleFlight.inFlight()).isZero();
+    }
+
+    @Test
+    void shouldPropagateTheFailureToEveryCaller() throws Exception {
+        ExternalServiceException failure = new ExternalServiceException("Error al invocar OpenWeatherMap: 504");
+        BlockingLoader loader = new BlockingLoader(() -> {
+            throw failure;
+        });
+
+        List<Future<String>> results = callConcurrently("madrid", loader);
+        loader.release();
+
+        for (Future<String> result : results) {
+            assertThatThrownBy(() -> result.get(5, TimeUnit.SECONDS))
+                    .isInstanceOf(ExecutionException.class)
+                    .hasCauseReference(failure);
+        }
+        assertThat(loader.calls.get()).isEqualTo(1);
+        assertThat(singleFlight.inFlight()).isZero();
+    }
+
+    @Test
+    void shouldCallAgainOnceThePreviousCallCompleted() {
+        AtomicInteger calls = new AtomicInteger();
+
+        singleFlight.execute("madrid", () -> "call " + calls.incrementAndGet());
+        String second = singleFlight.execute("madrid", () -> "call " + calls.incrementAndGet());
+
+        assertThat(second).isEqualTo("call 2");
+        assertThat(coalesced.count()).isZero();
+    }
+
+    @Test
+    void shouldNotShareCallsAcrossKeys() throws Exception {
+        BlockingLoader loader = new BlockingLoader(() -> "sunny");
+
+        Future<String> madrid = callers.submit(() -> singleFlight.execute("madrid", loader));
+        loader.started.await(5, TimeUnit.SECONDS);
+        String lisbon = singleFlight.execute("lisbon", () -> "rain");
+        loader.release();
+
+        assertThat(lisbon).isEqualTo("rain");
+        assertThat(madrid.get(5, TimeUnit.SECONDS)).isEqualTo("sunny");
+    }
+
+    /** Starts the first caller, waits until its loader is running, then starts the others behind it. */
+    private List<Future<String>> callConcurrently(String key, BlockingLoader loader) throws InterruptedException {
+        List<Future<String>> results = new ArrayList<>();
+        results.add(callers.submit(() -> singleFlight.execute(key, loader)));
+        assertThat(loader.started.await(5, TimeUnit.SECONDS)).isTrue();
+        for (int i = 1; i < CALLERS; i++) {
+            results.add(callers.submit(() -> singleFlight.execute(key, loader)));
+        }
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (coalesced.count() < CALLERS - 1 && System.nanoTime() < deadline) {
+            Thread.onSpinWait();
+        }
+        return results;
+    }
+
+    private static final class BlockingLoader implements Supplier<String> {
+
+        private final CountDownLatch started = new CountDownLatch(1);
+        private final CountDownLatch released = new CountDownLatch(1);
+        private final AtomicInteger calls = new AtomicInteger();
+        private final Supplier<String> result;
+
+        private BlockingLoader(Supplier<String> result) {
+            this.result = result;
+        }
+
+        void release() {
+            released.countDown();
+        }
+
+        @Override
+        public String get() {
+            calls.incrementAndGet();
+            started.countDown();
+            try {
+                released.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+            return result.get();
+        }
+    }
+}
@@ -0,0 +1,180 @@
+package com.example.weather.service;
+
+import com.example.weather.config.WeatherProperties;
+import com.example.weather.web.dto.WeatherResponse;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class WeatherResponseCacheTest {
+
+    private final AtomicLong clock = new AtomicLong();
+    private final QueuedExecutor refreshes = new QueuedExecutor();
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+
+    @Test
+    void shouldRoundCoordinatesToTheGridCentre() {
+        OneCallRequest key = key(40.41678, -3.70379, "metric");
+
+        assertThat(key.latitude()).isEqualTo(40.42);
+        assertThat(key.longitude()).isEqualTo(-3.70);
+        assertThat(key(40.4151, -3.7049, "metric")).isEqualTo(key);
+        assertThat(key(40.4151, -3.7049, "imperial")).isNotEqualTo(key);
+        assertThat(new OneCallRequest(40.41678, -3.70379, "metric", "es").quantized(0).latitude()).isEqualTo(40.41678);
+    }
+
+    @Test
+    void shouldServeStaleResponseWhileRefreshingInTheBackground() {
+        WeatherResponseCache<WeatherResponse> cache = cache(settings());
+        OneCallRequest key = key(10, 20, "metric");
+        CountingLoader loader = new CountingLoader();
+        WeatherResponse first = cache.get(key, loader);
+
+        clock.addAndGet(Duration.ofMinutes(11).toNanos());
+        assertThat(cache.get(key, loader)).isSameAs(first);
+        assertThat(cache.get(key, loader)).isSameAs(first);
+        assertThat(loader.calls.get()).isEqualTo(1);
+        assertThat(refreshes.pending).hasSize(1);
+
+        refreshes.runAll();
+        WeatherResponse refreshed = cache.get(key, loader);
+
+        assertThat(refreshed).isNotSameAs(first);
+        assertThat(loader.calls.get()).isEqualTo(2);
+        assertThat(registry.get("weather.cache.requests").tag("result", "stale").counter().count()).isEqualTo(2);
+        assertThat(registry.get("weather.cache.requests").tag("result", "hit").counter().count()).isEqualTo(1);
+    }
+
+    @Test
+    void shouldKeepServingStaleResponseWhenRefreshFails() {
+        WeatherResponseCache<WeatherResponse> cache = cache(settings());
+        OneCallRequest key = key(10, 20, "metric");
+        WeatherResponse first = cache.get(key, new CountingLoader());
+
+        clock.addAndGet(Duration.ofMinutes(11).toNanos());
+        cache.get(key, () -> {
+            throw new IllegalStateException("upstream down");
+        });
+        refreshes.runAll();
+
+        CountingLoader loader = new CountingLoader();
+        assertThat(cache.get(key, loader)).isSameAs(first);
+        refreshes.runAll();
+        assertThat(loader.calls.get()).isEqualTo(1);
+    }
+
+    @Test
+    void shouldLoadAgainOnceTheStaleWindowHasPassed() {
+        WeatherResponseCache<WeatherResponse> cache = cache(settings());
+        OneCallRequest key = key(10, 20, "metric");
+        CountingLoader loader = new CountingLoader();
+        cache.get(key, loader);
+
+        clock.addAndGet(Duration.ofMinutes(41).toNanos());
+        cache.get(key, loader);
+
+        assertThat(loader.calls.get()).isEqualTo(2);
+        assertThat(refreshes.pending).isEmpty();
+        assertThat(registry.get("weather.cache.evictions").tag("cause", "expired").counter().count()).isEqualTo(1);
+    }
+
+    @Test
+    void shouldOnlyAdmitLocationsRequestedMoreOftenThanTheVictim() {
+        WeatherProperties.Cache settings = settings();
+        settings.setMaxEntries(2);
+        WeatherResponseCache<WeatherResponse> cache = cache(settings);
+        CountingLoader loader = new CountingLoader();
+        OneCallRequest madrid = key(40.42, -3.70, "metric");
+        OneCallRequest lisbon = key(38.72, -9.14, "metric");
+        OneCallRequest oslo = key(59.91, 10.75, "metric");
+        cache.get(lisbon, loader);
+        cache.get(madrid, loader);
+        cache.get(madrid, loader);
+
+        cache.get(oslo, loader);
+        assertThat(cache.size()).isEqualTo(2);
+        assertThat(registry.get("weather.cache.rejections").counter().count()).isEqualTo(1);
+
+        cache.get(oslo, loader);
+        assertThat(registry.get("weather.cache.evictions").tag("cause", "size").counter().count()).isEqualTo(1);
+        int calls = loader.calls.get();
+        cache.get(madrid, loader);
+        cache.get(oslo, loader);
+        assertThat(loader.calls.get()).isEqualTo(calls);
+    }
+
+    private static WeatherProperties.Cache settings() {
+        WeatherProperties.Cache settings = new WeatherProperties.Cache();
+        settings.setEnabled(true);
+        return settings;
+    }
+
+    private WeatherResponseCache<WeatherResponse> cache(WeatherProperties.Cache settings) {
+        return new WeatherResponseCache<>(settings, registry, clock::get, refreshes);
+    }
+
+    private static OneCallRequest key(double latitude, double longitude, String units) {
+        return new OneCallRequest(latitude, longitude, units, "es").quantized(0.01);
+    }
+
+    private static final class CountingLoader implements Supplier<WeatherResponse> {
+
+        private final AtomicInteger calls = new AtomicInteger();
+
+        @Override
+        public WeatherResponse get() {
+            calls.incrementAndGet();
+            return new WeatherResponse();
+        }
+    }
+
+    private static final class QueuedExecutor extends AbstractExecutorService {
+
+        private final List<Runnable> pending = new ArrayList<>();
+
+        void runAll() {
+            List<Runnable> tasks = new ArrayList<>(pending);
+            pending.clear();
+            tasks.forEach(Runnable::run);
+        }
+
+        @Override
+        public void execute(Runnable command) {
+            pending.add(command);
+        }
+
+        @Override
+        public void shutdown() {
+        }
+
+        @Override
+        public List<Runnable> shutdownNow() {
+            return List.of();
+        }
+
+        @Override
+        public boolean isShutdown() {
+            return false;
+        }
+
+        @Override
+        public boolean isTerminated() {
+            return false;
+        }
+
+        @Override
+        public boolean awaitTermination(long timeout, TimeUnit unit) {
+            return true;
+        }
+    }
+}
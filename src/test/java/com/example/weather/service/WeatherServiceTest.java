@@ -4,6 +4,7 @@ import com.example.weather.config.WeatherProperties;
 import com.example.weather.web.dto.WeatherResponse;
 import com.example.weather.web.exception.ExternalServiceException;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.boot.web.client.RestTemplateBuilder;
@@ -11,6 +12,8 @@ import org.springframework.http.MediaType;
 import org.springframework.test.web.client.MockRestServiceServer;
 import org.springframework.web.client.RestTemplate;
 
+import java.nio.charset.StandardCharsets;
+
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
 import static org.springframework.test.web.client.match.MockRestRequestMatchers.method;
@@ -19,6 +22,8 @@ import static org.springframework.test.web.client.response.MockRestResponseCreat
 
 class WeatherServiceTest {
 
+    private static final String ONECALL_URL = "https://api.openweathermap.org/data/3.0/onecall?lat=10.0&lon=20.0&appid=test-key&units=metric&lang=es";
+
     private WeatherService weatherService;
     private MockRestServiceServer server;
 
@@ -29,7 +34,7 @@ class WeatherServiceTest {
         properties.setBaseUrl("https://api.openweathermap.org/data/3.0");
         RestTemplate restTemplate = new RestTemplateBuilder().build();
         server = MockRestServiceServer.createServer(restTemplate);
-        weatherService = new WeatherService(restTemplate, properties, new ObjectMapper());
+        weatherService = new WeatherService(restTemplate, properties, new ObjectMapper(), new SimpleMeterRegistry());
     }
 
     @Test
@@ -46,7 +51,7 @@ class WeatherServiceTest {
                 "\"alerts\":[{\"event\":\"Storm\"}]" +
                 "}";
 
-        server.expect(requestTo("https://api.openweathermap.org/data/3.0/onecall?lat=10.0&lon=20.0&appid=test-key&units=metric&lang=es"))
+        server.expect(requestTo(ONECALL_URL))
                 .andExpect(method(org.springframework.http.HttpMethod.GET))
                 .andRespond(withSuccess(response, MediaType.APPLICATION_JSON));
 
@@ -66,10 +71,72 @@ class WeatherServiceTest {
     void shouldFailWhenApiKeyIsMissing() {
         WeatherProperties properties = new WeatherProperties();
         RestTemplate restTemplate = new RestTemplateBuilder().build();
-        WeatherService serviceWithoutKey = new WeatherService(restTemplate, properties, new ObjectMapper());
+        WeatherService serviceWithoutKey = new WeatherService(restTemplate, properties, new ObjectMapper(),
+                new SimpleMeterRegistry());
 
         assertThatThrownBy(() -> serviceWithoutKey.getWeather(0, 0, null, null))
                 .isInstanceOf(ExternalServiceException.class)
                 .hasMessageContaining("No se configuró la API key de OpenWeatherMap");
     }
+
+    @Test
+    void shouldServeNearbyLocationsFromTheCache() {
+        WeatherProperties properties = new WeatherProperties();
+        properties.setApiKey("test-key");
+        properties.getCache().setEnabled(true);
+        RestTemplate restTemplate = new RestTemplateBuilder().build();
+        MockRestServiceServer cachedServer = MockRestServiceServer.createServer(restTemplate);
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        WeatherService cachedService = new WeatherService(restTemplate, properties, new ObjectMapper(), registry);
+
+        cachedServer.expect(requestTo(ONECALL_URL))
+                .andRespond(withSuccess("{\"lat\":10.0,\"lon\":20.0}", MediaType.APPLICATION_JSON));
+
+        WeatherResponse first = cachedService.getWeather(10.001, 20.002, null, null);
+        WeatherResponse second = cachedService.getWeather(9.998, 19.999, "metric", "es");
+
+        assertThat(second).isSameAs(first);
+        assertThat(registry.get("weather.cache.requests").tag("result", "hit").counter().count()).isEqualTo(1);
+        cachedServer.verify();
+        cachedService.close();
+    }
+
+    @Test
+    void shouldFailWhenTheResponseIsEmptyOrMalformed() {
+        server.expect(requestTo(ONECALL_URL)).andRespond(withSuccess("", MediaType.APPLICATION_JSON));
+        server.expect(requestTo(ONECALL_URL)).andRespond(withSuccess("{\"lat\":", MediaType.APPLICATION_JSON));
+
+        assertThatThrownBy(() -> weatherService.getWeather(10.0, 20.0, null, null))
+                .isInstanceOf(ExternalServiceException.class)
+                .hasMessage("La respuesta de OpenWeatherMap fue vacía");
+        assertThatThrownBy(() -> weatherService.getWeather(10.0, 20.0, null, null))
+                .isInstanceOf(ExternalServiceException.class)
+                .hasMessage("No fue posible interpretar la respuesta de OpenWeatherMap");
+        server.verify();
+    }
+
+    @Test
+    void shouldPassTheUpstreamBytesThroughUnchanged() {
+        WeatherProperties properties = new WeatherProperties();
+        properties.setApiKey("test-key");
+        properties.setPassThrough(true);
+        properties.getCache().setEnabled(true);
+        RestTemplate restTemplate = new RestTemplateBuilder().build();
+        MockRestServiceServer rawServer = MockRestServiceServer.createServer(restTemplate);
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        WeatherService rawService = new WeatherService(restTemplate, properties, new ObjectMapper(), registry);
+        String response = "{\"lat\":10.0, \"lon\":20.0, \"extra\":{\"kept\":true}}";
+
+        rawServer.expect(requestTo(ONECALL_URL)).andRespond(withSuccess(response, MediaType.APPLICATION_JSON));
+
+        byte[] first = rawService.getRawWeather(10.001, 20.002, null, null);
+        byte[] second = rawService.getRawWeather(9.998, 19.999, null, null);
+
+        assertThat(rawService.isPassThrough()).isTrue();
+        assertThat(new String(first, StandardCharsets.UTF_8)).isEqualTo(response);
+        assertThat(second).isSameAs(first);
+        assertThat(registry.get("weather.cache.requests").tag("result", "hit").counter().count()).isEqualTo(1);
+        rawServer.verify();
+        rawService.close();
+    }
 }
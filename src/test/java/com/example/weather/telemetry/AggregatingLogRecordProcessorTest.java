@@ -0,0 +1,98 @@
+package com.example.weather.telemetry;
+
+import io.opentelemetry.api.common.AttributeKey;
+import io.opentelemetry.api.logs.Logger;
+import io.opentelemetry.api.logs.Severity;
+import io.opentelemetry.context.Context;
+import io.opentelemetry.sdk.common.CompletableResultCode;
+import io.opentelemetry.sdk.logs.LogRecordProcessor;
+import io.opentelemetry.sdk.logs.ReadWriteLogRecord;
+import io.opentelemetry.sdk.logs.SdkLoggerProvider;
+import io.opentelemetry.sdk.logs.data.LogRecordData;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class AggregatingLogRecordProcessorTest {
+
+    private static final AttributeKey<String> EXCEPTION_TYPE = AttributeKey.stringKey("exception.type");
+
+    private final RecordingLogRecordProcessor downstream = new RecordingLogRecordProcessor();
+
+    @Test
+    void shouldEmitFirstRecordAndCountRepeatsUntilTheWindowCloses() {
+        AggregatingLogRecordProcessor processor = new AggregatingLogRecordProcessor(downstream, settings());
+        SdkLoggerProvider loggerProvider = SdkLoggerProvider.builder().addLogRecordProcessor(processor).build();
+        Logger logger = loggerProvider.get("test");
+
+        for (int i = 0; i < 50; i++) {
+            logger.logRecordBuilder().setSeverity(Severity.ERROR)
+                .setBody("Error al invocar OpenWeatherMap: " + (500 + i % 4))
+                .setAttribute(EXCEPTION_TYPE, "org.springframework.web.client.HttpServerErrorException")
+                .setTimestamp(1_000 + i, TimeUnit.NANOSECONDS)
+                .emit();
+        }
+        assertThat(downstream.records).hasSize(1);
+        loggerProvider.forceFlush().join(5, TimeUnit.SECONDS);
+
+        assertThat(downstream.records).hasSize(2);
+        LogRecordData aggregated = downstream.records.get(1);
+        assertThat(aggregated.getBody().asString()).isEqualTo("Error al invocar OpenWeatherMap: 501");
+        assertThat(aggregated.getAttributes().get(AggregatingLogRecordProcessor.OCCURRENCES)).isEqualTo(49);
+        assertThat(aggregated.getAttributes().get(AggregatingLogRecordProcessor.FIRST_TIMESTAMP)).isEqualTo(1_001);
+        assertThat(aggregated.getAttributes().get(AggregatingLogRecordProcessor.LAST_TIMESTAMP)).isEqualTo(1_049);
+        assertThat(processor.getSuppressedRecords()).isEqualTo(49);
+        loggerProvider.shutdown().join(5, TimeUnit.SECONDS);
+    }
+
+    @Test
+    void shouldKeepDistinctFingerprintsAndLowSeverityRecordsApart() {
+        AggregatingLogRecordProcessor processor = new AggregatingLogRecordProcessor(downstream, settings());
+        SdkLoggerProvider loggerProvider = SdkLoggerProvider.builder().addLogRecordProcessor(processor).build();
+        Logger logger = loggerProvider.get("test");
+
+        logger.logRecordBuilder().setSeverity(Severity.ERROR).setBody("timeout").emit();
+        logger.logRecordBuilder().setSeverity(Severity.WARN).setBody("timeout").emit();
+        logger.logRecordBuilder().setSeverity(Severity.ERROR).setBody("timeout")
+            .setAttribute(EXCEPTION_TYPE, "java.net.SocketTimeoutException").emit();
+        logger.logRecordBuilder().setSeverity(Severity.INFO).setBody("lookup").emit();
+        logger.logRecordBuilder().setSeverity(Severity.INFO).setBody("lookup").emit();
+        loggerProvider.shutdown().join(5, TimeUnit.SECONDS);
+
+        assertThat(downstream.records).hasSize(5);
+        assertThat(processor.getSuppressedRecords()).isZero();
+    }
+
+    @Test
+    void shouldReplaceDigitRunsInTemplates() {
+        assertThat(AggregatingLogRecordProcessor.template("lat=40.4168 lon=-3.7038 status 503"))
+            .isEqualTo("lat=#.# lon=-#.# status #");
+        assertThat(AggregatingLogRecordProcessor.template("no digits")).isEqualTo("no digits");
+    }
+
+    private static MongoTelemetryProperties.LogAggregation settings() {
+        MongoTelemetryProperties.LogAggregation settings = new MongoTelemetryProperties.LogAggregation();
+        settings.setWindow(Duration.ofMinutes(1));
+        return settings;
+    }
+
+    private static final class RecordingLogRecordProcessor implements LogRecordProcessor {
+
+        private final List<LogRecordData> records = new CopyOnWriteArrayList<>();
+
+        @Override
+        public void onEmit(Context context, ReadWriteLogRecord logRecord) {
+            records.add(logRecord.toLogRecordData());
+        }
+
+        @Override
+        public CompletableResultCode shutdown() {
+            return CompletableResultCode.ofSuccess();
+        }
+    }
+}
@@ -0,0 +1,106 @@
+package com.example.weather.telemetry;
+
+import io.opentelemetry.api.logs.Logger;
+import io.opentelemetry.api.logs.Severity;
+import io.opentelemetry.sdk.common.CompletableResultCode;
+import io.opentelemetry.sdk.logs.SdkLoggerProvider;
+import io.opentelemetry.sdk.logs.data.LogRecordData;
+import io.opentelemetry.sdk.logs.export.LogRecordExporter;
+import org.junit.jupiter.api.Test;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class BatchingLogRecordProcessorTest {
+
+    @Test
+    void shouldShedLowSeverityRecordsBeforeErrors() throws InterruptedException {
+        CountDownLatch release = new CountDownLatch(1);
+        RecordingLogRecordExporter exporter = new RecordingLogRecordExporter(release);
+        MongoTelemetryProperties.LogBatch settings = new MongoTelemetryProperties.LogBatch();
+        settings.setMaxQueueSize(8);
+        settings.setMaxExportBatchSize(1);
+        settings.setScheduleDelay(Duration.ofMillis(1));
+        BatchingLogRecordProcessor processor = new BatchingLogRecordProcessor(exporter, settings, 1);
+        SdkLoggerProvider loggerProvider = SdkLoggerProvider.builder().addLogRecordProcessor(processor).build();
+        Logger logger = loggerProvider.get("test");
+
+        logger.logRecordBuilder().setSeverity(Severity.INFO).setBody("in-flight").emit();
+        assertThat(exporter.exportStarted.await(5, TimeUnit.SECONDS)).isTrue();
+        for (int i = 0; i < 8; i++) {
+            logger.logRecordBuilder().setSeverity(Severity.DEBUG).setBody("debug-" + i).emit();
+        }
+        for (int i = 0; i < 8; i++) {
+            logger.logRecordBuilder().setSeverity(Severity.ERROR).setBody("error-" + i).emit();
+        }
+
+        assertThat(processor.getDroppedLogRecords(Severity.DEBUG)).isEqualTo(4);
+        assertThat(processor.getDroppedLogRecords(Severity.ERROR)).isEqualTo(4);
+        release.countDown();
+        loggerProvider.shutdown().join(5, TimeUnit.SECONDS);
+        assertThat(exporter.bodies).hasSize(9);
+    }
+
+    @Test
+    void shouldSplitBatchesByEstimatedSize() {
+        RecordingLogRecordExporter exporter = new RecordingLogRecordExporter(null);
+        MongoTelemetryProperties.LogBatch settings = new MongoTelemetryProperties.LogBatch();
+        settings.setMaxExportBatchBytes(DataSize.ofBytes(1500));
+        settings.setScheduleDelay(Duration.ofMinutes(1));
+        BatchingLogRecordProcessor processor = new BatchingLogRecordProcessor(exporter, settings, 1);
+        SdkLoggerProvider loggerProvider = SdkLoggerProvider.builder().addLogRecordProcessor(processor).build();
+        Logger logger = loggerProvider.get("test");
+
+        for (int i = 0; i < 6; i++) {
+            logger.logRecordBuilder().setSeverity(Severity.INFO).setBody("x".repeat(200)).emit();
+        }
+
+        assertThat(loggerProvider.forceFlush().join(5, TimeUnit.SECONDS).isSuccess()).isTrue();
+        assertThat(exporter.batchSizes).containsExactly(2, 2, 2);
+        loggerProvider.shutdown().join(5, TimeUnit.SECONDS);
+    }
+
+    private static final class RecordingLogRecordExporter implements LogRecordExporter {
+
+        private final List<String> bodies = new CopyOnWriteArrayList<>();
+        private final List<Integer> batchSizes = new CopyOnWriteArrayList<>();
+        private final CountDownLatch exportStarted = new CountDownLatch(1);
+        private final CountDownLatch release;
+
+        private RecordingLogRecordExporter(CountDownLatch release) {
+            this.release = release;
+        }
+
+        @Override
+        public CompletableResultCode export(Collection<LogRecordData> logs) {
+            exportStarted.countDown();
+            if (release != null) {
+                try {
+                    release.await(5, TimeUnit.SECONDS);
+                } catch (InterruptedException exception) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            batchSizes.add(logs.size());
+            logs.forEach(log -> bodies.add(log.getBody().asString()));
+            return CompletableResultCode.ofSuccess();
+        }
+
+        @Override
+        public CompletableResultCode flush() {
+            return CompletableResultCode.ofSuccess();
+        }
+
+        @Override
+        public CompletableResultCode shutdown() {
+            return CompletableResultCode.ofSuccess();
+        }
+    }
+}
@@ -0,0 +1,100 @@
+package com.example.weather.telemetry;
+
+import io.opentelemetry.api.trace.Tracer;
+import io.opentelemetry.sdk.common.CompletableResultCode;
+import io.opentelemetry.sdk.trace.SdkTracerProvider;
+import io.opentelemetry.sdk.trace.data.SpanData;
+import io.opentelemetry.sdk.trace.export.SpanExporter;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class BatchingSpanProcessorTest {
+
+    @Test
+    void shouldExportFinishedSpansInBatchesOnFlush() {
+        RecordingSpanExporter exporter = new RecordingSpanExporter(null);
+        MongoTelemetryProperties.SpanBatch settings = new MongoTelemetryProperties.SpanBatch();
+        settings.setMaxExportBatchSize(2);
+        settings.setScheduleDelay(Duration.ofMinutes(1));
+        BatchingSpanProcessor processor = new BatchingSpanProcessor(exporter, settings, 1);
+        SdkTracerProvider tracerProvider = SdkTracerProvider.builder().addSpanProcessor(processor).build();
+        Tracer tracer = tracerProvider.get("test");
+
+        for (int i = 0; i < 5; i++) {
+            tracer.spanBuilder("span-" + i).startSpan().end();
+        }
+
+        assertThat(tracerProvider.forceFlush().join(5, TimeUnit.SECONDS).isSuccess()).isTrue();
+        assertThat(exporter.batchSizes).hasSize(3);
+        assertThat(exporter.batchSizes.stream().mapToInt(Integer::intValue).sum()).isEqualTo(5);
+        assertThat(exporter.batchSizes).allMatch(size -> size <= 2);
+        tracerProvider.shutdown().join(5, TimeUnit.SECONDS);
+    }
+
+    @Test
+    void shouldDropSpansWhenQueueIsFull() throws InterruptedException {
+        CountDownLatch release = new CountDownLatch(1);
+        RecordingSpanExporter exporter = new RecordingSpanExporter(release);
+        MongoTelemetryProperties.SpanBatch settings = new MongoTelemetryProperties.SpanBatch();
+        settings.setMaxQueueSize(2);
+        settings.setMaxExportBatchSize(1);
+        settings.setScheduleDelay(Duration.ofMillis(1));
+        BatchingSpanProcessor processor = new BatchingSpanProcessor(exporter, settings, 1);
+        SdkTracerProvider tracerProvider = SdkTracerProvider.builder().addSpanProcessor(processor).build();
+        Tracer tracer = tracerProvider.get("test");
+
+        tracer.spanBuilder("in-flight").startSpan().end();
+        assertThat(exporter.exportStarted.await(5, TimeUnit.SECONDS)).isTrue();
+        for (int i = 0; i < 5; i++) {
+            tracer.spanBuilder("queued-" + i).startSpan().end();
+        }
+
+        assertThat(processor.getDroppedSpans()).isEqualTo(3);
+        release.countDown();
+        tracerProvider.shutdown().join(5, TimeUnit.SECONDS);
+        assertThat(exporter.batchSizes.stream().mapToInt(Integer::intValue).sum()).isEqualTo(3);
+    }
+
+    private static final class RecordingSpanExporter implements SpanExporter {
+
+        private final List<Integer> batchSizes = new CopyOnWriteArrayList<>();
+        private final CountDownLatch exportStarted = new CountDownLatch(1);
+        private final CountDownLatch release;
+
+        private RecordingSpanExporter(CountDownLatch release) {
+            this.release = release;
+        }
+
+        @Override
+        public CompletableResultCode export(Collection<SpanData> spans) {
+            exportStarted.countDown();
+            if (release != null) {
+                try {
+                    release.await(5, TimeUnit.SECONDS);
+                } catch (InterruptedException exception) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            batchSizes.add(spans.size());
+            return CompletableResultCode.ofSuccess();
+        }
+
+        @Override
+        public CompletableResultCode flush() {
+            return CompletableResultCode.ofSuccess();
+        }
+
+        @Override
+        public CompletableResultCode shutdown() {
+            return CompletableResultCode.ofSuccess();
+        }
+    }
+}
@@ -0,0 +1,184 @@
+package com.example.weather.telemetry;
+
+import io.opentelemetry.sdk.common.CompletableResultCode;
+import io.opentelemetry.sdk.trace.data.SpanData;
+import io.opentelemetry.sdk.trace.export.SpanExporter;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+
+class DelegatingSpanExporterTest {
+
+    @Test
+    void shouldReportPartialSuccessWhenOneDelegateHangs() {
+        CountDownLatch release = new CountDownLatch(1);
+        CountingSpanExporter healthy = new CountingSpanExporter(null, true);
+        CountingSpanExporter hung = new CountingSpanExporter(release, true);
+        MongoTelemetryProperties.FanOut settings = new MongoTelemetryProperties.FanOut();
+        settings.setTimeout(Duration.ofMillis(200));
+        DelegatingSpanExporter exporter = new DelegatingSpanExporter(List.of(healthy, hung), settings);
+
+        long start = System.nanoTime();
+        CompletableResultCode result = exporter.export(List.of()).join(5, TimeUnit.SECONDS);
+
+        assertThat(result.isSuccess()).isTrue();
+        assertThat(healthy.exports.get()).isEqualTo(1);
+        assertThat(Duration.ofNanos(System.nanoTime() - start)).isLessThan(Duration.ofSeconds(2));
+        release.countDown();
+        exporter.shutdown().join(5, TimeUnit.SECONDS);
+    }
+
+    @Test
+    void shouldSkipDelegateWhileItsCircuitIsOpen() {
+        CountingSpanExporter failing = new CountingSpanExporter(null, false);
+        MongoTelemetryProperties.FanOut settings = new MongoTelemetryProperties.FanOut();
+        settings.setFailureThreshold(2);
+        settings.setOpenDuration(Duration.ofMinutes(1));
+        DelegatingSpanExporter exporter = new DelegatingSpanExporter(List.of(failing), settings);
+
+        for (int i = 0; i < 5; i++) {
+            assertThat(exporter.export(List.of()).join(5, TimeUnit.SECONDS).isSuccess()).isFalse();
+        }
+
+        assertThat(failing.exports.get()).isEqualTo(2);
+        exporter.shutdown().join(5, TimeUnit.SECONDS);
+    }
+
+    @Test
+    void shouldSpoolBatchesThatCannotReachAHungDelegate() {
+        CountDownLatch release = new CountDownLatch(1);
+        HungSpoolingExporter hung = new HungSpoolingExporter(release);
+        MongoTelemetryProperties.FanOut settings = new MongoTelemetryProperties.FanOut();
+        settings.setTimeout(Duration.ofMillis(200));
+        settings.setFailureThreshold(2);
+        settings.setOpenDuration(Duration.ofMinutes(1));
+        DelegatingSpanExporter exporter = new DelegatingSpanExporter(List.of(hung), settings);
+        List<List<SpanData>> batches = new ArrayList<>();
+        for (int i = 0; i < 6; i++) {
+            batches.add(List.of(mock(SpanData.class)));
+        }
+
+        List<CompletableResultCode> results = new ArrayList<>();
+        for (List<SpanData> batch : batches.subList(0, 4)) {
+            results.add(exporter.export(batch));
+        }
+        results.forEach(result -> result.join(5, TimeUnit.SECONDS));
+        for (List<SpanData> batch : batches.subList(4, 6)) {
+            assertThat(exporter.export(batch).join(5, TimeUnit.SECONDS).isSuccess()).isTrue();
+        }
+        release.countDown();
+        exporter.shutdown().join(5, TimeUnit.SECONDS);
+
+        assertThat(results.get(0).isSuccess()).isFalse();
+        assertThat(results.subList(1, 4)).allMatch(CompletableResultCode::isSuccess);
+        assertThat(hung.exports.get()).isEqualTo(1);
+        assertThat(hung.spooled).containsExactlyInAnyOrderElementsOf(batches);
+        assertThat(hung.spoolingThreads).contains("telemetry-fallback-HungSpoolingExporter")
+            .allMatch(thread -> thread.startsWith("telemetry-"));
+    }
+
+    @Test
+    void shouldKeepCircuitClosedWhenOnlyFlushesFail() {
+        CountingSpanExporter exporterWithFailingFlush = new CountingSpanExporter(null, true);
+        exporterWithFailingFlush.flushSucceeds = false;
+        MongoTelemetryProperties.FanOut settings = new MongoTelemetryProperties.FanOut();
+        settings.setFailureThreshold(1);
+        settings.setOpenDuration(Duration.ofMinutes(1));
+        DelegatingSpanExporter exporter = new DelegatingSpanExporter(List.of(exporterWithFailingFlush), settings);
+
+        for (int i = 0; i < 3; i++) {
+            assertThat(exporter.flush().join(5, TimeUnit.SECONDS).isSuccess()).isFalse();
+        }
+
+        assertThat(exporter.export(List.of()).join(5, TimeUnit.SECONDS).isSuccess()).isTrue();
+        assertThat(exporterWithFailingFlush.exports.get()).isEqualTo(1);
+        exporter.shutdown().join(5, TimeUnit.SECONDS);
+    }
+
+    /** Hangs in its first export until released, then fails and spools that batch, as the MongoDB exporters do. */
+    private static final class HungSpoolingExporter implements SpanExporter, SpoolingExporter<SpanData> {
+
+        private final AtomicInteger exports = new AtomicInteger();
+        private final List<Collection<SpanData>> spooled = new CopyOnWriteArrayList<>();
+        private final List<String> spoolingThreads = new CopyOnWriteArrayList<>();
+        private final CountDownLatch release;
+
+        private HungSpoolingExporter(CountDownLatch release) {
+            this.release = release;
+        }
+
+        @Override
+        public CompletableResultCode export(Collection<SpanData> spans) {
+            exports.incrementAndGet();
+            try {
+                release.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException exception) {
+                Thread.currentThread().interrupt();
+            }
+            return spool(spans);
+        }
+
+        @Override
+        public CompletableResultCode spool(Collection<SpanData> spans) {
+            spooled.add(spans);
+            spoolingThreads.add(Thread.currentThread().getName());
+            return CompletableResultCode.ofSuccess();
+        }
+
+        @Override
+        public CompletableResultCode flush() {
+            return CompletableResultCode.ofSuccess();
+        }
+
+        @Override
+        public CompletableResultCode shutdown() {
+            return CompletableResultCode.ofSuccess();
+        }
+    }
+
+    private static final class CountingSpanExporter implements SpanExporter {
+
+        private final AtomicInteger exports = new AtomicInteger();
+        private final CountDownLatch release;
+        private final boolean succeed;
+        private volatile boolean flushSucceeds = true;
+
+        private CountingSpanExporter(CountDownLatch release, boolean succeed) {
+            this.release = release;
+            this.succeed = succeed;
+        }
+
+        @Override
+        public CompletableResultCode export(Collection<SpanData> spans) {
+            if (release != null) {
+                try {
+                    release.await(5, TimeUnit.SECONDS);
+                } catch (InterruptedException exception) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            exports.incrementAndGet();
+            return succeed ? CompletableResultCode.ofSuccess() : CompletableResultCode.ofFailure();
+        }
+
+        @Override
+        public CompletableResultCode flush() {
+            return flushSucceeds ? CompletableResultCode.ofSuccess() : CompletableResultCode.ofFailure();
+        }
+
+        @Override
+        public CompletableResultCode shutdown() {
+            return CompletableResultCode.ofSuccess();
+        }
+    }
+}
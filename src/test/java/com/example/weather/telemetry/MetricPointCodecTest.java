@@ -0,0 +1,160 @@
+package com.example.weather.telemetry;
+
+import com.mongodb.client.MongoCollection;
+import io.opentelemetry.api.common.Attributes;
+import io.opentelemetry.sdk.common.InstrumentationScopeInfo;
+import io.opentelemetry.sdk.metrics.data.AggregationTemporality;
+import io.opentelemetry.sdk.metrics.data.LongPointData;
+import io.opentelemetry.sdk.metrics.data.MetricData;
+import io.opentelemetry.sdk.metrics.internal.data.ImmutableLongPointData;
+import io.opentelemetry.sdk.metrics.internal.data.ImmutableMetricData;
+import io.opentelemetry.sdk.metrics.internal.data.ImmutableSumData;
+import io.opentelemetry.sdk.resources.Resource;
+import org.bson.BsonBinaryReader;
+import org.bson.BsonDocument;
+import org.bson.BsonDocumentWriter;
+import org.bson.BsonInt64;
+import org.bson.BsonString;
+import org.bson.BsonType;
+import org.bson.RawBsonDocument;
+import org.bson.codecs.EncoderContext;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class MetricPointCodecTest {
+
+    private static final long START_NANOS = 1_700_000_000_000_000_000L;
+
+    private static final long END_NANOS = START_NANOS + 30_000_000_123L;
+
+    private static final TimestampEncoder TIMESTAMPS =
+        new TimestampEncoder(MongoTelemetryProperties.TimestampFormat.DOCUMENT, false);
+
+    private static final AttributeSanitizer SANITIZER = AttributeSanitizer.unlimited();
+
+    private final LongPointData point =
+        ImmutableLongPointData.create(START_NANOS, END_NANOS, Attributes.builder().put("city", "Madrid").build(), 7);
+
+    private final MetricData metric = ImmutableMetricData.createLongSum(Resource.getDefault(),
+        InstrumentationScopeInfo.create("test-scope"), "weather.requests", "Weather lookups", "1",
+        ImmutableSumData.create(true, AggregationTemporality.CUMULATIVE, List.of(point)));
+
+    @Test
+    void shouldKeepFlatLayoutByDefault() {
+        BsonDocument document = encode(false);
+
+        assertThat(document.getString("name").getValue()).isEqualTo("weather.requests");
+        assertThat(document.getDocument("end").getInt64("epochNanos").getValue()).isEqualTo(END_NANOS);
+        assertThat(document.getDocument("attributes").getString("city").getValue()).isEqualTo("Madrid");
+        assertThat(document.containsKey("meta")).isFalse();
+    }
+
+    @Test
+    void shouldGroupSeriesFieldsUnderMetaInTimeSeriesLayout() {
+        BsonDocument document = encode(true);
+
+        assertThat(document.isDateTime("end")).isTrue();
+        assertThat(TimestampEncoder.readEpochNanos(document, "end")).isEqualTo(END_NANOS);
+        assertThat(TimestampEncoder.readEpochNanos(document, "start")).isEqualTo(START_NANOS);
+        BsonDocument meta = document.getDocument("meta");
+        assertThat(meta.getString("name").getValue()).isEqualTo("weather.requests");
+        assertThat(meta.getDocument("attributes").getString("city").getValue()).isEqualTo("Madrid");
+        assertThat(meta.containsKey("resource")).isTrue();
+        assertThat(document.containsKey("name")).isFalse();
+        assertThat(document.getInt64("value").getValue()).isEqualTo(7);
+    }
+
+    @Test
+    void shouldPackPointsIntoParallelArraysAndUnpackThem() {
+        LongPointData lisbon =
+            ImmutableLongPointData.create(START_NANOS, END_NANOS, Attributes.builder().put("city", "Lisbon").build(), 3);
+        MongoCollection<?> collection = Mockito.mock(MongoCollection.class);
+        Mockito.doReturn(collection).when(collection).withDocumentClass(BsonDocument.class);
+        AttributeSetDictionary attributeSets = new AttributeSetDictionary(collection, 8, SANITIZER);
+        BsonDocument packed = new BsonDocument();
+        new MetricPointCodec(new TelemetryFragmentCache(8, null, SANITIZER), TIMESTAMPS, false, attributeSets)
+            .encode(new BsonDocumentWriter(packed), new MetricPoints(metric, List.of(point, lisbon)),
+                EncoderContext.builder().build());
+
+        assertThat(packed.getInt32("pointCount").getValue()).isEqualTo(2);
+        assertThat(packed.getArray("values")).containsExactly(new BsonInt64(7), new BsonInt64(3));
+        assertThat(packed.containsKey("attributes")).isFalse();
+
+        Map<Long, BsonDocument> sets = Map.of(
+            attributeSets.idOf(point.getAttributes()), new BsonDocument("city", new BsonString("Madrid")),
+            attributeSets.idOf(lisbon.getAttributes()), new BsonDocument("city", new BsonString("Lisbon")));
+        List<BsonDocument> points = PackedMetricDecoder.unpack(packed, sets);
+
+        assertThat(points).hasSize(2);
+        assertThat(points.get(1).getString("name").getValue()).isEqualTo("weather.requests");
+        assertThat(points.get(1).getDocument("attributes").getString("city").getValue()).isEqualTo("Lisbon");
+        assertThat(points.get(1).getInt64("value").getValue()).isEqualTo(3);
+        assertThat(TimestampEncoder.readEpochNanos(points.get(1), "end")).isEqualTo(END_NANOS);
+        assertThat(points.get(1).containsKey("pointCount")).isFalse();
+    }
+
+    @Test
+    void shouldKeepPackedArraysApartFromDateRemainders() {
+        TimestampEncoder dates = new TimestampEncoder(MongoTelemetryProperties.TimestampFormat.DATE, false);
+        RawBsonDocument packed = encodePacked(dates, false);
+
+        assertPackedTimesSurvive(packed);
+    }
+
+    @Test
+    void shouldKeepPackedArraysApartFromDateRemaindersInTimeSeriesLayout() {
+        RawBsonDocument packed = encodePacked(TIMESTAMPS, true);
+
+        assertThat(packed.getDocument("meta").getString("name").getValue()).isEqualTo("weather.requests");
+        assertPackedTimesSurvive(packed);
+    }
+
+    private void assertPackedTimesSurvive(RawBsonDocument packed) {
+        assertThat(fieldNames(packed)).doesNotHaveDuplicates();
+        assertThat(TimestampEncoder.readEpochNanos(packed, "start")).isEqualTo(START_NANOS);
+        assertThat(TimestampEncoder.readEpochNanos(packed, "end")).isEqualTo(END_NANOS);
+        assertThat(packed.getArray("pointEndNanos")).containsExactly(new BsonInt64(END_NANOS));
+
+        BsonDocument unpacked = PackedMetricDecoder.unpack(packed, Map.of()).get(0);
+
+        assertThat(TimestampEncoder.readEpochNanos(unpacked, "start")).isEqualTo(START_NANOS);
+        assertThat(TimestampEncoder.readEpochNanos(unpacked, "end")).isEqualTo(END_NANOS);
+        assertThat(unpacked.keySet()).doesNotContain("startNanos", "endNanos", "pointStartNanos", "pointEndNanos");
+    }
+
+    private RawBsonDocument encodePacked(TimestampEncoder timestamps, boolean timeSeries) {
+        MongoCollection<?> collection = Mockito.mock(MongoCollection.class);
+        Mockito.doReturn(collection).when(collection).withDocumentClass(BsonDocument.class);
+        MetricPointCodec codec = new MetricPointCodec(new TelemetryFragmentCache(8, null, SANITIZER), timestamps,
+            timeSeries, new AttributeSetDictionary(collection, 8, SANITIZER));
+        return TelemetryDocumentFactory.encodeAll(codec, List.of(new MetricPoints(metric, List.of(point)))).get(0);
+    }
+
+    /** Top-level field names in the order they were written, including any repeated name. */
+    private static List<String> fieldNames(RawBsonDocument document) {
+        List<String> names = new ArrayList<>();
+        try (BsonBinaryReader reader = new BsonBinaryReader(document.getByteBuffer().asNIO())) {
+            reader.readStartDocument();
+            while (reader.readBsonType() != BsonType.END_OF_DOCUMENT) {
+                names.add(reader.readName());
+                reader.skipValue();
+            }
+        }
+        return names;
+    }
+
+    private BsonDocument encode(boolean timeSeries) {
+        BsonDocument document = new BsonDocument();
+        new MetricPointCodec(new TelemetryFragmentCache(8, null, SANITIZER), TIMESTAMPS, timeSeries,
+            new AttributeSetDictionary(null, 8, SANITIZER))
+            .encode(new BsonDocumentWriter(document), new MetricPoints(metric, List.of(point)),
+                EncoderContext.builder().build());
+        return document;
+    }
+}
@@ -0,0 +1,42 @@
+package com.example.weather.telemetry;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.autoconfigure.AutoConfigurations;
+import org.springframework.boot.autoconfigure.validation.ValidationAutoConfiguration;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.boot.test.context.runner.ApplicationContextRunner;
+import org.springframework.context.annotation.Configuration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class MongoTelemetryPropertiesTest {
+
+    private final ApplicationContextRunner contextRunner = new ApplicationContextRunner()
+        .withConfiguration(AutoConfigurations.of(ValidationAutoConfiguration.class))
+        .withUserConfiguration(PropertiesConfiguration.class);
+
+    @Test
+    void shouldRejectRetentionThatTtlIndexesCannotApply() {
+        contextRunner.withPropertyValues("telemetry.mongo.indexing.logs-retention=P7D")
+            .run(context -> assertThat(context).getFailure()
+                .hasStackTraceContaining("needs timestamp-format 'date'"));
+    }
+
+    @Test
+    void shouldAcceptRetentionThatCanBeApplied() {
+        contextRunner.withPropertyValues("telemetry.mongo.indexing.logs-retention=P7D",
+                "telemetry.mongo.timestamp-format=date")
+            .run(context -> assertThat(context).hasNotFailed());
+        contextRunner.withPropertyValues("telemetry.mongo.indexing.logs-retention=P7D",
+                "telemetry.mongo.partitioning.enabled=true")
+            .run(context -> assertThat(context).hasNotFailed());
+        contextRunner.withPropertyValues("telemetry.mongo.indexing.metrics-retention=P7D",
+                "telemetry.mongo.metrics-time-series.enabled=true")
+            .run(context -> assertThat(context).hasNotFailed());
+    }
+
+    @Configuration(proxyBeanMethods = false)
+    @EnableConfigurationProperties(MongoTelemetryProperties.class)
+    static class PropertiesConfiguration {
+    }
+}
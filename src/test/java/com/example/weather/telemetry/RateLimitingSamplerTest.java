@@ -0,0 +1,73 @@
+package com.example.weather.telemetry;
+
+import io.opentelemetry.api.common.Attributes;
+import io.opentelemetry.api.trace.SpanKind;
+import io.opentelemetry.context.Context;
+import io.opentelemetry.sdk.trace.samplers.SamplingDecision;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class RateLimitingSamplerTest {
+
+    private static final String TRACE_ID = "0af7651916cd43dd8448eb211c80319c";
+
+    @Test
+    void shouldSampleAtMostOneSecondOfBudgetInABurst() {
+        RateLimitingSampler sampler = new RateLimitingSampler(settings(10, Map.of()));
+
+        assertThat(sampledOf(sampler, "GET", Attributes.empty(), 100)).isEqualTo(10);
+    }
+
+    @Test
+    void shouldApplyBudgetsPerSpanName() {
+        RateLimitingSampler sampler = new RateLimitingSampler(settings(10,
+            Map.of("weather-refresh", 2.0, "scheduled-refresh", 0.0)));
+
+        assertThat(sampledOf(sampler, "weather-refresh", Attributes.empty(), 50)).isEqualTo(2);
+        assertThat(sampledOf(sampler, "scheduled-refresh", Attributes.empty(), 50)).isZero();
+        assertThat(sampledOf(sampler, "http get", Attributes.builder().put("uri", "/api/weather").build(), 50))
+            .isEqualTo(10);
+        assertThat(sampler.effectiveRate("scheduled-refresh")).isZero();
+    }
+
+    @Test
+    void shouldReportEffectiveRateOfThePreviousWindow() throws InterruptedException {
+        MongoTelemetryProperties.RateLimitedSampling settings = settings(5, Map.of());
+        settings.setWindow(Duration.ofMillis(200));
+        // Warm up on a throwaway sampler so class loading cannot push the burst past the window.
+        sampledOf(new RateLimitingSampler(settings), "GET", Attributes.empty(), 20);
+        RateLimitingSampler sampler = new RateLimitingSampler(settings);
+
+        sampledOf(sampler, "GET", Attributes.empty(), 20);
+        Thread.sleep(250);
+        sampledOf(sampler, "GET", Attributes.empty(), 1);
+
+        assertThat(sampler.effectiveRate(RateLimitingSampler.DEFAULT_BUDGET)).isBetween(0.2, 0.3);
+    }
+
+    private static MongoTelemetryProperties.RateLimitedSampling settings(double spansPerSecond,
+            Map<String, Double> budgets) {
+        MongoTelemetryProperties.RateLimitedSampling settings = new MongoTelemetryProperties.RateLimitedSampling();
+        settings.setSpansPerSecond(spansPerSecond);
+        settings.setBudgets(budgets);
+        settings.setWindow(Duration.ofMinutes(1));
+        return settings;
+    }
+
+    private static int sampledOf(RateLimitingSampler sampler, String name, Attributes attributes, int spans) {
+        int sampled = 0;
+        for (int i = 0; i < spans; i++) {
+            SamplingDecision decision = sampler.shouldSample(Context.root(), TRACE_ID, name, SpanKind.SERVER,
+                attributes, List.of()).getDecision();
+            if (decision == SamplingDecision.RECORD_AND_SAMPLE) {
+                sampled++;
+            }
+        }
+        return sampled;
+    }
+}
@@ -0,0 +1,106 @@
+package com.example.weather.telemetry;
+
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.ReplaceOneModel;
+import com.mongodb.reactivestreams.client.MongoCollection;
+import io.opentelemetry.sdk.common.CompletableResultCode;
+import org.bson.BsonDocument;
+import org.bson.BsonInt64;
+import org.bson.BsonString;
+import org.bson.RawBsonDocument;
+import org.bson.codecs.BsonDocumentCodec;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.reactivestreams.Publisher;
+import org.reactivestreams.Subscription;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class ReactiveMongoWriterTest {
+
+    private final List<String> events = new CopyOnWriteArrayList<>();
+
+    private static final BsonDocument LOG = new BsonDocument("body", new BsonString("log"));
+
+    @SuppressWarnings("unchecked")
+    private final MongoCollection<RawBsonDocument> documents = mock(MongoCollection.class);
+
+    @SuppressWarnings("unchecked")
+    private final MongoCollection<BsonDocument> resources = mock(MongoCollection.class);
+
+    @SuppressWarnings("unchecked")
+    private final TelemetrySpool<BsonDocument> spool = mock(TelemetrySpool.class);
+
+    private final ReactiveMongoWriter<BsonDocument> writer = new ReactiveMongoWriter<>(new BsonDocumentCodec(),
+        PartitionRouter.unpartitioned(documents, "logs"), "logs", new MongoTelemetryProperties.Reactive(), spool);
+
+    @AfterEach
+    void shutdown() {
+        writer.shutdown();
+    }
+
+    @Test
+    void shouldInsertOnceTheReferencedDocumentsAreStored() {
+        when(resources.bulkWrite(anyList(), any())).thenReturn(completing("upsert", null));
+        when(documents.insertMany(anyList())).thenReturn(completing("insert", null));
+
+        CompletableResultCode result = writer.insert(List.of(LOG),
+            List.of(new ReactiveMongoWriter.Upsert(resources, List.of(upsert(42)), () -> events.add("stored"))));
+
+        assertThat(result.join(1, TimeUnit.SECONDS).isSuccess()).isTrue();
+        assertThat(events).containsExactly("upsert", "stored", "insert");
+        verify(documents).insertMany(List.of(new RawBsonDocument(LOG, new BsonDocumentCodec())));
+    }
+
+    @Test
+    void shouldSpoolOffTheCallbackThreadWhenAnUpsertFails() {
+        when(resources.bulkWrite(anyList(), any())).thenReturn(completing("upsert", new IllegalStateException()));
+        when(spool.append(anyList())).thenAnswer(invocation -> {
+            events.add("spooled on " + Thread.currentThread().getName());
+            return CompletableResultCode.ofSuccess();
+        });
+
+        CompletableResultCode result = writer.insert(List.of(LOG),
+            List.of(new ReactiveMongoWriter.Upsert(resources, List.of(upsert(42)), () -> events.add("stored"))));
+
+        assertThat(result.join(1, TimeUnit.SECONDS).isSuccess()).isTrue();
+        verify(spool, timeout(1000)).append(List.of(LOG));
+        verify(documents, never()).insertMany(anyList());
+        assertThat(events).containsExactly("upsert", "spooled on telemetry-spool-logs");
+        assertThat(writer.flush().isSuccess()).isTrue();
+    }
+
+    private static ReplaceOneModel<BsonDocument> upsert(long id) {
+        return new ReplaceOneModel<>(Filters.eq("_id", id), new BsonDocument("_id", new BsonInt64(id)));
+    }
+
+    /** A publisher that records {@code event} and then completes, or fails with {@code error}, without a value. */
+    private <R> Publisher<R> completing(String event, Throwable error) {
+        return subscriber -> subscriber.onSubscribe(new Subscription() {
+            @Override
+            public void request(long n) {
+                events.add(event);
+                if (error != null) {
+                    subscriber.onError(error);
+                } else {
+                    subscriber.onComplete();
+                }
+            }
+
+            @Override
+            public void cancel() {
+            }
+        });
+    }
+}
@@ -0,0 +1,106 @@
+package com.example.weather.telemetry;
+
+import com.mongodb.client.MongoCollection;
+import io.opentelemetry.api.common.AttributeKey;
+import io.opentelemetry.api.common.Attributes;
+import io.opentelemetry.api.trace.Span;
+import io.opentelemetry.sdk.trace.ReadableSpan;
+import io.opentelemetry.sdk.trace.SdkTracerProvider;
+import io.opentelemetry.sdk.trace.data.SpanData;
+import org.bson.BsonDocument;
+import org.bson.BsonDocumentWriter;
+import org.bson.codecs.EncoderContext;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class SpanDataCodecTest {
+
+    private SdkTracerProvider tracerProvider;
+    private SpanData spanData;
+
+    @BeforeEach
+    void setUp() {
+        tracerProvider = SdkTracerProvider.builder().build();
+        Span span = tracerProvider.get("test-scope").spanBuilder("GET /api/weather")
+            .setAttribute("http.route", "/api/weather")
+            .setAttribute(AttributeKey.longArrayKey("codes"), List.of(200L, 304L))
+            .startSpan();
+        span.addEvent("retry", Attributes.of(AttributeKey.longKey("attempt"), 2L));
+        span.end();
+        spanData = ((ReadableSpan) span).toSpanData();
+    }
+
+    @AfterEach
+    void tearDown() {
+        tracerProvider.close();
+    }
+
+    @Test
+    void shouldEncodeSpanInStoredLayout() {
+        BsonDocument document = encode(new TelemetryFragmentCache(8, null, AttributeSanitizer.unlimited()));
+
+        assertThat(document.getString("traceId").getValue()).isEqualTo(spanData.getTraceId());
+        assertThat(document.getString("name").getValue()).isEqualTo("GET /api/weather");
+        assertThat(document.getString("kind").getValue()).isEqualTo("INTERNAL");
+        assertThat(document.getDocument("start").getInt64("epochNanos").getValue())
+            .isEqualTo(spanData.getStartEpochNanos());
+        assertThat(document.getDocument("attributes").getString("http.route").getValue()).isEqualTo("/api/weather");
+        assertThat(document.getDocument("attributes").getArray("codes")).hasSize(2);
+        assertThat(document.getDocument("instrumentationScope").getString("name").getValue()).isEqualTo("test-scope");
+        assertThat(document.getDocument("resource").getDocument("attributes").containsKey("service.name")).isTrue();
+        assertThat(document.getArray("events").get(0).asDocument().getString("name").getValue()).isEqualTo("retry");
+        assertThat(document.containsKey("links")).isFalse();
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void shouldReferenceResourceByHashWhenNormalized() {
+        MongoCollection<BsonDocument> resources = mock(MongoCollection.class);
+        when(resources.withDocumentClass(any())).thenAnswer(invocation -> resources);
+
+        BsonDocument document = encode(new TelemetryFragmentCache(8, resources, AttributeSanitizer.unlimited()));
+
+        long expectedHash = TelemetryFragmentCache.hash(TelemetryDocumentFactory.encodeResource(spanData.getResource(),
+            AttributeSanitizer.unlimited()));
+        assertThat(document.containsKey("resource")).isFalse();
+        assertThat(document.getInt64("resourceId").getValue()).isEqualTo(expectedHash);
+    }
+
+    @Test
+    void shouldApplyAttributeLimitsAndCountTruncations() {
+        MongoTelemetryProperties.AttributeLimits limits = new MongoTelemetryProperties.AttributeLimits();
+        limits.setMaxStringLength(4);
+        limits.setMaxArrayLength(1);
+        AttributeSanitizer sanitizer = new AttributeSanitizer(limits);
+
+        BsonDocument attributes = encode(new TelemetryFragmentCache(8, null, sanitizer)).getDocument("attributes");
+
+        assertThat(attributes.getString("http.route").getValue()).isEqualTo("/api");
+        assertThat(attributes.getArray("codes")).hasSize(1);
+        assertThat(sanitizer.getTruncatedStrings()).isPositive();
+        assertThat(sanitizer.getTruncatedArrays()).isEqualTo(1);
+
+        limits.setMaxAttributes(1);
+        AttributeSanitizer countLimited = new AttributeSanitizer(limits);
+        attributes = encode(new TelemetryFragmentCache(8, null, countLimited)).getDocument("attributes");
+
+        assertThat(attributes.keySet()).hasSize(1);
+        assertThat(countLimited.getDroppedAttributes()).isPositive();
+    }
+
+    private BsonDocument encode(TelemetryFragmentCache fragments) {
+        BsonDocument document = new BsonDocument();
+        TimestampEncoder timestamps = new TimestampEncoder(MongoTelemetryProperties.TimestampFormat.DOCUMENT, true);
+        new SpanDataCodec(fragments, timestamps).encode(new BsonDocumentWriter(document), spanData,
+            EncoderContext.builder().build());
+        return document;
+    }
+}
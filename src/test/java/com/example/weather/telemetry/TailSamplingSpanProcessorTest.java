@@ -0,0 +1,202 @@
+package com.example.weather.telemetry;
+
+import io.opentelemetry.api.trace.Span;
+import io.opentelemetry.api.trace.StatusCode;
+import io.opentelemetry.api.trace.Tracer;
+import io.opentelemetry.context.Context;
+import io.opentelemetry.context.Scope;
+import io.opentelemetry.sdk.common.CompletableResultCode;
+import io.opentelemetry.sdk.trace.ReadWriteSpan;
+import io.opentelemetry.sdk.trace.ReadableSpan;
+import io.opentelemetry.sdk.trace.SdkTracerProvider;
+import io.opentelemetry.sdk.trace.SpanProcessor;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TailSamplingSpanProcessorTest {
+
+    private final RecordingSpanProcessor downstream = new RecordingSpanProcessor();
+
+    private SdkTracerProvider tracerProvider;
+
+    @AfterEach
+    void shutdown() {
+        tracerProvider.shutdown();
+    }
+
+    @Test
+    void shouldKeepWholeTraceWhenAnySpanFailed() {
+        TailSamplingSpanProcessor processor = processor(settings());
+        Tracer tracer = tracer(processor);
+
+        Span root = tracer.spanBuilder("GET /api/weather").startSpan();
+        try (Scope ignored = root.makeCurrent()) {
+            tracer.spanBuilder("openweather").startSpan().setStatus(StatusCode.ERROR).end();
+            tracer.spanBuilder("mongo").startSpan().end();
+        }
+        assertThat(downstream.spanNames).isEmpty();
+        root.end();
+
+        assertThat(downstream.spanNames).containsExactly("openweather", "mongo", "GET /api/weather");
+        assertThat(processor.getKeptTraces()).isEqualTo(1);
+    }
+
+    @Test
+    void shouldDropHealthyTracesOutsideTheBaseline() {
+        TailSamplingSpanProcessor processor = processor(settings());
+        Tracer tracer = tracer(processor);
+
+        Span root = tracer.spanBuilder("GET /api/weather").startSpan();
+        try (Scope ignored = root.makeCurrent()) {
+            tracer.spanBuilder("openweather").startSpan().end();
+        }
+        root.end();
+        Span late = tracer.spanBuilder("async").setParent(Context.root().with(root)).startSpan();
+        late.end();
+
+        assertThat(downstream.spanNames).isEmpty();
+        assertThat(processor.getDroppedTraces()).isEqualTo(1);
+    }
+
+    @Test
+    void shouldKeepErrorSpansEndingAfterTheTraceWasDropped() {
+        TailSamplingSpanProcessor processor = processor(settings());
+        Tracer tracer = tracer(processor);
+
+        Span root = tracer.spanBuilder("GET /api/weather").startSpan();
+        Span async = tracer.spanBuilder("async").setParent(Context.root().with(root)).startSpan();
+        root.end();
+        assertThat(processor.getDroppedTraces()).isEqualTo(1);
+        async.setStatus(StatusCode.ERROR).end();
+        tracer.spanBuilder("retry").setParent(Context.root().with(root)).startSpan().end();
+
+        assertThat(downstream.spanNames).containsExactly("async", "retry");
+        assertThat(processor.getKeptTraces()).isEqualTo(1);
+    }
+
+    @Test
+    void shouldKeepErrorSpansOfTracesThatFindTheirStripeFull() {
+        MongoTelemetryProperties.TailSampling settings = settings();
+        settings.setMaxTraces(16);
+        Tracer tracer = tracer(processor(settings));
+        for (int i = 0; i < 200; i++) {
+            Span pending = tracer.spanBuilder("pending").startSpan();
+            tracer.spanBuilder("child").setParent(Context.root().with(pending)).startSpan().end();
+        }
+
+        Span root = tracer.spanBuilder("GET /api/weather").startSpan();
+        try (Scope ignored = root.makeCurrent()) {
+            tracer.spanBuilder("mongo").startSpan().end();
+            tracer.spanBuilder("openweather").startSpan().setStatus(StatusCode.ERROR).end();
+        }
+        root.end();
+
+        assertThat(downstream.spanNames).containsExactly("openweather", "GET /api/weather");
+    }
+
+    @Test
+    void shouldCountDroppedTracesThatFindTheirStripeFullOnce() {
+        MongoTelemetryProperties.TailSampling settings = settings();
+        settings.setMaxTraces(16);
+        TailSamplingSpanProcessor processor = processor(settings);
+        Tracer tracer = tracer(processor);
+        for (int i = 0; i < 200; i++) {
+            Span pending = tracer.spanBuilder("pending").startSpan();
+            tracer.spanBuilder("child").setParent(Context.root().with(pending)).startSpan().end();
+        }
+        long dropped = processor.getDroppedTraces();
+
+        Span root = tracer.spanBuilder("GET /api/weather").startSpan();
+        try (Scope ignored = root.makeCurrent()) {
+            tracer.spanBuilder("mongo").startSpan().end();
+            tracer.spanBuilder("openweather").startSpan().end();
+        }
+        root.end();
+
+        assertThat(downstream.spanNames).isEmpty();
+        assertThat(processor.getDroppedTraces()).isEqualTo(dropped + 1);
+    }
+
+    @Test
+    void shouldKeepConfiguredRoutes() {
+        MongoTelemetryProperties.TailSampling settings = settings();
+        settings.setRoutes(List.of("/api/weather"));
+        Tracer tracer = tracer(processor(settings));
+
+        tracer.spanBuilder("http get").setAttribute("uri", "/api/weather").startSpan().end();
+        tracer.spanBuilder("http get").setAttribute("uri", "/actuator/health").startSpan().end();
+
+        assertThat(downstream.spanNames).containsExactly("http get");
+    }
+
+    @Test
+    void shouldDecideTracesWithoutLocalRootOnFlush() {
+        MongoTelemetryProperties.TailSampling settings = settings();
+        settings.setBaselineRatio(1.0);
+        TailSamplingSpanProcessor processor = processor(settings);
+        Tracer tracer = tracer(processor);
+
+        Span root = tracer.spanBuilder("root").startSpan();
+        try (Scope ignored = root.makeCurrent()) {
+            tracer.spanBuilder("child").startSpan().end();
+        }
+        assertThat(downstream.spanNames).isEmpty();
+        tracerProvider.forceFlush();
+
+        assertThat(downstream.spanNames).containsExactly("child");
+        root.end();
+        assertThat(downstream.spanNames).containsExactly("child", "root");
+    }
+
+    private static MongoTelemetryProperties.TailSampling settings() {
+        MongoTelemetryProperties.TailSampling settings = new MongoTelemetryProperties.TailSampling();
+        settings.setDecisionWait(Duration.ofMinutes(1));
+        settings.setLatencyThreshold(Duration.ZERO);
+        settings.setBaselineRatio(0.0);
+        return settings;
+    }
+
+    private TailSamplingSpanProcessor processor(MongoTelemetryProperties.TailSampling settings) {
+        return new TailSamplingSpanProcessor(downstream, settings);
+    }
+
+    private Tracer tracer(SpanProcessor processor) {
+        tracerProvider = SdkTracerProvider.builder().addSpanProcessor(processor).build();
+        return tracerProvider.get("test");
+    }
+
+    private static final class RecordingSpanProcessor implements SpanProcessor {
+
+        private final List<String> spanNames = new CopyOnWriteArrayList<>();
+
+        @Override
+        public void onStart(Context parentContext, ReadWriteSpan span) {
+        }
+
+        @Override
+        public boolean isStartRequired() {
+            return false;
+        }
+
+        @Override
+        public void onEnd(ReadableSpan span) {
+            spanNames.add(span.getName());
+        }
+
+        @Override
+        public boolean isEndRequired() {
+            return true;
+        }
+
+        @Override
+        public CompletableResultCode shutdown() {
+            return CompletableResultCode.ofSuccess();
+        }
+    }
+}
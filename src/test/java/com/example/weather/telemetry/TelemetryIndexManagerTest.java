@@ -0,0 +1,174 @@
+package com.example.weather.telemetry;
+
+import com.mongodb.MongoCommandException;
+import com.mongodb.MongoNamespace;
+import com.mongodb.ServerAddress;
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.ListCollectionsIterable;
+import com.mongodb.client.MongoDatabase;
+import com.mongodb.client.model.CreateCollectionOptions;
+import com.mongodb.client.model.IndexOptions;
+import com.mongodb.client.model.Indexes;
+import io.opentelemetry.sdk.logs.SdkLoggerProvider;
+import io.opentelemetry.sdk.logs.data.LogRecordData;
+import org.bson.BsonDocument;
+import org.bson.BsonDocumentWriter;
+import org.bson.BsonInt32;
+import org.bson.BsonString;
+import org.bson.Document;
+import org.bson.codecs.EncoderContext;
+import org.bson.conversions.Bson;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class TelemetryIndexManagerTest {
+
+    private final MongoDatabase database = mock(MongoDatabase.class);
+
+    private final MongoCollection<Document> logs = collection("logs");
+
+    private final MongoCollection<Document> traces = collection("traces");
+
+    private final MongoCollection<Document> metrics = collection("metrics");
+
+    private final MongoTelemetryProperties properties = new MongoTelemetryProperties();
+
+    @BeforeEach
+    void setUp() {
+        when(database.getCollection("logs")).thenReturn(logs);
+        when(database.getCollection("traces")).thenReturn(traces);
+        when(database.getCollection("metrics")).thenReturn(metrics);
+    }
+
+    @Test
+    void shouldCreateTtlIndexForRetainedSignalWithDateTimestamps() {
+        properties.getIndexing().setLogsRetention(Duration.ofDays(7));
+
+        newManager(MongoTelemetryProperties.TimestampFormat.DATE).ensureIndexes();
+
+        ArgumentCaptor<IndexOptions> options = ArgumentCaptor.forClass(IndexOptions.class);
+        verify(logs).createIndex(eq(Indexes.ascending("observedTime")), options.capture());
+        assertThat(options.getValue().getExpireAfter(TimeUnit.DAYS)).isEqualTo(7);
+        verify(logs).createIndex(eq(Indexes.ascending("spanContext.traceId", "spanContext.spanId")),
+            any(IndexOptions.class));
+        verify(traces).createIndex(eq(Indexes.ascending("traceId", "spanId")), any(IndexOptions.class));
+        verify(traces).createIndex(eq(Indexes.ascending("start")),
+            argThat(indexOptions -> indexOptions.getExpireAfter(TimeUnit.SECONDS) == null));
+    }
+
+    @Test
+    void shouldSkipTtlWhenTimestampsAreNotDates() {
+        properties.getIndexing().setLogsRetention(Duration.ofDays(7));
+
+        newManager(MongoTelemetryProperties.TimestampFormat.DOCUMENT).ensureIndexes();
+
+        verify(logs).createIndex(eq(Indexes.ascending("observedTime.epochNanos")),
+            argThat(indexOptions -> indexOptions.getExpireAfter(TimeUnit.SECONDS) == null));
+    }
+
+    @Test
+    void shouldExpireLogsWithoutTimestampByTheirObservedTime() {
+        properties.getIndexing().setLogsRetention(Duration.ofDays(7));
+        TimestampEncoder dates = new TimestampEncoder(MongoTelemetryProperties.TimestampFormat.DATE, false);
+        List<LogRecordData> records = new ArrayList<>();
+        SdkLoggerProvider loggerProvider = SdkLoggerProvider.builder()
+            .addLogRecordProcessor((context, logRecord) -> records.add(logRecord.toLogRecordData()))
+            .build();
+        loggerProvider.get("test").logRecordBuilder().setBody("no timestamp").emit();
+        BsonDocument document = new BsonDocument();
+        new LogRecordDataCodec(new TelemetryFragmentCache(8, null, AttributeSanitizer.unlimited()), dates)
+            .encode(new BsonDocumentWriter(document), records.get(0), EncoderContext.builder().build());
+
+        newManager(MongoTelemetryProperties.TimestampFormat.DATE).ensureIndexes();
+
+        ArgumentCaptor<Bson> keys = ArgumentCaptor.forClass(Bson.class);
+        verify(logs).createIndex(keys.capture(),
+            argThat(indexOptions -> indexOptions.getExpireAfter(TimeUnit.SECONDS) != null));
+        String ttlField = keys.getValue().toBsonDocument().getFirstKey();
+        assertThat(document.getDateTime("timestamp").getValue()).isZero();
+        assertThat(document.getDateTime(ttlField).getValue())
+            .isEqualTo(TimeUnit.NANOSECONDS.toMillis(records.get(0).getObservedTimestampEpochNanos()))
+            .isPositive();
+        verify(logs).dropIndex(Indexes.ascending("timestamp"));
+    }
+
+    @Test
+    void shouldChangeRetentionOfExistingTtlIndex() {
+        properties.getIndexing().setTracesRetention(Duration.ofHours(1));
+        when(traces.createIndex(eq(Indexes.ascending("start")), any(IndexOptions.class)))
+            .thenThrow(new MongoCommandException(new BsonDocument("code", new BsonInt32(85))
+                .append("errmsg", new BsonString("IndexOptionsConflict")), new ServerAddress()));
+
+        newManager(MongoTelemetryProperties.TimestampFormat.DATE).ensureIndexes();
+
+        ArgumentCaptor<Bson> command = ArgumentCaptor.forClass(Bson.class);
+        verify(database).runCommand(command.capture());
+        Document collMod = (Document) command.getValue();
+        assertThat(collMod.getString("collMod")).isEqualTo("traces");
+        assertThat(collMod.get("index", Document.class).getLong("expireAfterSeconds")).isEqualTo(3600);
+    }
+
+    @Test
+    void shouldDropTtlIndexWhenRetentionIsTurnedOff() {
+        when(traces.createIndex(eq(Indexes.ascending("start")), any(IndexOptions.class)))
+            .thenThrow(new MongoCommandException(new BsonDocument("code", new BsonInt32(85))
+                .append("errmsg", new BsonString("IndexOptionsConflict")), new ServerAddress()))
+            .thenReturn("start_1");
+
+        newManager(MongoTelemetryProperties.TimestampFormat.DATE).ensureIndexes();
+
+        verify(traces).dropIndex(Indexes.ascending("start"));
+        verify(traces, times(2)).createIndex(eq(Indexes.ascending("start")),
+            argThat(indexOptions -> indexOptions.getExpireAfter(TimeUnit.SECONDS) == null));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void shouldCreateTimeSeriesCollectionAtStartupWhenIndexingIsDisabled() {
+        properties.getIndexing().setEnabled(false);
+        MongoTelemetryProperties.TimeSeries settings = new MongoTelemetryProperties.TimeSeries();
+        settings.setEnabled(true);
+        ListCollectionsIterable<Document> listing = mock(ListCollectionsIterable.class);
+        when(database.listCollections()).thenReturn(listing);
+        when(listing.filter(any())).thenReturn(listing);
+        TimeSeriesMetricsCollection timeSeries = new TimeSeriesMetricsCollection(database, "metrics", settings);
+
+        try (TelemetryIndexManager manager = new TelemetryIndexManager(database, properties,
+                new TimestampEncoder(MongoTelemetryProperties.TimestampFormat.DATE, false), timeSeries)) {
+            manager.start();
+
+            verify(database, timeout(1000)).createCollection(eq("metrics"), any(CreateCollectionOptions.class));
+        }
+        verify(metrics, never()).createIndex(any(Bson.class), any(IndexOptions.class));
+    }
+
+    private TelemetryIndexManager newManager(MongoTelemetryProperties.TimestampFormat format) {
+        TimeSeriesMetricsCollection timeSeries = new TimeSeriesMetricsCollection(database, "metrics",
+            new MongoTelemetryProperties.TimeSeries());
+        return new TelemetryIndexManager(database, properties, new TimestampEncoder(format, false), timeSeries);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static MongoCollection<Document> collection(String name) {
+        MongoCollection<Document> collection = mock(MongoCollection.class);
+        when(collection.getNamespace()).thenReturn(new MongoNamespace("telemetry", name));
+        return collection;
+    }
+}
@@ -0,0 +1,139 @@
+package com.example.weather.telemetry;
+
+import com.mongodb.MongoNamespace;
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.MongoDatabase;
+import com.mongodb.client.MongoIterable;
+import org.bson.Document;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class TelemetryPartitionsTest {
+
+    private static final long NOW_NANOS = nanos("2026-10-17T14:30:00Z");
+
+    private final MongoDatabase database = mock(MongoDatabase.class);
+
+    private final MongoTelemetryProperties properties = new MongoTelemetryProperties();
+
+    @Test
+    void shouldNamePartitionsAfterTheirUtcBucket() {
+        TelemetryPartitions daily = newPartitions(MongoTelemetryProperties.PartitionPeriod.DAILY);
+        TelemetryPartitions hourly = newPartitions(MongoTelemetryProperties.PartitionPeriod.HOURLY);
+
+        assertThat(daily.partitionName("logs", daily.bucketOf(NOW_NANOS))).isEqualTo("logs_20261017");
+        assertThat(hourly.partitionName("logs", hourly.bucketOf(NOW_NANOS))).isEqualTo("logs_2026101714");
+        assertThat(TelemetryPartitions.partitionEndNanos("logs", "logs_2026101714"))
+            .isEqualTo(nanos("2026-10-17T15:00:00Z"));
+        assertThat(TelemetryPartitions.partitionEndNanos("logs", "logs_20261017"))
+            .isEqualTo(nanos("2026-10-18T00:00:00Z"));
+        assertThat(TelemetryPartitions.partitionEndNanos("logs", "logs_archive")).isEqualTo(Long.MAX_VALUE);
+    }
+
+    @Test
+    void shouldRouteEachItemToThePartitionOfItsTime() {
+        TelemetryPartitions partitions = newPartitions(MongoTelemetryProperties.PartitionPeriod.DAILY);
+        MongoCollection<Document> base = collection("logs");
+        MongoCollection<Document> today = collection("logs_20261017");
+        MongoCollection<Document> yesterday = collection("logs_20261016");
+        doReturn(today).when(database).getCollection("logs_20261017", Document.class);
+        doReturn(yesterday).when(database).getCollection("logs_20261016", Document.class);
+        when(base.getDocumentClass()).thenReturn(Document.class);
+        when(today.withCodecRegistry(any())).thenReturn(today);
+        when(yesterday.withCodecRegistry(any())).thenReturn(yesterday);
+        PartitionRouter<Document, MongoCollection<Document>> router =
+            partitions.router(base, document -> document.getLong("time"));
+        Document first = new Document("time", NOW_NANOS);
+        Document late = new Document("time", NOW_NANOS - TimeUnit.DAYS.toNanos(1));
+        Document second = new Document("time", NOW_NANOS + 1);
+
+        Map<MongoCollection<Document>, List<Document>> routed = router.route(List.of(first, late, second));
+
+        assertThat(routed).containsOnlyKeys(today, yesterday);
+        assertThat(routed.get(today)).containsExactly(first, second);
+        assertThat(routed.get(yesterday)).containsExactly(late);
+    }
+
+    @Test
+    void shouldDropPartitionsPastRetentionAndKeepTheRest() {
+        properties.getIndexing().setEnabled(false);
+        properties.getIndexing().setLogsRetention(Duration.ofDays(2));
+        TelemetryPartitions partitions = newPartitions(MongoTelemetryProperties.PartitionPeriod.DAILY);
+        MongoCollection<Document> expired = collection("logs_20261014");
+        MongoCollection<Document> retained = collection("logs_20261015");
+        MongoCollection<Document> unrelated = collection("logs_archive");
+        MongoCollection<Document> other = collection("other");
+        when(database.getCollection(anyString())).thenReturn(other);
+        when(database.getCollection("logs_20261014")).thenReturn(expired);
+        when(database.getCollection("logs_20261015")).thenReturn(retained);
+        when(database.getCollection("logs_archive")).thenReturn(unrelated);
+        listCollections("logs_20261014", "logs_20261015", "logs_archive", "traces_20260101");
+
+        partitions.rotate(NOW_NANOS);
+
+        verify(expired).drop();
+        verify(retained, never()).drop();
+        verify(unrelated, never()).drop();
+        verify(database).createCollection("logs_20261017");
+        verify(database).createCollection("logs_20261018");
+    }
+
+    @Test
+    void shouldListPartitionsNewestFirstEndingAfterTheGivenTime() {
+        TelemetryPartitions partitions = newPartitions(MongoTelemetryProperties.PartitionPeriod.HOURLY);
+        listCollections("traces_2026101712", "traces_2026101714", "traces_2026101713", "traces_archive",
+            "logs_2026101714");
+
+        assertThat(partitions.collectionNames("traces", nanos("2026-10-17T13:00:00Z")))
+            .containsExactly("traces_2026101714", "traces_2026101713");
+        assertThat(partitions.collectionNames("traces", Long.MIN_VALUE))
+            .containsExactly("traces_2026101714", "traces_2026101713", "traces_2026101712");
+    }
+
+    private TelemetryPartitions newPartitions(MongoTelemetryProperties.PartitionPeriod period) {
+        properties.getPartitioning().setEnabled(true);
+        properties.getPartitioning().setPeriod(period);
+        TimeSeriesMetricsCollection timeSeries = new TimeSeriesMetricsCollection(database, "metrics",
+            new MongoTelemetryProperties.TimeSeries());
+        TimestampEncoder timestamps = new TimestampEncoder(MongoTelemetryProperties.TimestampFormat.DATE, false);
+        TelemetryIndexManager indexes = new TelemetryIndexManager(database, properties, timestamps, timeSeries);
+        return new TelemetryPartitions(database, properties, indexes, timeSeries);
+    }
+
+    @SuppressWarnings("unchecked")
+    private void listCollections(String... names) {
+        MongoIterable<String> iterable = mock(MongoIterable.class);
+        when(iterable.into(any())).thenAnswer(invocation -> {
+            Collection<String> target = invocation.getArgument(0);
+            target.addAll(List.of(names));
+            return target;
+        });
+        doReturn(iterable).when(database).listCollectionNames();
+    }
+
+    @SuppressWarnings("unchecked")
+    private static MongoCollection<Document> collection(String name) {
+        MongoCollection<Document> collection = mock(MongoCollection.class);
+        when(collection.getNamespace()).thenReturn(new MongoNamespace("telemetry", name));
+        return collection;
+    }
+
+    private static long nanos(String instant) {
+        return TimeUnit.SECONDS.toNanos(Instant.parse(instant).getEpochSecond());
+    }
+}
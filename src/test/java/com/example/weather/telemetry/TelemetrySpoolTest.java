@@ -0,0 +1,162 @@
+package com.example.weather.telemetry;
+
+import com.mongodb.MongoNamespace;
+import com.mongodb.MongoTimeoutException;
+import com.mongodb.client.MongoCollection;
+import org.bson.BsonDocument;
+import org.bson.BsonInt32;
+import org.bson.BsonString;
+import org.bson.Document;
+import org.bson.RawBsonDocument;
+import org.bson.codecs.BsonDocumentCodec;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.util.unit.DataSize;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class TelemetrySpoolTest {
+
+    @TempDir
+    Path directory;
+
+    private MongoCollection<Document> collection;
+    private MongoCollection<RawBsonDocument> rawCollection;
+    private final List<Integer> inserted = new ArrayList<>();
+    private final List<TelemetrySpool<BsonDocument>> spools = new ArrayList<>();
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        collection = mock(MongoCollection.class);
+        rawCollection = mock(MongoCollection.class);
+        when(collection.withDocumentClass(RawBsonDocument.class)).thenReturn(rawCollection);
+        when(collection.getNamespace()).thenReturn(new MongoNamespace("telemetry.traces"));
+        doAnswer(invocation -> {
+            List<RawBsonDocument> documents = invocation.getArgument(0);
+            documents.forEach(document -> inserted.add(document.getInt32("seq").getValue()));
+            return null;
+        }).when(rawCollection).insertMany(anyList());
+    }
+
+    @AfterEach
+    void tearDown() {
+        spools.forEach(TelemetrySpool::close);
+    }
+
+    @Test
+    void shouldReplaySpooledDocumentsInOrderAndDeleteSegments() throws IOException {
+        TelemetrySpool<BsonDocument> spool = newSpool(DataSize.ofMegabytes(1));
+
+        assertThat(spool.append(List.of(document(0), document(1))).isSuccess()).isTrue();
+        assertThat(spool.append(List.of(document(2))).isSuccess()).isTrue();
+        assertThat(spool.isBacklogged()).isTrue();
+
+        spool.replay();
+
+        assertThat(inserted).containsExactly(0, 1, 2);
+        assertThat(spool.isBacklogged()).isFalse();
+        assertThat(segmentFiles()).isEmpty();
+    }
+
+    @Test
+    void shouldKeepDocumentsSpooledWhileMongoIsUnavailable() {
+        TelemetrySpool<BsonDocument> spool = newSpool(DataSize.ofMegabytes(1));
+        spool.append(List.of(document(0), document(1)));
+        doThrow(new MongoTimeoutException("down")).when(rawCollection).insertMany(anyList());
+
+        spool.replay();
+
+        assertThat(inserted).isEmpty();
+        assertThat(spool.isBacklogged()).isTrue();
+    }
+
+    @Test
+    void shouldRecoverSegmentsLeftByPreviousRun() {
+        TelemetrySpool<BsonDocument> first = newSpool(DataSize.ofMegabytes(1));
+        first.append(List.of(document(0), document(1)));
+        first.close();
+
+        TelemetrySpool<BsonDocument> second = newSpool(DataSize.ofMegabytes(1));
+        assertThat(second.isBacklogged()).isTrue();
+        second.append(List.of(document(2)));
+        second.replay();
+
+        assertThat(inserted).containsExactly(0, 1, 2);
+    }
+
+    @Test
+    void shouldStopReplayingSegmentAtCorruptedRecord() throws IOException {
+        TelemetrySpool<BsonDocument> first = newSpool(DataSize.ofMegabytes(1));
+        first.append(List.of(document(0), document(1), document(2)));
+        first.close();
+        Path segment = segmentFiles().get(0);
+        int firstRecordBytes = 2 * Integer.BYTES + new RawBsonDocument(document(0), new BsonDocumentCodec())
+            .getByteBuffer().remaining();
+        try (RandomAccessFile file = new RandomAccessFile(segment.toFile(), "rw")) {
+            file.seek(firstRecordBytes + 2 * Integer.BYTES + 8);
+            file.write(0x7f);
+        }
+
+        TelemetrySpool<BsonDocument> second = newSpool(DataSize.ofMegabytes(1));
+        second.replay();
+
+        assertThat(inserted).containsExactly(0);
+        assertThat(second.isBacklogged()).isFalse();
+    }
+
+    @Test
+    void shouldEvictOldestSegmentWhenDiskLimitIsReached() {
+        TelemetrySpool<BsonDocument> spool = newSpool(DataSize.ofKilobytes(128));
+        for (int i = 0; i < 5; i++) {
+            spool.append(List.of(largeDocument(i)));
+        }
+
+        spool.replay();
+
+        assertThat(spool.getEvictedSegments()).isEqualTo(1);
+        assertThat(inserted).containsExactly(2, 3, 4);
+    }
+
+    private TelemetrySpool<BsonDocument> newSpool(DataSize maxSize) {
+        MongoTelemetryProperties.Spool settings = new MongoTelemetryProperties.Spool();
+        settings.setEnabled(true);
+        settings.setDirectory(directory.toString());
+        settings.setSegmentSize(DataSize.ofKilobytes(64));
+        settings.setMaxSize(maxSize);
+        settings.setReplayInterval(Duration.ofHours(1));
+        TelemetrySpool<BsonDocument> spool = new TelemetrySpool<>(new BsonDocumentCodec(), collection, settings);
+        spools.add(spool);
+        return spool;
+    }
+
+    private List<Path> segmentFiles() throws IOException {
+        try (Stream<Path> files = Files.list(directory.resolve("traces"))) {
+            return files.sorted().toList();
+        }
+    }
+
+    private static BsonDocument document(int sequence) {
+        return new BsonDocument("seq", new BsonInt32(sequence)).append("name", new BsonString("span-" + sequence));
+    }
+
+    private static BsonDocument largeDocument(int sequence) {
+        return document(sequence).append("payload", new BsonString("x".repeat(30 * 1024)));
+    }
+}
@@ -0,0 +1,48 @@
+package com.example.weather.telemetry;
+
+import org.bson.BsonDocument;
+import org.bson.BsonDocumentWriter;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class TimestampEncoderTest {
+
+    private static final long EPOCH_NANOS = 1_760_700_000_123_456_789L;
+
+    @ParameterizedTest
+    @EnumSource(MongoTelemetryProperties.TimestampFormat.class)
+    void shouldReadBackEveryFormat(MongoTelemetryProperties.TimestampFormat format) {
+        BsonDocument document = write(new TimestampEncoder(format, false));
+
+        assertThat(TimestampEncoder.readEpochNanos(document, "start")).isEqualTo(EPOCH_NANOS);
+        assertThat(document.containsKey("startIso")).isFalse();
+    }
+
+    @Test
+    void shouldSplitDateAndSubMillisecondRemainder() {
+        BsonDocument document = write(new TimestampEncoder(MongoTelemetryProperties.TimestampFormat.DATE, true));
+
+        assertThat(document.getDateTime("start").getValue()).isEqualTo(1_760_700_000_123L);
+        assertThat(document.getInt32("startNanos").getValue()).isEqualTo(456_789);
+        assertThat(document.getString("startIso").getValue()).isEqualTo("2025-10-17T11:20:00.123456789Z");
+    }
+
+    @Test
+    void shouldRejectMissingTimestamp() {
+        assertThatThrownBy(() -> TimestampEncoder.readEpochNanos(new BsonDocument(), "start"))
+            .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    private BsonDocument write(TimestampEncoder encoder) {
+        BsonDocument document = new BsonDocument();
+        BsonDocumentWriter writer = new BsonDocumentWriter(document);
+        writer.writeStartDocument();
+        encoder.write(writer, "start", EPOCH_NANOS);
+        writer.writeEndDocument();
+        return document;
+    }
+}
@@ -0,0 +1,107 @@
+package com.example.weather.telemetry;
+
+import com.mongodb.client.FindIterable;
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.MongoCursor;
+import com.mongodb.client.MongoDatabase;
+import com.mongodb.client.MongoIterable;
+import org.bson.BsonDocument;
+import org.bson.BsonInt64;
+import org.bson.BsonString;
+import org.bson.conversions.Bson;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class TraceQueryServiceTest {
+
+    private static final String TRACE_ID = "0af7651916cd43dd8448eb211c80319c";
+
+    private final MongoDatabase database = mock(MongoDatabase.class);
+
+    private final MongoTelemetryProperties properties = new MongoTelemetryProperties();
+
+    @Test
+    void shouldStopOnePartitionAfterTheFirstHoldingTheTrace() {
+        properties.getTraceQuery().setLookback(Duration.ZERO);
+        listCollections("traces_20260105", "traces_20260104", "traces_20260103", "traces_20260102");
+        MongoCollection<BsonDocument> newest = traces(List.of());
+        MongoCollection<BsonDocument> holding = traces(List.of(span("b1", "a0", 20)));
+        MongoCollection<BsonDocument> neighbour = traces(List.of(span("a0", "0000000000000000", 10)));
+        MongoCollection<BsonDocument> oldest = traces(List.of());
+        doReturn(newest).when(database).getCollection("traces_20260105", BsonDocument.class);
+        doReturn(holding).when(database).getCollection("traces_20260104", BsonDocument.class);
+        doReturn(neighbour).when(database).getCollection("traces_20260103", BsonDocument.class);
+        doReturn(oldest).when(database).getCollection("traces_20260102", BsonDocument.class);
+
+        Optional<TraceTree> trace = newService().findTrace(TRACE_ID);
+
+        assertThat(trace).map(TraceTree::getSpanCount).contains(2);
+        verify(oldest, never()).find(any(Bson.class));
+    }
+
+    @Test
+    void shouldSkipPartitionsOlderThanTheLookback() {
+        properties.getTraceQuery().setLookback(Duration.ofDays(7));
+        listCollections("traces_20200101");
+
+        assertThat(newService().findTrace(TRACE_ID)).isEmpty();
+        verify(database, never()).getCollection("traces_20200101", BsonDocument.class);
+    }
+
+    private TraceQueryService newService() {
+        properties.getPartitioning().setEnabled(true);
+        TimeSeriesMetricsCollection timeSeries = new TimeSeriesMetricsCollection(database, "metrics",
+            new MongoTelemetryProperties.TimeSeries());
+        TimestampEncoder timestamps = new TimestampEncoder(MongoTelemetryProperties.TimestampFormat.DATE, false);
+        TelemetryIndexManager indexes = new TelemetryIndexManager(database, properties, timestamps, timeSeries);
+        TelemetryPartitions partitions = new TelemetryPartitions(database, properties, indexes, timeSeries);
+        return new TraceQueryService(database, properties, partitions);
+    }
+
+    @SuppressWarnings("unchecked")
+    private void listCollections(String... names) {
+        MongoIterable<String> iterable = mock(MongoIterable.class);
+        when(iterable.into(any())).thenAnswer(invocation -> {
+            Collection<String> target = invocation.getArgument(0);
+            target.addAll(List.of(names));
+            return target;
+        });
+        doReturn(iterable).when(database).listCollectionNames();
+    }
+
+    @SuppressWarnings("unchecked")
+    private static MongoCollection<BsonDocument> traces(List<BsonDocument> spans) {
+        MongoCollection<BsonDocument> collection = mock(MongoCollection.class);
+        FindIterable<BsonDocument> found = mock(FindIterable.class);
+        MongoCursor<BsonDocument> cursor = mock(MongoCursor.class);
+        Iterator<BsonDocument> iterator = new ArrayList<>(spans).iterator();
+        when(collection.find(any(Bson.class))).thenReturn(found);
+        when(found.iterator()).thenReturn(cursor);
+        when(cursor.hasNext()).thenAnswer(invocation -> iterator.hasNext());
+        when(cursor.next()).thenAnswer(invocation -> iterator.next());
+        return collection;
+    }
+
+    private static BsonDocument span(String spanId, String parentSpanId, long start) {
+        return new BsonDocument("traceId", new BsonString(TRACE_ID))
+            .append("spanId", new BsonString(spanId))
+            .append("parentSpanId", new BsonString(parentSpanId))
+            .append("name", new BsonString("span-" + spanId))
+            .append("start", new BsonInt64(start))
+            .append("end", new BsonInt64(start + 5));
+    }
+}
@@ -0,0 +1,81 @@
+package com.example.weather.telemetry;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.bson.BsonDocument;
+import org.bson.BsonInt64;
+import org.bson.BsonString;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TraceTreeTest {
+
+    private static final String TRACE_ID = "0af7651916cd43dd8448eb211c80319c";
+
+    @Test
+    void shouldLinkChildrenThatArriveBeforeTheirParent() throws IOException {
+        TraceTree tree = TraceTree.assemble(TRACE_ID, List.of(
+            span("c2", "b1", 30),
+            span("b1", "a0", 20),
+            span("c1", "b1", 25),
+            span("a0", "0000000000000000", 10)));
+
+        JsonNode json = write(tree);
+
+        assertThat(json.get("spanCount").asInt()).isEqualTo(4);
+        JsonNode root = json.get("spans").get(0);
+        assertThat(json.get("spans")).hasSize(1);
+        assertThat(root.get("spanId").asText()).isEqualTo("a0");
+        JsonNode child = root.get("children").get(0);
+        assertThat(child.get("spanId").asText()).isEqualTo("b1");
+        assertThat(child.get("children")).extracting(node -> node.get("spanId").asText())
+            .containsExactly("c1", "c2");
+        assertThat(child.get("durationNanos").asLong()).isEqualTo(5);
+        assertThat(child.get("name").asText()).isEqualTo("span-b1");
+        assertThat(child.has("start")).isFalse();
+    }
+
+    @Test
+    void shouldTreatSpansWithMissingParentAsRoots() throws IOException {
+        TraceTree tree = TraceTree.assemble(TRACE_ID, List.of(span("b1", "ffffffffffffffff", 20), span("c1", "b1", 25)));
+
+        JsonNode json = write(tree);
+
+        assertThat(json.get("spans")).extracting(node -> node.get("spanId").asText()).containsExactly("b1");
+    }
+
+    @Test
+    void shouldRenderResolvedResourceInPlaceOfReference() throws IOException {
+        BsonDocument span = span("a0", "0000000000000000", 10).append("resourceId", new BsonInt64(42));
+        TraceTree tree = TraceTree.assemble(TRACE_ID, List.of(span));
+
+        assertThat(tree.getResourceIds()).containsExactly(42L);
+        tree.resolveResources(Map.of(42L, new BsonDocument("_id", new BsonInt64(42))
+            .append("attributes", new BsonDocument("service.name", new BsonString("weather-service")))));
+
+        JsonNode root = write(tree).get("spans").get(0);
+        assertThat(root.get("resource").get("attributes").get("service.name").asText()).isEqualTo("weather-service");
+        assertThat(root.has("resourceId")).isFalse();
+    }
+
+    private static BsonDocument span(String spanId, String parentSpanId, long start) {
+        return new BsonDocument("traceId", new BsonString(TRACE_ID))
+            .append("spanId", new BsonString(spanId))
+            .append("parentSpanId", new BsonString(parentSpanId))
+            .append("name", new BsonString("span-" + spanId))
+            .append("start", new BsonInt64(start))
+            .append("end", new BsonInt64(start + 5));
+    }
+
+    private static JsonNode write(TraceTree tree) throws IOException {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        tree.writeTo(output);
+        return new ObjectMapper().readTree(output.toByteArray());
+    }
+}
@@ -0,0 +1,117 @@
+package com.example.weather.telemetry;
+
+import io.opentelemetry.api.common.Attributes;
+import io.opentelemetry.sdk.common.InstrumentationScopeInfo;
+import io.opentelemetry.sdk.metrics.data.AggregationTemporality;
+import io.opentelemetry.sdk.metrics.data.LongPointData;
+import io.opentelemetry.sdk.metrics.data.MetricData;
+import io.opentelemetry.sdk.metrics.data.PointData;
+import io.opentelemetry.sdk.metrics.internal.data.ImmutableLongPointData;
+import io.opentelemetry.sdk.metrics.internal.data.ImmutableMetricData;
+import io.opentelemetry.sdk.metrics.internal.data.ImmutableSumData;
+import io.opentelemetry.sdk.resources.Resource;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class UnchangedPointFilterTest {
+
+    private static final long SECOND = 1_000_000_000L;
+
+    private static final Attributes MADRID = Attributes.builder().put("city", "Madrid").build();
+
+    private static final Attributes LISBON = Attributes.builder().put("city", "Lisbon").build();
+
+    @Test
+    void shouldSkipCumulativePointsThatDidNotChange() {
+        UnchangedPointFilter filter = newFilter(Duration.ofMinutes(5));
+
+        assertThat(write(filter, points(AggregationTemporality.CUMULATIVE, 10, 5, 3))).hasSize(2);
+        assertThat(write(filter, points(AggregationTemporality.CUMULATIVE, 20, 5, 4)))
+            .extracting(point -> point.points().get(0).getAttributes())
+            .containsExactly(LISBON);
+        assertThat(filter.getSuppressedPoints()).isEqualTo(1);
+    }
+
+    @Test
+    void shouldKeepOnlyChangedPointsOfPackedMetric() {
+        UnchangedPointFilter filter = newFilter(Duration.ofMinutes(5));
+
+        write(filter, packed(points(AggregationTemporality.CUMULATIVE, 10, 5, 3)));
+        List<MetricPoints> changed = write(filter, packed(points(AggregationTemporality.CUMULATIVE, 20, 5, 4)));
+
+        assertThat(changed).hasSize(1);
+        assertThat(changed.get(0).points()).extracting(PointData::getAttributes).containsExactly(LISBON);
+    }
+
+    @Test
+    void shouldAlwaysWriteDeltaPoints() {
+        UnchangedPointFilter filter = newFilter(Duration.ofMinutes(5));
+
+        write(filter, points(AggregationTemporality.DELTA, 10, 5, 3));
+
+        assertThat(write(filter, points(AggregationTemporality.DELTA, 20, 5, 3))).hasSize(2);
+    }
+
+    @Test
+    void shouldRewriteUnchangedSeriesAfterHeartbeat() {
+        UnchangedPointFilter filter = newFilter(Duration.ofSeconds(30));
+
+        write(filter, points(AggregationTemporality.CUMULATIVE, 10, 5, 3));
+
+        assertThat(write(filter, points(AggregationTemporality.CUMULATIVE, 20, 5, 3))).isEmpty();
+        assertThat(write(filter, points(AggregationTemporality.CUMULATIVE, 40, 5, 3))).hasSize(2);
+    }
+
+    @Test
+    void shouldPassEverythingThroughWhenDisabled() {
+        UnchangedPointFilter filter = new UnchangedPointFilter(new MongoTelemetryProperties.ChangeDetection());
+
+        write(filter, points(AggregationTemporality.CUMULATIVE, 10, 5, 3));
+
+        assertThat(write(filter, points(AggregationTemporality.CUMULATIVE, 20, 5, 3))).hasSize(2);
+    }
+
+    @Test
+    void shouldWriteAgainPointsThatWereNotCommitted() {
+        UnchangedPointFilter filter = newFilter(Duration.ofMinutes(5));
+
+        assertThat(filter.retainChanged(points(AggregationTemporality.CUMULATIVE, 10, 5, 3))).hasSize(2);
+
+        assertThat(filter.retainChanged(points(AggregationTemporality.CUMULATIVE, 20, 5, 3))).hasSize(2);
+        assertThat(filter.getSuppressedPoints()).isZero();
+    }
+
+    /** Filters {@code items} and commits what is left, as an exporter does after a successful insert. */
+    private static List<MetricPoints> write(UnchangedPointFilter filter, List<MetricPoints> items) {
+        List<MetricPoints> changed = filter.retainChanged(items);
+        filter.commit(changed);
+        return changed;
+    }
+
+    private static UnchangedPointFilter newFilter(Duration heartbeat) {
+        MongoTelemetryProperties.ChangeDetection settings = new MongoTelemetryProperties.ChangeDetection();
+        settings.setEnabled(true);
+        settings.setHeartbeat(heartbeat);
+        return new UnchangedPointFilter(settings);
+    }
+
+    private static List<MetricPoints> points(AggregationTemporality temporality, long endSeconds, long madrid,
+            long lisbon) {
+        List<LongPointData> data = List.of(
+            ImmutableLongPointData.create(0, endSeconds * SECOND, MADRID, madrid),
+            ImmutableLongPointData.create(0, endSeconds * SECOND, LISBON, lisbon));
+        MetricData metric = ImmutableMetricData.createLongSum(Resource.getDefault(),
+            InstrumentationScopeInfo.create("test-scope"), "weather.requests", "Weather lookups", "1",
+            ImmutableSumData.create(true, temporality, data));
+        return new ArrayList<>(MongoMetricExporter.toPoints(List.of(metric), false));
+    }
+
+    private static List<MetricPoints> packed(List<MetricPoints> points) {
+        return MongoMetricExporter.toPoints(List.of(points.get(0).metric()), true);
+    }
+}
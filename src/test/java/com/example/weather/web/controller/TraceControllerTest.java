@@ -0,0 +1,79 @@
+package com.example.weather.web.controller;
+
+import com.example.weather.telemetry.TraceQueryService;
+import com.example.weather.telemetry.TraceTree;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Optional;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+class TraceControllerTest {
+
+    private static final String TRACE_ID = "0af7651916cd43dd8448eb211c80319c";
+
+    private final TraceQueryService traceQueryService = mock(TraceQueryService.class);
+
+    private MockMvc mockMvc;
+
+    @BeforeEach
+    void setUp() {
+        mockMvc = MockMvcBuilders.standaloneSetup(new TraceController(traceQueryService)).build();
+    }
+
+    @Test
+    void shouldRejectInvalidTraceIds() throws Exception {
+        mockMvc.perform(get("/api/telemetry/traces/{traceId}", "not-a-trace-id"))
+            .andExpect(status().isBadRequest());
+
+        verifyNoInteractions(traceQueryService);
+    }
+
+    @Test
+    void shouldAnswerNotFoundWhenTheTraceHasNoSpans() throws Exception {
+        when(traceQueryService.findTrace(anyString())).thenReturn(Optional.empty());
+
+        mockMvc.perform(get("/api/telemetry/traces/{traceId}", TRACE_ID))
+            .andExpect(status().isNotFound());
+
+        verify(traceQueryService).findTrace(TRACE_ID);
+    }
+
+    @Test
+    void shouldStreamTheTraceAsJson() throws Exception {
+        TraceTree tree = mock(TraceTree.class);
+        doAnswer(invocation -> {
+            invocation.getArgument(0, OutputStream.class)
+                .write(("{\"traceId\":\"" + TRACE_ID + "\"}").getBytes(StandardCharsets.UTF_8));
+            return null;
+        }).when(tree).writeTo(any());
+        when(traceQueryService.findTrace(TRACE_ID)).thenReturn(Optional.of(tree));
+
+        MvcResult result = mockMvc.perform(get("/api/telemetry/traces/{traceId}", TRACE_ID))
+            .andExpect(request().asyncStarted())
+            .andReturn();
+
+        mockMvc.perform(asyncDispatch(result))
+            .andExpect(status().isOk())
+            .andExpect(content().contentType(MediaType.APPLICATION_JSON))
+            .andExpect(content().json("{\"traceId\":\"" + TRACE_ID + "\"}"));
+    }
+}